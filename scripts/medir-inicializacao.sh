@@ -0,0 +1,23 @@
+#!/usr/bin/env sh
+# Mede o tempo até o primeiro GET /mensagens bem-sucedido.
+# Uso: scripts/medir-inicializacao.sh <comando que sobe a aplicação...>
+# Ex.:  scripts/medir-inicializacao.sh docker compose up app
+URL="${URL:-http://localhost:8080/mensagens}"
+
+inicio=$(date +%s%N)
+"$@" > /dev/null 2>&1 &
+pid=$!
+
+until curl -sf -o /dev/null "$URL"; do
+  if ! kill -0 "$pid" 2> /dev/null; then
+    echo "a aplicação encerrou antes de responder" >&2
+    exit 1
+  fi
+  sleep 0.05
+done
+fim=$(date +%s%N)
+
+echo "primeiro GET /mensagens em $(( (fim - inicio) / 1000000 )) ms"
+kill "$pid" 2> /dev/null
+wait "$pid" 2> /dev/null
+exit 0
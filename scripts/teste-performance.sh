@@ -0,0 +1,24 @@
+#!/usr/bin/env sh
+# Sobe a aplicação com o perfil "local" (H2 em memória), roda a PerformanceSimulation contra ela
+# e derruba a aplicação no fim. Argumentos extras vão para o Gatling.
+# Ex.:  scripts/teste-performance.sh -Dmodelo=fechado -Dusuarios=300 -Dduracao=120
+set -e
+PORTA="${PORTA:-8080}"
+URL_BASE="http://localhost:$PORTA"
+
+mvn -q test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/classpath-teste.txt
+java -cp "target/classes:target/test-classes:$(cat target/classpath-teste.txt)" \
+  br.com.fiap.api.RestApiApplication --spring.profiles.active=local --server.port="$PORTA" \
+  > target/aplicacao-local.log 2>&1 &
+pid=$!
+trap 'kill "$pid" 2> /dev/null; wait "$pid" 2> /dev/null' EXIT
+
+until curl -sf -o /dev/null "$URL_BASE/actuator/health/readiness"; do
+  if ! kill -0 "$pid" 2> /dev/null; then
+    echo "a aplicação encerrou antes de responder; veja target/aplicacao-local.log" >&2
+    exit 1
+  fi
+  sleep 0.5
+done
+
+mvn gatling:test -P performance-test -DurlBase="$URL_BASE" "$@"
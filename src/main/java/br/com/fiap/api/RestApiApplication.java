@@ -7,6 +7,10 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class RestApiApplication {
 
     public static void main(String[] args){
-        SpringApplication.run(RestApiApplication.class);
+        var contexto = SpringApplication.run(RestApiApplication.class, args);
+        // execução de treino do arquivo CDS (Dockerfile): sobe o contexto e encerra
+        if (Boolean.getBoolean("aplicacao.treino-cds")) {
+            System.exit(SpringApplication.exit(contexto));
+        }
     }
 }
@@ -0,0 +1,36 @@
+package br.com.fiap.api.config;
+
+import br.com.fiap.api.service.AquecimentoAplicacao;
+import br.com.fiap.api.service.MensagemService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+
+// no perfil reativo o MensagemService não está no caminho das requisições
+@Configuration
+@Profile("!reativo")
+public class AquecimentoConfig {
+
+    @Bean
+    public AquecimentoAplicacao aquecimentoAplicacao(
+            MensagemService mensagemService,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventos,
+            @Value("${mensagem.aquecimento.paralelismo:4}") int paralelismo,
+            @Value("${mensagem.aquecimento.iteracoes-por-rodada:100}") int iteracoesPorRodada,
+            @Value("${mensagem.aquecimento.tolerancia:0.2}") double tolerancia,
+            @Value("${mensagem.aquecimento.rodadas-estaveis:3}") int rodadasEstaveis,
+            @Value("${mensagem.aquecimento.duracao-maxima:60s}") Duration duracaoMaxima,
+            @Value("${mensagem.aquecimento.habilitado:true}") boolean habilitado) {
+        return new AquecimentoAplicacao(mensagemService, objectMapper, transactionManager, eventos,
+                paralelismo, iteracoesPorRodada, tolerancia, rodadasEstaveis, duracaoMaxima, habilitado,
+                System::nanoTime);
+    }
+}
@@ -0,0 +1,61 @@
+package br.com.fiap.api.config;
+
+import br.com.fiap.api.repository.ArquivoMensagens;
+import br.com.fiap.api.repository.MensagemRepository;
+import br.com.fiap.api.service.ArquivamentoMensagens;
+import br.com.fiap.api.service.BarramentoInvalidacao;
+import br.com.fiap.api.service.ContagemMensagens;
+import br.com.fiap.api.service.GosteiPorUsuario;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Period;
+
+// o perfil fragmentado não tem a tabela única de onde as mensagens antigas sairiam
+@Configuration
+@Profile("!fragmentado")
+public class ArquivoConfig {
+
+    // cada bloco em cache ocupa, fora do heap, linhas-por-bloco x tamanho médio da mensagem (256 x ~400B)
+    @Bean
+    public ArquivoMensagens arquivoMensagens(
+            @Value("${mensagem.arquivo.diretorio:dados/arquivo}") Path diretorio,
+            @Value("${mensagem.arquivo.linhas-por-bloco:256}") int linhasPorBloco,
+            @Value("${mensagem.arquivo.nivel:9}") int nivel,
+            @Value("${mensagem.arquivo.blocos-em-cache:256}") int blocosEmCache) {
+        return new ArquivoMensagens(diretorio, linhasPorBloco, nivel, blocosEmCache);
+    }
+
+    @Bean
+    public ArquivamentoMensagens arquivamentoMensagens(
+            MensagemRepository mensagemRepository,
+            ArquivoMensagens arquivoMensagens,
+            BarramentoInvalidacao barramentoInvalidacao,
+            ContagemMensagens contagemMensagens,
+            GosteiPorUsuario gosteiPorUsuario,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${mensagem.arquivo.idade:6m}") Period idade,
+            @Value("${mensagem.arquivo.tamanho-lote:10000}") int tamanhoLote,
+            @Value("${mensagem.arquivo.compactacao.linhas-minimas:100000}") int linhasMinimas,
+            @Value("${mensagem.arquivo.compactacao.linhas-maximas:1000000}") int linhasMaximas,
+            @Value("${mensagem.arquivo.habilitado:false}") boolean habilitado,
+            @Value("${mensagem.arquivo.diretorio-compartilhado:false}") boolean diretorioCompartilhado,
+            @Value("${mensagem.arquivo.intervalo:1h}") Duration intervalo) {
+        // o que sai da tabela só existe no diretório: as instâncias que não o enxergam perderiam essas mensagens
+        if (habilitado && !diretorioCompartilhado) {
+            throw new IllegalArgumentException("Arquivamento habilitado sem mensagem.arquivo.diretorio-compartilhado: "
+                    + "o diretório precisa ser visto por todas as instâncias");
+        }
+        return new ArquivamentoMensagens(mensagemRepository, arquivoMensagens, barramentoInvalidacao,
+                contagemMensagens, gosteiPorUsuario, transactionManager, idade, tamanhoLote, linhasMinimas,
+                linhasMaximas, habilitado, intervalo, meterRegistry, LocalDateTime::now);
+    }
+}
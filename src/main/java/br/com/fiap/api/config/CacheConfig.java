@@ -0,0 +1,68 @@
+package br.com.fiap.api.config;
+
+import br.com.fiap.api.model.Mensagem;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Cache de segundo nível do Hibernate (JCache local sobre Caffeine).
+ * As regiões são criadas aqui com tamanho e expiração configuráveis; uma região
+ * não declarada faz a aplicação falhar na subida em vez de nascer sem limite.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Bean(destroyMethod = "close")
+    public CacheManager cacheManagerSegundoNivel(
+            @Value("${mensagem.cache.entidades.tamanho-maximo:10000}") long tamanhoEntidades,
+            @Value("${mensagem.cache.entidades.expiracao:10m}") Duration expiracaoEntidades,
+            @Value("${mensagem.cache.consultas.tamanho-maximo:1000}") long tamanhoConsultas,
+            @Value("${mensagem.cache.consultas.expiracao:1m}") Duration expiracaoConsultas) {
+        var provedor = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        // um CacheManager por contexto: o URI padrão do provedor é compartilhado pela JVM inteira
+        var cacheManager = provedor.getCacheManager(
+                URI.create(CacheConfig.class.getName() + ":" + UUID.randomUUID()),
+                CacheConfig.class.getClassLoader());
+
+        cacheManager.createCache(Mensagem.REGIAO_CACHE, regiao(tamanhoEntidades, expiracaoEntidades));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                regiao(tamanhoConsultas, expiracaoConsultas));
+        // os timestamps de atualização invalidam o cache de consultas e não podem expirar antes dele
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                regiao(0, Duration.ZERO));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheSegundoNivelCustomizer(CacheManager cacheManagerSegundoNivel) {
+        return propriedades -> {
+            propriedades.put(ConfigSettings.CACHE_MANAGER, cacheManagerSegundoNivel);
+            propriedades.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> regiao(long tamanhoMaximo, Duration expiracao) {
+        var configuracao = new CaffeineConfiguration<>();
+        configuracao.setStatisticsEnabled(true);
+        if (tamanhoMaximo > 0) {
+            configuracao.setMaximumSize(OptionalLong.of(tamanhoMaximo));
+        }
+        if (!expiracao.isZero()) {
+            configuracao.setExpireAfterWrite(OptionalLong.of(expiracao.toNanos()));
+        }
+        return configuracao;
+    }
+}
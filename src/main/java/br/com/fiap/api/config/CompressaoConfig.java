@@ -0,0 +1,35 @@
+package br.com.fiap.api.config;
+
+import br.com.fiap.api.utils.CompressorConteudo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.util.List;
+
+@Configuration
+public class CompressaoConfig {
+
+    // as entidades não recebem injeção: o compressor configurado passa a ser o de CompressorConteudo.atual()
+    @Bean
+    public CompressorConteudo compressorConteudo(
+            ResourceLoader resourceLoader,
+            @Value("${mensagem.compressao.limiar:256}") int limiar,
+            @Value("${mensagem.compressao.nivel:3}") int nivel,
+            @Value("${mensagem.compressao.dicionario:}") String dicionario,
+            @Value("${mensagem.compressao.dicionarios-anteriores:}") List<String> anteriores) throws IOException {
+        for (var anterior : anteriores) {
+            if (!anterior.isBlank()) {
+                CompressorConteudo.registrarDicionario(resourceLoader.getResource(anterior).getContentAsByteArray());
+            }
+        }
+        var bytesDicionario = dicionario.isBlank()
+                ? null
+                : resourceLoader.getResource(dicionario).getContentAsByteArray();
+        var compressor = new CompressorConteudo(limiar, nivel, bytesDicionario);
+        CompressorConteudo.usar(compressor);
+        return compressor;
+    }
+}
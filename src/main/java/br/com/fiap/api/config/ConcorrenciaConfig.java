@@ -0,0 +1,40 @@
+package br.com.fiap.api.config;
+
+import br.com.fiap.api.filter.LimiteAdaptativo;
+import br.com.fiap.api.filter.LimiteConcorrenciaFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Duration;
+
+@Configuration
+@Profile("!reativo")
+public class ConcorrenciaConfig {
+
+    @Bean
+    public LimiteAdaptativo limiteAdaptativo(
+            @Value("${mensagem.concorrencia.limite-inicial:20}") int limiteInicial,
+            @Value("${mensagem.concorrencia.limite-minimo:4}") int limiteMinimo,
+            @Value("${mensagem.concorrencia.limite-maximo:200}") int limiteMaximo) {
+        return new LimiteAdaptativo(limiteInicial, limiteMinimo, limiteMaximo);
+    }
+
+    // registrado só em /mensagens: actuator e health continuam respondendo sob carga
+    @Bean
+    public FilterRegistrationBean<LimiteConcorrenciaFilter> limiteConcorrenciaFilter(
+            LimiteAdaptativo limiteAdaptativo,
+            MeterRegistry meterRegistry,
+            @Value("${mensagem.concorrencia.fracao-escrita:0.8}") double fracaoEscrita,
+            @Value("${mensagem.concorrencia.fracao-listagem:0.5}") double fracaoListagem,
+            @Value("${mensagem.concorrencia.retry-after:1s}") Duration retryAfter) {
+        var filtro = new LimiteConcorrenciaFilter(
+                limiteAdaptativo, fracaoEscrita, fracaoListagem, retryAfter, meterRegistry);
+        var registro = new FilterRegistrationBean<>(filtro);
+        registro.addUrlPatterns("/mensagens", "/mensagens/*");
+        return registro;
+    }
+}
@@ -0,0 +1,23 @@
+package br.com.fiap.api.config;
+
+import br.com.fiap.api.model.EstrategiaContagem;
+import br.com.fiap.api.repository.MensagemRepository;
+import br.com.fiap.api.service.ContagemMensagens;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class ContagemConfig {
+
+    @Bean
+    public ContagemMensagens contagemMensagens(
+            MensagemRepository mensagemRepository,
+            @Value("${mensagem.listagem.contagem:exata}") EstrategiaContagem padrao,
+            @Value("${mensagem.listagem.contagem-ttl:30s}") Duration ttl,
+            @Value("${mensagem.listagem.contagem-reconciliacao:5m}") Duration reconciliacao) {
+        return new ContagemMensagens(mensagemRepository, padrao, ttl, reconciliacao, System::nanoTime);
+    }
+}
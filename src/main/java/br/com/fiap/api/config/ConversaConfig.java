@@ -0,0 +1,34 @@
+package br.com.fiap.api.config;
+
+import br.com.fiap.api.repository.MensagemRepository;
+import br.com.fiap.api.service.ConversaService;
+import br.com.fiap.api.service.LimitadorTaxaUsuario;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Instant;
+
+// com as mensagens fragmentadas por id, uma conversa ficaria espalhada entre os fragmentos
+@Configuration
+@Profile("!fragmentado")
+public class ConversaConfig {
+
+    @Bean
+    public ConversaService conversaService(
+            MensagemRepository mensagemRepository,
+            LimitadorTaxaUsuario limitadorTaxa,
+            ApplicationEventPublisher eventos,
+            @Value("${mensagem.conversa.limite-mensagens:10000}") int limiteMensagens,
+            @Value("${mensagem.conversa.limite-pagina:100}") int limitePagina) {
+        return new ConversaService(mensagemRepository, limitadorTaxa, eventos, limiteMensagens, limitePagina,
+                ConversaConfig::agoraEmMicros);
+    }
+
+    private static long agoraEmMicros() {
+        var agora = Instant.now();
+        return agora.getEpochSecond() * 1_000_000 + agora.getNano() / 1_000;
+    }
+}
@@ -0,0 +1,39 @@
+package br.com.fiap.api.config;
+
+import br.com.fiap.api.repository.ArquivoMensagens;
+import br.com.fiap.api.repository.EstatisticaRepository;
+import br.com.fiap.api.service.EstatisticasMensagens;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// a reconstrução varre a tabela única de mensagens, que o perfil fragmentado não tem
+@Configuration
+@Profile("!fragmentado")
+public class EstatisticaConfig {
+
+    @Bean
+    public EstatisticaRepository estatisticaRepository(JdbcTemplate jdbcTemplate) {
+        return new EstatisticaRepository(jdbcTemplate);
+    }
+
+    @Bean
+    public EstatisticasMensagens estatisticasMensagens(
+            EstatisticaRepository estatisticaRepository,
+            ArquivoMensagens arquivoMensagens,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${mensagem.estatisticas.reconstrucao.particoes:16}") int particoes,
+            @Value("${mensagem.estatisticas.reconstrucao.paralelismo:4}") int paralelismo,
+            @Value("${mensagem.estatisticas.intervalo:15s}") Duration intervalo) {
+        return new EstatisticasMensagens(estatisticaRepository, arquivoMensagens, transactionManager, particoes,
+                paralelismo, intervalo, meterRegistry, LocalDateTime::now);
+    }
+}
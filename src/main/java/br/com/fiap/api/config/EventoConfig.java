@@ -0,0 +1,25 @@
+package br.com.fiap.api.config;
+
+import br.com.fiap.api.repository.LogEventos;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class EventoConfig {
+
+    // disco ocupado no pior caso: tamanho-segmento x max-segmentos (64MB x 16 = 1GB)
+    @Bean
+    public LogEventos logEventos(
+            @Value("${mensagem.eventos.diretorio:dados/eventos}") Path diretorio,
+            @Value("${mensagem.eventos.tamanho-segmento:64MB}") DataSize tamanhoSegmento,
+            @Value("${mensagem.eventos.max-segmentos:16}") int maxSegmentos,
+            @Value("${mensagem.eventos.retencao:7d}") Duration retencao) {
+        return new LogEventos(diretorio, Math.toIntExact(tamanhoSegmento.toBytes()), maxSegmentos, retencao,
+                System::currentTimeMillis);
+    }
+}
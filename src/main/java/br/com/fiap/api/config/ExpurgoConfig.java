@@ -0,0 +1,45 @@
+package br.com.fiap.api.config;
+
+import br.com.fiap.api.repository.ExpurgoRemovidas;
+import br.com.fiap.api.service.ExpurgoMensagens;
+import br.com.fiap.api.service.GosteiPorUsuario;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+@Configuration
+public class ExpurgoConfig {
+
+    @Bean
+    public ExpurgoMensagens expurgoMensagens(
+            // no perfil "fragmentado" o ExpurgoFragmentado é @Primary
+            ExpurgoRemovidas mensagemRepository,
+            GosteiPorUsuario gosteiPorUsuario,
+            MeterRegistry meterRegistry,
+            @Value("${mensagem.expurgo.carencia:1d}") Duration carencia,
+            @Value("${mensagem.expurgo.tamanho-lote:1000}") int tamanhoLote,
+            @Value("${mensagem.expurgo.max-lotes-por-rodada:1000}") int maxLotes,
+            @Value("${mensagem.expurgo.pausa-entre-lotes:100ms}") Duration pausa,
+            @Value("${mensagem.expurgo.janela:}") String janela,
+            @Value("${mensagem.expurgo.habilitado:false}") boolean habilitado,
+            @Value("${mensagem.expurgo.intervalo:10m}") Duration intervalo) {
+        LocalTime inicio = null;
+        LocalTime fim = null;
+        if (!janela.isBlank()) {
+            // HH:mm-HH:mm
+            var limites = janela.split("-");
+            if (limites.length != 2) {
+                throw new IllegalArgumentException("Janela de expurgo inválida: " + janela);
+            }
+            inicio = LocalTime.parse(limites[0].trim());
+            fim = LocalTime.parse(limites[1].trim());
+        }
+        return new ExpurgoMensagens(mensagemRepository, gosteiPorUsuario, carencia, tamanhoLote, maxLotes, pausa,
+                inicio, fim, habilitado, intervalo, meterRegistry, LocalDateTime::now);
+    }
+}
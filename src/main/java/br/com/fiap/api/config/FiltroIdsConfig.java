@@ -0,0 +1,27 @@
+package br.com.fiap.api.config;
+
+import br.com.fiap.api.repository.MensagemRepository;
+import br.com.fiap.api.service.FiltroIdsMensagens;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+// o perfil fragmentado não tem a tabela única que o filtro varre
+@Configuration
+@Profile("!fragmentado")
+public class FiltroIdsConfig {
+
+    @Bean(destroyMethod = "close")
+    public FiltroIdsMensagens filtroIdsMensagens(
+            MensagemRepository mensagemRepository,
+            MeterRegistry meterRegistry,
+            @Value("${mensagem.filtro-ids.habilitado:true}") boolean habilitado,
+            @Value("${mensagem.filtro-ids.capacidade-minima:1000000}") long capacidadeMinima,
+            @Value("${mensagem.filtro-ids.particoes:16}") int particoes,
+            @Value("${mensagem.filtro-ids.paralelismo:4}") int paralelismo) {
+        return new FiltroIdsMensagens(mensagemRepository, capacidadeMinima, particoes, paralelismo, habilitado,
+                meterRegistry);
+    }
+}
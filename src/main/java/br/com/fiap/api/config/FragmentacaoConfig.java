@@ -0,0 +1,64 @@
+package br.com.fiap.api.config;
+
+import br.com.fiap.api.repository.ExpurgoFragmentado;
+import br.com.fiap.api.repository.MensagemFragmentadaRepository;
+import br.com.fiap.api.repository.MensagemRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@Profile("fragmentado")
+public class FragmentacaoConfig {
+
+    // os pools dos fragmentos não viram beans DataSource: o DataSource do Spring segue sendo o banco
+    // principal, onde ficam os bitmaps de gostei e o índice de usuários
+    @Bean
+    @Primary
+    public MensagemFragmentadaRepository mensagemFragmentadaRepository(
+            @Value("${mensagem.fragmentacao.urls}") List<String> urls,
+            @Value("${mensagem.fragmentacao.reservas:}") List<String> reservas,
+            @Value("${mensagem.fragmentacao.usuario:${spring.datasource.username}}") String usuario,
+            @Value("${mensagem.fragmentacao.senha:${spring.datasource.password}}") String senha,
+            @Value("${mensagem.fragmentacao.conexoes-por-fragmento:10}") int conexoes,
+            @Value("${mensagem.fragmentacao.nos-virtuais:128}") int nosVirtuais) {
+        var fragmentos = criarPools(urls, usuario, senha, conexoes, 0);
+        var pools = criarPools(reservas, usuario, senha, conexoes, fragmentos.size());
+        return new MensagemFragmentadaRepository(fragmentos, pools, nosVirtuais);
+    }
+
+    // @Primary sobre o MensagemRepository, que também expurga, mas só a tabela do banco principal
+    @Bean
+    @Primary
+    public ExpurgoFragmentado expurgoFragmentado(MensagemFragmentadaRepository mensagemFragmentadaRepository,
+                                                 MensagemRepository mensagemRepository,
+                                                 PlatformTransactionManager transactionManager) {
+        return new ExpurgoFragmentado(mensagemFragmentadaRepository, mensagemRepository, transactionManager);
+    }
+
+    private static List<DataSource> criarPools(List<String> urls, String usuario, String senha,
+                                               int conexoes, int primeiroIndice) {
+        var pools = new ArrayList<DataSource>(urls.size());
+        for (var url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            var pool = new HikariDataSource();
+            pool.setPoolName("fragmento-" + (primeiroIndice + pools.size()));
+            pool.setJdbcUrl(url.trim());
+            pool.setUsername(usuario);
+            pool.setPassword(senha);
+            pool.setMaximumPoolSize(conexoes);
+            pools.add(pool);
+        }
+        return pools;
+    }
+}
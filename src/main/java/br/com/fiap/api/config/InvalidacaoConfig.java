@@ -0,0 +1,89 @@
+package br.com.fiap.api.config;
+
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.repository.TransporteInvalidacao;
+import br.com.fiap.api.repository.TransporteLocalInvalidacao;
+import br.com.fiap.api.repository.TransportePostgresInvalidacao;
+import br.com.fiap.api.service.BarramentoInvalidacao;
+import br.com.fiap.api.service.FiltroIdsMensagens;
+import br.com.fiap.api.service.GosteiPorUsuario;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.UUID;
+
+@Configuration
+public class InvalidacaoConfig {
+
+    // "postgres" usa LISTEN/NOTIFY no banco principal; "local" só alcança contextos da mesma JVM
+    @Bean(destroyMethod = "")
+    public TransporteInvalidacao transporteInvalidacao(
+            @Value("${mensagem.invalidacao.transporte:postgres}") String transporte,
+            @Value("${mensagem.invalidacao.canal:mensagem_invalidacao}") String canal,
+            DataSource dataSource,
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.username}") String usuario,
+            @Value("${spring.datasource.password}") String senha) {
+        return switch (transporte) {
+            case "postgres" -> new TransportePostgresInvalidacao(dataSource, url, usuario, senha, canal);
+            case "local" -> new TransporteLocalInvalidacao(canal);
+            default -> throw new IllegalArgumentException("Transporte de invalidação desconhecido: " + transporte);
+        };
+    }
+
+    // o barramento fecha o transporte depois de enviar o que restou pendente
+    @Bean(destroyMethod = "close")
+    public BarramentoInvalidacao barramentoInvalidacao(
+            TransporteInvalidacao transporteInvalidacao,
+            EntityManagerFactory entityManagerFactory,
+            GosteiPorUsuario gosteiPorUsuario,
+            ObjectProvider<FiltroIdsMensagens> filtroIds,
+            MeterRegistry meterRegistry,
+            @Value("${mensagem.invalidacao.intervalo:20ms}") Duration intervalo,
+            @Value("${mensagem.invalidacao.repeticao:200ms}") Duration repeticao,
+            @Value("${mensagem.invalidacao.espera-eco:200ms}") Duration esperaEco) {
+        var cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        var invalidador = new BarramentoInvalidacao.Invalidador() {
+            @Override
+            public void invalidar(Collection<UUID> ids) {
+                for (var id : ids) {
+                    cache.evictEntityData(Mensagem.class, id);
+                    gosteiPorUsuario.descartar(id);
+                }
+                // os timestamps de atualização são locais: as listagens cacheadas aqui não veem a escrita remota
+                cache.evictDefaultQueryRegion();
+            }
+
+            @Override
+            public void invalidarTudo() {
+                cache.evictEntityData(Mensagem.class);
+                cache.evictDefaultQueryRegion();
+                gosteiPorUsuario.descartarTodos();
+                // criações anunciadas podem ter se perdido junto: o filtro não pode recusar nada até remontar
+                filtroIds.ifAvailable(FiltroIdsMensagens::remontar);
+            }
+
+            @Override
+            public void registrar(Collection<UUID> criadas) {
+                // o perfil fragmentado não tem o filtro
+                filtroIds.ifAvailable(filtro -> criadas.forEach(filtro::adicionar));
+            }
+        };
+        return new BarramentoInvalidacao(transporteInvalidacao, invalidador, intervalo, repeticao, esperaEco,
+                meterRegistry, InvalidacaoConfig::agoraEmMicros);
+    }
+
+    private static long agoraEmMicros() {
+        var agora = Instant.now();
+        return agora.getEpochSecond() * 1_000_000 + agora.getNano() / 1_000;
+    }
+}
@@ -0,0 +1,23 @@
+package br.com.fiap.api.config;
+
+import br.com.fiap.api.service.LimitadorTaxaUsuario;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class LimiteTaxaConfig {
+
+    @Bean
+    public LimitadorTaxaUsuario limitadorTaxaUsuario(
+            @Value("${mensagem.limite-usuario.capacidade:20}") int capacidade,
+            @Value("${mensagem.limite-usuario.reposicao-por-segundo:5}") double reposicaoPorSegundo,
+            @Value("${mensagem.limite-usuario.max-usuarios:100000}") int maxUsuarios,
+            @Value("${mensagem.limite-usuario.ociosidade:10m}") Duration ociosidade,
+            @Value("${mensagem.limite-usuario.faixas:64}") int faixas) {
+        return new LimitadorTaxaUsuario(capacidade, reposicaoPorSegundo, maxUsuarios,
+                ociosidade.toNanos(), faixas, System::nanoTime);
+    }
+}
@@ -0,0 +1,71 @@
+package br.com.fiap.api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+@Configuration
+@Profile("reativo")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReativoConfig {
+
+    // o Spring Boot descarta o DataSource JDBC quando existe uma ConnectionFactory; ele é mantido para
+    // que o Hibernate continue criando o esquema e os componentes JPA sigam disponíveis
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // ao lado do gerenciador do R2DBC, o @Transactional sem qualificador dos componentes JPA (arquivamento,
+    // estatísticas) não teria como escolher
+    @Bean
+    @Primary
+    public JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new JpaTransactionManager(entityManagerFactory);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool connectionFactory(
+            @Value("${spring.r2dbc.url}") String url,
+            @Value("${spring.r2dbc.username}") String usuario,
+            @Value("${spring.r2dbc.password}") String senha,
+            @Value("${spring.r2dbc.pool.initial-size:5}") int tamanhoInicial,
+            @Value("${spring.r2dbc.pool.max-size:10}") int tamanhoMaximo) {
+        var opcoes = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, usuario)
+                .option(ConnectionFactoryOptions.PASSWORD, senha)
+                .build();
+        var configuracao = ConnectionPoolConfiguration.builder(ConnectionFactories.get(opcoes))
+                .initialSize(tamanhoInicial)
+                .maxSize(tamanhoMaximo)
+                .build();
+        return new ConnectionPool(configuracao);
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+
+    // com Tomcat e Netty no classpath o Spring Boot escolheria o Tomcat para o servidor reativo
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,56 @@
+package br.com.fiap.api.config;
+
+import br.com.fiap.api.filter.FasesRequisicaoAspect;
+import br.com.fiap.api.filter.ServerTimingFilter;
+import br.com.fiap.api.filter.ServerTimingJacksonConverter;
+import br.com.fiap.api.filter.TempoJdbcListener;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+// a medição depende de a requisição inteira rodar numa thread: só no perfil servlet
+@Configuration
+@Profile("!reativo")
+public class ServerTimingConfig {
+
+    // antes do limite de concorrência: o total inclui a espera na fila
+    @Bean
+    public FilterRegistrationBean<ServerTimingFilter> serverTimingFilter(
+            @Value("${mensagem.server-timing.limiar-log:500ms}") Duration limiarLog,
+            @Value("${mensagem.server-timing.amostragem-log:0.1}") double amostragemLog) {
+        var registro = new FilterRegistrationBean<>(new ServerTimingFilter(limiarLog, amostragemLog));
+        registro.addUrlPatterns("/mensagens", "/mensagens/*");
+        registro.setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+        return registro;
+    }
+
+    @Bean
+    public FasesRequisicaoAspect fasesRequisicaoAspect() {
+        return new FasesRequisicaoAspect();
+    }
+
+    // substitui o conversor JSON padrão do Spring Boot
+    @Bean
+    public ServerTimingJacksonConverter serverTimingJacksonConverter(
+            ObjectMapper objectMapper,
+            @Value("${mensagem.server-timing.limite-buffer:16KB}") DataSize limiteBuffer) {
+        return new ServerTimingJacksonConverter(objectMapper, Math.toIntExact(limiteBuffer.toBytes()));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer tempoJdbcCustomizer() {
+        return propriedades -> {
+            propriedades.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, TempoJdbcListener.class.getName());
+            propriedades.put(AvailableSettings.STATEMENT_INSPECTOR, new TempoJdbcListener());
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package br.com.fiap.api.config;
+
+import br.com.fiap.api.service.TendenciasGostei;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TendenciaConfig {
+
+    // memória por janela: baldes x profundidade x largura inteiros (HORA: 60 x 4 x 1024 ~ 1 MB);
+    // as faixas dividem a largura entre si, não a multiplicam
+    @Bean
+    public TendenciasGostei tendenciasGostei(
+            @Value("${mensagem.tendencias.largura:1024}") int largura,
+            @Value("${mensagem.tendencias.profundidade:4}") int profundidade,
+            @Value("${mensagem.tendencias.max-resultados:50}") int maxResultados,
+            @Value("${mensagem.tendencias.faixas:16}") int faixas) {
+        return new TendenciasGostei(largura, profundidade, maxResultados, faixas, System::currentTimeMillis);
+    }
+}
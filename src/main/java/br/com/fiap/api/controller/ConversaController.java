@@ -0,0 +1,87 @@
+package br.com.fiap.api.controller;
+
+import br.com.fiap.api.exception.LimiteTaxaExcedidoException;
+import br.com.fiap.api.exception.MensagemNotFoundException;
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.service.ConversaService;
+import br.com.fiap.api.utils.CaminhoConversa;
+import br.com.fiap.api.utils.ConversorUUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("mensagens")
+@Profile("!reativo & !fragmentado")
+@RequiredArgsConstructor
+public class ConversaController {
+
+    private static final ResponseEntity<?> ID_INVALIDO =
+            new ResponseEntity<>("ID Invalido", HttpStatus.BAD_REQUEST);
+
+    private final ConversaService conversaService;
+
+    @PostMapping(value = "/{id}/respostas",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> responder(@PathVariable String id, @RequestBody Mensagem resposta) {
+        var uuid = ConversorUUID.converter(id);
+        if (uuid == null) {
+            return ID_INVALIDO;
+        }
+        try {
+            return new ResponseEntity<>(conversaService.responder(uuid, resposta), HttpStatus.CREATED);
+        } catch (LimiteTaxaExcedidoException limiteTaxaExcedidoException) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(limiteTaxaExcedidoException.getEsperaSegundos()))
+                    .body(limiteTaxaExcedidoException.getMessage());
+        } catch (MensagemNotFoundException | IllegalArgumentException exception) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(exception.getMessage());
+        }
+    }
+
+    // respostas diretas em ordem cronológica; ?depois= recebe o "proxima" da página anterior
+    @GetMapping(value = "/{id}/respostas", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> listarRespostas(
+            @PathVariable String id,
+            @RequestParam(required = false) String depois,
+            @RequestParam(defaultValue = "20") int quantidade
+    ) {
+        var uuid = ConversorUUID.converter(id);
+        if (uuid == null) {
+            return ID_INVALIDO;
+        }
+        try {
+            return new ResponseEntity<>(conversaService.listarRespostas(uuid, depois, quantidade), HttpStatus.OK);
+        } catch (MensagemNotFoundException | IllegalArgumentException exception) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(exception.getMessage());
+        }
+    }
+
+    // sem ?profundidade= vem a subárvore inteira
+    @GetMapping(value = "/{id}/conversa", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> buscarConversa(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "" + CaminhoConversa.PROFUNDIDADE_MAXIMA) int profundidade
+    ) {
+        var uuid = ConversorUUID.converter(id);
+        if (uuid == null) {
+            return ID_INVALIDO;
+        }
+        try {
+            return new ResponseEntity<>(conversaService.buscarConversa(uuid, profundidade), HttpStatus.OK);
+        } catch (MensagemNotFoundException | IllegalArgumentException exception) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package br.com.fiap.api.controller;
+
+import br.com.fiap.api.service.EstatisticasMensagens;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+// as consultas leem só os rollups, cada uma limitada a um número fixo de linhas
+@RestController
+@RequestMapping("estatisticas")
+@Profile("!reativo & !fragmentado")
+@RequiredArgsConstructor
+public class EstatisticaController {
+
+    static final int MAXIMO_DIAS = 366;
+    static final int MAXIMO_HORAS = 31 * 24;
+    static final int MAXIMO_USUARIOS = 100;
+
+    private final EstatisticasMensagens estatisticas;
+
+    @GetMapping(value = "/usuarios/{usuario}/dias", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> mensagensPorDia(
+            @PathVariable String usuario,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate
+    ) {
+        var fim = ate == null ? LocalDate.now() : ate;
+        var inicio = de == null ? fim.minusDays(29) : de;
+        if (inicio.isAfter(fim) || ChronoUnit.DAYS.between(inicio, fim) >= MAXIMO_DIAS) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Periodo deve ter entre 1 e " + MAXIMO_DIAS + " dias");
+        }
+        return new ResponseEntity<>(estatisticas.mensagensPorDia(usuario, inicio, fim), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/gostei/horas", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> gosteiPorHora(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime de,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime ate
+    ) {
+        var fim = ate == null ? LocalDateTime.now() : ate;
+        var inicio = de == null ? fim.minusHours(23) : de;
+        if (inicio.isAfter(fim) || ChronoUnit.HOURS.between(inicio, fim) >= MAXIMO_HORAS) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Periodo deve ter entre 1 e " + MAXIMO_HORAS + " horas");
+        }
+        return new ResponseEntity<>(estatisticas.gosteiPorHora(inicio, fim), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/usuarios/mais-ativos", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> maisAtivos(@RequestParam(defaultValue = "10") int quantidade) {
+        if (quantidade < 1 || quantidade > MAXIMO_USUARIOS) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Quantidade deve estar entre 1 e " + MAXIMO_USUARIOS);
+        }
+        return new ResponseEntity<>(estatisticas.maisAtivos(quantidade), HttpStatus.OK);
+    }
+
+    // recalcula os rollups de mensagens a partir da tabela e do arquivo; demora o tempo de varrê-los
+    @PostMapping(value = "/reconstrucao")
+    public ResponseEntity<?> reconstruir() {
+        return new ResponseEntity<>(estatisticas.reconstruir(), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,43 @@
+package br.com.fiap.api.controller;
+
+import br.com.fiap.api.exception.OffsetExpiradoException;
+import br.com.fiap.api.repository.LogEventos;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+// atende os dois perfis: a leitura vem de memória mapeada e não bloqueia o event loop
+@RestController
+@RequestMapping("eventos")
+@RequiredArgsConstructor
+public class EventoController {
+
+    static final int LIMITE_MAXIMO = 1000;
+
+    private final LogEventos logEventos;
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> listarEventos(
+            @RequestParam(defaultValue = "0") long desde,
+            @RequestParam(defaultValue = "500") int limite
+    ) {
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Limite deve estar entre 1 e " + LIMITE_MAXIMO);
+        }
+        try {
+            return new ResponseEntity<>(logEventos.ler(desde, limite), HttpStatus.OK);
+        } catch (OffsetExpiradoException offsetExpiradoException) {
+            return ResponseEntity.status(HttpStatus.GONE)
+                    .body(offsetExpiradoException.getMessage()
+                            + "; primeiro disponível: " + offsetExpiradoException.getPrimeiroDisponivel());
+        } catch (IllegalArgumentException illegalArgumentException) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(illegalArgumentException.getMessage());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package br.com.fiap.api.controller;
+
+import br.com.fiap.api.repository.MensagemFragmentadaRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("fragmentos")
+@Profile("fragmentado")
+@RequiredArgsConstructor
+public class FragmentacaoController {
+
+    private final MensagemFragmentadaRepository mensagemRepository;
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> consultarSituacao() {
+        return new ResponseEntity<>(mensagemRepository.situacao(), HttpStatus.OK);
+    }
+
+    // a migração segue em segundo plano; acompanhe por GET /fragmentos
+    @PostMapping(value = "/expansao", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> expandir(@RequestParam(defaultValue = "1") int quantidade) {
+        try {
+            return new ResponseEntity<>(mensagemRepository.expandir(quantidade), HttpStatus.ACCEPTED);
+        } catch (IllegalArgumentException illegalArgumentException) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(illegalArgumentException.getMessage());
+        } catch (IllegalStateException illegalStateException) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(illegalStateException.getMessage());
+        }
+    }
+
+    @PostMapping(value = "/migracao", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> retomarMigracao() {
+        try {
+            return new ResponseEntity<>(mensagemRepository.retomarMigracao(), HttpStatus.ACCEPTED);
+        } catch (IllegalStateException illegalStateException) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(illegalStateException.getMessage());
+        }
+    }
+}
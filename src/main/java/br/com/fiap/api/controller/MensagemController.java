@@ -1,63 +1,156 @@
 package br.com.fiap.api.controller;
 
+import br.com.fiap.api.exception.LimiteTaxaExcedidoException;
 import br.com.fiap.api.exception.MensagemNotFoundException;
+import br.com.fiap.api.model.EstrategiaContagem;
+import br.com.fiap.api.model.JanelaTendencia;
 import br.com.fiap.api.model.Mensagem;
 import br.com.fiap.api.service.MensagemService;
+import br.com.fiap.api.utils.ConversorUUID;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.print.attribute.standard.Media;
+import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 @RestController
 @RequestMapping("mensagens")
+@Profile("!reativo")
 @RequiredArgsConstructor
 public class MensagemController {
 
+    // ResponseEntity é imutável: a resposta de erro é montada uma única vez
+    private static final ResponseEntity<?> ID_INVALIDO =
+            new ResponseEntity<>("ID Invalido", HttpStatus.BAD_REQUEST);
+
+    private static final ResponseEntity<?> USUARIO_INVALIDO =
+            new ResponseEntity<>("Usuario Invalido", HttpStatus.BAD_REQUEST);
+
     private final MensagemService mensagemService;
 
     @PostMapping(
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public ResponseEntity<Mensagem> registrarMensagem(@RequestBody Mensagem mensagem) {
-        var mensagemRegistrada = mensagemService.registrarMensagem(mensagem);
-        return new ResponseEntity<>(mensagemRegistrada, HttpStatus.CREATED);
+    public ResponseEntity<?> registrarMensagem(@RequestBody Mensagem mensagem) {
+        try {
+            var mensagemRegistrada = mensagemService.registrarMensagem(mensagem);
+            return new ResponseEntity<>(mensagemRegistrada, HttpStatus.CREATED);
+        } catch (LimiteTaxaExcedidoException limiteTaxaExcedidoException) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(limiteTaxaExcedidoException.getEsperaSegundos()))
+                    .body(limiteTaxaExcedidoException.getMessage());
+        }
     }
 
     @GetMapping(value = "/{id}")
     public ResponseEntity<?> buscarMensagem(@PathVariable String id) {
-        var uuid = UUID.fromString(id);
+        var uuid = ConversorUUID.converter(id);
+        if (uuid == null) {
+            return ID_INVALIDO;
+        }
+        return mensagemService.procurarMensagem(uuid)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ID_INVALIDO);
+    }
+
+    @PostMapping(value = "/buscar-varios",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> buscarMensagens(@RequestBody List<UUID> ids) {
         try {
-            var mensagemEncontrada = mensagemService.buscarMensagem(uuid);
-            return new ResponseEntity<>(mensagemEncontrada, HttpStatus.OK);
-        } catch (MensagemNotFoundException mensagemNotFoundException) {
-            return new ResponseEntity<>("ID Invalido", HttpStatus.BAD_REQUEST);
+            var resultados = mensagemService.buscarMensagens(ids);
+            return new ResponseEntity<>(resultados, HttpStatus.OK);
+        } catch (IllegalArgumentException illegalArgumentException) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(illegalArgumentException.getMessage());
         }
     }
 
     @GetMapping(
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public ResponseEntity<Page<Mensagem>> listarMensagens(
+    public ResponseEntity<?> listarMensagens(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+            // exata, cache, incremental ou estimada; sem o parâmetro vale mensagem.listagem.contagem
+            @RequestParam(required = false) String contagem
     ) {
 //        try {
             var pageable = PageRequest.of(page, size);
-            var mensagemEncontrada = mensagemService.listarMensagem(pageable);
+            if (contagem == null) {
+                return new ResponseEntity<>(mensagemService.listarMensagem(pageable), HttpStatus.OK);
+            }
+            EstrategiaContagem estrategia;
+            try {
+                estrategia = EstrategiaContagem.valueOf(contagem.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException illegalArgumentException) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Contagem Invalida");
+            }
+            var mensagemEncontrada = mensagemService.listarMensagem(pageable, estrategia);
             return new ResponseEntity<>(mensagemEncontrada, HttpStatus.OK);
 //        } catch (MensagemNotFoundException mensagemNotFoundException) {
 //            return new ResponseEntity<>("ID Invalido", HttpStatus.BAD_REQUEST);
 //        }
     }
 
+    @GetMapping(value = "/trending",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> listarEmAlta(
+            @RequestParam(defaultValue = "hora") String janela,
+            @RequestParam(defaultValue = "10") int quantidade
+    ) {
+        try {
+            var janelaTendencia = JanelaTendencia.valueOf(janela.toUpperCase(Locale.ROOT));
+            return new ResponseEntity<>(mensagemService.listarEmAlta(janelaTendencia, quantidade), HttpStatus.OK);
+        } catch (IllegalArgumentException illegalArgumentException) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Janela Invalida");
+        }
+    }
+
+    @PostMapping(value = "/{id}/gostei")
+    public ResponseEntity<?> registrarGostei(@PathVariable String id, @RequestParam String usuario) {
+        var uuid = ConversorUUID.converter(id);
+        if (uuid == null) {
+            return ID_INVALIDO;
+        }
+        if (usuario.isBlank()) {
+            return USUARIO_INVALIDO;
+        }
+        try {
+            var novo = mensagemService.registrarGostei(uuid, usuario);
+            return new ResponseEntity<>(novo ? "gostei registrado" : "gostei já registrado", HttpStatus.OK);
+        } catch (MensagemNotFoundException mensagemNotFoundException) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(mensagemNotFoundException.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/{id}/gostei", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> consultarGostei(@PathVariable String id, @RequestParam String usuario) {
+        var uuid = ConversorUUID.converter(id);
+        if (uuid == null) {
+            return ID_INVALIDO;
+        }
+        if (usuario.isBlank()) {
+            return USUARIO_INVALIDO;
+        }
+        try {
+            return new ResponseEntity<>(mensagemService.consultarGostei(uuid, usuario), HttpStatus.OK);
+        } catch (MensagemNotFoundException mensagemNotFoundException) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(mensagemNotFoundException.getMessage());
+        }
+    }
+
     @PutMapping(value = "/{id}",
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE)
@@ -0,0 +1,146 @@
+package br.com.fiap.api.controller;
+
+import br.com.fiap.api.exception.LimiteTaxaExcedidoException;
+import br.com.fiap.api.exception.MensagemNotFoundException;
+import br.com.fiap.api.model.JanelaTendencia;
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.service.MensagemReativaService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("mensagens")
+@Profile("reativo")
+@RequiredArgsConstructor
+public class MensagemReativaController {
+
+    private final MensagemReativaService mensagemService;
+
+    @PostMapping(
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public Mono<ResponseEntity<?>> registrarMensagem(@RequestBody Mensagem mensagem) {
+        return mensagemService.registrarMensagem(mensagem)
+                .<ResponseEntity<?>>map(mensagemRegistrada -> new ResponseEntity<>(mensagemRegistrada, HttpStatus.CREATED))
+                .onErrorResume(LimiteTaxaExcedidoException.class, limiteTaxaExcedidoException -> Mono.just(
+                        ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(limiteTaxaExcedidoException.getEsperaSegundos()))
+                                .body(limiteTaxaExcedidoException.getMessage())));
+    }
+
+    @GetMapping(value = "/{id}")
+    public Mono<ResponseEntity<?>> buscarMensagem(@PathVariable String id) {
+        var uuid = UUID.fromString(id);
+        return mensagemService.buscarMensagem(uuid)
+                .<ResponseEntity<?>>map(mensagemEncontrada -> new ResponseEntity<>(mensagemEncontrada, HttpStatus.OK))
+                .onErrorResume(MensagemNotFoundException.class,
+                        mensagemNotFoundException -> Mono.just(new ResponseEntity<>("ID Invalido", HttpStatus.BAD_REQUEST)));
+    }
+
+    @PostMapping(value = "/buscar-varios",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<?>> buscarMensagens(@RequestBody List<UUID> ids) {
+        return mensagemService.buscarMensagens(ids)
+                .<ResponseEntity<?>>map(resultados -> new ResponseEntity<>(resultados, HttpStatus.OK))
+                .onErrorResume(IllegalArgumentException.class, illegalArgumentException -> Mono.just(
+                        ResponseEntity.status(HttpStatus.BAD_REQUEST).body(illegalArgumentException.getMessage())));
+    }
+
+    @GetMapping(
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public Mono<ResponseEntity<Page<Mensagem>>> listarMensagens(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        var pageable = PageRequest.of(page, size);
+        return mensagemService.listarMensagem(pageable)
+                .map(mensagemEncontrada -> new ResponseEntity<>(mensagemEncontrada, HttpStatus.OK));
+    }
+
+    @GetMapping(
+            produces = MediaType.APPLICATION_NDJSON_VALUE
+    )
+    public Flux<Mensagem> transmitirMensagens(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        return mensagemService.transmitirMensagens(PageRequest.of(page, size));
+    }
+
+    @GetMapping(value = "/trending",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<?>> listarEmAlta(
+            @RequestParam(defaultValue = "hora") String janela,
+            @RequestParam(defaultValue = "10") int quantidade
+    ) {
+        JanelaTendencia janelaTendencia;
+        try {
+            janelaTendencia = JanelaTendencia.valueOf(janela.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException illegalArgumentException) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Janela Invalida"));
+        }
+        return mensagemService.listarEmAlta(janelaTendencia, quantidade)
+                .map(emAlta -> new ResponseEntity<>(emAlta, HttpStatus.OK));
+    }
+
+    @PostMapping(value = "/{id}/gostei")
+    public Mono<ResponseEntity<?>> registrarGostei(@PathVariable String id, @RequestParam String usuario) {
+        var uuid = UUID.fromString(id);
+        if (usuario.isBlank()) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Usuario Invalido"));
+        }
+        return mensagemService.registrarGostei(uuid, usuario)
+                .<ResponseEntity<?>>map(novo -> new ResponseEntity<>(
+                        novo ? "gostei registrado" : "gostei já registrado", HttpStatus.OK))
+                .onErrorResume(MensagemNotFoundException.class, mensagemNotFoundException -> Mono.just(
+                        ResponseEntity.status(HttpStatus.BAD_REQUEST).body(mensagemNotFoundException.getMessage())));
+    }
+
+    @GetMapping(value = "/{id}/gostei", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<?>> consultarGostei(@PathVariable String id, @RequestParam String usuario) {
+        var uuid = UUID.fromString(id);
+        if (usuario.isBlank()) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Usuario Invalido"));
+        }
+        return mensagemService.consultarGostei(uuid, usuario)
+                .<ResponseEntity<?>>map(situacao -> new ResponseEntity<>(situacao, HttpStatus.OK))
+                .onErrorResume(MensagemNotFoundException.class, mensagemNotFoundException -> Mono.just(
+                        ResponseEntity.status(HttpStatus.BAD_REQUEST).body(mensagemNotFoundException.getMessage())));
+    }
+
+    @PutMapping(value = "/{id}",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<?>> alterarMensagem(@PathVariable String id, @RequestBody Mensagem mensagem) {
+        var uuid = UUID.fromString(id);
+        return mensagemService.alterarMensagem(uuid, mensagem)
+                .<ResponseEntity<?>>map(mensagemAtualizada -> new ResponseEntity<>(mensagemAtualizada, HttpStatus.ACCEPTED))
+                .onErrorResume(MensagemNotFoundException.class, mensagemNotFoundException -> Mono.just(
+                        ResponseEntity.status(HttpStatus.BAD_REQUEST).body(mensagemNotFoundException.getMessage())));
+    }
+
+    @DeleteMapping(value = "/{id}")
+    public Mono<ResponseEntity<?>> removerMensagem(@PathVariable String id) {
+        var uuid = UUID.fromString(id);
+        return mensagemService.removerMensagem(uuid)
+                .<ResponseEntity<?>>map(removida -> new ResponseEntity<>("mensagem removida", HttpStatus.OK))
+                .onErrorResume(MensagemNotFoundException.class, mensagemNotFoundException -> Mono.just(
+                        ResponseEntity.status(HttpStatus.BAD_REQUEST).body(mensagemNotFoundException.getMessage())));
+    }
+}
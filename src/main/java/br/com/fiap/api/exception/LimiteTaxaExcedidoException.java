@@ -0,0 +1,16 @@
+package br.com.fiap.api.exception;
+
+public class LimiteTaxaExcedidoException extends RuntimeException {
+
+    private final long esperaSegundos;
+
+    public LimiteTaxaExcedidoException(String mensagem, long esperaSegundos) {
+        // sem pilha: lançada no caminho quente justamente quando um usuário inunda a API
+        super(mensagem, null, false, false);
+        this.esperaSegundos = esperaSegundos;
+    }
+
+    public long getEsperaSegundos() {
+        return esperaSegundos;
+    }
+}
@@ -2,6 +2,7 @@ package br.com.fiap.api.exception;
 
 public class MensagemNotFoundException extends RuntimeException {
     public MensagemNotFoundException(String mensagem) {
-        super(mensagem);
+        // sem pilha: a exceção representa um resultado esperado, não uma falha a ser depurada
+        super(mensagem, null, false, false);
     }
 }
@@ -0,0 +1,15 @@
+package br.com.fiap.api.exception;
+
+public class OffsetExpiradoException extends RuntimeException {
+
+    private final long primeiroDisponivel;
+
+    public OffsetExpiradoException(String mensagem, long primeiroDisponivel) {
+        super(mensagem);
+        this.primeiroDisponivel = primeiroDisponivel;
+    }
+
+    public long getPrimeiroDisponivel() {
+        return primeiroDisponivel;
+    }
+}
@@ -0,0 +1,45 @@
+package br.com.fiap.api.filter;
+
+import br.com.fiap.api.filter.TempoRequisicao.Fase;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Mede o tempo no controller, no serviço e no repositório de mensagens.
+ */
+@Aspect
+public class FasesRequisicaoAspect {
+
+    @Around("within(br.com.fiap.api.controller.MensagemController)")
+    public Object medirController(ProceedingJoinPoint chamada) throws Throwable {
+        return medir(chamada, Fase.CONTROLLER);
+    }
+
+    @Around("within(br.com.fiap.api.service.MensagemServiceImpl)"
+            + " || within(br.com.fiap.api.service.MensagemFragmentadaServiceImpl)")
+    public Object medirServico(ProceedingJoinPoint chamada) throws Throwable {
+        return medir(chamada, Fase.SERVICO);
+    }
+
+    // target: inclui os métodos herdados de JpaRepository (findById, save...)
+    @Around("target(br.com.fiap.api.repository.MensagemRepository)"
+            + " || target(br.com.fiap.api.repository.MensagemFragmentadaRepository)")
+    public Object medirRepositorio(ProceedingJoinPoint chamada) throws Throwable {
+        return medir(chamada, Fase.REPOSITORIO);
+    }
+
+    private static Object medir(ProceedingJoinPoint chamada, Fase fase) throws Throwable {
+        var tempo = TempoRequisicao.atual();
+        if (tempo == null) {
+            return chamada.proceed();
+        }
+        var maisExterna = tempo.entrar(fase);
+        var inicio = System.nanoTime();
+        try {
+            return chamada.proceed();
+        } finally {
+            tempo.sair(fase, maisExterna, System.nanoTime() - inicio);
+        }
+    }
+}
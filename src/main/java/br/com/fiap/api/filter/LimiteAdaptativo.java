@@ -0,0 +1,99 @@
+package br.com.fiap.api.filter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limite de requisições simultâneas ajustado pela latência (estilo TCP Vegas).
+ * Compara cada tempo de resposta com o menor já observado: se a diferença indica
+ * fila se formando, o limite cai; se não, o limite sobe.
+ */
+public class LimiteAdaptativo {
+
+    // a cada (limite * SONDA) amostras o menor tempo é descartado para acompanhar mudanças no banco
+    private static final int SONDA = 30;
+
+    private final int limiteMinimo;
+    private final int limiteMaximo;
+    private final AtomicInteger emAndamento = new AtomicInteger();
+
+    private volatile double limite;
+    private long rttSemCarga;
+    private long amostrasDesdeSonda;
+
+    public LimiteAdaptativo(int limiteInicial, int limiteMinimo, int limiteMaximo) {
+        if (limiteMinimo < 1 || limiteMinimo > limiteMaximo) {
+            throw new IllegalArgumentException("Limites de concorrência inválidos");
+        }
+        this.limiteMinimo = limiteMinimo;
+        this.limiteMaximo = limiteMaximo;
+        this.limite = Math.min(limiteMaximo, Math.max(limiteMinimo, limiteInicial));
+    }
+
+    /**
+     * Reserva uma vaga se houver espaço dentro da fração do limite permitida à prioridade.
+     */
+    public boolean adquirir(double fracaoDoLimite) {
+        var teto = Math.max(1, (int) (limite * fracaoDoLimite));
+        while (true) {
+            var atual = emAndamento.get();
+            if (atual >= teto) {
+                return false;
+            }
+            if (emAndamento.compareAndSet(atual, atual + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Devolve a vaga e usa o tempo de resposta como amostra para ajustar o limite.
+     */
+    public void liberar(long rttNanos) {
+        var emVoo = emAndamento.getAndDecrement();
+        registrarAmostra(rttNanos, emVoo);
+    }
+
+    /**
+     * Devolve a vaga sem amostra (falhas não dizem nada sobre a fila).
+     */
+    public void liberarSemAmostra() {
+        emAndamento.decrementAndGet();
+    }
+
+    public int getLimite() {
+        return (int) limite;
+    }
+
+    public int getEmAndamento() {
+        return emAndamento.get();
+    }
+
+    synchronized void registrarAmostra(long rttNanos, int emVoo) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        if (rttSemCarga == 0 || rttNanos < rttSemCarga || ++amostrasDesdeSonda > limite * SONDA) {
+            rttSemCarga = rttNanos;
+            amostrasDesdeSonda = 0;
+            return;
+        }
+        // com menos da metade das vagas em uso a latência não diz nada sobre o limite
+        if (emVoo * 2 < limite) {
+            return;
+        }
+
+        var log = Math.max(1, Math.log10(limite));
+        var fila = Math.ceil(limite * (1 - (double) rttSemCarga / rttNanos));
+        double novoLimite;
+        if (fila <= log) {
+            novoLimite = limite + 6 * log;
+        } else if (fila < 3 * log) {
+            novoLimite = limite + log;
+        } else if (fila > 6 * log) {
+            novoLimite = limite - log;
+        } else {
+            return;
+        }
+        limite = Math.min(limiteMaximo, Math.max(limiteMinimo, novoLimite));
+    }
+}
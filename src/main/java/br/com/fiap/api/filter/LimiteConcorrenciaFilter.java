@@ -0,0 +1,90 @@
+package br.com.fiap.api.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Rejeita com 503 as requisições que excedem o {@link LimiteAdaptativo}.
+ * Leituras por id podem usar o limite inteiro; escritas e listagens só uma fração dele,
+ * para que a listagem em lote seja descartada primeiro quando o banco fica lento.
+ */
+public class LimiteConcorrenciaFilter extends OncePerRequestFilter {
+
+    public enum Prioridade { LEITURA, ESCRITA, LISTAGEM }
+
+    private static final String CAMINHO_LISTAGEM = "/mensagens";
+
+    private final LimiteAdaptativo limite;
+    private final Map<Prioridade, Double> fracoes = new EnumMap<>(Prioridade.class);
+    private final Map<Prioridade, Counter> rejeicoes = new EnumMap<>(Prioridade.class);
+    private final String retryAfter;
+
+    public LimiteConcorrenciaFilter(LimiteAdaptativo limite, double fracaoEscrita, double fracaoListagem,
+                                    Duration retryAfter, MeterRegistry meterRegistry) {
+        this.limite = limite;
+        this.retryAfter = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+        fracoes.put(Prioridade.LEITURA, 1.0);
+        fracoes.put(Prioridade.ESCRITA, fracaoEscrita);
+        fracoes.put(Prioridade.LISTAGEM, fracaoListagem);
+
+        Gauge.builder("mensagens.concorrencia.limite", limite, LimiteAdaptativo::getLimite)
+                .description("Limite atual de requisições simultâneas")
+                .register(meterRegistry);
+        Gauge.builder("mensagens.concorrencia.em.andamento", limite, LimiteAdaptativo::getEmAndamento)
+                .description("Requisições em andamento")
+                .register(meterRegistry);
+        for (var prioridade : Prioridade.values()) {
+            rejeicoes.put(prioridade, Counter.builder("mensagens.concorrencia.rejeicoes")
+                    .description("Requisições rejeitadas por excesso de concorrência")
+                    .tag("prioridade", prioridade.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        var prioridade = classificar(request);
+        if (!limite.adquirir(fracoes.get(prioridade))) {
+            rejeicoes.get(prioridade).increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            return;
+        }
+
+        var inicio = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException erro) {
+            limite.liberarSemAmostra();
+            throw erro;
+        }
+        limite.liberar(System.nanoTime() - inicio);
+    }
+
+    static Prioridade classificar(HttpServletRequest request) {
+        var caminho = request.getRequestURI().substring(request.getContextPath().length());
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return caminho.endsWith("/buscar-varios") ? Prioridade.LEITURA : Prioridade.ESCRITA;
+        }
+        // conversas e respostas paginadas são leituras em lote, como a listagem
+        return caminho.equals(CAMINHO_LISTAGEM) || caminho.equals(CAMINHO_LISTAGEM + "/")
+                || caminho.endsWith("/conversa") || caminho.endsWith("/respostas")
+                ? Prioridade.LISTAGEM
+                : Prioridade.LEITURA;
+    }
+}
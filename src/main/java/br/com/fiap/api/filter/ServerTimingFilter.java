@@ -0,0 +1,68 @@
+package br.com.fiap.api.filter;
+
+import br.com.fiap.api.filter.TempoRequisicao.Fase;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Abre a {@link TempoRequisicao} da requisição e devolve o resultado no cabeçalho
+ * {@code Server-Timing}. Respostas JSON recebem o cabeçalho do {@link ServerTimingJacksonConverter},
+ * que já inclui a serialização; as demais, aqui, se a resposta ainda não foi enviada.
+ * Requisições acima do limiar vão para o log, por amostragem.
+ */
+@Slf4j
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    private final long limiarLogNanos;
+    private final double amostragemLog;
+
+    public ServerTimingFilter(Duration limiarLog, double amostragemLog) {
+        this.limiarLogNanos = limiarLog.toNanos();
+        this.amostragemLog = amostragemLog;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        var tempo = TempoRequisicao.iniciar();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            TempoRequisicao.encerrar();
+            if (!tempo.cabecalhoEnviado() && !response.isCommitted()) {
+                response.addHeader(SERVER_TIMING, tempo.serverTiming());
+            }
+            registrarSeLenta(request, response, tempo);
+        }
+    }
+
+    private void registrarSeLenta(HttpServletRequest request, HttpServletResponse response, TempoRequisicao tempo) {
+        var total = tempo.total();
+        if (total < limiarLogNanos || ThreadLocalRandom.current().nextDouble() >= amostragemLog) {
+            return;
+        }
+        log.warn("requisicao_lenta metodo={} uri={} status={} total_ms={} controller_ms={} servico_ms={} "
+                        + "repositorio_ms={} consulta_ms={} contagem_ms={} serializacao_ms={} statements={}",
+                request.getMethod(), request.getRequestURI(), response.getStatus(),
+                TimeUnit.NANOSECONDS.toMillis(total),
+                milissegundos(tempo, Fase.CONTROLLER), milissegundos(tempo, Fase.SERVICO),
+                milissegundos(tempo, Fase.REPOSITORIO), milissegundos(tempo, Fase.CONSULTA),
+                milissegundos(tempo, Fase.CONTAGEM), milissegundos(tempo, Fase.SERIALIZACAO),
+                tempo.statements());
+    }
+
+    private static long milissegundos(TempoRequisicao tempo, Fase fase) {
+        return TimeUnit.NANOSECONDS.toMillis(tempo.duracao(fase));
+    }
+}
@@ -0,0 +1,115 @@
+package br.com.fiap.api.filter;
+
+import br.com.fiap.api.filter.TempoRequisicao.Fase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+
+/**
+ * Conversor JSON que mede a serialização. O cabeçalho {@code Server-Timing} precisa sair antes do corpo,
+ * então numa requisição medida o início do corpo fica em memória, até {@code limiteBuffer} bytes: se o JSON
+ * inteiro couber, o cabeçalho já inclui o tempo do Jackson. Corpos maiores, como listagens sem paginação,
+ * não esperam a serialização terminar: ao passar do limite o cabeçalho sai sem a fase de serialização e o
+ * restante segue direto para a resposta. O tempo da serialização ainda entra no log de requisições lentas.
+ */
+public class ServerTimingJacksonConverter extends MappingJackson2HttpMessageConverter {
+
+    private final int limiteBuffer;
+
+    public ServerTimingJacksonConverter(ObjectMapper objectMapper, int limiteBuffer) {
+        super(objectMapper);
+        this.limiteBuffer = limiteBuffer;
+    }
+
+    @Override
+    protected void writeInternal(Object object, @Nullable Type type, HttpOutputMessage outputMessage)
+            throws IOException {
+        var tempo = TempoRequisicao.atual();
+        if (tempo == null || tempo.cabecalhoEnviado()) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+        var corpo = new CorpoLimitado(tempo, outputMessage);
+        var inicio = System.nanoTime();
+        super.writeInternal(object, type, new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return corpo;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return outputMessage.getHeaders();
+            }
+        });
+        tempo.registrar(Fase.SERIALIZACAO, System.nanoTime() - inicio);
+        corpo.concluir();
+    }
+
+    // guarda o corpo até o limite; depois disso envia o cabeçalho e passa a escrever direto na resposta
+    private final class CorpoLimitado extends OutputStream {
+
+        private final TempoRequisicao tempo;
+        private final HttpOutputMessage resposta;
+        private byte[] buffer = new byte[Math.min(1024, Math.max(1, limiteBuffer))];
+        private int tamanho;
+        private OutputStream direto;
+
+        private CorpoLimitado(TempoRequisicao tempo, HttpOutputMessage resposta) {
+            this.tempo = tempo;
+            this.resposta = resposta;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int inicio, int quantidade) throws IOException {
+            if (direto == null && tamanho + quantidade > limiteBuffer) {
+                enviarCabecalho();
+                direto = resposta.getBody();
+                direto.write(buffer, 0, tamanho);
+                buffer = null;
+            }
+            if (direto != null) {
+                direto.write(bytes, inicio, quantidade);
+                return;
+            }
+            if (tamanho + quantidade > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.min(limiteBuffer, Math.max(buffer.length * 2, tamanho + quantidade)));
+            }
+            System.arraycopy(bytes, inicio, buffer, tamanho, quantidade);
+            tamanho += quantidade;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // o Jackson dá flush ao terminar; enquanto o corpo couber no buffer, nada sai antes do cabeçalho
+            if (direto != null) {
+                direto.flush();
+            }
+        }
+
+        private void concluir() throws IOException {
+            if (direto != null) {
+                return;
+            }
+            enviarCabecalho();
+            resposta.getHeaders().setContentLength(tamanho);
+            resposta.getBody().write(buffer, 0, tamanho);
+        }
+
+        private void enviarCabecalho() {
+            resposta.getHeaders().add(ServerTimingFilter.SERVER_TIMING, tempo.serverTiming());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package br.com.fiap.api.filter;
+
+import org.hibernate.SessionEventListener;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Tempo de execução e quantidade de statements JDBC da requisição. O Hibernate cria
+ * um listener por sessão ({@code hibernate.session.events.auto}); o mesmo tipo, como
+ * {@link StatementInspector}, separa o COUNT da paginação das demais consultas.
+ */
+public class TempoJdbcListener implements SessionEventListener, StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        var tempo = TempoRequisicao.atual();
+        if (tempo != null) {
+            tempo.prepararStatement(sql.regionMatches(true, 0, "select count(", 0, 13));
+        }
+        return sql;
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        var tempo = TempoRequisicao.atual();
+        if (tempo != null) {
+            tempo.iniciarStatement();
+        }
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        var tempo = TempoRequisicao.atual();
+        if (tempo != null) {
+            tempo.encerrarStatement();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package br.com.fiap.api.filter;
+
+import java.util.Locale;
+
+/**
+ * Tempo gasto em cada fase de uma requisição, acumulado na thread que a atende.
+ * Alimentado por {@link FasesRequisicaoAspect}, {@link TempoJdbcListener} e
+ * {@link ServerTimingJacksonConverter}; aberto e fechado por {@link ServerTimingFilter}.
+ * <p>
+ * Fora de uma requisição medida, {@link #atual()} devolve {@code null} e os pontos
+ * de medição não fazem nada além de ler a {@link ThreadLocal}.
+ */
+public final class TempoRequisicao {
+
+    public enum Fase {
+        CONTROLLER("controller"),
+        SERVICO("servico"),
+        REPOSITORIO("repositorio"),
+        CONSULTA("consulta"),
+        CONTAGEM("contagem"),
+        SERIALIZACAO("serializacao");
+
+        private final String metrica;
+
+        Fase(String metrica) {
+            this.metrica = metrica;
+        }
+    }
+
+    private static final Fase[] FASES = Fase.values();
+    private static final ThreadLocal<TempoRequisicao> ATUAL = new ThreadLocal<>();
+
+    private final long inicio;
+    private final long[] duracoes = new long[FASES.length];
+    private final int[] profundidades = new int[FASES.length];
+    private final boolean[] ocorreu = new boolean[FASES.length];
+    private int statements;
+    private boolean contagemPreparada;
+    private long inicioStatement;
+    private boolean cabecalhoEnviado;
+
+    private TempoRequisicao(long inicio) {
+        this.inicio = inicio;
+    }
+
+    public static TempoRequisicao iniciar() {
+        var tempo = new TempoRequisicao(System.nanoTime());
+        ATUAL.set(tempo);
+        return tempo;
+    }
+
+    public static TempoRequisicao atual() {
+        return ATUAL.get();
+    }
+
+    public static void encerrar() {
+        ATUAL.remove();
+    }
+
+    /**
+     * Marca a entrada numa fase. Chamadas aninhadas da mesma fase (um repositório que chama
+     * outro método do repositório) só contam a mais externa.
+     */
+    public boolean entrar(Fase fase) {
+        return profundidades[fase.ordinal()]++ == 0;
+    }
+
+    public void sair(Fase fase, boolean maisExterna, long nanos) {
+        profundidades[fase.ordinal()]--;
+        if (maisExterna) {
+            registrar(fase, nanos);
+        }
+    }
+
+    public void registrar(Fase fase, long nanos) {
+        duracoes[fase.ordinal()] += nanos;
+        ocorreu[fase.ordinal()] = true;
+    }
+
+    void prepararStatement(boolean contagem) {
+        contagemPreparada = contagem;
+    }
+
+    void iniciarStatement() {
+        inicioStatement = System.nanoTime();
+    }
+
+    void encerrarStatement() {
+        statements++;
+        registrar(contagemPreparada ? Fase.CONTAGEM : Fase.CONSULTA, System.nanoTime() - inicioStatement);
+        contagemPreparada = false;
+    }
+
+    public long duracao(Fase fase) {
+        return duracoes[fase.ordinal()];
+    }
+
+    public long total() {
+        return System.nanoTime() - inicio;
+    }
+
+    public int statements() {
+        return statements;
+    }
+
+    public boolean cabecalhoEnviado() {
+        return cabecalhoEnviado;
+    }
+
+    /**
+     * Valor do cabeçalho {@code Server-Timing}, em milissegundos. {@code hidratacao} é o tempo no
+     * repositório fora do JDBC: montagem das entidades, cache de segundo nível e o próprio Spring Data.
+     */
+    public String serverTiming() {
+        cabecalhoEnviado = true;
+        var valor = new StringBuilder(256);
+        for (var fase : FASES) {
+            if (ocorreu[fase.ordinal()]) {
+                metrica(valor, fase.metrica, duracoes[fase.ordinal()]);
+            }
+        }
+        if (ocorreu[Fase.REPOSITORIO.ordinal()]) {
+            var jdbc = duracao(Fase.CONSULTA) + duracao(Fase.CONTAGEM);
+            metrica(valor, "hidratacao", Math.max(0, duracao(Fase.REPOSITORIO) - jdbc));
+        }
+        if (statements > 0) {
+            valor.append("jdbc;desc=\"").append(statements).append(" statements\", ");
+        }
+        metrica(valor, "total", total());
+        valor.setLength(valor.length() - 2);
+        return valor.toString();
+    }
+
+    private static void metrica(StringBuilder valor, String nome, long nanos) {
+        valor.append(nome).append(";dur=").append(String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0)).append(", ");
+    }
+}
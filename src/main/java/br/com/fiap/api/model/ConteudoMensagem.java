@@ -0,0 +1,75 @@
+package br.com.fiap.api.model;
+
+import br.com.fiap.api.utils.CompressorConteudo;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Conteúdo de uma mensagem como fica no banco: abaixo do limiar do {@link CompressorConteudo}, texto puro na
+ * coluna {@code conteudo}; a partir dele, o quadro Zstd em {@code conteudo_compactado} e {@code conteudo} nulo.
+ * <p>
+ * A compressão acontece na criação do valor e a descompressão só em {@link #texto()}, quando alguém de fato lê
+ * o conteúdo: a entidade, o cache de segundo nível e a listagem carregam os bytes compactados. Linhas gravadas
+ * só com {@code conteudo}, como as de antes da compressão, continuam válidas.
+ */
+@Embeddable
+public class ConteudoMensagem implements Serializable {
+
+    @Column(name = "conteudo", length = CompressorConteudo.LIMIAR_MAXIMO)
+    private String texto;
+
+    @Column(name = "conteudo_compactado", length = ConteudoMensagem.TAMANHO_MAXIMO_COMPACTADO)
+    private byte[] compactado;
+
+    static final int TAMANHO_MAXIMO_COMPACTADO = 1 << 20;
+
+    protected ConteudoMensagem() {
+    }
+
+    private ConteudoMensagem(String texto, byte[] compactado) {
+        this.texto = texto;
+        this.compactado = compactado;
+    }
+
+    public static ConteudoMensagem de(String texto) {
+        var compressor = CompressorConteudo.atual();
+        var utf8 = texto.getBytes(StandardCharsets.UTF_8);
+        return compressor.deveCompactar(utf8)
+                ? new ConteudoMensagem(null, compressor.compactar(utf8))
+                : new ConteudoMensagem(texto, null);
+    }
+
+    // para quem lê as colunas fora do Hibernate
+    public static ConteudoMensagem armazenado(String texto, byte[] compactado) {
+        return new ConteudoMensagem(texto, compactado);
+    }
+
+    public String texto() {
+        return compactado == null ? texto : CompressorConteudo.descompactar(compactado);
+    }
+
+    public String textoArmazenado() {
+        return texto;
+    }
+
+    public byte[] compactado() {
+        return compactado;
+    }
+
+    @Override
+    public boolean equals(Object outro) {
+        return outro instanceof ConteudoMensagem conteudo
+                && Objects.equals(texto, conteudo.texto)
+                && Arrays.equals(compactado, conteudo.compactado);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(texto) + Arrays.hashCode(compactado);
+    }
+}
@@ -0,0 +1,8 @@
+package br.com.fiap.api.model;
+
+/**
+ * Subárvore de uma conversa a partir da mensagem pedida. Com {@code truncada}, a consulta parou no limite
+ * de mensagens: o que veio é um prefixo da pré-ordem, e o restante pode ser lido pelas respostas paginadas.
+ */
+public record Conversa(NoConversa raiz, int mensagens, boolean truncada) {
+}
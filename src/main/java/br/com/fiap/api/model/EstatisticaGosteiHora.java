@@ -0,0 +1,9 @@
+package br.com.fiap.api.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Gostei registrados numa hora, identificada pelo seu início.
+ */
+public record EstatisticaGosteiHora(LocalDateTime hora, long gostei) {
+}
@@ -0,0 +1,7 @@
+package br.com.fiap.api.model;
+
+/**
+ * Total de mensagens publicadas por um usuário, segundo o rollup.
+ */
+public record EstatisticaUsuario(String usuario, long mensagens) {
+}
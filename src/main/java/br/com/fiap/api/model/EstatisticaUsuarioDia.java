@@ -0,0 +1,9 @@
+package br.com.fiap.api.model;
+
+import java.time.LocalDate;
+
+/**
+ * Mensagens publicadas por um usuário num dia, segundo o rollup.
+ */
+public record EstatisticaUsuarioDia(String usuario, LocalDate dia, long mensagens) {
+}
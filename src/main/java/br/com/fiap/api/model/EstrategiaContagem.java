@@ -0,0 +1,16 @@
+package br.com.fiap.api.model;
+
+/**
+ * Como a listagem obtém o total de mensagens, do mais preciso ao mais barato.
+ */
+public enum EstrategiaContagem {
+
+    // COUNT(*) a cada listagem, com o resultado no cache de consultas até a próxima escrita
+    EXATA,
+    // COUNT(*) reaproveitado até vencer o TTL, mesmo havendo escritas
+    CACHE,
+    // COUNT(*) de tempos em tempos, ajustado a cada mensagem registrada ou removida nesta instância
+    INCREMENTAL,
+    // estimativa das estatísticas do banco, sem ler a tabela
+    ESTIMADA
+}
@@ -0,0 +1,30 @@
+package br.com.fiap.api.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Mudança confirmada numa mensagem. {@code usuario} e {@code conteudo} vêm preenchidos
+ * conforme o tipo: a remoção leva só o id, o gostei leva o usuário que gostou.
+ */
+public record EventoMensagem(TipoEventoMensagem tipo, UUID mensagemId, String usuario, String conteudo,
+                             Instant momento) {
+
+    public static EventoMensagem registrada(Mensagem mensagem) {
+        return new EventoMensagem(TipoEventoMensagem.REGISTRADA, mensagem.getId(), mensagem.getUsuario(),
+                mensagem.getConteudo(), Instant.now());
+    }
+
+    public static EventoMensagem alterada(Mensagem mensagem) {
+        return new EventoMensagem(TipoEventoMensagem.ALTERADA, mensagem.getId(), mensagem.getUsuario(),
+                mensagem.getConteudo(), Instant.now());
+    }
+
+    public static EventoMensagem removida(UUID id) {
+        return new EventoMensagem(TipoEventoMensagem.REMOVIDA, id, null, null, Instant.now());
+    }
+
+    public static EventoMensagem gostei(UUID id, String usuario) {
+        return new EventoMensagem(TipoEventoMensagem.GOSTEI, id, usuario, null, Instant.now());
+    }
+}
@@ -0,0 +1,4 @@
+package br.com.fiap.api.model;
+
+public record EventoRegistrado(long offset, EventoMensagem evento) {
+}
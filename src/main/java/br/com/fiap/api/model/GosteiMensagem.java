@@ -0,0 +1,33 @@
+package br.com.fiap.api.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Version;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.Length;
+
+import java.util.UUID;
+
+/**
+ * Usuários que deram gostei numa mensagem, como Roaring bitmap serializado
+ * sobre os índices de {@link IndiceUsuario}. Fica fora de {@link Mensagem}
+ * para não pesar nas leituras nem no cache de segundo nível.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GosteiMensagem {
+
+    @Id
+    private UUID mensagemId;
+
+    @Column(nullable = false, length = Length.LONG32)
+    private byte[] usuarios;
+
+    @Version
+    private Long versao;
+}
@@ -0,0 +1,50 @@
+package br.com.fiap.api.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Gostei ainda não incorporado ao bitmap de {@link GosteiMensagem}: uma linha pequena por gostei,
+ * consolidada em lote e apagada em seguida. A chave impede o mesmo usuário duas vezes.
+ */
+@Entity
+@IdClass(GosteiPendente.Chave.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GosteiPendente implements Persistable<GosteiPendente.Chave> {
+
+    @Id
+    private UUID mensagemId;
+
+    // índice de IndiceUsuario, a posição no bitmap
+    @Id
+    private Integer usuario;
+
+    @Override
+    public Chave getId() {
+        return new Chave(mensagemId, usuario);
+    }
+
+    // só é inserida e apagada, nunca alterada: dispensa o SELECT do merge
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Chave implements Serializable {
+        private UUID mensagemId;
+        private Integer usuario;
+    }
+}
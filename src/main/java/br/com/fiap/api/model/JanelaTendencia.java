@@ -0,0 +1,28 @@
+package br.com.fiap.api.model;
+
+import java.time.Duration;
+
+/**
+ * Janelas de tempo das tendências: a janela é dividida em baldes que expiram um a um.
+ */
+public enum JanelaTendencia {
+
+    HORA(Duration.ofHours(1), 60),
+    DIA(Duration.ofDays(1), 24);
+
+    private final Duration duracao;
+    private final int baldes;
+
+    JanelaTendencia(Duration duracao, int baldes) {
+        this.duracao = duracao;
+        this.baldes = baldes;
+    }
+
+    public Duration getDuracao() {
+        return duracao;
+    }
+
+    public int getBaldes() {
+        return baldes;
+    }
+}
@@ -0,0 +1,9 @@
+package br.com.fiap.api.model;
+
+import java.util.List;
+
+/**
+ * Eventos lidos a partir de um offset; o consumidor continua de {@code proximoOffset}.
+ */
+public record LoteEventos(List<EventoRegistrado> eventos, long proximoOffset) {
+}
@@ -1,26 +1,59 @@
 package br.com.fiap.api.model;
 
+import br.com.fiap.api.utils.CaminhoConversa;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
+import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import jakarta.validation.constraints.NotEmpty;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Where;
+import org.springframework.data.domain.Persistable;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = {
+        // subárvore inteira numa varredura de intervalo, já em pré-ordem
+        @Index(name = "mensagem_caminho_idx", columnList = "caminho"),
+        // respostas diretas paginadas por cursor
+        @Index(name = "mensagem_resposta_de_idx", columnList = "resposta_de, caminho"),
+        // lotes do expurgo, em ordem de remoção
+        @Index(name = "mensagem_removida_em_idx", columnList = "removida_em")
+})
+// as removidas continuam na tabela até o expurgo; ver ExpurgoMensagens
+@Where(clause = "removida_em IS NULL")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Mensagem.REGIAO_CACHE)
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class Mensagem {
+public class Mensagem implements Persistable<UUID> {
+
+    // região do cache de segundo nível; o tamanho e a expiração ficam no CacheConfig
+    public static final String REGIAO_CACHE = "mensagem";
 
     @Id
     private UUID id;
@@ -29,9 +62,11 @@ public class Mensagem {
     @NotEmpty(message = "Usuário não pode estar vazio")
     private String usuario;
 
-    @Column(nullable = false)
-    @NotEmpty(message = "Conteudo não pode estar vazio")
-    private String conteudo;
+    // exposto como String: getConteudo() descompacta a cada leitura, ver ConteudoMensagem
+    @Embedded
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private ConteudoMensagem conteudo;
 
     @CreationTimestamp
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss.SSSD")
@@ -40,9 +75,69 @@ public class Mensagem {
     @Builder.Default
     private int gostei = 0;
 
+    // nula nas mensagens que abrem uma conversa; definida pelo serviço ao responder
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "resposta_de")
+    private UUID respostaDe;
+
+    // nulo até a primeira resposta; ver CaminhoConversa
+    @JsonIgnore
+    @Column(length = CaminhoConversa.TAMANHO_MAXIMO)
+    private String caminho;
+
+    // só a remoção preenche, por UPDATE direto; fora dos INSERT e UPDATE da entidade para uma alteração
+    // concorrente não desfazer a remoção
+    @JsonIgnore
+    @Column(name = "removida_em", insertable = false, updatable = false)
+    private LocalDateTime removidaEm;
+
+    // o id é gerado pelo serviço: sem isto o save() faria merge, com um SELECT antes do INSERT
+    @Transient
+    @JsonIgnore
+    @Builder.Default
+    @EqualsAndHashCode.Exclude
+    private boolean nova = true;
+
+    @NotEmpty(message = "Conteudo não pode estar vazio")
+    public String getConteudo() {
+        return conteudo == null ? null : conteudo.texto();
+    }
+
+    public void setConteudo(String texto) {
+        conteudo = texto == null ? null : ConteudoMensagem.de(texto);
+    }
+
+    public ConteudoMensagem conteudoArmazenado() {
+        return conteudo;
+    }
+
+    public void armazenarConteudo(ConteudoMensagem conteudo) {
+        this.conteudo = conteudo;
+    }
+
     @PrePersist
     public void prePersist(){
         var timesStamp = LocalDateTime.now();
         dataCriacao = timesStamp;
     }
+
+    @PostLoad
+    @PostPersist
+    void marcarPersistida() {
+        nova = false;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return nova;
+    }
+
+    public static class MensagemBuilder {
+
+        public MensagemBuilder conteudo(String texto) {
+            this.conteudo = texto == null ? null : ConteudoMensagem.de(texto);
+            return this;
+        }
+    }
 }
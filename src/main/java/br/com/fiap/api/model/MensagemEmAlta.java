@@ -0,0 +1,7 @@
+package br.com.fiap.api.model;
+
+/**
+ * Mensagem em alta com a quantidade estimada de gostei recebidos na janela.
+ */
+public record MensagemEmAlta(Mensagem mensagem, long gosteiNaJanela) {
+}
@@ -0,0 +1,9 @@
+package br.com.fiap.api.model;
+
+import java.util.List;
+
+/**
+ * Mensagem de uma conversa com as respostas diretas, em ordem cronológica.
+ */
+public record NoConversa(Mensagem mensagem, List<NoConversa> respostas) {
+}
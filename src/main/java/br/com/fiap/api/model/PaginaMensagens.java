@@ -0,0 +1,24 @@
+package br.com.fiap.api.model;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * Página de mensagens que informa, em {@code precisaoTotal}, de onde veio o {@code totalElements}.
+ * Quando a própria página revela o total (última página incompleta), ele é exato qualquer que seja a estratégia.
+ */
+public class PaginaMensagens extends PageImpl<Mensagem> {
+
+    private final EstrategiaContagem precisaoTotal;
+
+    public PaginaMensagens(List<Mensagem> conteudo, Pageable pageable, long total, EstrategiaContagem precisaoTotal) {
+        super(conteudo, pageable, total);
+        this.precisaoTotal = precisaoTotal;
+    }
+
+    public EstrategiaContagem getPrecisaoTotal() {
+        return precisaoTotal;
+    }
+}
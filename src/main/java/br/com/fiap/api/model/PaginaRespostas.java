@@ -0,0 +1,9 @@
+package br.com.fiap.api.model;
+
+import java.util.List;
+
+/**
+ * Página de respostas diretas; {@code proxima} é o cursor da página seguinte, nulo na última.
+ */
+public record PaginaRespostas(List<Mensagem> respostas, String proxima) {
+}
@@ -0,0 +1,10 @@
+package br.com.fiap.api.model;
+
+import java.time.Duration;
+
+/**
+ * Rodadas executadas no aquecimento, se a latência estabilizou antes do tempo máximo
+ * e o p99 da última rodada.
+ */
+public record ResultadoAquecimento(int rodadas, boolean estabilizado, Duration p99, Duration duracao) {
+}
@@ -0,0 +1,14 @@
+package br.com.fiap.api.model;
+
+import java.util.UUID;
+
+public record ResultadoBuscaMensagem(UUID id, boolean encontrada, Mensagem mensagem) {
+
+    public static ResultadoBuscaMensagem encontrada(Mensagem mensagem) {
+        return new ResultadoBuscaMensagem(mensagem.getId(), true, mensagem);
+    }
+
+    public static ResultadoBuscaMensagem naoEncontrada(UUID id) {
+        return new ResultadoBuscaMensagem(id, false, null);
+    }
+}
@@ -0,0 +1,7 @@
+package br.com.fiap.api.model;
+
+/**
+ * Fragmentos ativos e de reserva e, durante uma expansão, quantas mensagens já mudaram de fragmento.
+ */
+public record SituacaoFragmentacao(int fragmentos, int reservas, boolean migrando, long mensagensMovidas) {
+}
@@ -0,0 +1,7 @@
+package br.com.fiap.api.model;
+
+/**
+ * Se o usuário deu gostei na mensagem e quantos usuários distintos deram.
+ */
+public record SituacaoGostei(boolean gostou, long total) {
+}
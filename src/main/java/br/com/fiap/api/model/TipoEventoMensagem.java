@@ -0,0 +1,8 @@
+package br.com.fiap.api.model;
+
+public enum TipoEventoMensagem {
+    REGISTRADA,
+    ALTERADA,
+    REMOVIDA,
+    GOSTEI
+}
@@ -0,0 +1,67 @@
+package br.com.fiap.api.repository;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Anel de hash consistente: cada fragmento ocupa {@code nosVirtuais} posições e a mensagem pertence
+ * ao primeiro nó virtual depois do hash do seu id. A posição de um nó depende só do fragmento e do
+ * número do nó, então incluir um fragmento move apenas as chaves que passam a ser dele (~1/n).
+ */
+final class AnelConsistente {
+
+    private final int fragmentos;
+    private final int nosVirtuais;
+    private final long[] posicoes;
+    private final int[] donos;
+
+    AnelConsistente(int fragmentos, int nosVirtuais) {
+        if (fragmentos < 1 || nosVirtuais < 1) {
+            throw new IllegalArgumentException("O anel precisa de ao menos um fragmento e um nó virtual");
+        }
+        this.fragmentos = fragmentos;
+        this.nosVirtuais = nosVirtuais;
+
+        var nos = new long[fragmentos * nosVirtuais][];
+        for (int fragmento = 0, i = 0; fragmento < fragmentos; fragmento++) {
+            for (int no = 0; no < nosVirtuais; no++, i++) {
+                nos[i] = new long[]{misturar(((long) fragmento << 32 | no) + 0x9E37_79B9_7F4A_7C15L), fragmento};
+            }
+        }
+        Arrays.sort(nos, (a, b) -> Long.compare(a[0], b[0]));
+        posicoes = new long[nos.length];
+        donos = new int[nos.length];
+        for (int i = 0; i < nos.length; i++) {
+            posicoes[i] = nos[i][0];
+            donos[i] = (int) nos[i][1];
+        }
+    }
+
+    AnelConsistente comFragmentos(int total) {
+        return new AnelConsistente(total, nosVirtuais);
+    }
+
+    int fragmentos() {
+        return fragmentos;
+    }
+
+    int fragmento(UUID id) {
+        var hash = misturar(id.getMostSignificantBits() ^ misturar(id.getLeastSignificantBits()));
+        var posicao = Arrays.binarySearch(posicoes, hash);
+        if (posicao < 0) {
+            posicao = -posicao - 1;
+        }
+        // depois da última posição o anel volta ao início
+        return donos[posicao == posicoes.length ? 0 : posicao];
+    }
+
+    // finalizador de 64 bits do MurmurHash3
+    private static long misturar(long valor) {
+        valor ^= valor >>> 33;
+        valor *= 0xFF51_AFD7_ED55_8CCDL;
+        valor ^= valor >>> 33;
+        valor *= 0xC4CE_B9FE_1A85_EC53L;
+        valor ^= valor >>> 33;
+        return valor;
+    }
+}
@@ -0,0 +1,243 @@
+package br.com.fiap.api.repository;
+
+import br.com.fiap.api.model.Mensagem;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Armazenamento frio das mensagens antigas: segmentos imutáveis, colunares e compactados num diretório
+ * local ({@link SegmentoArquivo}), lidos por mapeamento em memória.
+ * <p>
+ * Cada arquivamento grava um segmento com a geração seguinte. Como o corte por idade só avança, gerações
+ * maiores têm mensagens mais novas e a listagem percorre os segmentos da última geração para a primeira.
+ * A {@link #compactar compactação} junta segmentos vizinhos pequenos num só, com o intervalo de gerações
+ * que substitui; segmentos cobertos por outro, que sobram de uma compactação interrompida, são ignorados
+ * e apagados na abertura.
+ * <p>
+ * Os blocos descompactados mais lidos ficam num cache de {@code blocosEmCache} entradas. Os leitores
+ * trabalham sobre uma lista de segmentos que só é substituída inteira, sem trava.
+ */
+public class ArquivoMensagens implements Closeable {
+
+    private record ChaveBloco(SegmentoArquivo segmento, int bloco) {
+    }
+
+    private final Path diretorio;
+    private final int linhasPorBloco;
+    private final int nivel;
+    private final Cache<ChaveBloco, SegmentoArquivo.Bloco> blocos;
+
+    // da geração mais nova para a mais antiga
+    private volatile List<SegmentoArquivo> segmentos = List.of();
+
+    public ArquivoMensagens(Path diretorio, int linhasPorBloco, int nivel, int blocosEmCache) {
+        if (linhasPorBloco < 1) {
+            throw new IllegalArgumentException("Bloco de arquivo precisa de ao menos uma linha");
+        }
+        this.diretorio = diretorio;
+        this.linhasPorBloco = linhasPorBloco;
+        this.nivel = nivel;
+        this.blocos = Caffeine.newBuilder().maximumSize(blocosEmCache).build();
+        try {
+            Files.createDirectories(diretorio);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+        recarregar();
+    }
+
+    /**
+     * Relê o diretório, para enxergar segmentos gravados por outra instância que o compartilha.
+     */
+    public synchronized void recarregar() {
+        var abertos = new HashMap<Path, SegmentoArquivo>();
+        segmentos.forEach(segmento -> abertos.put(segmento.arquivo(), segmento));
+        var encontrados = new ArrayList<SegmentoArquivo>();
+        try (var arquivos = Files.list(diretorio)) {
+            for (var arquivo : arquivos.toList()) {
+                var nome = arquivo.getFileName().toString();
+                if (nome.endsWith(SegmentoArquivo.EXTENSAO)) {
+                    var aberto = abertos.get(arquivo);
+                    encontrados.add(aberto != null ? aberto : SegmentoArquivo.abrir(arquivo));
+                }
+            }
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+        var cobertos = encontrados.stream()
+                .filter(segmento -> encontrados.stream().anyMatch(outro -> outro.contem(segmento)))
+                .toList();
+        encontrados.removeAll(cobertos);
+        encontrados.sort(Comparator.comparingLong(SegmentoArquivo::ultimaGeracao).reversed());
+        segmentos = List.copyOf(encontrados);
+        cobertos.forEach(SegmentoArquivo::apagar);
+    }
+
+    public Optional<Mensagem> buscar(UUID id) {
+        for (var segmento : segmentos) {
+            var linha = segmento.linhaDe(id);
+            if (linha >= 0) {
+                var bloco = segmento.blocoDe(linha);
+                return Optional.of(bloco(segmento, bloco).mensagem(linha - segmento.primeiraLinhaDo(bloco)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Só consulta o índice de ids, sem descompactar nenhum bloco.
+     */
+    public boolean contem(UUID id) {
+        for (var segmento : segmentos) {
+            if (segmento.linhaDe(id) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mensagens arquivadas da mais nova para a mais antiga, a partir da posição {@code inicio}.
+     */
+    public List<Mensagem> listar(long inicio, int quantidade) {
+        var mensagens = new ArrayList<Mensagem>(Math.min(quantidade, linhasPorBloco));
+        var pular = inicio;
+        for (var segmento : segmentos) {
+            if (mensagens.size() >= quantidade) {
+                break;
+            }
+            if (pular >= segmento.linhas()) {
+                pular -= segmento.linhas();
+                continue;
+            }
+            var linha = (int) pular;
+            pular = 0;
+            while (linha < segmento.linhas() && mensagens.size() < quantidade) {
+                var indiceBloco = segmento.blocoDe(linha);
+                var bloco = bloco(segmento, indiceBloco);
+                var primeira = segmento.primeiraLinhaDo(indiceBloco);
+                for (int i = linha - primeira; i < bloco.linhas() && mensagens.size() < quantidade; i++) {
+                    mensagens.add(bloco.mensagem(i));
+                    linha++;
+                }
+            }
+        }
+        return mensagens;
+    }
+
+    public long total() {
+        long total = 0;
+        for (var segmento : segmentos) {
+            total += segmento.linhas();
+        }
+        return total;
+    }
+
+    public int quantidadeSegmentos() {
+        return segmentos.size();
+    }
+
+    public long bytes() {
+        long bytes = 0;
+        for (var segmento : segmentos) {
+            bytes += segmento.bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Grava as mensagens num segmento novo. Só depois que ele está no disco as linhas podem sair do banco.
+     */
+    public synchronized void arquivar(List<Mensagem> mensagens) {
+        if (mensagens.isEmpty()) {
+            return;
+        }
+        var geracao = segmentos.isEmpty() ? 1 : segmentos.get(0).ultimaGeracao() + 1;
+        var novo = SegmentoArquivo.gravar(diretorio, geracao, geracao, mensagens, linhasPorBloco, nivel);
+        var atualizados = new ArrayList<SegmentoArquivo>(segmentos.size() + 1);
+        atualizados.add(novo);
+        atualizados.addAll(segmentos);
+        segmentos = List.copyOf(atualizados);
+    }
+
+    /**
+     * Junta segmentos vizinhos com menos de {@code linhasMinimas} linhas, sem passar de {@code linhasMaximas}
+     * por segmento. Os segmentos antigos são apagados depois que o novo está no disco; quem ainda lê um deles
+     * continua lendo do mapeamento.
+     *
+     * @return quantos segmentos deixaram de existir
+     */
+    public synchronized int compactar(int linhasMinimas, int linhasMaximas) {
+        var atuais = segmentos;
+        var resultado = new ArrayList<SegmentoArquivo>(atuais.size());
+        var removidos = new ArrayList<SegmentoArquivo>();
+        var grupo = new ArrayList<SegmentoArquivo>();
+        var linhasGrupo = 0;
+        for (var segmento : atuais) {
+            var pequeno = segmento.linhas() < linhasMinimas;
+            if (!pequeno || linhasGrupo + segmento.linhas() > linhasMaximas) {
+                fecharGrupo(grupo, resultado, removidos);
+                linhasGrupo = 0;
+            }
+            if (pequeno) {
+                grupo.add(segmento);
+                linhasGrupo += segmento.linhas();
+            } else {
+                resultado.add(segmento);
+            }
+        }
+        fecharGrupo(grupo, resultado, removidos);
+        if (removidos.isEmpty()) {
+            return 0;
+        }
+        segmentos = List.copyOf(resultado);
+        removidos.forEach(segmento -> {
+            segmento.apagar();
+            blocos.asMap().keySet().removeIf(chave -> chave.segmento() == segmento);
+        });
+        return atuais.size() - resultado.size();
+    }
+
+    @Override
+    public void close() {
+        blocos.invalidateAll();
+    }
+
+    // o grupo está da geração mais nova para a mais antiga
+    private void fecharGrupo(List<SegmentoArquivo> grupo, List<SegmentoArquivo> resultado,
+                             List<SegmentoArquivo> removidos) {
+        if (grupo.size() == 1) {
+            resultado.add(grupo.get(0));
+        } else if (grupo.size() > 1) {
+            var mensagens = new ArrayList<Mensagem>();
+            for (var segmento : grupo) {
+                for (int bloco = 0; bloco < segmento.blocos(); bloco++) {
+                    var lido = segmento.lerBloco(bloco);
+                    for (int linha = 0; linha < lido.linhas(); linha++) {
+                        mensagens.add(lido.mensagem(linha));
+                    }
+                }
+            }
+            resultado.add(SegmentoArquivo.gravar(diretorio, grupo.get(grupo.size() - 1).primeiraGeracao(),
+                    grupo.get(0).ultimaGeracao(), mensagens, linhasPorBloco, nivel));
+            removidos.addAll(grupo);
+        }
+        grupo.clear();
+    }
+
+    private SegmentoArquivo.Bloco bloco(SegmentoArquivo segmento, int bloco) {
+        return blocos.get(new ChaveBloco(segmento, bloco), chave -> segmento.lerBloco(bloco));
+    }
+}
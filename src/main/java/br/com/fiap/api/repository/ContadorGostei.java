@@ -0,0 +1,13 @@
+package br.com.fiap.api.repository;
+
+import java.util.UUID;
+
+public interface ContadorGostei {
+
+    /**
+     * Incrementa {@code gostei} atomicamente no banco, sem carregar a entidade.
+     *
+     * @return {@code false} se a mensagem não existe
+     */
+    boolean incrementarGostei(UUID id);
+}
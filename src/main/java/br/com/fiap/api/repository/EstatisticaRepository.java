@@ -0,0 +1,209 @@
+package br.com.fiap.api.repository;
+
+import br.com.fiap.api.model.EstatisticaGosteiHora;
+import br.com.fiap.api.model.EstatisticaUsuario;
+import br.com.fiap.api.model.EstatisticaUsuarioDia;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Tabelas de rollup das estatísticas de mensagens. Cada linha é um total já agregado: as consultas leem
+ * no máximo uma linha por dia, hora ou usuário pedido, sem tocar na tabela {@code mensagem}.
+ * <p>
+ * As escritas somam ao total existente ({@code ON CONFLICT} no PostgreSQL, {@code MERGE} nos demais), de
+ * modo que várias instâncias gravam os próprios incrementos sem se coordenar. Os lotes chegam ordenados
+ * pela chave, para duas instâncias não travarem as mesmas linhas em ordens diferentes.
+ */
+public class EstatisticaRepository {
+
+    private static final String POR_DIA = "SELECT usuario, dia, mensagens FROM estatistica_usuario_dia "
+            + "WHERE usuario = ? AND dia BETWEEN ? AND ? ORDER BY dia";
+    private static final String POR_HORA = "SELECT hora, gostei FROM estatistica_gostei_hora "
+            + "WHERE hora BETWEEN ? AND ? ORDER BY hora";
+    private static final String MAIS_ATIVOS = "SELECT usuario, mensagens FROM estatistica_usuario "
+            + "ORDER BY mensagens DESC, usuario LIMIT ?";
+    // o agrupamento acontece no banco, sobre a faixa de ids de cada varredura
+    private static final String CONTAR_POR_DIA = "SELECT usuario, CAST(data_criacao AS DATE) AS dia, "
+            + "COUNT(*) AS mensagens FROM mensagem WHERE data_criacao < ? "
+            + "AND (removida_em IS NULL OR removida_em >= ?)%s "
+            + "GROUP BY usuario, CAST(data_criacao AS DATE)";
+    // a linha removida fica na tabela até o expurgo: dela saem o autor e o dia a descontar
+    private static final String CONTAR_REMOVIDAS_POR_DIA = "SELECT usuario, CAST(data_criacao AS DATE) AS dia, "
+            + "COUNT(*) AS mensagens FROM mensagem WHERE removida_em >= ? AND id IN (%s) "
+            + "GROUP BY usuario, CAST(data_criacao AS DATE)";
+    private static final int LOTE_REMOVIDAS = 1_000;
+    // uma linha só, com o corte da última reconstrução; nulo enquanto não houve nenhuma
+    private static final String TRAVAR_CORTE = "SELECT corte FROM estatistica_reconstrucao WHERE id = 1 FOR UPDATE";
+
+    private static final RowMapper<EstatisticaUsuarioDia> CONVERSOR_DIA = (resultado, linha) ->
+            new EstatisticaUsuarioDia(resultado.getString("usuario"),
+                    resultado.getObject("dia", LocalDate.class), resultado.getLong("mensagens"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String somarPorDia;
+    private final String somarPorUsuario;
+    private final String somarPorHora;
+
+    public EstatisticaRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        var postgres = jdbcTemplate.execute((ConnectionCallback<String>) conexao ->
+                conexao.getMetaData().getDatabaseProductName()).toLowerCase(Locale.ROOT).equals("postgresql");
+        criarEsquema(postgres);
+        this.somarPorDia = somar(postgres, "estatistica_usuario_dia", "mensagens",
+                new String[]{"usuario", "dia"}, new String[]{"VARCHAR(255)", "DATE"});
+        this.somarPorUsuario = somar(postgres, "estatistica_usuario", "mensagens",
+                new String[]{"usuario"}, new String[]{"VARCHAR(255)"});
+        this.somarPorHora = somar(postgres, "estatistica_gostei_hora", "gostei",
+                new String[]{"hora"}, new String[]{"TIMESTAMP"});
+    }
+
+    public void somarMensagensPorDia(List<EstatisticaUsuarioDia> incrementos) {
+        jdbcTemplate.batchUpdate(somarPorDia, incrementos, incrementos.size(), (comando, incremento) -> {
+            comando.setString(1, incremento.usuario());
+            comando.setObject(2, incremento.dia());
+            comando.setLong(3, incremento.mensagens());
+        });
+    }
+
+    public void somarMensagensPorUsuario(List<EstatisticaUsuario> incrementos) {
+        jdbcTemplate.batchUpdate(somarPorUsuario, incrementos, incrementos.size(), (comando, incremento) -> {
+            comando.setString(1, incremento.usuario());
+            comando.setLong(2, incremento.mensagens());
+        });
+    }
+
+    public void somarGosteiPorHora(List<EstatisticaGosteiHora> incrementos) {
+        jdbcTemplate.batchUpdate(somarPorHora, incrementos, incrementos.size(), (comando, incremento) -> {
+            comando.setObject(1, incremento.hora());
+            comando.setLong(2, incremento.gostei());
+        });
+    }
+
+    public List<EstatisticaUsuarioDia> mensagensPorDia(String usuario, LocalDate de, LocalDate ate) {
+        return jdbcTemplate.query(POR_DIA, CONVERSOR_DIA, usuario, de, ate);
+    }
+
+    public List<EstatisticaGosteiHora> gosteiPorHora(LocalDateTime de, LocalDateTime ate) {
+        return jdbcTemplate.query(POR_HORA, (resultado, linha) -> new EstatisticaGosteiHora(
+                resultado.getObject("hora", LocalDateTime.class), resultado.getLong("gostei")), de, ate);
+    }
+
+    public List<EstatisticaUsuario> maisAtivos(int quantidade) {
+        return jdbcTemplate.query(MAIS_ATIVOS, (resultado, linha) -> new EstatisticaUsuario(
+                resultado.getString("usuario"), resultado.getLong("mensagens")), quantidade);
+    }
+
+    /**
+     * Mensagens por usuário e dia criadas antes de {@code antes}, com o id em {@code [de, ate)}; limites
+     * nulos deixam a faixa aberta. Das removidas, conta só as removidas a partir de {@code antes}, que o
+     * incremental ainda vai descontar.
+     */
+    public List<EstatisticaUsuarioDia> contarMensagensPorDia(UUID de, UUID ate, LocalDateTime antes) {
+        var filtro = new StringBuilder();
+        var parametros = new ArrayList<Object>(4);
+        parametros.add(antes);
+        parametros.add(antes);
+        if (de != null) {
+            filtro.append(" AND id >= ?");
+            parametros.add(de);
+        }
+        if (ate != null) {
+            filtro.append(" AND id < ?");
+            parametros.add(ate);
+        }
+        return jdbcTemplate.query(CONTAR_POR_DIA.formatted(filtro), CONVERSOR_DIA, parametros.toArray());
+    }
+
+    /**
+     * Mensagens por usuário e dia entre as de {@code ids} removidas a partir de {@code desde}; as que o
+     * expurgo já apagou ficam de fora.
+     */
+    public List<EstatisticaUsuarioDia> contarRemovidasPorDia(List<UUID> ids, LocalDateTime desde) {
+        var removidas = new ArrayList<EstatisticaUsuarioDia>();
+        for (int inicio = 0; inicio < ids.size(); inicio += LOTE_REMOVIDAS) {
+            var lote = ids.subList(inicio, Math.min(ids.size(), inicio + LOTE_REMOVIDAS));
+            var parametros = new ArrayList<Object>(lote.size() + 1);
+            parametros.add(desde);
+            parametros.addAll(lote);
+            removidas.addAll(jdbcTemplate.query(
+                    CONTAR_REMOVIDAS_POR_DIA.formatted(String.join(", ", Collections.nCopies(lote.size(), "?"))),
+                    CONVERSOR_DIA, parametros.toArray()));
+        }
+        return removidas;
+    }
+
+    /**
+     * Lê o corte da última reconstrução travando a linha até o fim da transação: a reconstrução e os
+     * descarregamentos de todas as instâncias passam por ela um de cada vez.
+     *
+     * @return o corte, ou {@code null} se nunca houve reconstrução
+     */
+    public LocalDateTime travarCorte() {
+        return jdbcTemplate.queryForObject(TRAVAR_CORTE, LocalDateTime.class);
+    }
+
+    public void gravarCorte(LocalDateTime corte) {
+        jdbcTemplate.update("UPDATE estatistica_reconstrucao SET corte = ? WHERE id = 1", corte);
+    }
+
+    /**
+     * Troca os rollups de mensagens pelos informados. Os de gostei ficam: a tabela de mensagens não guarda
+     * quando cada gostei aconteceu.
+     */
+    public void substituirMensagens(List<EstatisticaUsuarioDia> porDia, List<EstatisticaUsuario> porUsuario) {
+        jdbcTemplate.update("DELETE FROM estatistica_usuario_dia");
+        jdbcTemplate.update("DELETE FROM estatistica_usuario");
+        somarMensagensPorDia(porDia);
+        somarMensagensPorUsuario(porUsuario);
+    }
+
+    // o índice de estatistica_usuario atende os mais ativos sem ordenar a tabela
+    private void criarEsquema(boolean postgres) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS estatistica_usuario_dia (usuario VARCHAR(255) NOT NULL, "
+                + "dia DATE NOT NULL, mensagens BIGINT NOT NULL, PRIMARY KEY (usuario, dia))");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS estatistica_usuario (usuario VARCHAR(255) NOT NULL "
+                + "PRIMARY KEY, mensagens BIGINT NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS estatistica_usuario_mensagens_idx "
+                + "ON estatistica_usuario (mensagens DESC, usuario)");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS estatistica_gostei_hora (hora TIMESTAMP NOT NULL "
+                + "PRIMARY KEY, gostei BIGINT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS estatistica_reconstrucao (id INT NOT NULL PRIMARY KEY, "
+                + "corte TIMESTAMP)");
+        // as instâncias sobem juntas: a linha única entra uma vez só
+        jdbcTemplate.execute(postgres
+                ? "INSERT INTO estatistica_reconstrucao (id) VALUES (1) ON CONFLICT (id) DO NOTHING"
+                : "MERGE INTO estatistica_reconstrucao r USING (VALUES (1)) AS n (id) ON r.id = n.id "
+                + "WHEN NOT MATCHED THEN INSERT (id) VALUES (n.id)");
+    }
+
+    private static String somar(boolean postgres, String tabela, String coluna, String[] chaves, String[] tipos) {
+        var listaChaves = String.join(", ", chaves);
+        if (postgres) {
+            return "INSERT INTO " + tabela + " (" + listaChaves + ", " + coluna + ") VALUES ("
+                    + "?, ".repeat(chaves.length) + "?) ON CONFLICT (" + listaChaves + ") DO UPDATE SET "
+                    + coluna + " = " + tabela + "." + coluna + " + EXCLUDED." + coluna;
+        }
+        var valores = new StringBuilder();
+        var condicao = new StringBuilder();
+        var inseridos = new StringBuilder();
+        for (int i = 0; i < chaves.length; i++) {
+            valores.append("CAST(? AS ").append(tipos[i]).append("), ");
+            condicao.append(i == 0 ? "" : " AND ").append("r.").append(chaves[i]).append(" = n.").append(chaves[i]);
+            inseridos.append("n.").append(chaves[i]).append(", ");
+        }
+        return "MERGE INTO " + tabela + " r USING (VALUES (" + valores + "CAST(? AS BIGINT))) AS n ("
+                + listaChaves + ", " + coluna + ") ON " + condicao
+                + " WHEN MATCHED THEN UPDATE SET " + coluna + " = r." + coluna + " + n." + coluna
+                + " WHEN NOT MATCHED THEN INSERT (" + listaChaves + ", " + coluna + ") VALUES ("
+                + inseridos + "n." + coluna + ")";
+    }
+}
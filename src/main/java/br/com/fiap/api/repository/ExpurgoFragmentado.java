@@ -0,0 +1,38 @@
+package br.com.fiap.api.repository;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Expurgo do perfil fragmentado: as mensagens ficam nos fragmentos e os gostei por usuário no banco principal,
+ * sem transação entre os dois. Os gostei saem primeiro; se os fragmentos falham depois, as mensagens continuam
+ * removidas e voltam no lote seguinte, sem deixar gostei de mensagens que não existem mais.
+ */
+public class ExpurgoFragmentado implements ExpurgoRemovidas {
+
+    private final MensagemFragmentadaRepository fragmentos;
+    private final MensagemRepository principal;
+    private final TransactionTemplate transacao;
+
+    public ExpurgoFragmentado(MensagemFragmentadaRepository fragmentos, MensagemRepository principal,
+                              PlatformTransactionManager transactionManager) {
+        this.fragmentos = fragmentos;
+        this.principal = principal;
+        this.transacao = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public List<UUID> expurgarRemovidas(LocalDateTime limite, int lote) {
+        var ids = fragmentos.removidasAntes(limite, lote);
+        if (ids.isEmpty()) {
+            return ids;
+        }
+        transacao.executeWithoutResult(status -> principal.apagarGostei(ids));
+        fragmentos.apagarRemovidas(ids);
+        return ids;
+    }
+}
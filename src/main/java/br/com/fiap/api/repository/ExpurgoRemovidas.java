@@ -0,0 +1,16 @@
+package br.com.fiap.api.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface ExpurgoRemovidas {
+
+    /**
+     * Apaga de vez até {@code lote} mensagens removidas antes de {@code limite}, as mais antigas primeiro,
+     * junto com os gostei por usuário delas.
+     *
+     * @return os ids que saíram da tabela
+     */
+    List<UUID> expurgarRemovidas(LocalDateTime limite, int lote);
+}
@@ -0,0 +1,61 @@
+package br.com.fiap.api.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Faixa {@code [de, ate)} de ids de mensagem, como a de {@link MensagemRepositoryCustom#percorrerIds}; limites
+ * nulos deixam a faixa aberta.
+ */
+public record FaixaIds(UUID de, UUID ate) {
+
+    /**
+     * Divide os ids em faixas contíguas [i * 2^64 / particoes, (i + 1) * 2^64 / particoes) dos 64 bits altos,
+     * na ordem sem sinal dos UUID. A primeira começa e a última termina em aberto.
+     */
+    public static List<FaixaIds> dividir(int particoes) {
+        if (particoes < 1) {
+            throw new IllegalArgumentException("Ao menos uma faixa de ids");
+        }
+        var passo = Long.divideUnsigned(-1L, particoes);
+        var faixas = new ArrayList<FaixaIds>(particoes);
+        for (int i = 0; i < particoes; i++) {
+            faixas.add(new FaixaIds(i == 0 ? null : new UUID(passo * i, 0),
+                    i == particoes - 1 ? null : new UUID(passo * (i + 1), 0)));
+        }
+        return faixas;
+    }
+
+    /**
+     * Aplica a varredura a cada uma das {@code particoes} faixas, até {@code paralelismo} de uma vez, e devolve
+     * os resultados na ordem das faixas. A primeira falha é relançada depois que todas terminam.
+     */
+    public static <T> List<T> varrer(int particoes, int paralelismo, Function<FaixaIds, T> varredura) {
+        var tarefas = new ArrayList<Callable<T>>(particoes);
+        for (var faixa : dividir(particoes)) {
+            tarefas.add(() -> varredura.apply(faixa));
+        }
+        var executor = Executors.newFixedThreadPool(Math.min(paralelismo, particoes));
+        try {
+            var resultados = new ArrayList<T>(particoes);
+            for (var resultado : executor.invokeAll(tarefas)) {
+                resultados.add(resultado.get());
+            }
+            return resultados;
+        } catch (InterruptedException interrompida) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Varredura das faixas de id interrompida", interrompida);
+        } catch (ExecutionException falha) {
+            throw falha.getCause() instanceof RuntimeException runtimeException
+                    ? runtimeException
+                    : new IllegalStateException(falha.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
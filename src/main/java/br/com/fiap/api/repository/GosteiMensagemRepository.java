@@ -0,0 +1,15 @@
+package br.com.fiap.api.repository;
+
+import br.com.fiap.api.model.GosteiMensagem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface GosteiMensagemRepository extends JpaRepository<GosteiMensagem, UUID> {
+
+    // sem o bitmap: basta para saber se o que está em memória ainda é o gravado
+    @Query("select g.versao from GosteiMensagem g where g.mensagemId = :mensagemId")
+    Optional<Long> versao(UUID mensagemId);
+}
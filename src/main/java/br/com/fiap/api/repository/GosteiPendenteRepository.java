@@ -0,0 +1,24 @@
+package br.com.fiap.api.repository;
+
+import br.com.fiap.api.model.GosteiPendente;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface GosteiPendenteRepository extends JpaRepository<GosteiPendente, GosteiPendente.Chave> {
+
+    @Query("select distinct g.mensagemId from GosteiPendente g")
+    List<UUID> mensagensPendentes(Pageable pagina);
+
+    @Query("select g.usuario from GosteiPendente g where g.mensagemId = :mensagemId")
+    List<Integer> usuariosPendentes(UUID mensagemId);
+
+    @Modifying
+    @Query("delete from GosteiPendente g where g.mensagemId = :mensagemId and g.usuario in :usuarios")
+    int apagar(UUID mensagemId, Collection<Integer> usuarios);
+}
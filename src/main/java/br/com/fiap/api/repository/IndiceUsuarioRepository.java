@@ -0,0 +1,11 @@
+package br.com.fiap.api.repository;
+
+import br.com.fiap.api.model.IndiceUsuario;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface IndiceUsuarioRepository extends JpaRepository<IndiceUsuario, Integer> {
+
+    Optional<IndiceUsuario> findByUsuario(String usuario);
+}
@@ -0,0 +1,210 @@
+package br.com.fiap.api.repository;
+
+import br.com.fiap.api.exception.OffsetExpiradoException;
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.model.EventoRegistrado;
+import br.com.fiap.api.model.LoteEventos;
+import br.com.fiap.api.model.TipoEventoMensagem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Log local, somente de acréscimo, dos eventos de mensagem. Cada evento recebe um offset
+ * sequencial; consumidores acompanham as mudanças lendo em lotes a partir do último offset visto.
+ * <p>
+ * O log é dividido em segmentos mapeados em memória ({@link SegmentoLog}). Ao encher, o segmento
+ * ativo é gravado em disco e um novo é criado; nesse momento os segmentos mais antigos que excedem
+ * {@code maxSegmentos} ou {@code retencao} são apagados. As escritas sobrevivem a uma queda do
+ * processo (ficam no page cache); a queda do sistema operacional pode perder o fim do segmento ativo,
+ * que é descartado na reabertura a partir do último registro íntegro.
+ */
+public class LogEventos implements Closeable {
+
+    // a ordem dos tipos é gravada no arquivo: novos tipos só no fim do enum
+    private static final TipoEventoMensagem[] TIPOS = TipoEventoMensagem.values();
+
+    private final Path diretorio;
+    private final int tamanhoSegmento;
+    private final int maxSegmentos;
+    private final long retencaoMillis;
+    private final LongSupplier relogio;
+    private final ConcurrentSkipListMap<Long, SegmentoLog> segmentos = new ConcurrentSkipListMap<>();
+    private volatile SegmentoLog ativo;
+
+    public LogEventos(Path diretorio, int tamanhoSegmento, int maxSegmentos, Duration retencao, LongSupplier relogio) {
+        if (tamanhoSegmento < 1024 || maxSegmentos < 1) {
+            throw new IllegalArgumentException("Segmento deve ter ao menos 1KB e o log ao menos um segmento");
+        }
+        this.diretorio = diretorio;
+        this.tamanhoSegmento = tamanhoSegmento;
+        this.maxSegmentos = maxSegmentos;
+        this.retencaoMillis = retencao.toMillis();
+        this.relogio = relogio;
+
+        try (var arquivos = Files.list(Files.createDirectories(diretorio))) {
+            arquivos.filter(arquivo -> arquivo.getFileName().toString().endsWith(SegmentoLog.EXTENSAO))
+                    .map(SegmentoLog::abrir)
+                    .forEach(segmento -> segmentos.put(segmento.offsetBase(), segmento));
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+        if (segmentos.isEmpty()) {
+            segmentos.put(0L, SegmentoLog.criar(diretorio, 0, tamanhoSegmento));
+        }
+        ativo = segmentos.lastEntry().getValue();
+        aplicarRetencao();
+    }
+
+    /**
+     * @return o offset atribuído ao evento
+     */
+    public synchronized long anexar(EventoMensagem evento) {
+        var offset = ativo.proximoOffset();
+        var payload = codificar(offset, evento);
+        if (SegmentoLog.CABECALHO + payload.length > tamanhoSegmento) {
+            throw new IllegalArgumentException("Evento maior que o segmento do log");
+        }
+        if (!ativo.cabe(payload.length)) {
+            rolar(offset);
+        }
+        ativo.anexar(offset, payload);
+        return offset;
+    }
+
+    /**
+     * Lê até {@code limite} eventos a partir de {@code desde}, atravessando segmentos se preciso.
+     */
+    public LoteEventos ler(long desde, int limite) {
+        if (desde < 0) {
+            throw new IllegalArgumentException("Offset inválido");
+        }
+        var primeiro = primeiroOffset();
+        if (desde < primeiro) {
+            throw new OffsetExpiradoException("Offset removido pela retenção", primeiro);
+        }
+        if (desde > proximoOffset()) {
+            throw new IllegalArgumentException("Offset além do fim do log");
+        }
+
+        var eventos = new ArrayList<EventoRegistrado>(Math.min(limite, 1024));
+        var proximo = desde;
+        var entrada = segmentos.floorEntry(desde);
+        while (entrada != null && eventos.size() < limite) {
+            var segmento = entrada.getValue();
+            var leitura = segmento.leitura();
+            var fim = segmento.fim();
+            var posicao = segmento.posicaoDe(proximo, leitura, fim);
+            while (posicao < fim && eventos.size() < limite) {
+                var tamanho = leitura.getInt(posicao);
+                var evento = decodificar(leitura.slice(posicao + SegmentoLog.CABECALHO, tamanho));
+                eventos.add(evento);
+                proximo = evento.offset() + 1;
+                posicao += SegmentoLog.CABECALHO + tamanho;
+            }
+            entrada = segmentos.higherEntry(entrada.getKey());
+        }
+        return new LoteEventos(eventos, proximo);
+    }
+
+    public long primeiroOffset() {
+        return segmentos.firstKey();
+    }
+
+    public long proximoOffset() {
+        return ativo.proximoOffset();
+    }
+
+    public int quantidadeSegmentos() {
+        return segmentos.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        ativo.forcar();
+    }
+
+    private void rolar(long offset) {
+        ativo.selar(relogio.getAsLong());
+        var novo = SegmentoLog.criar(diretorio, offset, tamanhoSegmento);
+        segmentos.put(offset, novo);
+        ativo = novo;
+        aplicarRetencao();
+    }
+
+    // o segmento ativo nunca é apagado
+    private void aplicarRetencao() {
+        var agora = relogio.getAsLong();
+        while (segmentos.size() > 1) {
+            var maisAntigo = segmentos.firstEntry().getValue();
+            if (segmentos.size() <= maxSegmentos && agora - maisAntigo.selado() <= retencaoMillis) {
+                return;
+            }
+            segmentos.remove(maisAntigo.offsetBase());
+            maisAntigo.apagar();
+        }
+    }
+
+    private static byte[] codificar(long offset, EventoMensagem evento) {
+        var usuario = texto(evento.usuario());
+        var conteudo = texto(evento.conteudo());
+        var buffer = ByteBuffer.allocate(Long.BYTES + 1 + Long.BYTES * 3
+                + Integer.BYTES * 2 + tamanho(usuario) + tamanho(conteudo));
+        buffer.putLong(offset)
+                .put((byte) evento.tipo().ordinal())
+                .putLong(evento.mensagemId().getMostSignificantBits())
+                .putLong(evento.mensagemId().getLeastSignificantBits())
+                .putLong(evento.momento().toEpochMilli());
+        escreverTexto(buffer, usuario);
+        escreverTexto(buffer, conteudo);
+        return buffer.array();
+    }
+
+    private static EventoRegistrado decodificar(ByteBuffer payload) {
+        var offset = payload.getLong();
+        var tipo = TIPOS[payload.get()];
+        var mensagemId = new UUID(payload.getLong(), payload.getLong());
+        var momento = Instant.ofEpochMilli(payload.getLong());
+        var usuario = lerTexto(payload);
+        var conteudo = lerTexto(payload);
+        return new EventoRegistrado(offset, new EventoMensagem(tipo, mensagemId, usuario, conteudo, momento));
+    }
+
+    private static byte[] texto(String valor) {
+        return valor == null ? null : valor.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int tamanho(byte[] texto) {
+        return texto == null ? 0 : texto.length;
+    }
+
+    // tamanho -1 representa null
+    private static void escreverTexto(ByteBuffer buffer, byte[] texto) {
+        if (texto == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(texto.length).put(texto);
+    }
+
+    private static String lerTexto(ByteBuffer payload) {
+        var tamanho = payload.getInt();
+        if (tamanho < 0) {
+            return null;
+        }
+        var texto = new byte[tamanho];
+        payload.get(texto);
+        return new String(texto, StandardCharsets.UTF_8);
+    }
+}
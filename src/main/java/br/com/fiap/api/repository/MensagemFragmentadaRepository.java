@@ -0,0 +1,502 @@
+package br.com.fiap.api.repository;
+
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.model.SituacaoFragmentacao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Mensagens distribuídas entre vários bancos pelo id, num {@link AnelConsistente}. Operações por id vão
+ * direto ao fragmento dono; a listagem consulta todos em paralelo e intercala os resultados por data de criação.
+ * <p>
+ * A expansão é online: com o anel novo ativo, escritas vão para o dono novo e leituras por id tentam o dono
+ * novo e depois o anterior, enquanto uma migração em segundo plano move as mensagens que mudaram de dono.
+ * Migração e escritas da mesma mensagem são serializadas por travas em faixas, o que vale dentro de uma
+ * instância: com várias instâncias, suspenda as escritas nas demais durante a expansão.
+ * <p>
+ * Como na tabela única, a remoção só marca {@code removida_em}: a linha some das consultas e sai do fragmento
+ * no expurgo ({@link #removidasAntes}, {@link #apagarRemovidas}). A migração move as removidas com a marca.
+ */
+@Slf4j
+public class MensagemFragmentadaRepository implements ContadorGostei, AutoCloseable {
+
+    static final int LOTE_MIGRACAO = 500;
+
+    private static final int FAIXAS = 64;
+    private static final String COLUNAS = "id, usuario, conteudo, data_criacao, gostei";
+    private static final String INSERIR = "INSERT INTO mensagem (" + COLUNAS + ", removida_em) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String BUSCAR_POR_ID = "SELECT " + COLUNAS + " FROM mensagem "
+            + "WHERE id = ? AND removida_em IS NULL";
+    private static final String ALTERAR_CONTEUDO = "UPDATE mensagem SET conteudo = ? "
+            + "WHERE id = ? AND removida_em IS NULL";
+    private static final String INCREMENTAR_GOSTEI = "UPDATE mensagem SET gostei = gostei + 1 "
+            + "WHERE id = ? AND removida_em IS NULL";
+    private static final String REMOVER = "UPDATE mensagem SET removida_em = ? WHERE id = ? AND removida_em IS NULL";
+    // a migração tira a linha da origem, removida ou não
+    private static final String APAGAR = "DELETE FROM mensagem WHERE id = ?";
+    // inclusive removidas: a migração leva a linha inteira
+    private static final String LER_LINHA = "SELECT " + COLUNAS + ", removida_em FROM mensagem WHERE id = ?";
+    // mesma ordem nos fragmentos e na intercalação; o id desempata mensagens criadas no mesmo instante
+    private static final String LISTAR = "SELECT " + COLUNAS + " FROM mensagem WHERE removida_em IS NULL "
+            + "ORDER BY data_criacao DESC, id";
+    private static final Comparator<Mensagem> ORDEM_LISTAGEM = Comparator
+            .comparing(Mensagem::getDataCriacao, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Mensagem::getId);
+
+    private static final RowMapper<Mensagem> CONVERSOR = (resultado, linha) -> Mensagem.builder()
+            .id(resultado.getObject("id", UUID.class))
+            .usuario(resultado.getString("usuario"))
+            .conteudo(resultado.getString("conteudo"))
+            .dataCriacao(resultado.getObject("data_criacao", LocalDateTime.class))
+            .gostei(resultado.getInt("gostei"))
+            .build();
+
+    private static final RowMapper<Mensagem> CONVERSOR_LINHA = (resultado, linha) -> {
+        var mensagem = CONVERSOR.mapRow(resultado, linha);
+        mensagem.setRemovidaEm(resultado.getObject("removida_em", LocalDateTime.class));
+        return mensagem;
+    };
+
+    // anelAnterior só existe enquanto a migração de uma expansão não termina
+    private record Estado(List<JdbcTemplate> fragmentos, AnelConsistente anel, AnelConsistente anelAnterior) {
+
+        JdbcTemplate dono(UUID id) {
+            return fragmentos.get(anel.fragmento(id));
+        }
+
+        JdbcTemplate donoAnterior(UUID id) {
+            if (anelAnterior == null) {
+                return null;
+            }
+            var anterior = anelAnterior.fragmento(id);
+            return anterior == anel.fragmento(id) ? null : fragmentos.get(anterior);
+        }
+    }
+
+    private record Parcial(List<Mensagem> mensagens, long total) {
+    }
+
+    private final List<DataSource> dataSources = new ArrayList<>();
+    private final ConcurrentLinkedDeque<DataSource> reservas;
+    private final ExecutorService consultas = Executors.newCachedThreadPool();
+    private final ExecutorService migracao = Executors.newSingleThreadExecutor();
+    private final ReentrantReadWriteLock trocaAnel = new ReentrantReadWriteLock();
+    private final Object[] travas = new Object[FAIXAS];
+    private final AtomicBoolean migrando = new AtomicBoolean();
+    private final AtomicLong mensagensMovidas = new AtomicLong();
+    private volatile Estado estado;
+
+    public MensagemFragmentadaRepository(List<DataSource> fragmentos, List<DataSource> reservas, int nosVirtuais) {
+        var templates = new ArrayList<JdbcTemplate>(fragmentos.size());
+        for (var dataSource : fragmentos) {
+            templates.add(criarEsquema(dataSource));
+        }
+        this.dataSources.addAll(fragmentos);
+        this.dataSources.addAll(reservas);
+        this.reservas = new ConcurrentLinkedDeque<>(reservas);
+        this.estado = new Estado(List.copyOf(templates), new AnelConsistente(fragmentos.size(), nosVirtuais), null);
+        for (int i = 0; i < FAIXAS; i++) {
+            travas[i] = new Object();
+        }
+    }
+
+    public Mensagem inserir(Mensagem mensagem) {
+        return escrever(mensagem.getId(), estado -> {
+            inserirEm(estado.dono(mensagem.getId()), mensagem);
+            return mensagem;
+        });
+    }
+
+    public Optional<Mensagem> buscarPorId(UUID id) {
+        var estado = this.estado;
+        var encontrada = buscarEm(estado.dono(id), id);
+        var anterior = estado.donoAnterior(id);
+        if (encontrada.isPresent() || anterior == null) {
+            return encontrada;
+        }
+        // a migração copia antes de apagar: se já saiu do dono anterior, está no novo
+        return buscarEm(anterior, id).or(() -> buscarEm(estado.dono(id), id));
+    }
+
+    /**
+     * Uma consulta {@code IN} por fragmento, em paralelo. O retorno segue a ordem dos ids informados,
+     * com {@code null} para os não encontrados.
+     */
+    public List<Mensagem> buscarPorIds(List<UUID> ids) {
+        var estado = this.estado;
+        var porFragmento = new HashMap<JdbcTemplate, List<UUID>>();
+        for (var id : new LinkedHashSet<>(ids)) {
+            if (id != null) {
+                porFragmento.computeIfAbsent(estado.dono(id), fragmento -> new ArrayList<>()).add(id);
+            }
+        }
+        var encontradas = new ConcurrentHashMap<UUID, Mensagem>();
+        dispersar(List.copyOf(porFragmento.entrySet()), entrada -> {
+            var marcadores = String.join(", ", Collections.nCopies(entrada.getValue().size(), "?"));
+            entrada.getKey()
+                    .query("SELECT " + COLUNAS + " FROM mensagem WHERE id IN (" + marcadores + ") "
+                                    + "AND removida_em IS NULL", CONVERSOR, entrada.getValue().toArray())
+                    .forEach(mensagem -> encontradas.put(mensagem.getId(), mensagem));
+            return null;
+        });
+
+        var resultado = new ArrayList<Mensagem>(ids.size());
+        for (var id : ids) {
+            var mensagem = id == null ? null : encontradas.get(id);
+            if (mensagem == null && id != null && estado.anelAnterior() != null) {
+                mensagem = buscarPorId(id).orElse(null);
+            }
+            resultado.add(mensagem);
+        }
+        return resultado;
+    }
+
+    /**
+     * Cada fragmento devolve as suas {@code deslocamento + tamanho} mais recentes e o resultado é intercalado:
+     * o custo cresce com a profundidade da página e com o número de fragmentos.
+     */
+    public Page<Mensagem> listar(Pageable pageable) {
+        var parciais = dispersar(estado.fragmentos(), fragmento -> new Parcial(
+                pageable.isPaged()
+                        ? fragmento.query(LISTAR + " LIMIT ?", CONVERSOR, pageable.getOffset() + pageable.getPageSize())
+                        : fragmento.query(LISTAR, CONVERSOR),
+                fragmento.queryForObject("SELECT COUNT(*) FROM mensagem WHERE removida_em IS NULL", Long.class)));
+
+        var pagina = intercalar(parciais.stream().map(Parcial::mensagens).toList(),
+                pageable.isPaged() ? pageable.getOffset() : 0,
+                pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE);
+        return new PageImpl<>(pagina, pageable, parciais.stream().mapToLong(Parcial::total).sum());
+    }
+
+    public boolean alterarConteudo(UUID id, String conteudo) {
+        return atualizar(id, ALTERAR_CONTEUDO, conteudo, id);
+    }
+
+    /**
+     * Marca a mensagem como removida; ela só sai do fragmento no expurgo.
+     *
+     * @return {@code false} se a mensagem não existe ou já foi removida
+     */
+    public boolean remover(UUID id) {
+        return atualizar(id, REMOVER, LocalDateTime.now(), id);
+    }
+
+    /**
+     * Até {@code lote} ids de mensagens removidas antes de {@code limite}, as mais antigas primeiro, somando
+     * todos os fragmentos.
+     */
+    public List<UUID> removidasAntes(LocalDateTime limite, int lote) {
+        record Removida(UUID id, LocalDateTime removidaEm) {
+        }
+        return dispersar(estado.fragmentos(), fragmento -> fragmento.query(
+                        "SELECT id, removida_em FROM mensagem WHERE removida_em < ? ORDER BY removida_em LIMIT ?",
+                        (resultado, linha) -> new Removida(resultado.getObject("id", UUID.class),
+                                resultado.getObject("removida_em", LocalDateTime.class)),
+                        limite, lote))
+                .stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(Removida::removidaEm))
+                .limit(lote)
+                .map(Removida::id)
+                .toList();
+    }
+
+    /**
+     * Apaga de vez as mensagens dos ids que estiverem removidas, em todos os fragmentos: durante uma expansão
+     * a linha pode estar no dono novo ou no anterior.
+     *
+     * @return quantas linhas saíram
+     */
+    public int apagarRemovidas(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        var marcadores = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return dispersar(estado.fragmentos(), fragmento -> fragmento.update(
+                        "DELETE FROM mensagem WHERE removida_em IS NOT NULL AND id IN (" + marcadores + ")",
+                        ids.toArray()))
+                .stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+
+    /**
+     * Os fragmentos não participam da transação do chamador ({@link br.com.fiap.api.service.GosteiPorUsuario}
+     * grava o bitmap no banco principal): dentro dela o incremento só é aplicado depois do commit,
+     * para que um gostei repetido, desfeito com rollback, não seja contado.
+     */
+    @Override
+    public boolean incrementarGostei(UUID id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return atualizar(id, INCREMENTAR_GOSTEI, id);
+        }
+        if (buscarPorId(id).isEmpty()) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                atualizar(id, INCREMENTAR_GOSTEI, id);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Ativa fragmentos de reserva e começa a mover para eles as mensagens que passam a lhes pertencer.
+     */
+    public synchronized SituacaoFragmentacao expandir(int quantidade) {
+        if (estado.anelAnterior() != null) {
+            throw new IllegalStateException("Já existe uma expansão em andamento");
+        }
+        if (quantidade < 1 || quantidade > reservas.size()) {
+            throw new IllegalArgumentException("Quantidade deve estar entre 1 e " + reservas.size()
+                    + " (fragmentos de reserva disponíveis)");
+        }
+        var fragmentos = new ArrayList<>(estado.fragmentos());
+        for (int i = 0; i < quantidade; i++) {
+            fragmentos.add(criarEsquema(reservas.poll()));
+        }
+
+        var escrita = trocaAnel.writeLock();
+        escrita.lock();
+        try {
+            estado = new Estado(List.copyOf(fragmentos), estado.anel().comFragmentos(fragmentos.size()), estado.anel());
+        } finally {
+            escrita.unlock();
+        }
+        mensagensMovidas.set(0);
+        iniciarMigracao();
+        return situacao();
+    }
+
+    /**
+     * Retoma a migração de uma expansão que falhou; mensagens já movidas são ignoradas.
+     */
+    public synchronized SituacaoFragmentacao retomarMigracao() {
+        if (estado.anelAnterior() == null) {
+            throw new IllegalStateException("Não há expansão em andamento");
+        }
+        iniciarMigracao();
+        return situacao();
+    }
+
+    public SituacaoFragmentacao situacao() {
+        var estado = this.estado;
+        return new SituacaoFragmentacao(estado.fragmentos().size(), reservas.size(),
+                estado.anelAnterior() != null, mensagensMovidas.get());
+    }
+
+    @Override
+    public void close() throws Exception {
+        migracao.shutdownNow();
+        consultas.shutdownNow();
+        for (var dataSource : dataSources) {
+            if (dataSource instanceof AutoCloseable fechavel) {
+                fechavel.close();
+            }
+        }
+    }
+
+    static List<Mensagem> intercalar(List<List<Mensagem>> parciais, long deslocamento, int quantidade) {
+        record Cabeca(Mensagem mensagem, Iterator<Mensagem> restante) {
+        }
+        var fila = new PriorityQueue<Cabeca>(Math.max(1, parciais.size()),
+                Comparator.comparing(Cabeca::mensagem, ORDEM_LISTAGEM));
+        for (var parcial : parciais) {
+            var iterador = parcial.iterator();
+            if (iterador.hasNext()) {
+                fila.add(new Cabeca(iterador.next(), iterador));
+            }
+        }
+
+        var pagina = new ArrayList<Mensagem>((int) Math.min(quantidade, 1024));
+        UUID anterior = null;
+        for (long posicao = 0; !fila.isEmpty() && pagina.size() < quantidade; ) {
+            var cabeca = fila.poll();
+            if (cabeca.restante().hasNext()) {
+                fila.add(new Cabeca(cabeca.restante().next(), cabeca.restante()));
+            }
+            // durante a migração a mesma mensagem pode estar, por um instante, nos dois fragmentos
+            if (cabeca.mensagem().getId().equals(anterior)) {
+                continue;
+            }
+            anterior = cabeca.mensagem().getId();
+            if (posicao++ >= deslocamento) {
+                pagina.add(cabeca.mensagem());
+            }
+        }
+        return pagina;
+    }
+
+    private void iniciarMigracao() {
+        if (!migrando.compareAndSet(false, true)) {
+            throw new IllegalStateException("A migração já está em execução");
+        }
+        var alvo = estado;
+        migracao.execute(() -> {
+            try {
+                for (int origem = 0; origem < alvo.anelAnterior().fragmentos(); origem++) {
+                    migrarFragmento(alvo, origem);
+                }
+                var escrita = trocaAnel.writeLock();
+                escrita.lock();
+                try {
+                    estado = new Estado(alvo.fragmentos(), alvo.anel(), null);
+                } finally {
+                    escrita.unlock();
+                }
+                log.info("expansão concluída: {} fragmentos, {} mensagens movidas",
+                        alvo.fragmentos().size(), mensagensMovidas.get());
+            } catch (RuntimeException erro) {
+                log.error("falha ao mover mensagens para os fragmentos novos; retome a migração", erro);
+            } finally {
+                migrando.set(false);
+            }
+        });
+    }
+
+    // varredura por id em lotes; as mensagens movidas saem da origem sem afetar o cursor
+    private void migrarFragmento(Estado alvo, int origem) {
+        var fonte = alvo.fragmentos().get(origem);
+        UUID cursor = null;
+        while (true) {
+            var ids = cursor == null
+                    ? fonte.queryForList("SELECT id FROM mensagem ORDER BY id LIMIT ?", UUID.class, LOTE_MIGRACAO)
+                    : fonte.queryForList("SELECT id FROM mensagem WHERE id > ? ORDER BY id LIMIT ?",
+                    UUID.class, cursor, LOTE_MIGRACAO);
+            for (var id : ids) {
+                var destino = alvo.anel().fragmento(id);
+                if (destino != origem) {
+                    mover(id, fonte, alvo.fragmentos().get(destino));
+                }
+            }
+            if (ids.size() < LOTE_MIGRACAO) {
+                return;
+            }
+            cursor = ids.get(ids.size() - 1);
+        }
+    }
+
+    private void mover(UUID id, JdbcTemplate origem, JdbcTemplate destino) {
+        synchronized (trava(id)) {
+            // relida sob a trava: pode ter sido alterada, removida ou expurgada depois da varredura
+            var mensagem = lerLinha(origem, id);
+            if (mensagem.isEmpty()) {
+                return;
+            }
+            // já copiada numa tentativa interrompida: a cópia do destino pode ter alterações mais novas
+            if (lerLinha(destino, id).isEmpty()) {
+                inserirEm(destino, mensagem.get());
+            }
+            origem.update(APAGAR, id);
+            mensagensMovidas.incrementAndGet();
+        }
+    }
+
+    // id sempre como último argumento
+    private boolean atualizar(UUID id, String sql, Object... argumentos) {
+        return escrever(id, estado -> {
+            if (estado.dono(id).update(sql, argumentos) > 0) {
+                return true;
+            }
+            var anterior = estado.donoAnterior(id);
+            return anterior != null && anterior.update(sql, argumentos) > 0;
+        });
+    }
+
+    // a troca do anel espera as escritas em curso; durante a migração, cada id é escrito sob a trava da sua faixa
+    private <T> T escrever(UUID id, Function<Estado, T> escrita) {
+        var leitura = trocaAnel.readLock();
+        leitura.lock();
+        try {
+            var estado = this.estado;
+            if (estado.anelAnterior() == null) {
+                return escrita.apply(estado);
+            }
+            synchronized (trava(id)) {
+                return escrita.apply(estado);
+            }
+        } finally {
+            leitura.unlock();
+        }
+    }
+
+    private Object trava(UUID id) {
+        return travas[Math.floorMod(id.hashCode(), FAIXAS)];
+    }
+
+    private <T, R> List<R> dispersar(List<T> alvos, Function<T, R> consulta) {
+        var futuros = alvos.stream()
+                .map(alvo -> CompletableFuture.supplyAsync(() -> consulta.apply(alvo), consultas))
+                .toList();
+        var resultados = new ArrayList<R>(futuros.size());
+        for (var futuro : futuros) {
+            try {
+                resultados.add(futuro.join());
+            } catch (CompletionException completionException) {
+                if (completionException.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw completionException;
+            }
+        }
+        return resultados;
+    }
+
+    private static Optional<Mensagem> buscarEm(JdbcTemplate fragmento, UUID id) {
+        return fragmento.query(BUSCAR_POR_ID, CONVERSOR, id).stream().findFirst();
+    }
+
+    private static Optional<Mensagem> lerLinha(JdbcTemplate fragmento, UUID id) {
+        return fragmento.query(LER_LINHA, CONVERSOR_LINHA, id).stream().findFirst();
+    }
+
+    private static void inserirEm(JdbcTemplate fragmento, Mensagem mensagem) {
+        fragmento.update(INSERIR, mensagem.getId(), mensagem.getUsuario(), mensagem.getConteudo(),
+                mensagem.getDataCriacao(), mensagem.getGostei(), mensagem.getRemovidaEm());
+    }
+
+    // o primeiro índice atende o ORDER BY ... LIMIT que cada fragmento executa na listagem, o segundo os
+    // lotes do expurgo; o ALTER cobre os fragmentos criados antes da remoção lógica
+    private static JdbcTemplate criarEsquema(DataSource dataSource) {
+        var fragmento = new JdbcTemplate(dataSource);
+        fragmento.execute("CREATE TABLE IF NOT EXISTS mensagem (id UUID NOT NULL PRIMARY KEY, "
+                + "usuario VARCHAR(255) NOT NULL, conteudo VARCHAR(255) NOT NULL, "
+                + "data_criacao TIMESTAMP(6), gostei INTEGER NOT NULL, removida_em TIMESTAMP(6))");
+        fragmento.execute("ALTER TABLE mensagem ADD COLUMN IF NOT EXISTS removida_em TIMESTAMP(6)");
+        fragmento.execute("CREATE INDEX IF NOT EXISTS mensagem_data_criacao_idx ON mensagem (data_criacao DESC, id)");
+        fragmento.execute("CREATE INDEX IF NOT EXISTS mensagem_removida_em_idx ON mensagem (removida_em)");
+        return fragmento;
+    }
+}
@@ -0,0 +1,109 @@
+package br.com.fiap.api.repository;
+
+import br.com.fiap.api.model.ConteudoMensagem;
+import br.com.fiap.api.model.Mensagem;
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.UUID;
+
+@Repository
+@Profile("reativo")
+@RequiredArgsConstructor
+public class MensagemReativaRepository {
+
+    private static final String COLUNAS = "id, usuario, conteudo, conteudo_compactado, data_criacao, gostei";
+
+    private final DatabaseClient databaseClient;
+
+    public Mono<Mensagem> inserir(Mensagem mensagem) {
+        var insercao = databaseClient.sql("INSERT INTO mensagem (" + COLUNAS + ") "
+                        + "VALUES (:id, :usuario, :conteudo, :conteudoCompactado, :dataCriacao, :gostei)")
+                .bind("id", mensagem.getId())
+                .bind("usuario", mensagem.getUsuario());
+        return vincularConteudo(insercao, mensagem.conteudoArmazenado())
+                .bind("dataCriacao", mensagem.getDataCriacao())
+                .bind("gostei", mensagem.getGostei())
+                .fetch()
+                .rowsUpdated()
+                .thenReturn(mensagem);
+    }
+
+    public Mono<Mensagem> buscarPorId(UUID id) {
+        return databaseClient.sql("SELECT " + COLUNAS + " FROM mensagem WHERE id = :id AND removida_em IS NULL")
+                .bind("id", id)
+                .map((row, metadata) -> converter(row))
+                .one();
+    }
+
+    public Flux<Mensagem> buscarPorIds(Collection<UUID> ids) {
+        return databaseClient.sql("SELECT " + COLUNAS + " FROM mensagem WHERE id IN (:ids) AND removida_em IS NULL")
+                .bind("ids", ids)
+                .map((row, metadata) -> converter(row))
+                .all();
+    }
+
+    public Flux<Mensagem> listar(long deslocamento, int limite) {
+        return databaseClient.sql("SELECT " + COLUNAS + " FROM mensagem "
+                        + "WHERE removida_em IS NULL ORDER BY data_criacao DESC LIMIT :limite OFFSET :deslocamento")
+                .bind("limite", limite)
+                .bind("deslocamento", deslocamento)
+                .map((row, metadata) -> converter(row))
+                .all();
+    }
+
+    public Mono<Long> contar() {
+        return databaseClient.sql("SELECT COUNT(*) AS total FROM mensagem WHERE removida_em IS NULL")
+                .map((row, metadata) -> row.get("total", Long.class))
+                .one();
+    }
+
+    public Mono<Long> atualizarConteudo(UUID id, String conteudo) {
+        var atualizacao = databaseClient.sql(
+                "UPDATE mensagem SET conteudo = :conteudo, conteudo_compactado = :conteudoCompactado "
+                        + "WHERE id = :id AND removida_em IS NULL");
+        return vincularConteudo(atualizacao, ConteudoMensagem.de(conteudo))
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    // como no JPA, a linha fica na tabela até o ExpurgoMensagens
+    public Mono<Long> remover(UUID id, LocalDateTime momento) {
+        return databaseClient.sql("UPDATE mensagem SET removida_em = :momento WHERE id = :id AND removida_em IS NULL")
+                .bind("momento", momento)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    // o conteúdo segue o mesmo formato da entidade JPA: texto curto puro, o resto compactado
+    private static DatabaseClient.GenericExecuteSpec vincularConteudo(DatabaseClient.GenericExecuteSpec comando,
+                                                                      ConteudoMensagem conteudo) {
+        comando = conteudo.textoArmazenado() == null
+                ? comando.bindNull("conteudo", String.class)
+                : comando.bind("conteudo", conteudo.textoArmazenado());
+        return conteudo.compactado() == null
+                ? comando.bindNull("conteudoCompactado", byte[].class)
+                : comando.bind("conteudoCompactado", conteudo.compactado());
+    }
+
+    private static Mensagem converter(Row row) {
+        var mensagem = Mensagem.builder()
+                .id(row.get("id", UUID.class))
+                .usuario(row.get("usuario", String.class))
+                .dataCriacao(row.get("data_criacao", LocalDateTime.class))
+                .gostei(row.get("gostei", Integer.class))
+                .build();
+        mensagem.armazenarConteudo(ConteudoMensagem.armazenado(
+                row.get("conteudo", String.class), row.get("conteudo_compactado", byte[].class)));
+        return mensagem;
+    }
+}
@@ -1,16 +1,48 @@
 package br.com.fiap.api.repository;
 
 import br.com.fiap.api.model.Mensagem;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
-public interface MensagemRepository extends JpaRepository<Mensagem, UUID> {
+public interface MensagemRepository extends JpaRepository<Mensagem, UUID>, MensagemRepositoryCustom {
 
+    // a consulta de contagem da página também é cacheada (forCounting = true)
     @Query("SELECT m FROM Mensagem m ORDER BY m.dataCriacao DESC")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Page<Mensagem> listarMensagens(Pageable pageable);
+
+    // a mesma listagem sem a consulta de contagem: o total fica a cargo da ContagemMensagens
+    @Query("SELECT m FROM Mensagem m ORDER BY m.dataCriacao DESC")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Mensagem> listarPagina(Pageable pageable);
+
+    // pré-ordem da subárvore numa varredura de intervalo do índice de caminho; conversas grandes não
+    // passam pelo cache de segundo nível nem ganham cópia para verificação de alterações
+    @Query("SELECT m FROM Mensagem m WHERE m.caminho >= :inicio AND m.caminho < :fim "
+            + "AND LENGTH(m.caminho) <= :comprimentoMaximo ORDER BY m.caminho")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    List<Mensagem> buscarSubarvore(String inicio, String fim, int comprimentoMaximo, Pageable limite);
+
+    @Query("SELECT m FROM Mensagem m WHERE m.respostaDe = :pai AND m.caminho > :depois ORDER BY m.caminho")
+    List<Mensagem> listarRespostas(UUID pai, String depois, Pageable limite);
+
+    // lote do arquivamento: travado até sair do banco, para nenhuma alteração se perder entre a cópia e a remoção
+    @Query("SELECT m FROM Mensagem m WHERE m.dataCriacao < :limite ORDER BY m.dataCriacao, m.id")
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"))
+    List<Mensagem> buscarParaArquivar(LocalDateTime limite, Pageable lote);
 }
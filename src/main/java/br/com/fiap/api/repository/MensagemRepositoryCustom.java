@@ -0,0 +1,47 @@
+package br.com.fiap.api.repository;
+
+import br.com.fiap.api.model.Mensagem;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+public interface MensagemRepositoryCustom extends ContadorGostei, ExpurgoRemovidas {
+
+    /**
+     * Carrega várias mensagens por id, consultando primeiro o contexto de persistência e o cache
+     * de segundo nível e buscando apenas as ausentes em consultas {@code IN} por lote.
+     * O retorno segue a ordem dos ids informados, com {@code null} para os não encontrados.
+     */
+    List<Mensagem> buscarPorIds(List<UUID> ids);
+
+    /**
+     * Quantidade de mensagens segundo as estatísticas do banco, sem ler a tabela. Vazio se o banco
+     * não oferece estimativa ou se a tabela ainda não foi analisada.
+     */
+    OptionalLong estimarTotal();
+
+    /**
+     * Marca a mensagem como removida num único {@code UPDATE}, sem carregá-la. A linha some de todas as
+     * consultas da entidade e só sai da tabela no {@link ExpurgoRemovidas expurgo}.
+     *
+     * @return {@code false} se a mensagem não existe ou já foi removida
+     */
+    boolean marcarRemovida(UUID id, LocalDateTime momento);
+
+    /**
+     * Apaga os gostei por usuário das mensagens, consolidados e pendentes, na transação corrente. Para quem
+     * tira mensagens da tabela: sem a mensagem, ninguém mais consolida nem apaga essas linhas.
+     */
+    void apagarGostei(List<UUID> ids);
+
+    /**
+     * Entrega ao consumidor, sem montar entidades, os ids das mensagens não removidas com id em
+     * {@code [de, ate)}; limites nulos deixam a faixa aberta. Lê em blocos, sem guardar a faixa em memória.
+     *
+     * @return quantos ids foram entregues
+     */
+    long percorrerIds(UUID de, UUID ate, Consumer<UUID> consumidor);
+}
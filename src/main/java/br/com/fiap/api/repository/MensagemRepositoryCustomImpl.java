@@ -0,0 +1,195 @@
+package br.com.fiap.api.repository;
+
+import br.com.fiap.api.model.Mensagem;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.ScrollMode;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+public class MensagemRepositoryCustomImpl implements MensagemRepositoryCustom {
+
+    static final int TAMANHO_LOTE = 500;
+
+    static final int TAMANHO_BLOCO_VARREDURA = 10_000;
+
+    // espaço de consulta próprio: o UPDATE não invalida a região inteira de Mensagem a cada gostei
+    static final String ESPACO_GOSTEI = "mensagem_gostei";
+
+    // pelo mesmo motivo, a remoção e o expurgo também têm espaços próprios
+    static final String ESPACO_REMOCAO = "mensagem_remocao";
+    static final String ESPACO_EXPURGO = "mensagem_expurgo";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile String produtoBanco;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Mensagem> buscarPorIds(List<UUID> ids) {
+        return entityManager.unwrap(Session.class)
+                .byMultipleIds(Mensagem.class)
+                .enableOrderedReturn(true)
+                .enableSessionCheck(true)
+                .withBatchSize(TAMANHO_LOTE)
+                .multiLoad(ids);
+    }
+
+    @Override
+    @Transactional
+    public boolean incrementarGostei(UUID id) {
+        var atualizadas = entityManager.createNativeQuery(
+                        "UPDATE mensagem SET gostei = gostei + 1 WHERE id = :id AND removida_em IS NULL")
+                .setParameter("id", id)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(ESPACO_GOSTEI)
+                .executeUpdate();
+        if (atualizadas == 0) {
+            return false;
+        }
+        // só a entrada alterada sai do cache, e depois do commit para não ser recarregada com o valor antigo;
+        // a listagem cacheada pode mostrar o gostei anterior até expirar (mensagem.cache.consultas.expiracao)
+        var cache = entityManager.getEntityManagerFactory().getCache();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.evict(Mensagem.class, id);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean marcarRemovida(UUID id, LocalDateTime momento) {
+        var atualizadas = entityManager.createNativeQuery(
+                        "UPDATE mensagem SET removida_em = :momento WHERE id = :id AND removida_em IS NULL")
+                .setParameter("momento", momento)
+                .setParameter("id", id)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(ESPACO_REMOCAO)
+                .executeUpdate();
+        if (atualizadas == 0) {
+            return false;
+        }
+        // além da entrada, as listagens e contagens cacheadas ainda têm a mensagem
+        var cache = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.evictEntityData(Mensagem.class, id);
+                cache.evictDefaultQueryRegion();
+            }
+        });
+        return true;
+    }
+
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public List<UUID> expurgarRemovidas(LocalDateTime limite, int lote) {
+        List<UUID> ids = entityManager.createNativeQuery(
+                        "SELECT id FROM mensagem WHERE removida_em < :limite ORDER BY removida_em")
+                .unwrap(NativeQuery.class)
+                .addScalar("id", UUID.class)
+                .setParameter("limite", limite)
+                .setMaxResults(lote)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return ids;
+        }
+        apagarGostei(ids);
+        // linhas já invisíveis para todas as consultas: nada em cache muda com elas
+        entityManager.createNativeQuery("DELETE FROM mensagem WHERE id IN (:ids)")
+                .setParameter("ids", ids)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(ESPACO_EXPURGO)
+                .executeUpdate();
+        return ids;
+    }
+
+    @Override
+    @Transactional
+    public void apagarGostei(List<UUID> ids) {
+        for (var tabela : List.of("gostei_pendente", "gostei_mensagem")) {
+            entityManager.createNativeQuery("DELETE FROM " + tabela + " WHERE mensagem_id IN (:ids)")
+                    .setParameter("ids", ids)
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedQuerySpace(ESPACO_EXPURGO)
+                    .executeUpdate();
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OptionalLong estimarTotal() {
+        var consulta = switch (produtoBanco()) {
+            // reltuples é -1 enquanto o VACUUM/ANALYZE não passou pela tabela
+            case "postgresql" -> "SELECT CAST(reltuples AS BIGINT) FROM pg_class WHERE oid = to_regclass('mensagem')";
+            case "h2" -> "SELECT ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES"
+                    + " WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_NAME = 'MENSAGEM'";
+            default -> null;
+        };
+        if (consulta == null) {
+            return OptionalLong.empty();
+        }
+        var estimativas = entityManager.createNativeQuery(consulta).getResultList();
+        if (estimativas.isEmpty() || !(estimativas.get(0) instanceof Number estimativa) || estimativa.longValue() < 0) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(estimativa.longValue());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long percorrerIds(UUID de, UUID ate, Consumer<UUID> consumidor) {
+        var sql = new StringBuilder("SELECT id FROM mensagem WHERE removida_em IS NULL");
+        if (de != null) {
+            sql.append(" AND id >= :de");
+        }
+        if (ate != null) {
+            sql.append(" AND id < :ate");
+        }
+        // no PostgreSQL o tamanho do bloco só vale com a transação aberta, que o readOnly garante
+        NativeQuery<?> consulta = entityManager.createNativeQuery(sql.toString())
+                .unwrap(NativeQuery.class)
+                .addScalar("id", UUID.class)
+                .setFetchSize(TAMANHO_BLOCO_VARREDURA)
+                .setReadOnly(true);
+        if (de != null) {
+            consulta.setParameter("de", de);
+        }
+        if (ate != null) {
+            consulta.setParameter("ate", ate);
+        }
+        long lidos = 0;
+        try (var ids = consulta.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (ids.next()) {
+                consumidor.accept((UUID) ids.get());
+                lidos++;
+            }
+        }
+        return lidos;
+    }
+
+    private String produtoBanco() {
+        if (produtoBanco == null) {
+            produtoBanco = entityManager.unwrap(Session.class)
+                    .doReturningWork(conexao -> conexao.getMetaData().getDatabaseProductName())
+                    .toLowerCase(Locale.ROOT);
+        }
+        return produtoBanco;
+    }
+}
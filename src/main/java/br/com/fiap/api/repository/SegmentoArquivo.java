@@ -0,0 +1,470 @@
+package br.com.fiap.api.repository;
+
+import br.com.fiap.api.model.ConteudoMensagem;
+import br.com.fiap.api.model.Mensagem;
+import com.github.luben.zstd.Zstd;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Arquivo imutável de mensagens arquivadas, mapeado em memória somente para leitura.
+ * <p>
+ * As linhas ficam em ordem de criação decrescente, em blocos de {@code linhasPorBloco} linhas. Cada bloco
+ * guarda coluna por coluna (ids, datas, gostei, usuário, conteúdo...) e é compactado inteiro com Zstd:
+ * colunas do mesmo tipo lado a lado comprimem bem mais que as linhas. Depois dos blocos vêm o diretório
+ * de blocos, com a data da primeira e da última linha de cada um, os ids ordenados com o número da linha,
+ * e um rodapé de tamanho fixo com a posição de cada seção.
+ * <p>
+ * Um a cada {@link #INTERVALO_INDICE} ids fica também em memória: a busca por id escolhe o trecho por esse
+ * índice esparso e termina com uma busca binária direto no mapeamento, sem descompactar nada até achar a linha.
+ * O arquivo é nomeado pelas gerações que contém, {@code primeira-ultima.seg}: a compactação junta gerações
+ * vizinhas num arquivo novo.
+ */
+final class SegmentoArquivo {
+
+    static final String EXTENSAO = ".seg";
+    static final int INTERVALO_INDICE = 128;
+
+    private static final int MAGICO = 0x4d534741;
+    private static final int VERSAO = 1;
+    private static final int TAMANHO_ENTRADA_DIRETORIO = Long.BYTES * 3 + Integer.BYTES * 2;
+    private static final int TAMANHO_ENTRADA_ID = Long.BYTES * 2 + Integer.BYTES;
+    private static final int TAMANHO_RODAPE = Integer.BYTES * 6 + Long.BYTES * 4;
+
+    /**
+     * Linhas de um bloco descompactado, em colunas. Os textos só viram String na linha pedida: uma busca por id
+     * não paga a decodificação do bloco inteiro. Só há leituras absolutas em {@code dados}, e o cache de
+     * blocos é compartilhado entre leitores.
+     */
+    record Bloco(long[] idsAltos, long[] idsBaixos, long[] datas, int[] gostei, UUID[] respostasDe,
+                 ByteBuffer dados, Textos usuarios, Textos conteudos, Textos caminhos) {
+
+        int linhas() {
+            return idsAltos.length;
+        }
+
+        Mensagem mensagem(int linha) {
+            var mensagem = Mensagem.builder()
+                    .id(new UUID(idsAltos[linha], idsBaixos[linha]))
+                    .usuario(usuarios.ler(dados, linha))
+                    .dataCriacao(data(datas[linha]))
+                    .gostei(gostei[linha])
+                    .respostaDe(respostasDe[linha])
+                    .caminho(caminhos.ler(dados, linha))
+                    .nova(false)
+                    .build();
+            // o conteúdo já veio descompactado com o bloco
+            mensagem.armazenarConteudo(ConteudoMensagem.armazenado(conteudos.ler(dados, linha), null));
+            return mensagem;
+        }
+    }
+
+    // posição de cada texto de uma coluna dentro do bloco; tamanho -1 é null
+    record Textos(int[] inicios, int[] tamanhos) {
+
+        String ler(ByteBuffer dados, int linha) {
+            if (tamanhos[linha] < 0) {
+                return null;
+            }
+            var texto = new byte[tamanhos[linha]];
+            dados.get(inicios[linha], texto);
+            return new String(texto, StandardCharsets.UTF_8);
+        }
+    }
+
+    private final long primeiraGeracao;
+    private final long ultimaGeracao;
+    private final Path arquivo;
+    private final MappedByteBuffer mapa;
+    private final int linhas;
+    private final int linhasPorBloco;
+    private final int blocos;
+    private final long dataMaisRecente;
+    private final long dataMaisAntiga;
+    private final int offsetDiretorio;
+    private final int offsetIds;
+    private final long[] indiceAltos;
+    private final long[] indiceBaixos;
+
+    private SegmentoArquivo(Path arquivo, MappedByteBuffer mapa) {
+        var geracoes = geracoes(arquivo);
+        this.primeiraGeracao = geracoes[0];
+        this.ultimaGeracao = geracoes[1];
+        this.arquivo = arquivo;
+        this.mapa = mapa;
+
+        var rodape = mapa.capacity() - TAMANHO_RODAPE;
+        if (rodape < 0 || mapa.getInt(rodape) != MAGICO || mapa.getInt(rodape + Integer.BYTES) != VERSAO) {
+            throw new IllegalStateException("Segmento de arquivo inválido: " + arquivo);
+        }
+        var leitura = mapa.slice(rodape + Integer.BYTES * 2, TAMANHO_RODAPE - Integer.BYTES * 2);
+        this.linhas = leitura.getInt();
+        this.linhasPorBloco = leitura.getInt();
+        this.blocos = leitura.getInt();
+        this.dataMaisRecente = leitura.getLong();
+        this.dataMaisAntiga = leitura.getLong();
+        this.offsetDiretorio = Math.toIntExact(leitura.getLong());
+        this.offsetIds = Math.toIntExact(leitura.getLong());
+        var crc = leitura.getInt();
+        if (crc != crc(mapa.slice(offsetDiretorio, rodape - offsetDiretorio))) {
+            throw new IllegalStateException("Índice corrompido no segmento de arquivo: " + arquivo);
+        }
+
+        var entradas = (linhas + INTERVALO_INDICE - 1) / INTERVALO_INDICE;
+        this.indiceAltos = new long[entradas];
+        this.indiceBaixos = new long[entradas];
+        for (int i = 0; i < entradas; i++) {
+            var posicao = offsetIds + i * INTERVALO_INDICE * TAMANHO_ENTRADA_ID;
+            indiceAltos[i] = mapa.getLong(posicao);
+            indiceBaixos[i] = mapa.getLong(posicao + Long.BYTES);
+        }
+    }
+
+    static SegmentoArquivo abrir(Path arquivo) {
+        try (var canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            // o mapeamento continua válido depois que o canal é fechado, e depois que o arquivo é apagado
+            return new SegmentoArquivo(arquivo, canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()));
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+    }
+
+    /**
+     * Grava as mensagens num arquivo temporário e o renomeia de uma vez: quem lista o diretório
+     * nunca vê um segmento pela metade.
+     */
+    static SegmentoArquivo gravar(Path diretorio, long primeiraGeracao, long ultimaGeracao, List<Mensagem> mensagens,
+                                  int linhasPorBloco, int nivel) {
+        if (mensagens.isEmpty()) {
+            throw new IllegalArgumentException("Segmento de arquivo sem mensagens");
+        }
+        var ordenadas = new ArrayList<>(mensagens);
+        ordenadas.sort(Comparator.comparing(Mensagem::getDataCriacao).reversed().thenComparing(Mensagem::getId));
+
+        var arquivo = diretorio.resolve(nome(primeiraGeracao, ultimaGeracao));
+        var temporario = diretorio.resolve(arquivo.getFileName() + ".tmp");
+        var blocos = (ordenadas.size() + linhasPorBloco - 1) / linhasPorBloco;
+        try (var canal = FileChannel.open(temporario, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            var diretorioBlocos = ByteBuffer.allocate(blocos * TAMANHO_ENTRADA_DIRETORIO);
+            long posicao = 0;
+            for (int inicio = 0; inicio < ordenadas.size(); inicio += linhasPorBloco) {
+                var linhasBloco = ordenadas.subList(inicio, Math.min(inicio + linhasPorBloco, ordenadas.size()));
+                var original = codificar(linhasBloco);
+                var compactado = Zstd.compress(original, nivel);
+                diretorioBlocos.putLong(posicao)
+                        .putInt(compactado.length)
+                        .putInt(original.length)
+                        .putLong(micros(linhasBloco.get(0).getDataCriacao()))
+                        .putLong(micros(linhasBloco.get(linhasBloco.size() - 1).getDataCriacao()));
+                posicao += escrever(canal, ByteBuffer.wrap(compactado));
+            }
+
+            var ids = ByteBuffer.allocate(ordenadas.size() * TAMANHO_ENTRADA_ID);
+            var linhasPorId = new Integer[ordenadas.size()];
+            Arrays.setAll(linhasPorId, linha -> linha);
+            Arrays.sort(linhasPorId, (linhaA, linhaB) -> {
+                var idA = ordenadas.get(linhaA).getId();
+                var idB = ordenadas.get(linhaB).getId();
+                return comparar(idA.getMostSignificantBits(), idA.getLeastSignificantBits(),
+                        idB.getMostSignificantBits(), idB.getLeastSignificantBits());
+            });
+            for (var linha : linhasPorId) {
+                var id = ordenadas.get(linha).getId();
+                ids.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).putInt(linha);
+            }
+
+            var crc = new CRC32();
+            crc.update(diretorioBlocos.flip());
+            crc.update(ids.flip());
+            var offsetDiretorio = posicao;
+            posicao += escrever(canal, diretorioBlocos.rewind());
+            var offsetIds = posicao;
+            posicao += escrever(canal, ids.rewind());
+            var rodape = ByteBuffer.allocate(TAMANHO_RODAPE)
+                    .putInt(MAGICO)
+                    .putInt(VERSAO)
+                    .putInt(ordenadas.size())
+                    .putInt(linhasPorBloco)
+                    .putInt(blocos)
+                    .putLong(micros(ordenadas.get(0).getDataCriacao()))
+                    .putLong(micros(ordenadas.get(ordenadas.size() - 1).getDataCriacao()))
+                    .putLong(offsetDiretorio)
+                    .putLong(offsetIds)
+                    .putInt((int) crc.getValue());
+            posicao += escrever(canal, rodape.flip());
+            if (posicao > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Segmento de arquivo maior que 2GB: reduza o lote de arquivamento");
+            }
+            canal.force(true);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+        try {
+            Files.move(temporario, arquivo, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+        return abrir(arquivo);
+    }
+
+    /**
+     * Linha da mensagem no segmento, ou -1.
+     */
+    int linhaDe(UUID id) {
+        var alto = id.getMostSignificantBits();
+        var baixo = id.getLeastSignificantBits();
+        // último trecho do índice esparso que começa num id menor ou igual
+        int inicio = 0;
+        int fim = indiceAltos.length - 1;
+        while (inicio < fim) {
+            var meio = (inicio + fim + 1) >>> 1;
+            if (comparar(indiceAltos[meio], indiceBaixos[meio], alto, baixo) <= 0) {
+                inicio = meio;
+            } else {
+                fim = meio - 1;
+            }
+        }
+        var primeira = inicio * INTERVALO_INDICE;
+        var ultima = Math.min(primeira + INTERVALO_INDICE, linhas) - 1;
+        while (primeira <= ultima) {
+            var meio = (primeira + ultima) >>> 1;
+            var posicao = offsetIds + meio * TAMANHO_ENTRADA_ID;
+            var comparacao = comparar(mapa.getLong(posicao), mapa.getLong(posicao + Long.BYTES), alto, baixo);
+            if (comparacao == 0) {
+                return mapa.getInt(posicao + Long.BYTES * 2);
+            }
+            if (comparacao < 0) {
+                primeira = meio + 1;
+            } else {
+                ultima = meio - 1;
+            }
+        }
+        return -1;
+    }
+
+    int blocoDe(int linha) {
+        return linha / linhasPorBloco;
+    }
+
+    int primeiraLinhaDo(int bloco) {
+        return bloco * linhasPorBloco;
+    }
+
+    Bloco lerBloco(int bloco) {
+        var entrada = offsetDiretorio + bloco * TAMANHO_ENTRADA_DIRETORIO;
+        var posicao = Math.toIntExact(mapa.getLong(entrada));
+        var compactado = mapa.getInt(entrada + Long.BYTES);
+        var original = mapa.getInt(entrada + Long.BYTES + Integer.BYTES);
+        // descompacta direto do mapeamento, sem copiar o bloco para o heap
+        var dados = Zstd.decompress(mapa.slice(posicao, compactado), original);
+        var linhasBloco = Math.min(linhasPorBloco, linhas - primeiraLinhaDo(bloco));
+        return decodificar(dados, linhasBloco);
+    }
+
+    void apagar() {
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+    }
+
+    boolean contem(SegmentoArquivo outro) {
+        return this != outro && primeiraGeracao <= outro.primeiraGeracao && outro.ultimaGeracao <= ultimaGeracao;
+    }
+
+    long primeiraGeracao() {
+        return primeiraGeracao;
+    }
+
+    long ultimaGeracao() {
+        return ultimaGeracao;
+    }
+
+    int linhas() {
+        return linhas;
+    }
+
+    int blocos() {
+        return blocos;
+    }
+
+    LocalDateTime dataMaisRecente() {
+        return data(dataMaisRecente);
+    }
+
+    LocalDateTime dataMaisAntiga() {
+        return data(dataMaisAntiga);
+    }
+
+    long bytes() {
+        return mapa.capacity();
+    }
+
+    Path arquivo() {
+        return arquivo;
+    }
+
+    static String nome(long primeiraGeracao, long ultimaGeracao) {
+        return "%020d-%020d%s".formatted(primeiraGeracao, ultimaGeracao, EXTENSAO);
+    }
+
+    private static long[] geracoes(Path arquivo) {
+        var nome = arquivo.getFileName().toString();
+        var separador = nome.indexOf('-');
+        return new long[]{
+                Long.parseLong(nome.substring(0, separador)),
+                Long.parseLong(nome.substring(separador + 1, nome.length() - EXTENSAO.length()))
+        };
+    }
+
+    // com sinal, na ordem em que o índice foi gravado
+    private static int comparar(long altoA, long baixoA, long altoB, long baixoB) {
+        var comparacao = Long.compare(altoA, altoB);
+        return comparacao != 0 ? comparacao : Long.compare(baixoA, baixoB);
+    }
+
+    // colunas: ids altos, ids baixos, datas, gostei, presença e ids de resposta_de, textos com tamanho (-1 é null)
+    private static byte[] codificar(List<Mensagem> mensagens) {
+        var quantidade = mensagens.size();
+        var usuarios = new byte[quantidade][];
+        var conteudos = new byte[quantidade][];
+        var caminhos = new byte[quantidade][];
+        var respostas = 0;
+        var tamanho = quantidade * (Long.BYTES * 3 + Integer.BYTES * 4 + 1);
+        for (int i = 0; i < quantidade; i++) {
+            var mensagem = mensagens.get(i);
+            usuarios[i] = utf8(mensagem.getUsuario());
+            conteudos[i] = utf8(mensagem.getConteudo());
+            caminhos[i] = utf8(mensagem.getCaminho());
+            respostas += mensagem.getRespostaDe() == null ? 0 : 1;
+            tamanho += tamanho(usuarios[i]) + tamanho(conteudos[i]) + tamanho(caminhos[i]);
+        }
+        var buffer = ByteBuffer.allocate(tamanho + respostas * Long.BYTES * 2);
+        mensagens.forEach(mensagem -> buffer.putLong(mensagem.getId().getMostSignificantBits()));
+        mensagens.forEach(mensagem -> buffer.putLong(mensagem.getId().getLeastSignificantBits()));
+        // deltas: linhas vizinhas têm datas próximas e os bytes altos zerados comprimem melhor
+        var anterior = 0L;
+        for (var mensagem : mensagens) {
+            var data = micros(mensagem.getDataCriacao());
+            buffer.putLong(data - anterior);
+            anterior = data;
+        }
+        mensagens.forEach(mensagem -> buffer.putInt(mensagem.getGostei()));
+        mensagens.forEach(mensagem -> buffer.put((byte) (mensagem.getRespostaDe() == null ? 0 : 1)));
+        mensagens.stream().filter(mensagem -> mensagem.getRespostaDe() != null).forEach(mensagem -> buffer
+                .putLong(mensagem.getRespostaDe().getMostSignificantBits())
+                .putLong(mensagem.getRespostaDe().getLeastSignificantBits()));
+        escreverTextos(buffer, usuarios);
+        escreverTextos(buffer, conteudos);
+        escreverTextos(buffer, caminhos);
+        return buffer.array();
+    }
+
+    private static Bloco decodificar(ByteBuffer dados, int quantidade) {
+        var idsAltos = new long[quantidade];
+        var idsBaixos = new long[quantidade];
+        var datas = new long[quantidade];
+        var gostei = new int[quantidade];
+        var respostasDe = new UUID[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            idsAltos[i] = dados.getLong();
+        }
+        for (int i = 0; i < quantidade; i++) {
+            idsBaixos[i] = dados.getLong();
+        }
+        var anterior = 0L;
+        for (int i = 0; i < quantidade; i++) {
+            anterior += dados.getLong();
+            datas[i] = anterior;
+        }
+        for (int i = 0; i < quantidade; i++) {
+            gostei[i] = dados.getInt();
+        }
+        var presencas = new byte[quantidade];
+        dados.get(presencas);
+        for (int i = 0; i < quantidade; i++) {
+            respostasDe[i] = presencas[i] == 0 ? null : new UUID(dados.getLong(), dados.getLong());
+        }
+        var usuarios = localizarTextos(dados, quantidade);
+        var conteudos = localizarTextos(dados, quantidade);
+        var caminhos = localizarTextos(dados, quantidade);
+        return new Bloco(idsAltos, idsBaixos, datas, gostei, respostasDe, dados, usuarios, conteudos, caminhos);
+    }
+
+    // tamanhos primeiro e os bytes depois, para os tamanhos comprimirem juntos
+    private static void escreverTextos(ByteBuffer buffer, byte[][] textos) {
+        for (var texto : textos) {
+            buffer.putInt(texto == null ? -1 : texto.length);
+        }
+        for (var texto : textos) {
+            if (texto != null) {
+                buffer.put(texto);
+            }
+        }
+    }
+
+    private static Textos localizarTextos(ByteBuffer dados, int quantidade) {
+        var tamanhos = new int[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            tamanhos[i] = dados.getInt();
+        }
+        var inicios = new int[quantidade];
+        var posicao = dados.position();
+        for (int i = 0; i < quantidade; i++) {
+            inicios[i] = posicao;
+            posicao += Math.max(0, tamanhos[i]);
+        }
+        dados.position(posicao);
+        return new Textos(inicios, tamanhos);
+    }
+
+    private static byte[] utf8(String texto) {
+        return texto == null ? null : texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int tamanho(byte[] texto) {
+        return texto == null ? 0 : texto.length;
+    }
+
+    private static long escrever(FileChannel canal, ByteBuffer buffer) throws IOException {
+        var escritos = 0L;
+        while (buffer.hasRemaining()) {
+            escritos += canal.write(buffer);
+        }
+        return escritos;
+    }
+
+    private static int crc(ByteBuffer dados) {
+        var crc = new CRC32();
+        crc.update(dados);
+        return (int) crc.getValue();
+    }
+
+    static long micros(LocalDateTime data) {
+        return data.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + data.getNano() / 1_000;
+    }
+
+    static LocalDateTime data(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,176 @@
+package br.com.fiap.api.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+
+/**
+ * Arquivo de tamanho fixo, mapeado em memória, com registros {@code [tamanho][crc][payload]}.
+ * O payload começa pelo offset do registro. O arquivo é nomeado pelo primeiro offset que contém.
+ * <p>
+ * Uma única thread escreve (sob a trava de {@link LogEventos}). Os leitores só enxergam
+ * até {@link #fim()}, publicado depois que o registro inteiro foi copiado.
+ */
+final class SegmentoLog {
+
+    static final int CABECALHO = Integer.BYTES * 2;
+    static final String EXTENSAO = ".log";
+
+    // uma entrada no índice esparso a cada N registros; a leitura percorre no máximo N-1
+    private static final int INTERVALO_INDICE = 128;
+
+    private final long offsetBase;
+    private final Path arquivo;
+    private final MappedByteBuffer buffer;
+    private final ConcurrentSkipListMap<Long, Integer> indice = new ConcurrentSkipListMap<>();
+    private volatile int fim;
+    private volatile long proximoOffset;
+    private volatile long selado;
+
+    private SegmentoLog(long offsetBase, Path arquivo, MappedByteBuffer buffer) {
+        this.offsetBase = offsetBase;
+        this.arquivo = arquivo;
+        this.buffer = buffer;
+        this.proximoOffset = offsetBase;
+    }
+
+    static SegmentoLog criar(Path diretorio, long offsetBase, int tamanho) {
+        var arquivo = diretorio.resolve("%020d%s".formatted(offsetBase, EXTENSAO));
+        return new SegmentoLog(offsetBase, arquivo, mapear(arquivo, tamanho));
+    }
+
+    /**
+     * Reabre um segmento existente, descartando o que vier depois do último registro íntegro.
+     */
+    static SegmentoLog abrir(Path arquivo) {
+        var nome = arquivo.getFileName().toString();
+        var offsetBase = Long.parseLong(nome.substring(0, nome.length() - EXTENSAO.length()));
+        try {
+            var segmento = new SegmentoLog(offsetBase, arquivo, mapear(arquivo, (int) Files.size(arquivo)));
+            segmento.recuperar();
+            segmento.selado = Files.getLastModifiedTime(arquivo).toMillis();
+            return segmento;
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+    }
+
+    boolean cabe(int tamanhoPayload) {
+        return (long) fim + CABECALHO + tamanhoPayload <= buffer.capacity();
+    }
+
+    void anexar(long offset, byte[] payload) {
+        var posicao = fim;
+        buffer.putInt(posicao + Integer.BYTES, crc(ByteBuffer.wrap(payload)));
+        buffer.put(posicao + CABECALHO, payload);
+        // o tamanho vai por último: um registro interrompido fica com tamanho 0 e encerra o segmento
+        buffer.putInt(posicao, payload.length);
+        if ((offset - offsetBase) % INTERVALO_INDICE == 0) {
+            indice.put(offset, posicao);
+        }
+        proximoOffset = offset + 1;
+        fim = posicao + CABECALHO + payload.length;
+    }
+
+    /**
+     * Posição do registro {@code offset}, ou {@code fim} se ele ainda não foi escrito.
+     */
+    int posicaoDe(long offset, ByteBuffer leitura, int fim) {
+        var entrada = indice.floorEntry(offset);
+        var posicao = entrada == null ? 0 : entrada.getValue();
+        var atual = entrada == null ? offsetBase : entrada.getKey();
+        while (atual < offset && posicao < fim) {
+            posicao += CABECALHO + leitura.getInt(posicao);
+            atual++;
+        }
+        return posicao;
+    }
+
+    /**
+     * Visão somente leitura e independente do buffer, para uma thread leitora.
+     */
+    ByteBuffer leitura() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    void selar(long momento) {
+        buffer.force();
+        selado = momento;
+    }
+
+    void apagar() {
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+    }
+
+    long offsetBase() {
+        return offsetBase;
+    }
+
+    long proximoOffset() {
+        return proximoOffset;
+    }
+
+    int fim() {
+        return fim;
+    }
+
+    long selado() {
+        return selado;
+    }
+
+    void forcar() {
+        buffer.force();
+    }
+
+    private void recuperar() {
+        var posicao = 0;
+        var esperado = offsetBase;
+        while (posicao + CABECALHO + Long.BYTES <= buffer.capacity()) {
+            var tamanho = buffer.getInt(posicao);
+            if (tamanho < Long.BYTES || posicao + CABECALHO + tamanho > buffer.capacity()) {
+                break;
+            }
+            var payload = buffer.slice(posicao + CABECALHO, tamanho);
+            if (crc(payload) != buffer.getInt(posicao + Integer.BYTES) || payload.getLong(0) != esperado) {
+                break;
+            }
+            if ((esperado - offsetBase) % INTERVALO_INDICE == 0) {
+                indice.put(esperado, posicao);
+            }
+            posicao += CABECALHO + tamanho;
+            esperado++;
+        }
+        if (posicao + Integer.BYTES <= buffer.capacity()) {
+            buffer.putInt(posicao, 0);
+        }
+        fim = posicao;
+        proximoOffset = esperado;
+    }
+
+    private static int crc(ByteBuffer payload) {
+        var crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static MappedByteBuffer mapear(Path arquivo, int tamanho) {
+        try (var canal = FileChannel.open(arquivo,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // o mapeamento continua válido depois que o canal é fechado
+            return canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanho);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+    }
+}
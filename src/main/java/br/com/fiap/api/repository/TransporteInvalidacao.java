@@ -0,0 +1,30 @@
+package br.com.fiap.api.repository;
+
+/**
+ * Meio pelo qual as instâncias da aplicação trocam lotes de invalidação de cache.
+ */
+public interface TransporteInvalidacao extends AutoCloseable {
+
+    // o NOTIFY do PostgreSQL aceita até 8000 bytes por mensagem
+    int TAMANHO_MAXIMO = 7900;
+
+    void enviar(String mensagem);
+
+    /**
+     * Passa a entregar ao receptor as mensagens publicadas no canal, inclusive as desta instância.
+     */
+    void assinar(Receptor receptor);
+
+    @Override
+    void close();
+
+    interface Receptor {
+
+        void receber(String mensagem);
+
+        /**
+         * A conexão com o canal caiu e foi refeita: mensagens podem ter se perdido no intervalo.
+         */
+        void perdeuMensagens();
+    }
+}
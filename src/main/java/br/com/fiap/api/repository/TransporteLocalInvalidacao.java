@@ -0,0 +1,43 @@
+package br.com.fiap.api.repository;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Entrega as mensagens aos contextos da mesma JVM que assinam o mesmo canal. Serve aos testes com
+ * várias instâncias e a execuções sem PostgreSQL; a entrega acontece na thread de quem envia.
+ */
+public class TransporteLocalInvalidacao implements TransporteInvalidacao {
+
+    private static final Map<String, Set<Receptor>> CANAIS = new ConcurrentHashMap<>();
+
+    private final String canal;
+
+    private volatile Receptor receptor;
+
+    public TransporteLocalInvalidacao(String canal) {
+        this.canal = canal;
+    }
+
+    @Override
+    public void enviar(String mensagem) {
+        CANAIS.getOrDefault(canal, Set.of()).forEach(assinante -> assinante.receber(mensagem));
+    }
+
+    @Override
+    public void assinar(Receptor receptor) {
+        this.receptor = receptor;
+        CANAIS.computeIfAbsent(canal, nome -> ConcurrentHashMap.newKeySet()).add(receptor);
+    }
+
+    @Override
+    public void close() {
+        if (receptor != null) {
+            CANAIS.computeIfPresent(canal, (nome, assinantes) -> {
+                assinantes.remove(receptor);
+                return assinantes.isEmpty() ? null : assinantes;
+            });
+        }
+    }
+}
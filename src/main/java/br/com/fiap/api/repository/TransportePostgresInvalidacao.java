@@ -0,0 +1,126 @@
+package br.com.fiap.api.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+/**
+ * LISTEN/NOTIFY do PostgreSQL. O envio usa uma conexão do pool; a escuta mantém uma conexão própria,
+ * fora do pool, numa thread bloqueada na leitura das notificações, que se reconecta se ela cair.
+ */
+@Slf4j
+public class TransportePostgresInvalidacao implements TransporteInvalidacao {
+
+    private static final Pattern IDENTIFICADOR = Pattern.compile("[a-z_][a-z0-9_]*");
+    // zero bloqueia até chegar notificação: a escuta acorda com a notificação, não com um intervalo
+    private static final int ESPERA_NOTIFICACOES_MS = 0;
+    private static final Duration ESPERA_RECONEXAO = Duration.ofSeconds(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String url;
+    private final String usuario;
+    private final String senha;
+    private final String canal;
+
+    private volatile boolean ativo = true;
+    private volatile Connection escuta;
+    private Thread ouvinte;
+
+    public TransportePostgresInvalidacao(DataSource dataSource, String url, String usuario, String senha, String canal) {
+        // o canal entra no LISTEN sem parâmetro
+        if (!IDENTIFICADOR.matcher(canal).matches()) {
+            throw new IllegalArgumentException("Canal de invalidação inválido: " + canal);
+        }
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.url = url;
+        this.usuario = usuario;
+        this.senha = senha;
+        this.canal = canal;
+    }
+
+    @Override
+    public void enviar(String mensagem) {
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", resultado -> null, canal, mensagem);
+    }
+
+    @Override
+    public synchronized void assinar(Receptor receptor) {
+        if (ouvinte != null) {
+            throw new IllegalStateException("O transporte já tem um receptor");
+        }
+        ouvinte = new Thread(() -> ouvir(receptor), "invalidacao-" + canal);
+        ouvinte.setDaemon(true);
+        ouvinte.start();
+    }
+
+    @Override
+    public void close() {
+        ativo = false;
+        if (ouvinte != null) {
+            ouvinte.interrupt();
+        }
+        // a leitura bloqueada não atende à interrupção: só sai com a conexão fechada
+        var conexao = escuta;
+        if (conexao != null) {
+            try {
+                conexao.close();
+            } catch (SQLException falha) {
+                log.debug("Falha ao fechar a conexão de escuta do canal {}", canal, falha);
+            }
+        }
+    }
+
+    private void ouvir(Receptor receptor) {
+        var reconexao = false;
+        while (ativo) {
+            try (var conexao = DriverManager.getConnection(url, usuario, senha)) {
+                escuta = conexao;
+                if (!ativo) {
+                    return;
+                }
+                try (var comando = conexao.createStatement()) {
+                    comando.execute("LISTEN " + canal);
+                }
+                if (reconexao) {
+                    receptor.perdeuMensagens();
+                }
+                var notificacoes = conexao.unwrap(PGConnection.class);
+                while (ativo) {
+                    var recebidas = notificacoes.getNotifications(ESPERA_NOTIFICACOES_MS);
+                    if (recebidas == null) {
+                        continue;
+                    }
+                    for (var notificacao : recebidas) {
+                        entregar(receptor, notificacao.getParameter());
+                    }
+                }
+            } catch (SQLException falha) {
+                if (!ativo) {
+                    return;
+                }
+                log.warn("Conexão de escuta do canal {} perdida; reconectando", canal, falha);
+                reconexao = true;
+                try {
+                    Thread.sleep(ESPERA_RECONEXAO.toMillis());
+                } catch (InterruptedException interrompida) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void entregar(Receptor receptor, String mensagem) {
+        try {
+            receptor.receber(mensagem);
+        } catch (RuntimeException falha) {
+            log.error("Falha ao processar mensagem do canal {}: {}", canal, mensagem, falha);
+        }
+    }
+}
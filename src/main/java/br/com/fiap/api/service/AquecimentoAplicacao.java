@@ -0,0 +1,185 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.model.ResultadoAquecimento;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+
+/**
+ * Aquece a aplicação antes de ela receber tráfego: planos de consulta do Hibernate, serializadores do Jackson,
+ * conexões do pool, caches e o código quente compilado pelo JIT.
+ * <p>
+ * O cenário percorre leitura e escrita do {@link MensagemService} numa transação desfeita no final; a mensagem
+ * criada também é removida, para os armazenamentos que não participam da transação. Eventos publicados dentro
+ * dela são descartados com o rollback. As rodadas se repetem até o p99 de {@code rodadasEstaveis} rodadas
+ * seguidas variar menos que {@code tolerancia}, ou até {@code duracaoMaxima}; só então a prontidão passa a
+ * aceitar tráfego.
+ */
+@Slf4j
+public class AquecimentoAplicacao {
+
+    private static final int USUARIOS = 256;
+    private static final int TAMANHO_PAGINA = 20;
+
+    private final MensagemService mensagemService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transacao;
+    private final ApplicationEventPublisher eventos;
+    private final int paralelismo;
+    private final int iteracoesPorRodada;
+    private final double tolerancia;
+    private final int rodadasEstaveis;
+    private final Duration duracaoMaxima;
+    private final boolean habilitado;
+    private final LongSupplier relogio;
+
+    public AquecimentoAplicacao(MensagemService mensagemService, ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager, ApplicationEventPublisher eventos,
+                                int paralelismo, int iteracoesPorRodada, double tolerancia, int rodadasEstaveis,
+                                Duration duracaoMaxima, boolean habilitado, LongSupplier relogio) {
+        this.mensagemService = mensagemService;
+        this.objectMapper = objectMapper;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.eventos = eventos;
+        this.paralelismo = paralelismo;
+        this.iteracoesPorRodada = iteracoesPorRodada;
+        this.tolerancia = tolerancia;
+        this.rodadasEstaveis = rodadasEstaveis;
+        this.duracaoMaxima = duracaoMaxima;
+        this.habilitado = habilitado;
+        this.relogio = relogio;
+    }
+
+    // o Spring Boot só anuncia a prontidão depois dos ouvintes de ApplicationReadyEvent
+    @EventListener(ApplicationReadyEvent.class)
+    public void aoIniciar() {
+        // lido em tempo de execução: na imagem AOT as condições de configuração já foram decididas no build
+        if (!habilitado) {
+            return;
+        }
+        AvailabilityChangeEvent.publish(eventos, this, ReadinessState.REFUSING_TRAFFIC);
+        try {
+            var resultado = aquecer();
+            if (!resultado.estabilizado()) {
+                log.warn("Latência não estabilizou em {}: {}", duracaoMaxima, resultado);
+            }
+        } catch (RuntimeException falha) {
+            // o aquecimento só adianta trabalho: sem ele a aplicação funciona, só mais lenta no início
+            log.error("Falha no aquecimento; aceitando tráfego assim mesmo", falha);
+        }
+        AvailabilityChangeEvent.publish(eventos, this, ReadinessState.ACCEPTING_TRAFFIC);
+    }
+
+    public ResultadoAquecimento aquecer() {
+        var inicio = relogio.getAsLong();
+        var limite = inicio + duracaoMaxima.toNanos();
+        var executor = Executors.newFixedThreadPool(paralelismo);
+        try {
+            var p99Anterior = -1L;
+            var p99 = 0L;
+            var estaveis = 0;
+            var rodadas = 0;
+            while (estaveis < rodadasEstaveis && relogio.getAsLong() < limite) {
+                p99 = percentil99(executarRodada(executor));
+                rodadas++;
+                estaveis = p99Anterior >= 0 && Math.abs(p99 - p99Anterior) <= p99Anterior * tolerancia
+                        ? estaveis + 1
+                        : 0;
+                p99Anterior = p99;
+            }
+            return new ResultadoAquecimento(rodadas, estaveis >= rodadasEstaveis, Duration.ofNanos(p99),
+                    Duration.ofNanos(relogio.getAsLong() - inicio));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long[] executarRodada(ExecutorService executor) {
+        var tarefas = new ArrayList<Callable<long[]>>(paralelismo);
+        for (int tarefa = 0; tarefa < paralelismo; tarefa++) {
+            var iteracoes = iteracoesPorRodada / paralelismo + (tarefa < iteracoesPorRodada % paralelismo ? 1 : 0);
+            var primeira = tarefa;
+            tarefas.add(() -> {
+                var latencias = new long[iteracoes];
+                for (int i = 0; i < iteracoes; i++) {
+                    var antes = relogio.getAsLong();
+                    executarCenario("aquecimento-" + (primeira + i * paralelismo) % USUARIOS);
+                    latencias[i] = relogio.getAsLong() - antes;
+                }
+                return latencias;
+            });
+        }
+        var latencias = new long[iteracoesPorRodada];
+        var preenchidas = 0;
+        try {
+            for (var resultado : executor.invokeAll(tarefas)) {
+                var parciais = resultado.get();
+                System.arraycopy(parciais, 0, latencias, preenchidas, parciais.length);
+                preenchidas += parciais.length;
+            }
+        } catch (InterruptedException interrompida) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Aquecimento interrompido", interrompida);
+        } catch (ExecutionException falha) {
+            throw falha.getCause() instanceof RuntimeException runtimeException
+                    ? runtimeException
+                    : new IllegalStateException(falha.getCause());
+        }
+        return latencias;
+    }
+
+    void executarCenario(String usuario) {
+        // fora de transação: leituras reais, que deixam as páginas e mensagens mais recentes em cache
+        var recentes = mensagemService.listarMensagem(PageRequest.of(0, TAMANHO_PAGINA));
+        recentes.forEach(mensagem -> mensagemService.procurarMensagem(mensagem.getId()));
+        serializar(recentes);
+
+        transacao.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            var registrada = mensagemService.registrarMensagem(
+                    Mensagem.builder().usuario(usuario).conteudo("aquecimento").build());
+            var id = registrada.getId();
+            mensagemService.buscarMensagem(id);
+            var alterada = mensagemService.alterarMensagem(id,
+                    Mensagem.builder().id(id).usuario(usuario).conteudo("aquecimento alterado").build());
+            serializar(alterada);
+            // a consulta força o flush: o INSERT e o UPDATE chegam ao banco antes do rollback
+            serializar(mensagemService.listarMensagem(PageRequest.of(0, TAMANHO_PAGINA)));
+            mensagemService.removerMensagem(id);
+            mensagemService.buscarMensagens(List.of(id));
+        });
+    }
+
+    private void serializar(Object valor) {
+        try {
+            objectMapper.writeValueAsBytes(valor);
+        } catch (JsonProcessingException jsonProcessingException) {
+            throw new UncheckedIOException(jsonProcessingException);
+        }
+    }
+
+    private static long percentil99(long[] latencias) {
+        Arrays.sort(latencias);
+        return latencias[Math.max(0, (int) Math.ceil(latencias.length * 0.99) - 1)];
+    }
+}
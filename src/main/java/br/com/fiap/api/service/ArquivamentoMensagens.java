@@ -0,0 +1,167 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.repository.ArquivoMensagens;
+import br.com.fiap.api.repository.MensagemRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Move as mensagens mais antigas que {@code idade} da tabela para o {@link ArquivoMensagens} e compacta
+ * os segmentos pequenos que cada lote deixa.
+ * <p>
+ * Cada lote roda numa transação: as linhas são lidas com trava, gravadas num segmento novo e removidas
+ * do banco. Se a transação falha depois da gravação, o lote volta na rodada seguinte; as mensagens que
+ * o arquivo já tem só são removidas, sem entrar de novo num segmento. A listagem soma o total da tabela ao do
+ * arquivo, então a {@link ContagemMensagens} é descartada a cada lote confirmado.
+ * <p>
+ * Só a instância com {@code habilitado} arquiva; as demais apenas releem o diretório a cada {@code intervalo}
+ * e descartam a contagem quando ele mudou. Por isso o {@code ArquivoConfig} só liga o arquivamento com o
+ * diretório declarado compartilhado: num diretório local, o que sai da tabela some das outras instâncias.
+ */
+@Slf4j
+public class ArquivamentoMensagens implements AutoCloseable {
+
+    private final MensagemRepository mensagemRepository;
+    private final ArquivoMensagens arquivo;
+    private final BarramentoInvalidacao invalidacao;
+    private final ContagemMensagens contagem;
+    private final GosteiPorUsuario gosteiPorUsuario;
+    private final TransactionTemplate transacao;
+    private final Period idade;
+    private final int tamanhoLote;
+    private final int linhasMinimas;
+    private final int linhasMaximas;
+    private final boolean habilitado;
+    private final Supplier<LocalDateTime> relogio;
+    private final Counter arquivadas;
+    private final Counter compactados;
+    private final ScheduledExecutorService agendador;
+
+    public ArquivamentoMensagens(MensagemRepository mensagemRepository, ArquivoMensagens arquivo,
+                                 BarramentoInvalidacao invalidacao, ContagemMensagens contagem,
+                                 GosteiPorUsuario gosteiPorUsuario,
+                                 PlatformTransactionManager transactionManager,
+                                 Period idade, int tamanhoLote, int linhasMinimas, int linhasMaximas,
+                                 boolean habilitado, Duration intervalo, MeterRegistry registro,
+                                 Supplier<LocalDateTime> relogio) {
+        if (tamanhoLote < 1 || linhasMinimas > linhasMaximas) {
+            throw new IllegalArgumentException("Lote de arquivamento vazio ou limites de compactação invertidos");
+        }
+        this.mensagemRepository = mensagemRepository;
+        this.arquivo = arquivo;
+        this.invalidacao = invalidacao;
+        this.contagem = contagem;
+        this.gosteiPorUsuario = gosteiPorUsuario;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.idade = idade;
+        this.tamanhoLote = tamanhoLote;
+        this.linhasMinimas = linhasMinimas;
+        this.linhasMaximas = linhasMaximas;
+        this.habilitado = habilitado;
+        this.relogio = relogio;
+        this.arquivadas = registro.counter("mensagem.arquivo.arquivadas");
+        this.compactados = registro.counter("mensagem.arquivo.segmentos.compactados");
+        Gauge.builder("mensagem.arquivo.mensagens", arquivo, ArquivoMensagens::total).register(registro);
+        Gauge.builder("mensagem.arquivo.segmentos", arquivo, ArquivoMensagens::quantidadeSegmentos).register(registro);
+        Gauge.builder("mensagem.arquivo.bytes", arquivo, ArquivoMensagens::bytes).register(registro);
+
+        this.agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            var thread = new Thread(tarefa, "arquivamento");
+            thread.setDaemon(true);
+            return thread;
+        });
+        agendador.scheduleWithFixedDelay(this::executar, intervalo.toNanos(), intervalo.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    void executar() {
+        try {
+            if (!habilitado) {
+                var antes = arquivo.total();
+                arquivo.recarregar();
+                if (arquivo.total() != antes) {
+                    contagem.invalidar();
+                }
+                return;
+            }
+            arquivar();
+            compactar();
+        } catch (RuntimeException falha) {
+            // uma exceção aqui cancelaria as próximas rodadas agendadas
+            log.error("Falha no arquivamento de mensagens", falha);
+        }
+    }
+
+    /**
+     * @return quantas mensagens saíram do banco
+     */
+    public int arquivar() {
+        var limite = relogio.get().minus(idade);
+        var total = 0;
+        int removidas;
+        do {
+            removidas = transacao.execute(status -> arquivarLote(limite));
+            if (removidas > 0) {
+                // já no arquivo e ainda na contagem da tabela: a listagem contaria o lote duas vezes
+                contagem.invalidar();
+            }
+            total += removidas;
+        } while (removidas == tamanhoLote);
+        if (total > 0) {
+            // as listagens cacheadas nas outras instâncias ainda contam essas mensagens na tabela
+            invalidacao.publicar(null);
+            log.info("{} mensagens anteriores a {} arquivadas", total, limite);
+        }
+        return total;
+    }
+
+    /**
+     * @return quantos segmentos deixaram de existir
+     */
+    public int compactar() {
+        var removidos = arquivo.compactar(linhasMinimas, linhasMaximas);
+        compactados.increment(removidos);
+        return removidos;
+    }
+
+    @Override
+    public void close() {
+        agendador.shutdownNow();
+    }
+
+    private int arquivarLote(LocalDateTime limite) {
+        var lote = mensagemRepository.buscarParaArquivar(limite, PageRequest.of(0, tamanhoLote));
+        if (lote.isEmpty()) {
+            return 0;
+        }
+        var novas = lote.stream().filter(mensagem -> !arquivo.contem(mensagem.getId())).toList();
+        arquivo.arquivar(novas);
+        var ids = lote.stream().map(Mensagem::getId).toList();
+        // o segmento guarda só o total de gostei: quem deu cada um sai com a linha, travada desde a leitura
+        mensagemRepository.apagarGostei(ids);
+        mensagemRepository.deleteAllByIdInBatch(ids);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ids.forEach(gosteiPorUsuario::descartar);
+            }
+        });
+        arquivadas.increment(novas.size());
+        return lote.size();
+    }
+}
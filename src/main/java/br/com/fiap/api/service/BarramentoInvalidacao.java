@@ -0,0 +1,287 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.model.TipoEventoMensagem;
+import br.com.fiap.api.repository.TransporteInvalidacao;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Avisa as outras instâncias das mensagens alteradas aqui, para que descartem o que têm em cache delas.
+ * <p>
+ * As invalidações são acumuladas por {@code intervalo} e enviadas em lote: várias alterações da mesma
+ * mensagem na janela viram um id só. Cada lote leva a instância de origem, que o ignora ao recebê-lo,
+ * e o instante da alteração mais antiga, de onde sai o atraso em {@code mensagem.invalidacao.atraso}
+ * (entre instâncias, depende dos relógios estarem sincronizados).
+ * <p>
+ * Quem recebe descarta os ids de novo depois de {@code repeticao}: uma leitura que foi ao banco antes
+ * do commit remoto pode gravar o valor antigo no cache depois do primeiro descarte.
+ * <p>
+ * Mensagens novas não esperam o lote: o id segue logo depois do commit, para o {@link FiltroIdsMensagens}
+ * das outras instâncias não recusar uma mensagem que já existe, e a resposta da criação só sai quando o
+ * anúncio volta pela escuta desta instância, no máximo depois de {@code esperaEco}. As outras instâncias
+ * recebem a mesma notificação; a janela que resta é a diferença entre as escutas, normalmente abaixo de um
+ * milissegundo, mas maior se a escuta de outra instância está parada (GC) ou se reconectando, e também
+ * quando o anúncio falha ou o eco não chega a tempo: até o reenvio passar, outra instância pode recusar a
+ * criada. Uma escuta que reconecta descarta o filtro, que fica aceitando tudo até remontar.
+ * <p>
+ * Nada que falha no envio é descartado: os ids, inclusive os de um anúncio de criação, voltam para o próximo
+ * lote até o transporte aceitá-los.
+ */
+@Slf4j
+public class BarramentoInvalidacao implements TransporteInvalidacao.Receptor, AutoCloseable {
+
+    private static final char SEPARADOR_CABECALHO = ';';
+    private static final char SEPARADOR_IDS = ',';
+    private static final int TAMANHO_ID = 36;
+    private static final char MARCA_CRIADA = '+';
+
+    /**
+     * O que cada instância descarta ao receber um lote.
+     */
+    public interface Invalidador {
+
+        void invalidar(Collection<UUID> ids);
+
+        void invalidarTudo();
+
+        /**
+         * Mensagens criadas na origem, recebidas fora do lote.
+         */
+        void registrar(Collection<UUID> criadas);
+    }
+
+    record Lote(String origem, long alteradoEmMicros, List<UUID> ids, List<UUID> criadas) {
+    }
+
+    private final String origem = UUID.randomUUID().toString();
+    private final TransporteInvalidacao transporte;
+    private final Invalidador invalidador;
+    private final LongSupplier relogioMicros;
+    private final Duration repeticao;
+    private final Duration esperaEco;
+    // anúncios de criação esperando voltar pela escuta desta instância
+    private final Map<UUID, CountDownLatch> ecos = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService envio;
+    private final Timer atraso;
+    private final Timer eco;
+    private final Counter lotesRecebidos;
+    private final Counter idsRecebidos;
+
+    private Set<UUID> pendentes = new LinkedHashSet<>();
+    private Set<UUID> criadasPendentes = new LinkedHashSet<>();
+    private long primeiroPendenteMicros = -1;
+
+    public BarramentoInvalidacao(TransporteInvalidacao transporte, Invalidador invalidador, Duration intervalo,
+                                 Duration repeticao, Duration esperaEco, MeterRegistry registro,
+                                 LongSupplier relogioMicros) {
+        this.transporte = transporte;
+        this.invalidador = invalidador;
+        this.relogioMicros = relogioMicros;
+        this.repeticao = repeticao;
+        this.esperaEco = esperaEco;
+        this.atraso = Timer.builder("mensagem.invalidacao.atraso")
+                .description("Da alteração numa instância ao descarte do cache nas demais")
+                .publishPercentiles(0.5, 0.99)
+                .register(registro);
+        this.eco = Timer.builder("mensagem.invalidacao.eco")
+                .description("Espera da criação pelo próprio anúncio de volta do canal")
+                .publishPercentiles(0.5, 0.99)
+                .register(registro);
+        this.lotesRecebidos = registro.counter("mensagem.invalidacao.lotes");
+        this.idsRecebidos = registro.counter("mensagem.invalidacao.ids");
+
+        transporte.assinar(this);
+        this.envio = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            var thread = new Thread(tarefa, "invalidacao-envio");
+            thread.setDaemon(true);
+            return thread;
+        });
+        envio.scheduleWithFixedDelay(this::enviarPendentes, intervalo.toNanos(), intervalo.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    // depois do commit, como o log de eventos: uma alteração desfeita não invalida nada
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarMensagem(EventoMensagem evento) {
+        if (evento.tipo() == TipoEventoMensagem.REGISTRADA) {
+            anunciarCriada(evento.mensagemId());
+        } else {
+            publicar(evento.mensagemId());
+        }
+    }
+
+    // mensagem nova não está no cache de ninguém; quem recebe descarta só as listagens cacheadas
+    private void anunciarCriada(UUID id) {
+        var volta = new CountDownLatch(1);
+        ecos.put(id, volta);
+        var inicio = System.nanoTime();
+        try {
+            for (var mensagem : codificar(origem, relogioMicros.getAsLong(), List.of(), List.of(id))) {
+                transporte.enviar(mensagem);
+            }
+            if (!volta.await(esperaEco.toNanos(), TimeUnit.NANOSECONDS)) {
+                log.warn("Anúncio da mensagem {} não voltou do canal em {}", id, esperaEco);
+            }
+            eco.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException falha) {
+            // a mensagem já está gravada: a criação não falha por causa do anúncio, que segue no próximo lote
+            log.warn("Falha ao anunciar a mensagem {}; reenviando com o próximo lote", id, falha);
+            devolver(Set.of(), Set.of(id), relogioMicros.getAsLong());
+        } catch (InterruptedException interrompida) {
+            Thread.currentThread().interrupt();
+        } finally {
+            ecos.remove(id);
+        }
+    }
+
+    /**
+     * Agenda a invalidação; {@code null} invalida só as listagens.
+     */
+    public synchronized void publicar(UUID id) {
+        if (primeiroPendenteMicros < 0) {
+            primeiroPendenteMicros = relogioMicros.getAsLong();
+        }
+        if (id != null) {
+            pendentes.add(id);
+        }
+    }
+
+    void enviarPendentes() {
+        Set<UUID> lote;
+        Set<UUID> criadas;
+        long primeiro;
+        synchronized (this) {
+            if (primeiroPendenteMicros < 0) {
+                return;
+            }
+            lote = pendentes;
+            criadas = criadasPendentes;
+            primeiro = primeiroPendenteMicros;
+            pendentes = new LinkedHashSet<>();
+            criadasPendentes = new LinkedHashSet<>();
+            primeiroPendenteMicros = -1;
+        }
+        try {
+            for (var mensagem : codificar(origem, primeiro, lote, criadas)) {
+                transporte.enviar(mensagem);
+            }
+        } catch (RuntimeException falha) {
+            // uma exceção aqui cancelaria os próximos envios agendados; reenviar o que já passou não faz mal
+            log.error("Falha ao enviar invalidação de {} mensagens; reenviando com o próximo lote",
+                    lote.size() + criadas.size(), falha);
+            devolver(lote, criadas, primeiro);
+        }
+    }
+
+    private synchronized void devolver(Set<UUID> ids, Set<UUID> criadas, long alteradoEmMicros) {
+        pendentes.addAll(ids);
+        criadasPendentes.addAll(criadas);
+        if (primeiroPendenteMicros < 0 || alteradoEmMicros < primeiroPendenteMicros) {
+            primeiroPendenteMicros = alteradoEmMicros;
+        }
+    }
+
+    @Override
+    public void receber(String mensagem) {
+        var lote = decodificar(mensagem);
+        if (lote.origem().equals(origem)) {
+            for (var criada : lote.criadas()) {
+                var volta = ecos.get(criada);
+                if (volta != null) {
+                    volta.countDown();
+                }
+            }
+            return;
+        }
+        invalidador.invalidar(lote.ids());
+        if (!lote.criadas().isEmpty()) {
+            invalidador.registrar(lote.criadas());
+        }
+        envio.schedule(() -> repetir(lote.ids()), repeticao.toNanos(), TimeUnit.NANOSECONDS);
+        atraso.record(Math.max(0, relogioMicros.getAsLong() - lote.alteradoEmMicros()), TimeUnit.MICROSECONDS);
+        lotesRecebidos.increment();
+        idsRecebidos.increment(lote.ids().size() + lote.criadas().size());
+    }
+
+    private void repetir(List<UUID> ids) {
+        try {
+            invalidador.invalidar(ids);
+        } catch (RuntimeException falha) {
+            log.error("Falha ao repetir a invalidação de {} mensagens", ids.size(), falha);
+        }
+    }
+
+    @Override
+    public void perdeuMensagens() {
+        invalidador.invalidarTudo();
+    }
+
+    @Override
+    public void close() {
+        envio.shutdownNow();
+        enviarPendentes();
+        transporte.close();
+    }
+
+    // origem;alteradoEm;id,+id,... (+ marca as criadas) partido em mensagens que caibam no transporte
+    static List<String> codificar(String origem, long alteradoEmMicros, Collection<UUID> ids,
+                                  Collection<UUID> criadas) {
+        var cabecalho = origem + SEPARADOR_CABECALHO + alteradoEmMicros + SEPARADOR_CABECALHO;
+        var mensagens = new ArrayList<String>();
+        var atual = new StringBuilder(cabecalho);
+        var alteradas = ids.size();
+        var todos = new ArrayList<UUID>(alteradas + criadas.size());
+        todos.addAll(ids);
+        todos.addAll(criadas);
+        for (int i = 0; i < todos.size(); i++) {
+            if (atual.length() + TAMANHO_ID + 2 > TransporteInvalidacao.TAMANHO_MAXIMO) {
+                mensagens.add(atual.toString());
+                atual.setLength(0);
+                atual.append(cabecalho);
+            }
+            if (atual.length() > cabecalho.length()) {
+                atual.append(SEPARADOR_IDS);
+            }
+            if (i >= alteradas) {
+                atual.append(MARCA_CRIADA);
+            }
+            atual.append(todos.get(i));
+        }
+        mensagens.add(atual.toString());
+        return mensagens;
+    }
+
+    static Lote decodificar(String mensagem) {
+        var fimOrigem = mensagem.indexOf(SEPARADOR_CABECALHO);
+        var fimInstante = mensagem.indexOf(SEPARADOR_CABECALHO, fimOrigem + 1);
+        var ids = new ArrayList<UUID>();
+        var criadas = new ArrayList<UUID>();
+        for (int inicio = fimInstante + 1; inicio < mensagem.length(); inicio += TAMANHO_ID + 1) {
+            var criada = mensagem.charAt(inicio) == MARCA_CRIADA;
+            if (criada) {
+                inicio++;
+            }
+            (criada ? criadas : ids).add(UUID.fromString(mensagem.substring(inicio, inicio + TAMANHO_ID)));
+        }
+        return new Lote(mensagem.substring(0, fimOrigem),
+                Long.parseLong(mensagem, fimOrigem + 1, fimInstante, 10), ids, criadas);
+    }
+}
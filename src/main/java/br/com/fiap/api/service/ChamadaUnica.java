@@ -0,0 +1,51 @@
+package br.com.fiap.api.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Deduplica carregamentos concorrentes da mesma chave (single-flight).
+ * A primeira thread executa o carregador; as demais aguardam o mesmo resultado.
+ */
+public class ChamadaUnica<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> emAndamento = new ConcurrentHashMap<>();
+
+    public V executar(K chave, Supplier<V> carregador) {
+        var futuro = new CompletableFuture<V>();
+        var existente = emAndamento.putIfAbsent(chave, futuro);
+        if (existente != null) {
+            return aguardar(existente);
+        }
+        try {
+            var valor = carregador.get();
+            futuro.complete(valor);
+            return valor;
+        } catch (RuntimeException | Error erro) {
+            futuro.completeExceptionally(erro);
+            throw erro;
+        } finally {
+            emAndamento.remove(chave, futuro);
+        }
+    }
+
+    public int emAndamento() {
+        return emAndamento.size();
+    }
+
+    private V aguardar(CompletableFuture<V> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException completionException) {
+            if (completionException.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (completionException.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw completionException;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package br.com.fiap.api.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Contagem aproximada de eventos por id numa janela deslizante, com memória fixa.
+ * A janela é dividida em baldes de tempo; cada balde tem um Count-Min Sketch
+ * (atualização conservadora) e um heap mínimo limitado de candidatos a mais frequentes.
+ * <p>
+ * Os ids ficam repartidos em faixas com trava própria, cada uma com sua fração da largura:
+ * um id cai sempre na mesma faixa, então gostei de mensagens diferentes raramente disputam a mesma trava.
+ * Registrar custa O(profundidade + log candidatos), independente da quantidade de ids.
+ */
+public class ContadorJanelaDeslizante {
+
+    public record Contagem(UUID id, long quantidade) {
+    }
+
+    private final long duracaoBaldeMillis;
+    private final int quantidadeBaldes;
+    private final int larguraFaixa;
+    private final int profundidade;
+    private final int maxCandidatos;
+    private final LongSupplier relogio;
+    private final Faixa[] faixas;
+    private final int mascaraFaixa;
+
+    public ContadorJanelaDeslizante(long duracaoJanelaMillis, int quantidadeBaldes, int largura,
+                                    int profundidade, int maxCandidatos, int quantidadeFaixas, LongSupplier relogio) {
+        if (quantidadeBaldes < 1 || Integer.bitCount(largura) != 1 || profundidade < 1 || maxCandidatos < 1
+                || quantidadeFaixas < 1 || largura < quantidadeFaixas) {
+            throw new IllegalArgumentException("Configuração da janela de contagem inválida");
+        }
+        var totalFaixas = Integer.highestOneBit(quantidadeFaixas);
+        this.duracaoBaldeMillis = Math.max(1, duracaoJanelaMillis / quantidadeBaldes);
+        this.quantidadeBaldes = quantidadeBaldes;
+        this.larguraFaixa = largura / totalFaixas;
+        this.profundidade = profundidade;
+        this.maxCandidatos = maxCandidatos;
+        this.relogio = relogio;
+        this.faixas = new Faixa[totalFaixas];
+        for (int i = 0; i < totalFaixas; i++) {
+            faixas[i] = new Faixa();
+        }
+        this.mascaraFaixa = totalFaixas - 1;
+    }
+
+    public void registrar(UUID id) {
+        var base = base(id);
+        // as colunas saem de hashes próprios por linha, independentes deste
+        var faixa = faixas[(int) (misturar(base) >>> 32) & mascaraFaixa];
+        var periodo = relogio.getAsLong() / duracaoBaldeMillis;
+        synchronized (faixa) {
+            var balde = faixa.balde(periodo);
+            var estimativa = balde.incrementar(base);
+            balde.candidatos.atualizar(id, estimativa);
+        }
+    }
+
+    /**
+     * Os {@code k} ids mais frequentes da janela, em ordem decrescente de contagem estimada.
+     */
+    public List<Contagem> maisFrequentes(int k) {
+        var periodoAtual = relogio.getAsLong() / duracaoBaldeMillis;
+        var maiores = new PriorityQueue<Contagem>(Comparator.comparingLong(Contagem::quantidade));
+        // cada id só existe na sua faixa: basta uma faixa travada por vez
+        for (var faixa : faixas) {
+            synchronized (faixa) {
+                var vigentes = new ArrayList<Balde>(quantidadeBaldes);
+                var candidatos = new HashSet<UUID>();
+                for (var balde : faixa.baldes) {
+                    if (balde.periodo >= 0 && periodoAtual - balde.periodo < quantidadeBaldes) {
+                        vigentes.add(balde);
+                        balde.candidatos.copiarIds(candidatos);
+                    }
+                }
+                for (var id : candidatos) {
+                    var base = base(id);
+                    long total = 0;
+                    for (var balde : vigentes) {
+                        total += balde.estimar(base);
+                    }
+                    maiores.offer(new Contagem(id, total));
+                    if (maiores.size() > k) {
+                        maiores.poll();
+                    }
+                }
+            }
+        }
+        var resultado = new ArrayList<>(maiores);
+        resultado.sort(Comparator.comparingLong(Contagem::quantidade).reversed());
+        return resultado;
+    }
+
+    private final class Faixa {
+        private final Balde[] baldes = new Balde[quantidadeBaldes];
+
+        private Faixa() {
+            for (int i = 0; i < quantidadeBaldes; i++) {
+                baldes[i] = new Balde();
+            }
+        }
+
+        private Balde balde(long periodo) {
+            var balde = baldes[(int) (periodo % quantidadeBaldes)];
+            if (balde.periodo != periodo) {
+                balde.reiniciar(periodo);
+            }
+            return balde;
+        }
+    }
+
+    private final class Balde {
+        private final int[][] contadores = new int[profundidade][larguraFaixa];
+        private final Candidatos candidatos = new Candidatos(maxCandidatos);
+        private long periodo = -1;
+
+        private void reiniciar(long novoPeriodo) {
+            for (var linha : contadores) {
+                Arrays.fill(linha, 0);
+            }
+            candidatos.limpar();
+            periodo = novoPeriodo;
+        }
+
+        // atualização conservadora: só sobem os contadores iguais ao mínimo atual
+        private int incrementar(long base) {
+            var minimo = estimar(base);
+            for (int linha = 0; linha < profundidade; linha++) {
+                var coluna = coluna(base, linha);
+                if (contadores[linha][coluna] == minimo) {
+                    contadores[linha][coluna] = minimo + 1;
+                }
+            }
+            return minimo + 1;
+        }
+
+        private int estimar(long base) {
+            var minimo = Integer.MAX_VALUE;
+            for (int linha = 0; linha < profundidade; linha++) {
+                minimo = Math.min(minimo, contadores[linha][coluna(base, linha)]);
+            }
+            return minimo;
+        }
+    }
+
+    /**
+     * Heap mínimo indexado pelos ids: o menor candidato fica na raiz e a posição de cada id é conhecida,
+     * então atualizar ou substituir um candidato custa O(log n) em vez de uma varredura.
+     */
+    static final class Candidatos {
+        private final UUID[] ids;
+        private final int[] estimativas;
+        private final Map<UUID, Integer> posicoes;
+        private int tamanho;
+
+        Candidatos(int capacidade) {
+            this.ids = new UUID[capacidade];
+            this.estimativas = new int[capacidade];
+            this.posicoes = new HashMap<>(capacidade * 2);
+        }
+
+        // dentro de um balde a estimativa de um id nunca diminui: um candidato só desce no heap
+        void atualizar(UUID id, int estimativa) {
+            var posicao = posicoes.get(id);
+            if (posicao != null) {
+                estimativas[posicao] = estimativa;
+                descer(posicao);
+                return;
+            }
+            if (tamanho < ids.length) {
+                colocar(tamanho++, id, estimativa);
+                subir(tamanho - 1);
+                return;
+            }
+            if (estimativa > estimativas[0]) {
+                posicoes.remove(ids[0]);
+                colocar(0, id, estimativa);
+                descer(0);
+            }
+        }
+
+        void copiarIds(Collection<UUID> destino) {
+            destino.addAll(Arrays.asList(ids).subList(0, tamanho));
+        }
+
+        void limpar() {
+            Arrays.fill(ids, 0, tamanho, null);
+            posicoes.clear();
+            tamanho = 0;
+        }
+
+        private void subir(int posicao) {
+            while (posicao > 0) {
+                var pai = (posicao - 1) / 2;
+                if (estimativas[pai] <= estimativas[posicao]) {
+                    return;
+                }
+                trocar(posicao, pai);
+                posicao = pai;
+            }
+        }
+
+        private void descer(int posicao) {
+            while (true) {
+                var menor = posicao;
+                var esquerda = posicao * 2 + 1;
+                var direita = esquerda + 1;
+                if (esquerda < tamanho && estimativas[esquerda] < estimativas[menor]) {
+                    menor = esquerda;
+                }
+                if (direita < tamanho && estimativas[direita] < estimativas[menor]) {
+                    menor = direita;
+                }
+                if (menor == posicao) {
+                    return;
+                }
+                trocar(posicao, menor);
+                posicao = menor;
+            }
+        }
+
+        private void trocar(int a, int b) {
+            var id = ids[a];
+            var estimativa = estimativas[a];
+            colocar(a, ids[b], estimativas[b]);
+            colocar(b, id, estimativa);
+        }
+
+        private void colocar(int posicao, UUID id, int estimativa) {
+            ids[posicao] = id;
+            estimativas[posicao] = estimativa;
+            posicoes.put(id, posicao);
+        }
+    }
+
+    private static long base(UUID id) {
+        return id.getMostSignificantBits() * 31 + id.getLeastSignificantBits();
+    }
+
+    // hash independente por linha: com double hashing dois ids podem colidir em todas as linhas
+    private int coluna(long base, int linha) {
+        return (int) (misturar(base + (linha + 1) * 0x9e3779b97f4a7c15L) & (larguraFaixa - 1));
+    }
+
+    private static long misturar(long valor) {
+        valor ^= valor >>> 33;
+        valor *= 0xff51afd7ed558ccdL;
+        valor ^= valor >>> 33;
+        valor *= 0xc4ceb9fe1a85ec53L;
+        valor ^= valor >>> 33;
+        return valor;
+    }
+}
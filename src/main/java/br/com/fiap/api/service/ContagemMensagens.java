@@ -0,0 +1,121 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.EstrategiaContagem;
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.model.TipoEventoMensagem;
+import br.com.fiap.api.repository.MensagemRepository;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Total de mensagens para a paginação, conforme a {@link EstrategiaContagem}.
+ * <p>
+ * A contagem incremental só enxerga os registros e remoções desta instância; a recontagem a cada
+ * {@code reconciliacao} corrige o que as outras instâncias fizeram e eventuais duplicidades entre a
+ * recontagem e um evento que chegou logo depois dela.
+ * <p>
+ * Quem tira mensagens da tabela sem evento, como o {@link ArquivamentoMensagens}, chama {@link #invalidar()}.
+ */
+public class ContagemMensagens {
+
+    private static final long NAO_CONTADO = -1;
+
+    private final MensagemRepository mensagemRepository;
+    private final EstrategiaContagem padrao;
+    private final long ttl;
+    private final long reconciliacao;
+    private final LongSupplier relogio;
+
+    private volatile Registro emCache;
+    private final AtomicLong incremental = new AtomicLong(NAO_CONTADO);
+    private volatile long incrementalContadoEm;
+
+    public record Contagem(long total, EstrategiaContagem precisao) {
+    }
+
+    private record Registro(long total, long contadoEm) {
+    }
+
+    public ContagemMensagens(MensagemRepository mensagemRepository, EstrategiaContagem padrao,
+                             Duration ttl, Duration reconciliacao, LongSupplier relogio) {
+        this.mensagemRepository = mensagemRepository;
+        this.padrao = padrao;
+        this.ttl = ttl.toNanos();
+        this.reconciliacao = reconciliacao.toNanos();
+        this.relogio = relogio;
+    }
+
+    public EstrategiaContagem padrao() {
+        return padrao;
+    }
+
+    public Contagem contar(EstrategiaContagem estrategia) {
+        return switch (estrategia) {
+            case EXATA -> new Contagem(mensagemRepository.count(), EstrategiaContagem.EXATA);
+            case CACHE -> new Contagem(contarEmCache(), EstrategiaContagem.CACHE);
+            case INCREMENTAL -> new Contagem(contarIncremental(), EstrategiaContagem.INCREMENTAL);
+            case ESTIMADA -> {
+                var estimativa = mensagemRepository.estimarTotal();
+                // sem estatísticas, a resposta diz que a contagem foi exata
+                yield estimativa.isPresent()
+                        ? new Contagem(estimativa.getAsLong(), EstrategiaContagem.ESTIMADA)
+                        : contar(EstrategiaContagem.EXATA);
+            }
+        };
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarMensagem(EventoMensagem evento) {
+        var ajuste = evento.tipo() == TipoEventoMensagem.REGISTRADA ? 1
+                : evento.tipo() == TipoEventoMensagem.REMOVIDA ? -1
+                : 0;
+        if (ajuste != 0) {
+            // antes da primeira contagem não há o que ajustar
+            incremental.getAndUpdate(total -> total == NAO_CONTADO ? total : Math.max(0, total + ajuste));
+        }
+    }
+
+    /**
+     * Descarta a contagem em cache e a incremental: a próxima listagem reconta.
+     */
+    public void invalidar() {
+        synchronized (this) {
+            emCache = null;
+        }
+        synchronized (incremental) {
+            incremental.set(NAO_CONTADO);
+        }
+    }
+
+    private long contarEmCache() {
+        var registro = emCache;
+        if (registro != null && relogio.getAsLong() - registro.contadoEm() < ttl) {
+            return registro.total();
+        }
+        synchronized (this) {
+            registro = emCache;
+            if (registro == null || relogio.getAsLong() - registro.contadoEm() >= ttl) {
+                registro = new Registro(mensagemRepository.count(), relogio.getAsLong());
+                emCache = registro;
+            }
+            return registro.total();
+        }
+    }
+
+    private long contarIncremental() {
+        var total = incremental.get();
+        if (total != NAO_CONTADO && relogio.getAsLong() - incrementalContadoEm < reconciliacao) {
+            return total;
+        }
+        synchronized (incremental) {
+            if (incremental.get() == NAO_CONTADO || relogio.getAsLong() - incrementalContadoEm >= reconciliacao) {
+                incremental.set(mensagemRepository.count());
+                incrementalContadoEm = relogio.getAsLong();
+            }
+            return incremental.get();
+        }
+    }
+}
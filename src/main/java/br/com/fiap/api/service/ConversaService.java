@@ -0,0 +1,131 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.exception.MensagemNotFoundException;
+import br.com.fiap.api.model.Conversa;
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.model.NoConversa;
+import br.com.fiap.api.model.PaginaRespostas;
+import br.com.fiap.api.repository.MensagemRepository;
+import br.com.fiap.api.utils.CaminhoConversa;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Respostas em conversa, guardadas como caminho materializado ({@link CaminhoConversa}).
+ * <p>
+ * A subárvore de uma mensagem, inteira ou limitada em profundidade, sai de uma única consulta de intervalo
+ * sobre o índice de caminho, já em pré-ordem, e a árvore é montada em O(n). As respostas diretas de uma
+ * mensagem muito respondida são paginadas por cursor sobre {@code (resposta_de, caminho)}, sem OFFSET nem
+ * contagem. Uma mensagem removida leva consigo, na montagem, as respostas abaixo dela.
+ */
+public class ConversaService {
+
+    private final MensagemRepository mensagemRepository;
+    private final LimitadorTaxaUsuario limitadorTaxa;
+    private final ApplicationEventPublisher eventos;
+    private final int limiteMensagens;
+    private final int limitePagina;
+    private final LongSupplier relogioMicros;
+
+    public ConversaService(MensagemRepository mensagemRepository, LimitadorTaxaUsuario limitadorTaxa,
+                           ApplicationEventPublisher eventos, int limiteMensagens, int limitePagina,
+                           LongSupplier relogioMicros) {
+        this.mensagemRepository = mensagemRepository;
+        this.limitadorTaxa = limitadorTaxa;
+        this.eventos = eventos;
+        this.limiteMensagens = limiteMensagens;
+        this.limitePagina = limitePagina;
+        this.relogioMicros = relogioMicros;
+    }
+
+    @Transactional
+    public Mensagem responder(UUID id, Mensagem resposta) {
+        limitadorTaxa.consumir(resposta.getUsuario());
+        var pai = carregar(id);
+        if (pai.getCaminho() == null) {
+            // a primeira resposta abre a conversa; o evento tira dos caches a raiz ainda sem caminho
+            pai.setCaminho(CaminhoConversa.raiz(pai.getDataCriacao(), pai.getId()));
+            eventos.publishEvent(EventoMensagem.alterada(pai));
+        }
+        if (CaminhoConversa.profundidade(pai.getCaminho()) >= CaminhoConversa.PROFUNDIDADE_MAXIMA) {
+            throw new IllegalArgumentException("Profundidade maxima da conversa atingida");
+        }
+        resposta.setId(UUID.randomUUID());
+        resposta.setRespostaDe(id);
+        resposta.setCaminho(CaminhoConversa.filho(pai.getCaminho(), relogioMicros.getAsLong(), resposta.getId()));
+        var respostaRegistrada = mensagemRepository.save(resposta);
+        eventos.publishEvent(EventoMensagem.registrada(respostaRegistrada));
+        return respostaRegistrada;
+    }
+
+    public Conversa buscarConversa(UUID id, int profundidade) {
+        if (profundidade < 0) {
+            throw new IllegalArgumentException("Profundidade Invalida");
+        }
+        var mensagem = carregar(id);
+        var caminho = mensagem.getCaminho();
+        if (caminho == null) {
+            return new Conversa(new NoConversa(mensagem, new ArrayList<>()), 1, false);
+        }
+        var linhas = mensagemRepository.buscarSubarvore(caminho, CaminhoConversa.limiteSuperior(caminho),
+                CaminhoConversa.comprimentoMaximo(caminho, profundidade), PageRequest.of(0, limiteMensagens + 1));
+        if (linhas.isEmpty()) {
+            throw new MensagemNotFoundException("Mensagem não encontrada");
+        }
+        var truncada = linhas.size() > limiteMensagens;
+        var nos = new HashMap<UUID, NoConversa>(linhas.size() * 4 / 3 + 1);
+        var raiz = montar(truncada ? linhas.subList(0, limiteMensagens) : linhas, nos);
+        return new Conversa(raiz, nos.size(), truncada);
+    }
+
+    public PaginaRespostas listarRespostas(UUID id, String depois, int quantidade) {
+        if (quantidade < 1 || quantidade > limitePagina) {
+            throw new IllegalArgumentException("Quantidade Invalida");
+        }
+        if (depois != null && !CaminhoConversa.segmentoValido(depois)) {
+            throw new IllegalArgumentException("Cursor Invalido");
+        }
+        var pai = carregar(id);
+        if (pai.getCaminho() == null) {
+            return new PaginaRespostas(List.of(), null);
+        }
+        // os filhos têm o caminho do pai mais um segmento: o próprio caminho do pai vem antes de todos
+        var inicio = depois == null ? pai.getCaminho() : pai.getCaminho() + depois;
+        var linhas = mensagemRepository.listarRespostas(id, inicio, PageRequest.of(0, quantidade + 1));
+        if (linhas.size() <= quantidade) {
+            return new PaginaRespostas(linhas, null);
+        }
+        var respostas = linhas.subList(0, quantidade);
+        return new PaginaRespostas(respostas,
+                CaminhoConversa.ultimoSegmento(respostas.get(quantidade - 1).getCaminho()));
+    }
+
+    // na pré-ordem o pai sempre vem antes: uma passada, uma busca no mapa por mensagem
+    static NoConversa montar(List<Mensagem> preOrdem, HashMap<UUID, NoConversa> nos) {
+        var raiz = new NoConversa(preOrdem.get(0), new ArrayList<>());
+        nos.put(raiz.mensagem().getId(), raiz);
+        for (int i = 1; i < preOrdem.size(); i++) {
+            var mensagem = preOrdem.get(i);
+            var pai = nos.get(mensagem.getRespostaDe());
+            if (pai != null) {
+                var no = new NoConversa(mensagem, new ArrayList<>());
+                pai.respostas().add(no);
+                nos.put(mensagem.getId(), no);
+            }
+        }
+        return raiz;
+    }
+
+    private Mensagem carregar(UUID id) {
+        return mensagemRepository.findById(id)
+                .orElseThrow(() -> new MensagemNotFoundException("Mensagem não encontrada"));
+    }
+}
@@ -0,0 +1,312 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.EstatisticaGosteiHora;
+import br.com.fiap.api.model.EstatisticaUsuario;
+import br.com.fiap.api.model.EstatisticaUsuarioDia;
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.repository.ArquivoMensagens;
+import br.com.fiap.api.repository.EstatisticaRepository;
+import br.com.fiap.api.repository.FaixaIds;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Estatísticas de mensagens mantidas incrementalmente: mensagens por usuário por dia, gostei por hora e
+ * usuários mais ativos.
+ * <p>
+ * Os eventos de escrita caem em baldes de um minuto em memória, com um {@link LongAdder} por contador.
+ * A cada {@code intervalo}, os minutos já encerrados há mais de um minuto saem dos baldes, são somados por
+ * dia, hora e usuário e vão num lote só para as tabelas de rollup ({@link EstatisticaRepository}); o minuto
+ * de folga cobre a escrita que leu o relógio antes da virada e incrementou depois. Se o lote falha, os
+ * totais ficam pendentes e voltam no descarregamento seguinte. As consultas leem só o rollup e enxergam as
+ * escritas com esse atraso.
+ * <p>
+ * Contam as mensagens que não foram removidas. A remoção desconta do autor e do dia de criação da mensagem,
+ * lidos no descarregamento da linha removida, que fica na tabela até o expurgo. A
+ * {@link #reconstruir reconstrução} recalcula as mensagens a partir da tabela e do arquivo, em faixas de id
+ * varridas em paralelo, com a mesma regra. Os gostei por hora não são reconstruídos, porque a tabela não
+ * guarda quando cada gostei aconteceu.
+ * <p>
+ * O corte da última reconstrução fica no banco e vale para todas as instâncias: cada descarregamento o lê
+ * travado, descarta as mensagens registradas e removidas nos minutos anteriores a ele, que a varredura já
+ * contou, e só desconta as removidas a partir dele. A reconstrução segura a mesma trava da varredura até a
+ * troca dos rollups, então um descarregamento de outra instância ou termina antes e é sobrescrito, ou espera
+ * e já lê o corte novo. Fica de fora só a diferença entre os relógios das instâncias.
+ */
+@Slf4j
+public class EstatisticasMensagens implements AutoCloseable {
+
+    private static final int LOTE_ARQUIVO = 10_000;
+
+    private static final class Balde {
+
+        private final ConcurrentHashMap<String, LongAdder> mensagens = new ConcurrentHashMap<>();
+        private final Queue<UUID> removidas = new ConcurrentLinkedQueue<>();
+        private final LongAdder gostei = new LongAdder();
+    }
+
+    private record ChaveDia(String usuario, LocalDate dia) implements Comparable<ChaveDia> {
+
+        private static final Comparator<ChaveDia> ORDEM = Comparator.comparing(ChaveDia::usuario)
+                .thenComparing(ChaveDia::dia);
+
+        @Override
+        public int compareTo(ChaveDia outra) {
+            return ORDEM.compare(this, outra);
+        }
+    }
+
+    // totais ainda não gravados; as mensagens ficam por minuto até o corte lido no descarregamento
+    private static final class Pendentes {
+
+        private final TreeMap<LocalDateTime, Map<String, Long>> mensagens = new TreeMap<>();
+        // descontadas só no descarregamento, quando o autor e o dia são lidos da tabela
+        private final TreeMap<LocalDateTime, List<UUID>> removidas = new TreeMap<>();
+        private final TreeMap<LocalDateTime, Long> porHora = new TreeMap<>();
+
+        boolean vazio() {
+            return mensagens.isEmpty() && removidas.isEmpty() && porHora.isEmpty();
+        }
+
+        void limpar() {
+            mensagens.clear();
+            removidas.clear();
+            porHora.clear();
+        }
+    }
+
+    private final EstatisticaRepository repositorio;
+    private final ArquivoMensagens arquivo;
+    private final TransactionTemplate transacao;
+    private final int particoes;
+    private final int paralelismo;
+    private final Supplier<LocalDateTime> relogio;
+    private final ConcurrentHashMap<LocalDateTime, Balde> baldes = new ConcurrentHashMap<>();
+    private final Pendentes pendentes = new Pendentes();
+    // sem nenhuma reconstrução, desconta as removidas a partir da subida
+    private final LocalDateTime iniciadaEm;
+    private final Counter linhasGravadas;
+    private final Timer descargas;
+    private final ScheduledExecutorService agendador;
+
+    public EstatisticasMensagens(EstatisticaRepository repositorio, ArquivoMensagens arquivo,
+                                 PlatformTransactionManager transactionManager, int particoes, int paralelismo,
+                                 Duration intervalo, MeterRegistry registro, Supplier<LocalDateTime> relogio) {
+        if (particoes < 1 || paralelismo < 1) {
+            throw new IllegalArgumentException("Reconstrução precisa de ao menos uma partição e uma thread");
+        }
+        this.repositorio = repositorio;
+        this.arquivo = arquivo;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.particoes = particoes;
+        this.paralelismo = paralelismo;
+        this.relogio = relogio;
+        this.iniciadaEm = relogio.get();
+        this.linhasGravadas = registro.counter("mensagem.estatisticas.linhas");
+        this.descargas = Timer.builder("mensagem.estatisticas.descarga")
+                .description("Gravação de um lote de minutos encerrados nas tabelas de rollup")
+                .register(registro);
+        Gauge.builder("mensagem.estatisticas.baldes", baldes, Map::size).register(registro);
+
+        this.agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            var thread = new Thread(tarefa, "estatisticas");
+            thread.setDaemon(true);
+            return thread;
+        });
+        agendador.scheduleWithFixedDelay(this::executar, intervalo.toNanos(), intervalo.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    // só memória: roda no caminho de escrita, depois do commit
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarMensagem(EventoMensagem evento) {
+        switch (evento.tipo()) {
+            case REGISTRADA -> balde().mensagens.computeIfAbsent(evento.usuario(), usuario -> new LongAdder())
+                    .increment();
+            case REMOVIDA -> balde().removidas.add(evento.mensagemId());
+            case GOSTEI -> balde().gostei.increment();
+            default -> {
+            }
+        }
+    }
+
+    void executar() {
+        try {
+            descarregar();
+        } catch (RuntimeException falha) {
+            // uma exceção aqui cancelaria as próximas rodadas agendadas
+            log.error("Falha ao gravar estatísticas de mensagens", falha);
+        }
+    }
+
+    /**
+     * Grava os minutos encerrados num lote só.
+     *
+     * @return quantas linhas de rollup foram somadas
+     */
+    public synchronized int descarregar() {
+        var limite = minutoAtual().minusMinutes(1);
+        for (var minuto : List.copyOf(baldes.keySet())) {
+            if (minuto.isBefore(limite)) {
+                acumular(minuto, baldes.remove(minuto));
+            }
+        }
+        if (pendentes.vazio()) {
+            return 0;
+        }
+        // os pendentes só saem depois do commit: se a transação falha, voltam inteiros no descarregamento seguinte
+        int linhas = descargas.record(() -> transacao.execute(status -> {
+            // espera a reconstrução em andamento em outra instância e enxerga o corte dela
+            var corte = repositorio.travarCorte();
+            var porDia = new TreeMap<ChaveDia, Long>();
+            var porUsuario = new TreeMap<String, Long>();
+            (corte == null ? pendentes.mensagens : pendentes.mensagens.tailMap(corte))
+                    .forEach((minuto, porAutor) -> porAutor.forEach((usuario, mensagens) -> {
+                        porDia.merge(new ChaveDia(usuario, minuto.toLocalDate()), mensagens, Long::sum);
+                        porUsuario.merge(usuario, mensagens, Long::sum);
+                    }));
+            var ids = (corte == null ? pendentes.removidas : pendentes.removidas.tailMap(corte)).values().stream()
+                    .flatMap(List::stream)
+                    .toList();
+            var removidas = ids.isEmpty() ? List.<EstatisticaUsuarioDia>of()
+                    : repositorio.contarRemovidasPorDia(ids, corte == null ? iniciadaEm : corte);
+            for (var removida : removidas) {
+                porDia.merge(new ChaveDia(removida.usuario(), removida.dia()), -removida.mensagens(), Long::sum);
+                porUsuario.merge(removida.usuario(), -removida.mensagens(), Long::sum);
+            }
+            repositorio.somarMensagensPorDia(porDia.entrySet().stream()
+                    .map(total -> new EstatisticaUsuarioDia(total.getKey().usuario(), total.getKey().dia(),
+                            total.getValue()))
+                    .toList());
+            repositorio.somarMensagensPorUsuario(porUsuario.entrySet().stream()
+                    .map(total -> new EstatisticaUsuario(total.getKey(), total.getValue()))
+                    .toList());
+            repositorio.somarGosteiPorHora(pendentes.porHora.entrySet().stream()
+                    .map(total -> new EstatisticaGosteiHora(total.getKey(), total.getValue()))
+                    .toList());
+            return porDia.size() + porUsuario.size() + pendentes.porHora.size();
+        }));
+        pendentes.limpar();
+        linhasGravadas.increment(linhas);
+        return linhas;
+    }
+
+    /**
+     * Recalcula do zero os rollups de mensagens com o que existia antes do minuto corrente e grava esse minuto
+     * como o corte de todas as instâncias. As mensagens registradas e removidas antes dele, nos baldes e
+     * pendentes de qualquer instância, são descartadas no descarregamento seguinte, porque a varredura já as
+     * considera; os gostei seguem, já que o rollup de gostei não é reconstruído.
+     *
+     * @return quantas mensagens foram contadas
+     */
+    public synchronized long reconstruir() {
+        return transacao.execute(status -> {
+            // a trava vai até a troca dos rollups: nenhum descarregamento grava no meio da varredura
+            repositorio.travarCorte();
+            var corte = minutoAtual();
+            var total = reconstruir(corte);
+            log.info("Estatísticas reconstruídas: {} mensagens anteriores a {}", total, corte);
+            return total;
+        });
+    }
+
+    private long reconstruir(LocalDateTime corte) {
+        var porDia = new TreeMap<ChaveDia, Long>();
+        for (var parcial : varrerTabela(corte)) {
+            porDia.merge(new ChaveDia(parcial.usuario(), parcial.dia()), parcial.mensagens(), Long::sum);
+        }
+        for (long inicio = 0; ; inicio += LOTE_ARQUIVO) {
+            var lote = arquivo.listar(inicio, LOTE_ARQUIVO);
+            lote.forEach(mensagem -> porDia.merge(new ChaveDia(mensagem.getUsuario(),
+                    mensagem.getDataCriacao().toLocalDate()), 1L, Long::sum));
+            if (lote.size() < LOTE_ARQUIVO) {
+                break;
+            }
+        }
+
+        var dias = new ArrayList<EstatisticaUsuarioDia>(porDia.size());
+        var porUsuario = new TreeMap<String, Long>();
+        porDia.forEach((chave, mensagens) -> {
+            dias.add(new EstatisticaUsuarioDia(chave.usuario(), chave.dia(), mensagens));
+            porUsuario.merge(chave.usuario(), mensagens, Long::sum);
+        });
+        var usuarios = porUsuario.entrySet().stream()
+                .map(total -> new EstatisticaUsuario(total.getKey(), total.getValue()))
+                .toList();
+        // a varredura conta as removidas a partir do corte, que os descarregamentos seguintes descontam
+        repositorio.gravarCorte(corte);
+        repositorio.substituirMensagens(dias, usuarios);
+        return usuarios.stream().mapToLong(EstatisticaUsuario::mensagens).sum();
+    }
+
+    public List<EstatisticaUsuarioDia> mensagensPorDia(String usuario, LocalDate de, LocalDate ate) {
+        return repositorio.mensagensPorDia(usuario, de, ate);
+    }
+
+    public List<EstatisticaGosteiHora> gosteiPorHora(LocalDateTime de, LocalDateTime ate) {
+        return repositorio.gosteiPorHora(de.truncatedTo(ChronoUnit.HOURS), ate);
+    }
+
+    public List<EstatisticaUsuario> maisAtivos(int quantidade) {
+        return repositorio.maisAtivos(quantidade);
+    }
+
+    @Override
+    public void close() {
+        agendador.shutdownNow();
+    }
+
+    private Balde balde() {
+        return baldes.computeIfAbsent(minutoAtual(), minuto -> new Balde());
+    }
+
+    private LocalDateTime minutoAtual() {
+        return relogio.get().truncatedTo(ChronoUnit.MINUTES);
+    }
+
+    private void acumular(LocalDateTime minuto, Balde balde) {
+        if (!balde.mensagens.isEmpty()) {
+            var porAutor = pendentes.mensagens.computeIfAbsent(minuto, chave -> new TreeMap<>());
+            balde.mensagens.forEach((usuario, mensagens) -> porAutor.merge(usuario, mensagens.sum(), Long::sum));
+        }
+        if (!balde.removidas.isEmpty()) {
+            pendentes.removidas.computeIfAbsent(minuto, chave -> new ArrayList<>()).addAll(balde.removidas);
+        }
+        var gostei = balde.gostei.sum();
+        if (gostei > 0) {
+            pendentes.porHora.merge(minuto.truncatedTo(ChronoUnit.HOURS), gostei, Long::sum);
+        }
+    }
+
+    private List<EstatisticaUsuarioDia> varrerTabela(LocalDateTime corte) {
+        var parciais = new ArrayList<EstatisticaUsuarioDia>();
+        FaixaIds.varrer(particoes, paralelismo,
+                        faixa -> repositorio.contarMensagensPorDia(faixa.de(), faixa.ate(), corte))
+                .forEach(parciais::addAll);
+        return parciais;
+    }
+}
@@ -0,0 +1,150 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.repository.ExpurgoRemovidas;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Apaga de vez as mensagens removidas, que até então só estavam marcadas com {@code removida_em}.
+ * <p>
+ * Roda a cada {@code intervalo}, mas só dentro da janela de baixo movimento, de {@code inicioJanela} a
+ * {@code fimJanela} (pode atravessar a meia-noite; sem janela, a qualquer hora). Cada lote de até
+ * {@code tamanhoLote} linhas é uma transação curta, seguida de {@code pausa} para não disputar o banco com
+ * as requisições. A rodada termina quando acabam as removidas há mais de {@code carencia}, quando a janela
+ * fecha ou depois de {@code maxLotes} lotes; o que sobrar fica para a rodada seguinte.
+ * <p>
+ * Os gostei por usuário de cada mensagem saem no mesmo lote, e os bitmaps delas deixam o cache do
+ * {@link GosteiPorUsuario} depois do commit.
+ * <p>
+ * Com várias instâncias, basta uma com {@code habilitado}.
+ */
+@Slf4j
+public class ExpurgoMensagens implements AutoCloseable {
+
+    private final ExpurgoRemovidas mensagemRepository;
+    private final GosteiPorUsuario gosteiPorUsuario;
+    private final Duration carencia;
+    private final int tamanhoLote;
+    private final int maxLotes;
+    private final Duration pausa;
+    private final LocalTime inicioJanela;
+    private final LocalTime fimJanela;
+    private final boolean habilitado;
+    private final Supplier<LocalDateTime> relogio;
+    private final Counter expurgadas;
+    private final Timer lotes;
+    private final ScheduledExecutorService agendador;
+
+    public ExpurgoMensagens(ExpurgoRemovidas mensagemRepository, GosteiPorUsuario gosteiPorUsuario,
+                            Duration carencia, int tamanhoLote,
+                            int maxLotes, Duration pausa, LocalTime inicioJanela, LocalTime fimJanela,
+                            boolean habilitado, Duration intervalo, MeterRegistry registro,
+                            Supplier<LocalDateTime> relogio) {
+        if (tamanhoLote < 1 || maxLotes < 1) {
+            throw new IllegalArgumentException("Lote de expurgo vazio ou rodada sem lotes");
+        }
+        if ((inicioJanela == null) != (fimJanela == null)) {
+            throw new IllegalArgumentException("Janela de expurgo precisa de início e fim");
+        }
+        this.mensagemRepository = mensagemRepository;
+        this.gosteiPorUsuario = gosteiPorUsuario;
+        this.carencia = carencia;
+        this.tamanhoLote = tamanhoLote;
+        this.maxLotes = maxLotes;
+        this.pausa = pausa;
+        this.inicioJanela = inicioJanela;
+        this.fimJanela = fimJanela;
+        this.habilitado = habilitado;
+        this.relogio = relogio;
+        // a vazão do expurgo é a taxa deste contador
+        this.expurgadas = registro.counter("mensagem.expurgo.expurgadas");
+        this.lotes = Timer.builder("mensagem.expurgo.lote")
+                .description("Duração de cada lote de DELETE do expurgo")
+                .publishPercentiles(0.5, 0.99)
+                .register(registro);
+
+        this.agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            var thread = new Thread(tarefa, "expurgo");
+            thread.setDaemon(true);
+            return thread;
+        });
+        agendador.scheduleWithFixedDelay(this::executar, intervalo.toNanos(), intervalo.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    void executar() {
+        try {
+            if (habilitado && dentroDaJanela(relogio.get().toLocalTime())) {
+                expurgar();
+            }
+        } catch (RuntimeException falha) {
+            // uma exceção aqui cancelaria as próximas rodadas agendadas
+            log.error("Falha no expurgo de mensagens removidas", falha);
+        }
+    }
+
+    /**
+     * Uma rodada de expurgo, a partir de agora, mesmo fora da janela.
+     *
+     * @return quantas mensagens saíram da tabela
+     */
+    public int expurgar() {
+        var limite = relogio.get().minus(carencia);
+        var total = 0;
+        for (int lote = 1; lote <= maxLotes; lote++) {
+            List<UUID> ids = lotes.record(() -> mensagemRepository.expurgarRemovidas(limite, tamanhoLote));
+            ids.forEach(gosteiPorUsuario::descartar);
+            var apagadas = ids.size();
+            expurgadas.increment(apagadas);
+            total += apagadas;
+            if (apagadas < tamanhoLote || lote == maxLotes || !dentroDaJanela(relogio.get().toLocalTime())
+                    || !pausar()) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("{} mensagens removidas antes de {} expurgadas", total, limite);
+        }
+        return total;
+    }
+
+    boolean dentroDaJanela(LocalTime hora) {
+        if (inicioJanela == null) {
+            return true;
+        }
+        if (inicioJanela.isBefore(fimJanela)) {
+            return !hora.isBefore(inicioJanela) && hora.isBefore(fimJanela);
+        }
+        return !hora.isBefore(inicioJanela) || hora.isBefore(fimJanela);
+    }
+
+    @Override
+    public void close() {
+        agendador.shutdownNow();
+    }
+
+    // false se a thread foi interrompida pelo close()
+    private boolean pausar() {
+        if (pausa.isZero()) {
+            return true;
+        }
+        try {
+            Thread.sleep(pausa.toMillis());
+            return true;
+        } catch (InterruptedException interrompida) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
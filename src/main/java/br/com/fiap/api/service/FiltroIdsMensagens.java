@@ -0,0 +1,357 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.model.TipoEventoMensagem;
+import br.com.fiap.api.repository.FaixaIds;
+import br.com.fiap.api.repository.MensagemRepository;
+import br.com.fiap.api.utils.FiltroCuckoo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Filtro dos ids de mensagem existentes na tabela, para recusar sem ir ao banco os ids que certamente não
+ * existem, como os UUID aleatórios de quem varre {@code /mensagens/{id}}.
+ * <p>
+ * É um {@link FiltroCuckoo}, que aceita remoção, montado por uma varredura dos ids em faixas paralelas, como a
+ * reconstrução das estatísticas. Até a montagem terminar, e durante qualquer remontagem, todo id "pode existir"
+ * e as consultas vão ao banco como antes. Quando o filtro enche, é remontado com o dobro da capacidade.
+ * <p>
+ * Mensagens novas entram depois do commit; até lá o id só é conhecido dentro da transação que a criou, e o
+ * filtro também o aceita lá dentro. As criadas em outras instâncias chegam pelo {@link BarramentoInvalidacao};
+ * a recusa é respondida da memória, sem esperar por ele, e a janela em que outra instância ainda recusa uma
+ * criada é a descrita lá. Se o transporte perde mensagens, o filtro é descartado na hora e remontado. A remoção
+ * tira o id depois do commit. Removidas em outras instâncias continuam no filtro até a próxima montagem, como
+ * falsos positivos, assim como as arquivadas: quem consulta procura no arquivo o que o filtro recusa.
+ */
+@Slf4j
+public class FiltroIdsMensagens implements AutoCloseable {
+
+    private static final int LOTE_INCLUSAO = 1_024;
+    private static final Duration ESPERA_NOVA_TENTATIVA = Duration.ofMinutes(1);
+
+    private final MensagemRepository repositorio;
+    private final long capacidadeMinima;
+    private final int particoes;
+    private final int paralelismo;
+    private final boolean habilitado;
+    private final StampedLock trava = new StampedLock();
+    private final ScheduledExecutorService montagem;
+    private final AtomicBoolean montagemAgendada = new AtomicBoolean();
+    private final Counter recusados;
+    private final Timer montagens;
+
+    // null enquanto não há filtro completo: lido sem trava pelas consultas
+    private volatile FiltroCuckoo filtro;
+    // recebe as inclusões durante a varredura; o resto do estado é guardado pela trava
+    private FiltroCuckoo emMontagem;
+    private long proximaCapacidade;
+    private long descartes;
+
+    public FiltroIdsMensagens(MensagemRepository repositorio, long capacidadeMinima, int particoes,
+                              int paralelismo, boolean habilitado, MeterRegistry registro) {
+        if (particoes < 1 || paralelismo < 1) {
+            throw new IllegalArgumentException("Montagem do filtro precisa de ao menos uma partição e uma thread");
+        }
+        this.repositorio = repositorio;
+        this.capacidadeMinima = capacidadeMinima;
+        this.particoes = particoes;
+        this.paralelismo = paralelismo;
+        this.habilitado = habilitado;
+        this.recusados = registro.counter("mensagem.filtro-ids.recusados");
+        this.montagens = Timer.builder("mensagem.filtro-ids.montagem")
+                .description("Varredura dos ids da tabela para montar o filtro")
+                .register(registro);
+        Gauge.builder("mensagem.filtro-ids.ids", this, FiltroIdsMensagens::quantidade).register(registro);
+        Gauge.builder("mensagem.filtro-ids.bytes", this, FiltroIdsMensagens::bytes).register(registro);
+
+        this.montagem = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            var thread = new Thread(tarefa, "filtro-ids");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // com o contexto inteiro de pé o barramento já assina o canal: criação remota com commit depois do início
+    // da varredura chega por ele
+    @EventListener(ApplicationReadyEvent.class)
+    public void aoIniciar() {
+        agendarMontagem();
+    }
+
+    public void agendarMontagem() {
+        if (habilitado && montagemAgendada.compareAndSet(false, true)) {
+            montagem.execute(() -> {
+                montagemAgendada.set(false);
+                try {
+                    montar();
+                } catch (RuntimeException falha) {
+                    // sem filtro tudo vai ao banco, como antes; tenta de novo mais tarde
+                    log.error("Falha ao montar o filtro de ids de mensagens", falha);
+                    if (!montagem.isShutdown()) {
+                        montagem.schedule(this::agendarMontagem, ESPERA_NOVA_TENTATIVA.toNanos(), TimeUnit.NANOSECONDS);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Descarta o filtro na hora, para todo id voltar a poder existir, e agenda um novo. Uma montagem em
+     * andamento recomeça.
+     */
+    public void remontar() {
+        var carimbo = trava.writeLock();
+        try {
+            filtro = null;
+            descartes++;
+        } finally {
+            trava.unlockWrite(carimbo);
+        }
+        agendarMontagem();
+    }
+
+    /**
+     * Varre a tabela e troca o filtro pelo novo. Enquanto varre, todo id pode existir.
+     *
+     * @return quantos ids entraram pela varredura
+     */
+    public synchronized long montar() {
+        var capacidade = Math.max(capacidadeMinima, 2 * repositorio.estimarTotal().orElse(0));
+        var inicio = System.nanoTime();
+        try {
+            while (true) {
+                var novo = new FiltroCuckoo(Math.max(capacidade, proximaCapacidade()));
+                long descartesNoInicio;
+                var carimbo = trava.writeLock();
+                try {
+                    filtro = null;
+                    emMontagem = novo;
+                    descartesNoInicio = descartes;
+                } finally {
+                    trava.unlockWrite(carimbo);
+                }
+                long lidos;
+                try {
+                    lidos = varrer(novo);
+                } catch (RuntimeException falha) {
+                    carimbo = trava.writeLock();
+                    emMontagem = null;
+                    trava.unlockWrite(carimbo);
+                    throw falha;
+                }
+                carimbo = trava.writeLock();
+                var descartado = false;
+                try {
+                    emMontagem = null;
+                    descartado = descartes != descartesNoInicio;
+                    if (!novo.cheio() && !descartado) {
+                        filtro = novo;
+                        log.info("Filtro de ids montado: {} ids lidos, {} bytes", lidos, novo.bytes());
+                        return lidos;
+                    }
+                } finally {
+                    trava.unlockWrite(carimbo);
+                }
+                // descartado durante a varredura: ids anunciados no intervalo podem ter se perdido
+                if (!descartado) {
+                    capacidade = 2 * novo.capacidade();
+                }
+            }
+        } finally {
+            montagens.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * {@code false} só quando a mensagem certamente não está na tabela.
+     */
+    public boolean podeConter(UUID id) {
+        var atual = filtro;
+        if (atual == null) {
+            return true;
+        }
+        var hash = hash(id);
+        var carimbo = trava.tryOptimisticRead();
+        var talvez = atual.podeConter(hash);
+        if (!trava.validate(carimbo)) {
+            carimbo = trava.readLock();
+            try {
+                talvez = atual.podeConter(hash);
+            } finally {
+                trava.unlockRead(carimbo);
+            }
+        }
+        if (talvez || criadasNaTransacao().contains(id)) {
+            return true;
+        }
+        recusados.increment();
+        return false;
+    }
+
+    /**
+     * Inclui um id já gravado. Antes da primeira montagem não faz nada: a varredura o encontrará.
+     */
+    public void adicionar(UUID id) {
+        var hash = hash(id);
+        var encheu = false;
+        var carimbo = trava.writeLock();
+        try {
+            var alvo = emMontagem != null ? emMontagem : filtro;
+            if (alvo != null) {
+                var incluido = alvo.adicionar(hash);
+                // durante a varredura, montar() confere se o novo filtro encheu
+                if (alvo == filtro && alvo.cheio()) {
+                    encheu = true;
+                    proximaCapacidade = 2 * alvo.capacidade();
+                    if (!incluido) {
+                        filtro = null;
+                    }
+                }
+            }
+        } finally {
+            trava.unlockWrite(carimbo);
+        }
+        if (encheu) {
+            agendarMontagem();
+        }
+    }
+
+    // na publicação, ainda dentro da transação que criou a mensagem
+    @EventListener
+    public void aoRegistrarMensagem(EventoMensagem evento) {
+        if (evento.tipo() != TipoEventoMensagem.REGISTRADA) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            adicionar(evento.mensagemId());
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        var criadas = (Set<UUID>) TransactionSynchronizationManager.getResource(this);
+        if (criadas == null) {
+            var novas = new HashSet<UUID>();
+            TransactionSynchronizationManager.bindResource(this, novas);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    novas.forEach(FiltroIdsMensagens.this::adicionar);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(FiltroIdsMensagens.this);
+                }
+            });
+            criadas = novas;
+        }
+        criadas.add(evento.mensagemId());
+    }
+
+    // só tira o que uma varredura ou inclusão pôs: durante a montagem, a removida fica como falso positivo
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoRemoverMensagem(EventoMensagem evento) {
+        if (evento.tipo() != TipoEventoMensagem.REMOVIDA) {
+            return;
+        }
+        var hash = hash(evento.mensagemId());
+        var carimbo = trava.writeLock();
+        try {
+            if (emMontagem == null && filtro != null) {
+                filtro.remover(hash);
+            }
+        } finally {
+            trava.unlockWrite(carimbo);
+        }
+    }
+
+    public boolean pronto() {
+        return filtro != null;
+    }
+
+    @Override
+    public void close() {
+        montagem.shutdownNow();
+    }
+
+    // fmix64 do MurmurHash3: os ids do data.sql e os importados não são necessariamente aleatórios
+    static long hash(UUID id) {
+        var hash = id.getMostSignificantBits() * 0x9E3779B97F4A7C15L + id.getLeastSignificantBits();
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<UUID> criadasNaTransacao() {
+        var criadas = TransactionSynchronizationManager.getResource(this);
+        return criadas == null ? Set.of() : (Set<UUID>) criadas;
+    }
+
+    private long proximaCapacidade() {
+        var carimbo = trava.readLock();
+        try {
+            return proximaCapacidade;
+        } finally {
+            trava.unlockRead(carimbo);
+        }
+    }
+
+    private double quantidade() {
+        var atual = filtro;
+        return atual == null ? 0 : atual.quantidade();
+    }
+
+    private double bytes() {
+        var atual = filtro;
+        return atual == null ? 0 : atual.bytes();
+    }
+
+    private long varrer(FiltroCuckoo novo) {
+        return FaixaIds.varrer(particoes, paralelismo, faixa -> {
+            var lote = new long[LOTE_INCLUSAO];
+            var pendentes = new int[1];
+            var lidos = repositorio.percorrerIds(faixa.de(), faixa.ate(), id -> {
+                lote[pendentes[0]++] = hash(id);
+                if (pendentes[0] == lote.length) {
+                    incluir(novo, lote, pendentes[0]);
+                    pendentes[0] = 0;
+                }
+            });
+            incluir(novo, lote, pendentes[0]);
+            return lidos;
+        }).stream().mapToLong(Long::longValue).sum();
+    }
+
+    // a varredura lê do banco bem mais devagar do que inclui: um lote por vez sob a trava basta
+    private void incluir(FiltroCuckoo novo, long[] hashes, int quantidade) {
+        var carimbo = trava.writeLock();
+        try {
+            for (int i = 0; i < quantidade; i++) {
+                novo.adicionar(hashes[i]);
+            }
+        } finally {
+            trava.unlockWrite(carimbo);
+        }
+    }
+}
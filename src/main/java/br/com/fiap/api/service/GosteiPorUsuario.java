@@ -0,0 +1,318 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.exception.MensagemNotFoundException;
+import br.com.fiap.api.model.GosteiMensagem;
+import br.com.fiap.api.model.GosteiPendente;
+import br.com.fiap.api.model.SituacaoGostei;
+import br.com.fiap.api.repository.ContadorGostei;
+import br.com.fiap.api.repository.GosteiMensagemRepository;
+import br.com.fiap.api.repository.GosteiPendenteRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conjunto de usuários que deram gostei em cada mensagem, como Roaring bitmap sobre
+ * os índices de {@link IndiceUsuarios}. Pertinência e total são respondidos em memória.
+ * <p>
+ * O que fica gravado é só o bitmap compactado de {@link GosteiMensagem}. Cada gostei novo grava uma linha
+ * transitória em {@link GosteiPendente}; a cada {@code intervalo} os pendentes de até {@code tamanhoLote}
+ * mensagens entram no bitmap e saem da tabela, numa transação por mensagem. Assim não há uma linha permanente por
+ * gostei, e o gostei não reescreve o bitmap inteiro nem disputa a mesma linha com os outros da mensagem.
+ * <p>
+ * O gostei é idempotente sem trava na JVM e confere só o próprio usuário: a chave do pendente, e depois o bitmap
+ * consolidado, relido apenas quando a versão gravada mudou. Como a consolidação apaga os pendentes no mesmo
+ * commit que grava o bitmap, um gostei consolidado no meio do caminho aparece num dos dois. O conjunto completo
+ * da mensagem, com todos os pendentes, só é lido por {@link #consultar}.
+ */
+@Slf4j
+@Component
+public class GosteiPorUsuario implements AutoCloseable {
+
+    private static final int TENTATIVAS = 3;
+    private static final Gostei SEM_GOSTEI = new Gostei(null, new RoaringBitmap(), new RoaringBitmap(), false);
+
+    private final GosteiMensagemRepository gosteiMensagemRepository;
+    private final GosteiPendenteRepository gosteiPendenteRepository;
+    private final ContadorGostei contadorGostei;
+    private final IndiceUsuarios indiceUsuarios;
+    private final TransactionTemplate transacao;
+    private final Cache<UUID, Gostei> bitmaps;
+    private final int tamanhoLote;
+    private final ScheduledExecutorService agendador;
+
+    // nada publicado no cache é alterado: cada gostei novo copia só os pendentes, que são poucos. Incompleto
+    // tem só os pendentes gravados por esta instância, o bastante para o gostei repetido; consultar() lê o resto
+    private record Gostei(Long versao, RoaringBitmap consolidados, RoaringBitmap pendentes, boolean completo) {
+
+        boolean contem(int indice) {
+            return consolidados.contains(indice) || pendentes.contains(indice);
+        }
+
+        long total() {
+            return consolidados.getLongCardinality() + pendentes.getLongCardinality();
+        }
+
+        Gostei com(int indice) {
+            if (contem(indice)) {
+                return this;
+            }
+            var novos = pendentes.clone();
+            novos.add(indice);
+            return new Gostei(versao, consolidados, novos, completo);
+        }
+
+        // a consolidação só passa pendentes para o bitmap: o que já se sabia continua valendo
+        Gostei consolidado(Long novaVersao, RoaringBitmap novos) {
+            return new Gostei(novaVersao, novos, RoaringBitmap.andNot(pendentes, novos), completo);
+        }
+
+        int bytes() {
+            return consolidados.getSizeInBytes() + pendentes.getSizeInBytes();
+        }
+    }
+
+    // o nome do parâmetro escolhe o MensagemRepository entre as implementações de ContadorGostei;
+    // no perfil "fragmentado" o MensagemFragmentadaRepository é @Primary
+    public GosteiPorUsuario(GosteiMensagemRepository gosteiMensagemRepository,
+                            GosteiPendenteRepository gosteiPendenteRepository,
+                            ContadorGostei mensagemRepository,
+                            IndiceUsuarios indiceUsuarios,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${mensagem.gostei.cache-bitmaps:64MB}") DataSize tamanhoCache,
+                            @Value("${mensagem.gostei.expiracao:5m}") Duration expiracao,
+                            @Value("${mensagem.gostei.consolidacao.intervalo:10s}") Duration intervalo,
+                            @Value("${mensagem.gostei.consolidacao.tamanho-lote:500}") int tamanhoLote) {
+        this.gosteiMensagemRepository = gosteiMensagemRepository;
+        this.gosteiPendenteRepository = gosteiPendenteRepository;
+        this.contadorGostei = mensagemRepository;
+        this.indiceUsuarios = indiceUsuarios;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.bitmaps = Caffeine.newBuilder()
+                .maximumWeight(tamanhoCache.toBytes())
+                .<UUID, Gostei>weigher((id, gostei) -> gostei.bytes())
+                .expireAfterWrite(expiracao)
+                .build();
+        this.tamanhoLote = tamanhoLote;
+
+        this.agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            var thread = new Thread(tarefa, "consolidacao-gostei");
+            thread.setDaemon(true);
+            return thread;
+        });
+        agendador.scheduleWithFixedDelay(this::executar, intervalo.toNanos(), intervalo.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Registra o gostei do usuário na mensagem.
+     *
+     * @return {@code false} se o usuário já tinha dado gostei
+     */
+    public boolean adicionar(UUID mensagemId, String usuario) {
+        var indice = indiceUsuarios.obterOuCriar(usuario);
+        // o conjunto só cresce: se o cache já contém o usuário, não há o que gravar
+        var emCache = bitmaps.getIfPresent(mensagemId);
+        if (emCache != null && emCache.contem(indice)) {
+            return false;
+        }
+
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                return Boolean.TRUE.equals(transacao.execute(status -> {
+                    var novo = adicionarNaTransacao(mensagemId, indice);
+                    if (!novo) {
+                        status.setRollbackOnly();
+                    }
+                    return novo;
+                }));
+            } catch (DataIntegrityViolationException conflito) {
+                // o mesmo usuário em outra transação ao mesmo tempo: a próxima tentativa enxerga o pendente dela
+                if (tentativa == TENTATIVAS) {
+                    throw conflito;
+                }
+            }
+        }
+    }
+
+    public SituacaoGostei consultar(UUID mensagemId, String usuario) {
+        var gostei = bitmaps.getIfPresent(mensagemId);
+        if (gostei == null || !gostei.completo()) {
+            gostei = bitmaps.asMap().compute(mensagemId,
+                    (id, emCache) -> emCache != null && emCache.completo() ? emCache : ler(id));
+        }
+        var indice = indiceUsuarios.procurar(usuario);
+        return new SituacaoGostei(indice.isPresent() && gostei.contem(indice.getAsInt()), gostei.total());
+    }
+
+    /**
+     * Uma rodada de consolidação, a partir de agora: os pendentes de até {@code tamanhoLote} mensagens
+     * entram nos bitmaps.
+     *
+     * @return quantos gostei pendentes foram consolidados
+     */
+    public int consolidar() {
+        var total = 0;
+        for (var mensagemId : gosteiPendenteRepository.mensagensPendentes(PageRequest.of(0, tamanhoLote))) {
+            try {
+                total += transacao.execute(status -> consolidarNaTransacao(mensagemId));
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException conflito) {
+                // outra instância consolidou a mesma mensagem ao mesmo tempo; o que sobrou fica para a próxima rodada
+                log.debug("Consolidação concorrente dos gostei da mensagem {}", mensagemId);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Descarta o bitmap em memória da mensagem, alterada por outra instância.
+     */
+    public void descartar(UUID mensagemId) {
+        bitmaps.invalidate(mensagemId);
+    }
+
+    public void descartarTodos() {
+        bitmaps.invalidateAll();
+    }
+
+    @Override
+    public void close() {
+        agendador.shutdownNow();
+    }
+
+    void executar() {
+        try {
+            consolidar();
+        } catch (RuntimeException falha) {
+            // uma exceção aqui cancelaria as próximas rodadas agendadas
+            log.error("Falha na consolidação dos gostei pendentes", falha);
+        }
+    }
+
+    private boolean adicionarNaTransacao(UUID mensagemId, int indice) {
+        if (!contadorGostei.incrementarGostei(mensagemId)) {
+            throw new MensagemNotFoundException("Mensagem não encontrada");
+        }
+        // pendente antes do bitmap: a consolidação apaga os pendentes no mesmo commit que grava o bitmap
+        if (gosteiPendenteRepository.existsById(new GosteiPendente.Chave(mensagemId, indice))) {
+            return false;
+        }
+        var gravado = gravadoAtual(mensagemId);
+        if (gravado.contem(indice)) {
+            return false;
+        }
+        gosteiPendenteRepository.saveAndFlush(new GosteiPendente(mensagemId, indice));
+
+        var publicado = new Gostei(gravado.versao(), gravado.consolidados(), SEM_GOSTEI.pendentes(), false)
+                .com(indice);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bitmaps.asMap().merge(mensagemId, publicado, (emCache, novo) -> emCache.com(indice));
+            }
+        });
+        return true;
+    }
+
+    private int consolidarNaTransacao(UUID mensagemId) {
+        var usuarios = gosteiPendenteRepository.usuariosPendentes(mensagemId);
+        if (usuarios.isEmpty()) {
+            return 0;
+        }
+        var registro = gosteiMensagemRepository.findById(mensagemId)
+                .orElseGet(() -> new GosteiMensagem(mensagemId, null, null));
+        var consolidados = gravadoDe(registro).consolidados().clone();
+        usuarios.forEach(consolidados::add);
+        consolidados.runOptimize();
+        registro.setUsuarios(serializar(consolidados));
+        var versao = gosteiMensagemRepository.saveAndFlush(registro).getVersao();
+        if (gosteiPendenteRepository.apagar(mensagemId, usuarios) < usuarios.size()) {
+            // outra consolidação, o expurgo ou o arquivamento levou os pendentes: o bitmap gravado aqui sobraria
+            throw new OptimisticLockingFailureException("Gostei pendentes da mensagem " + mensagemId + " já apagados");
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bitmaps.asMap().computeIfPresent(mensagemId, (id, atual) -> atual.consolidado(versao, consolidados));
+            }
+        });
+        return usuarios.size();
+    }
+
+    // só lê o bitmap gravado quando a versão em memória ficou para trás; o lido vai para o cache, para o próximo
+    // gostei da mensagem não lê-lo de novo
+    private Gostei gravadoAtual(UUID mensagemId) {
+        var versao = gosteiMensagemRepository.versao(mensagemId);
+        if (versao.isEmpty()) {
+            return SEM_GOSTEI;
+        }
+        var emCache = bitmaps.getIfPresent(mensagemId);
+        if (emCache != null && versao.get().equals(emCache.versao())) {
+            return emCache;
+        }
+        var gravado = gravado(mensagemId);
+        if (gravado.versao() != null) {
+            var lido = new Gostei(gravado.versao(), gravado.consolidados(), SEM_GOSTEI.pendentes(), false);
+            bitmaps.asMap().merge(mensagemId, lido, (atual, novo) -> atual.versao() != null
+                    && atual.versao() >= novo.versao() ? atual : atual.consolidado(novo.versao(), novo.consolidados()));
+        }
+        return gravado;
+    }
+
+    private Gostei gravado(UUID mensagemId) {
+        return gosteiMensagemRepository.findById(mensagemId).map(this::gravadoDe).orElse(SEM_GOSTEI);
+    }
+
+    // pendentes antes do bitmap, pelo mesmo motivo do gostei; um usuário nos dois conta uma vez só
+    private Gostei ler(UUID mensagemId) {
+        var pendentes = new RoaringBitmap();
+        gosteiPendenteRepository.usuariosPendentes(mensagemId).forEach(pendentes::add);
+        var gravado = gravado(mensagemId);
+        var consolidados = gravado.consolidados();
+        return new Gostei(gravado.versao(), consolidados, RoaringBitmap.andNot(pendentes, consolidados), true);
+    }
+
+    // reaproveita o bitmap em cache quando a versão gravada é a mesma
+    private Gostei gravadoDe(GosteiMensagem registro) {
+        if (registro.getVersao() == null) {
+            return SEM_GOSTEI;
+        }
+        var emCache = bitmaps.getIfPresent(registro.getMensagemId());
+        if (emCache != null && registro.getVersao().equals(emCache.versao())) {
+            return new Gostei(emCache.versao(), emCache.consolidados(), SEM_GOSTEI.pendentes(), false);
+        }
+        var usuarios = new RoaringBitmap();
+        try {
+            usuarios.deserialize(ByteBuffer.wrap(registro.getUsuarios()));
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+        return new Gostei(registro.getVersao(), usuarios, SEM_GOSTEI.pendentes(), false);
+    }
+
+    private static byte[] serializar(RoaringBitmap usuarios) {
+        var buffer = ByteBuffer.allocate(usuarios.serializedSizeInBytes());
+        usuarios.serialize(buffer);
+        return buffer.array();
+    }
+}
@@ -0,0 +1,65 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.IndiceUsuario;
+import br.com.fiap.api.repository.IndiceUsuarioRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.OptionalInt;
+
+/**
+ * Mapeia o nome do usuário para um índice inteiro denso (1, 2, 3...), que é a posição
+ * do usuário nos bitmaps de gostei. O mapeamento nunca muda, então pode ficar em memória.
+ */
+@Component
+public class IndiceUsuarios {
+
+    private final IndiceUsuarioRepository indiceUsuarioRepository;
+    private final TransactionTemplate novaTransacao;
+    private final Cache<String, Integer> indices;
+
+    public IndiceUsuarios(IndiceUsuarioRepository indiceUsuarioRepository,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${mensagem.gostei.max-usuarios-em-memoria:100000}") long maxUsuariosEmMemoria) {
+        this.indiceUsuarioRepository = indiceUsuarioRepository;
+        this.novaTransacao = new TransactionTemplate(transactionManager);
+        this.novaTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.indices = Caffeine.newBuilder().maximumSize(maxUsuariosEmMemoria).build();
+    }
+
+    public int obterOuCriar(String usuario) {
+        var indice = procurar(usuario);
+        if (indice.isPresent()) {
+            return indice.getAsInt();
+        }
+        int criado;
+        try {
+            criado = novaTransacao.execute(status ->
+                    indiceUsuarioRepository.saveAndFlush(new IndiceUsuario(null, usuario)).getIndice());
+        } catch (DataIntegrityViolationException usuarioJaCriado) {
+            // outra requisição criou o mesmo usuário primeiro
+            criado = indiceUsuarioRepository.findByUsuario(usuario).orElseThrow().getIndice();
+        }
+        indices.put(usuario, criado);
+        return criado;
+    }
+
+    public OptionalInt procurar(String usuario) {
+        var indice = indices.getIfPresent(usuario);
+        if (indice != null) {
+            return OptionalInt.of(indice);
+        }
+        var encontrado = indiceUsuarioRepository.findByUsuario(usuario);
+        if (encontrado.isEmpty()) {
+            return OptionalInt.empty();
+        }
+        indices.put(usuario, encontrado.get().getIndice());
+        return OptionalInt.of(encontrado.get().getIndice());
+    }
+}
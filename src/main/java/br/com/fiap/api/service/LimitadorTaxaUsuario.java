@@ -0,0 +1,128 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.exception.LimiteTaxaExcedidoException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Balde de fichas por usuário para limitar a taxa de escrita.
+ * Os baldes ficam em faixas com trava própria (LinkedHashMap em ordem de acesso):
+ * cada faixa tem tamanho máximo, descarta o usuário menos recente ao lotar
+ * e remove baldes ociosos a cada acesso.
+ */
+public class LimitadorTaxaUsuario {
+
+    private static final long NANOS_POR_SEGUNDO = TimeUnit.SECONDS.toNanos(1);
+
+    private final Faixa[] faixas;
+    private final int mascara;
+    private final double capacidade;
+    private final double fichasPorNano;
+    private final long ociosidadeNanos;
+    private final LongSupplier relogio;
+
+    public LimitadorTaxaUsuario(int capacidade, double reposicaoPorSegundo, int maxUsuarios,
+                                long ociosidadeNanos, int quantidadeFaixas, LongSupplier relogio) {
+        if (capacidade < 1 || reposicaoPorSegundo <= 0 || quantidadeFaixas < 1 || maxUsuarios < quantidadeFaixas) {
+            throw new IllegalArgumentException("Configuração do limite de taxa inválida");
+        }
+        var totalFaixas = Integer.highestOneBit(quantidadeFaixas);
+        this.faixas = new Faixa[totalFaixas];
+        for (int i = 0; i < totalFaixas; i++) {
+            faixas[i] = new Faixa(Math.max(1, maxUsuarios / totalFaixas));
+        }
+        this.mascara = totalFaixas - 1;
+        this.capacidade = capacidade;
+        this.fichasPorNano = reposicaoPorSegundo / NANOS_POR_SEGUNDO;
+        this.ociosidadeNanos = ociosidadeNanos;
+        this.relogio = relogio;
+    }
+
+    /**
+     * Consome uma ficha do usuário ou lança {@link LimiteTaxaExcedidoException}.
+     */
+    public void consumir(String usuario) {
+        var espera = tentarConsumir(usuario);
+        if (espera > 0) {
+            var esperaSegundos = Math.max(1, (espera + NANOS_POR_SEGUNDO - 1) / NANOS_POR_SEGUNDO);
+            throw new LimiteTaxaExcedidoException("Limite de mensagens por usuário excedido", esperaSegundos);
+        }
+    }
+
+    /**
+     * Consome uma ficha do usuário.
+     *
+     * @return 0 se permitido; senão, nanossegundos até a próxima ficha
+     */
+    public long tentarConsumir(String usuario) {
+        var chave = usuario == null ? "" : usuario;
+        var hash = chave.hashCode();
+        var faixa = faixas[(hash ^ (hash >>> 16)) & mascara];
+        var agora = relogio.getAsLong();
+
+        synchronized (faixa) {
+            faixa.removerOcioso(agora, ociosidadeNanos);
+            var balde = faixa.get(chave);
+            if (balde == null) {
+                balde = new Balde(capacidade, agora);
+                faixa.put(chave, balde);
+            } else {
+                balde.fichas = Math.min(capacidade, balde.fichas + (agora - balde.ultimaReposicao) * fichasPorNano);
+                balde.ultimaReposicao = agora;
+            }
+            if (balde.fichas >= 1) {
+                balde.fichas -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - balde.fichas) / fichasPorNano);
+        }
+    }
+
+    public int usuariosMonitorados() {
+        var total = 0;
+        for (var faixa : faixas) {
+            synchronized (faixa) {
+                total += faixa.size();
+            }
+        }
+        return total;
+    }
+
+    private static final class Balde {
+        private double fichas;
+        private long ultimaReposicao;
+
+        private Balde(double fichas, long ultimaReposicao) {
+            this.fichas = fichas;
+            this.ultimaReposicao = ultimaReposicao;
+        }
+    }
+
+    private static final class Faixa extends LinkedHashMap<String, Balde> {
+        private final int tamanhoMaximo;
+
+        private Faixa(int tamanhoMaximo) {
+            super(16, 0.75f, true);
+            this.tamanhoMaximo = tamanhoMaximo;
+        }
+
+        // em ordem de acesso o primeiro é o menos recente: basta olhar a cabeça
+        private void removerOcioso(long agora, long ociosidadeNanos) {
+            if (isEmpty()) {
+                return;
+            }
+            var iterador = values().iterator();
+            if (agora - iterador.next().ultimaReposicao > ociosidadeNanos) {
+                iterador.remove();
+            }
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Balde> maisAntigo) {
+            return size() > tamanhoMaximo;
+        }
+    }
+}
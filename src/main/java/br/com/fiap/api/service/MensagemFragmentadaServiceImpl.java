@@ -0,0 +1,149 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.exception.MensagemNotFoundException;
+import br.com.fiap.api.model.EstrategiaContagem;
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.model.JanelaTendencia;
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.model.MensagemEmAlta;
+import br.com.fiap.api.model.PaginaMensagens;
+import br.com.fiap.api.model.ResultadoBuscaMensagem;
+import br.com.fiap.api.model.SituacaoGostei;
+import br.com.fiap.api.repository.MensagemFragmentadaRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static br.com.fiap.api.service.MensagemServiceImpl.LIMITE_BUSCA_VARIAS;
+
+@Service
+@Profile("fragmentado")
+@RequiredArgsConstructor
+public class MensagemFragmentadaServiceImpl implements MensagemService {
+
+    private final MensagemFragmentadaRepository mensagemRepository;
+
+    private final LimitadorTaxaUsuario limitadorTaxa;
+
+    private final TendenciasGostei tendencias;
+
+    private final GosteiPorUsuario gosteiPorUsuario;
+
+    private final ApplicationEventPublisher eventos;
+
+    private final ChamadaUnica<UUID, Optional<Mensagem>> buscasEmAndamento = new ChamadaUnica<>();
+
+    @Override
+    public Mensagem registrarMensagem(Mensagem mensagem) {
+        limitadorTaxa.consumir(mensagem.getUsuario());
+        mensagem.setId(UUID.randomUUID());
+        mensagem.setDataCriacao(LocalDateTime.now());
+        var mensagemRegistrada = mensagemRepository.inserir(mensagem);
+        eventos.publishEvent(EventoMensagem.registrada(mensagemRegistrada));
+        return mensagemRegistrada;
+    }
+
+    @Override
+    public Mensagem buscarMensagem(UUID id) {
+        return procurarMensagem(id)
+                .orElseThrow(() -> new MensagemNotFoundException("Mensagem não encontrada"));
+    }
+
+    @Override
+    public Optional<Mensagem> procurarMensagem(UUID id) {
+        return buscasEmAndamento.executar(id, () -> mensagemRepository.buscarPorId(id));
+    }
+
+    @Override
+    public List<ResultadoBuscaMensagem> buscarMensagens(List<UUID> ids) {
+        if (ids.size() > LIMITE_BUSCA_VARIAS) {
+            throw new IllegalArgumentException("Quantidade de ids excede o limite de " + LIMITE_BUSCA_VARIAS);
+        }
+        var encontradas = mensagemRepository.buscarPorIds(ids);
+        var resultados = new ArrayList<ResultadoBuscaMensagem>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            resultados.add(encontradas.get(i) != null
+                    ? ResultadoBuscaMensagem.encontrada(encontradas.get(i))
+                    : ResultadoBuscaMensagem.naoEncontrada(ids.get(i)));
+        }
+        return resultados;
+    }
+
+    @Override
+    public Mensagem alterarMensagem(UUID id, Mensagem mensagemAtualizada) {
+        var mensagem = buscarMensagem(id);
+        if (!mensagem.getId().equals(mensagemAtualizada.getId())) {
+            throw new MensagemNotFoundException("Mensagem atualizada não apresenta o ID correto");
+        }
+        if (!mensagemRepository.alterarConteudo(id, mensagemAtualizada.getConteudo())) {
+            throw new MensagemNotFoundException("Mensagem não encontrada");
+        }
+        mensagem.setConteudo(mensagemAtualizada.getConteudo());
+        eventos.publishEvent(EventoMensagem.alterada(mensagem));
+        return mensagem;
+    }
+
+    @Override
+    public boolean removerMensagem(UUID id) {
+        if (!mensagemRepository.remover(id)) {
+            throw new MensagemNotFoundException("Mensagem não encontrada");
+        }
+        eventos.publishEvent(EventoMensagem.removida(id));
+        return true;
+    }
+
+    @Override
+    public Page<Mensagem> listarMensagem(Pageable pageable) {
+        return listarMensagem(pageable, EstrategiaContagem.EXATA);
+    }
+
+    // o total já vem da soma dos COUNT(*) feitos em paralelo com as páginas de cada fragmento
+    @Override
+    public Page<Mensagem> listarMensagem(Pageable pageable, EstrategiaContagem contagem) {
+        var pagina = mensagemRepository.listar(pageable);
+        return new PaginaMensagens(pagina.getContent(), pageable, pagina.getTotalElements(), EstrategiaContagem.EXATA);
+    }
+
+    @Override
+    public boolean registrarGostei(UUID id, String usuario) {
+        var novo = gosteiPorUsuario.adicionar(id, usuario);
+        if (novo) {
+            tendencias.registrar(id);
+            eventos.publishEvent(EventoMensagem.gostei(id, usuario));
+        }
+        return novo;
+    }
+
+    @Override
+    public SituacaoGostei consultarGostei(UUID id, String usuario) {
+        buscarMensagem(id);
+        return gosteiPorUsuario.consultar(id, usuario);
+    }
+
+    @Override
+    public List<MensagemEmAlta> listarEmAlta(JanelaTendencia janela, int quantidade) {
+        var contagens = tendencias.maisGostadas(janela, quantidade);
+        if (contagens.isEmpty()) {
+            return List.of();
+        }
+        var mensagens = mensagemRepository.buscarPorIds(
+                contagens.stream().map(ContadorJanelaDeslizante.Contagem::id).toList());
+
+        var emAlta = new ArrayList<MensagemEmAlta>(contagens.size());
+        for (int i = 0; i < contagens.size(); i++) {
+            if (mensagens.get(i) != null) {
+                emAlta.add(new MensagemEmAlta(mensagens.get(i), contagens.get(i).quantidade()));
+            }
+        }
+        return emAlta;
+    }
+}
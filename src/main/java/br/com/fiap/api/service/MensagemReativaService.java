@@ -0,0 +1,37 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.JanelaTendencia;
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.model.MensagemEmAlta;
+import br.com.fiap.api.model.ResultadoBuscaMensagem;
+import br.com.fiap.api.model.SituacaoGostei;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface MensagemReativaService {
+
+    Mono<Mensagem> registrarMensagem(Mensagem mensagem);
+
+    Mono<Mensagem> buscarMensagem(UUID id);
+
+    Mono<List<ResultadoBuscaMensagem>> buscarMensagens(List<UUID> ids);
+
+    Mono<Mensagem> alterarMensagem(UUID id, Mensagem mensagemNova);
+
+    Mono<Boolean> removerMensagem(UUID id);
+
+    Mono<Page<Mensagem>> listarMensagem(Pageable pageable);
+
+    Flux<Mensagem> transmitirMensagens(Pageable pageable);
+
+    Mono<Boolean> registrarGostei(UUID id, String usuario);
+
+    Mono<SituacaoGostei> consultarGostei(UUID id, String usuario);
+
+    Mono<List<MensagemEmAlta>> listarEmAlta(JanelaTendencia janela, int quantidade);
+}
@@ -0,0 +1,203 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.exception.MensagemNotFoundException;
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.model.JanelaTendencia;
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.model.MensagemEmAlta;
+import br.com.fiap.api.model.ResultadoBuscaMensagem;
+import br.com.fiap.api.model.SituacaoGostei;
+import br.com.fiap.api.repository.ArquivoMensagens;
+import br.com.fiap.api.repository.MensagemReativaRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static br.com.fiap.api.service.MensagemServiceImpl.LIMITE_BUSCA_VARIAS;
+
+/**
+ * Mesmo contrato de {@code /mensagens} do {@link MensagemServiceImpl}, inclusive para as mensagens que o
+ * {@link ArquivamentoMensagens} tirou da tabela: busca e listagem continuam no {@link ArquivoMensagens}, lido fora
+ * do event loop. Como lá, as arquivadas não são alteradas nem removidas.
+ */
+@Service
+@Profile("reativo")
+@RequiredArgsConstructor
+public class MensagemReativaServiceImpl implements MensagemReativaService {
+
+    // demanda máxima repassada ao driver por vez ao transmitir a listagem
+    static final int LOTE_TRANSMISSAO = 256;
+
+    private final MensagemReativaRepository mensagemRepository;
+
+    private final LimitadorTaxaUsuario limitadorTaxa;
+
+    private final TendenciasGostei tendencias;
+
+    private final GosteiPorUsuario gosteiPorUsuario;
+
+    private final ApplicationEventPublisher eventos;
+
+    private final ArquivoMensagens arquivo;
+
+    @Override
+    public Mono<Mensagem> registrarMensagem(Mensagem mensagem) {
+        return Mono.defer(() -> {
+            limitadorTaxa.consumir(mensagem.getUsuario());
+            mensagem.setId(UUID.randomUUID());
+            mensagem.setDataCriacao(LocalDateTime.now());
+            return mensagemRepository.inserir(mensagem);
+        }).doOnNext(registrada -> eventos.publishEvent(EventoMensagem.registrada(registrada)));
+    }
+
+    @Override
+    public Mono<Mensagem> buscarMensagem(UUID id) {
+        return mensagemRepository.buscarPorId(id)
+                .switchIfEmpty(buscarNoArquivo(id))
+                .switchIfEmpty(Mono.error(() -> new MensagemNotFoundException("Mensagem não encontrada")));
+    }
+
+    @Override
+    public Mono<List<ResultadoBuscaMensagem>> buscarMensagens(List<UUID> ids) {
+        if (ids.size() > LIMITE_BUSCA_VARIAS) {
+            return Mono.error(new IllegalArgumentException("Quantidade de ids excede o limite de " + LIMITE_BUSCA_VARIAS));
+        }
+        var idsDistintos = new LinkedHashSet<UUID>(ids);
+        idsDistintos.remove(null);
+        if (idsDistintos.isEmpty()) {
+            return Mono.just(ids.stream().map(ResultadoBuscaMensagem::naoEncontrada).toList());
+        }
+        return mensagemRepository.buscarPorIds(idsDistintos)
+                .collectMap(Mensagem::getId, Function.identity())
+                .flatMap(encontradas -> completarComArquivo(idsDistintos, encontradas))
+                .map(encontradas -> ids.stream()
+                        .map(id -> id != null && encontradas.containsKey(id)
+                                ? ResultadoBuscaMensagem.encontrada(encontradas.get(id))
+                                : ResultadoBuscaMensagem.naoEncontrada(id))
+                        .toList());
+    }
+
+    @Override
+    public Mono<Mensagem> alterarMensagem(UUID id, Mensagem mensagemAtualizada) {
+        // arquivadas não são alteradas: só a tabela
+        return mensagemRepository.buscarPorId(id)
+                .switchIfEmpty(Mono.error(() -> new MensagemNotFoundException("Mensagem não encontrada")))
+                .flatMap(mensagem -> {
+                    if (!mensagem.getId().equals(mensagemAtualizada.getId())) {
+                        return Mono.error(
+                                new MensagemNotFoundException("Mensagem atualizada não apresenta o ID correto"));
+                    }
+                    mensagem.setConteudo(mensagemAtualizada.getConteudo());
+                    return mensagemRepository.atualizarConteudo(id, mensagem.getConteudo()).thenReturn(mensagem);
+                }).doOnNext(alterada -> eventos.publishEvent(EventoMensagem.alterada(alterada)));
+    }
+
+    @Override
+    public Mono<Boolean> removerMensagem(UUID id) {
+        return mensagemRepository.remover(id, LocalDateTime.now()).flatMap(removidas -> removidas == 0
+                ? Mono.error(new MensagemNotFoundException("Mensagem não encontrada"))
+                : Mono.just(true))
+                .doOnNext(removida -> eventos.publishEvent(EventoMensagem.removida(id)));
+    }
+
+    @Override
+    public Mono<Page<Mensagem>> listarMensagem(Pageable pageable) {
+        return Mono.zip(transmitirMensagens(pageable).collectList(), mensagemRepository.contar())
+                .map(pagina -> new PageImpl<>(pagina.getT1(), pageable, pagina.getT2() + arquivo.total()));
+    }
+
+    // as arquivadas são todas mais antigas que as da tabela: a listagem continua no arquivo onde a tabela acaba
+    @Override
+    public Flux<Mensagem> transmitirMensagens(Pageable pageable) {
+        var daTabela = new AtomicInteger();
+        return mensagemRepository.listar(pageable.getOffset(), pageable.getPageSize())
+                .limitRate(LOTE_TRANSMISSAO)
+                .doOnNext(mensagem -> daTabela.incrementAndGet())
+                .concatWith(Flux.defer(() -> continuarNoArquivo(pageable, daTabela.get())));
+    }
+
+    private Flux<Mensagem> continuarNoArquivo(Pageable pageable, int daTabela) {
+        if (daTabela == pageable.getPageSize() || arquivo.total() == 0) {
+            return Flux.empty();
+        }
+        // sem nenhuma linha da tabela na página, o deslocamento no arquivo depende do total da tabela
+        var inicio = daTabela > 0
+                ? Mono.just(0L)
+                : mensagemRepository.contar().map(tabela -> Math.max(0, pageable.getOffset() - tabela));
+        return inicio.flatMapMany(deslocamento -> Mono.fromCallable(
+                        () -> arquivo.listar(deslocamento, pageable.getPageSize() - daTabela))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapIterable(Function.identity()));
+    }
+
+    @Override
+    public Mono<Boolean> registrarGostei(UUID id, String usuario) {
+        // o bitmap de gostei é transacional (JPA): roda fora do event loop
+        return Mono.fromCallable(() -> gosteiPorUsuario.adicionar(id, usuario))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(novo -> {
+                    if (novo) {
+                        tendencias.registrar(id);
+                        eventos.publishEvent(EventoMensagem.gostei(id, usuario));
+                    }
+                });
+    }
+
+    @Override
+    public Mono<SituacaoGostei> consultarGostei(UUID id, String usuario) {
+        return buscarMensagem(id).then(Mono.fromCallable(() -> gosteiPorUsuario.consultar(id, usuario))
+                .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    @Override
+    public Mono<List<MensagemEmAlta>> listarEmAlta(JanelaTendencia janela, int quantidade) {
+        var contagens = tendencias.maisGostadas(janela, quantidade);
+        if (contagens.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        var ids = contagens.stream().map(ContadorJanelaDeslizante.Contagem::id).toList();
+        return mensagemRepository.buscarPorIds(ids)
+                .collectMap(Mensagem::getId, Function.identity())
+                .flatMap(encontradas -> completarComArquivo(ids, encontradas))
+                .map(encontradas -> contagens.stream()
+                        .filter(contagem -> encontradas.containsKey(contagem.id()))
+                        .map(contagem -> new MensagemEmAlta(encontradas.get(contagem.id()), contagem.quantidade()))
+                        .toList());
+    }
+
+    // o arquivo lê e descompacta blocos em disco: fora do event loop
+    private Mono<Mensagem> buscarNoArquivo(UUID id) {
+        return Mono.fromCallable(() -> arquivo.buscar(id).orElse(null))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Map<UUID, Mensagem>> completarComArquivo(Collection<UUID> ids, Map<UUID, Mensagem> encontradas) {
+        if (encontradas.size() == ids.size() || arquivo.total() == 0) {
+            return Mono.just(encontradas);
+        }
+        return Mono.fromCallable(() -> {
+            for (var id : ids) {
+                if (!encontradas.containsKey(id)) {
+                    arquivo.buscar(id).ifPresent(mensagem -> encontradas.put(id, mensagem));
+                }
+            }
+            return encontradas;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -1,10 +1,16 @@
 package br.com.fiap.api.service;
 
+import br.com.fiap.api.model.EstrategiaContagem;
+import br.com.fiap.api.model.JanelaTendencia;
 import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.model.MensagemEmAlta;
+import br.com.fiap.api.model.ResultadoBuscaMensagem;
+import br.com.fiap.api.model.SituacaoGostei;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface MensagemService {
@@ -13,9 +19,21 @@ public interface MensagemService {
 
     Mensagem buscarMensagem(UUID id);
 
+    Optional<Mensagem> procurarMensagem(UUID id);
+
+    List<ResultadoBuscaMensagem> buscarMensagens(List<UUID> ids);
+
     Mensagem alterarMensagem(UUID id,  Mensagem mensagemNova);
 
     boolean removerMensagem(UUID id);
 
     Page<Mensagem> listarMensagem(Pageable pageable);
+
+    Page<Mensagem> listarMensagem(Pageable pageable, EstrategiaContagem contagem);
+
+    boolean registrarGostei(UUID id, String usuario);
+
+    SituacaoGostei consultarGostei(UUID id, String usuario);
+
+    List<MensagemEmAlta> listarEmAlta(JanelaTendencia janela, int quantidade);
 }
\ No newline at end of file
@@ -1,52 +1,224 @@
 package br.com.fiap.api.service;
 
 import br.com.fiap.api.exception.MensagemNotFoundException;
+import br.com.fiap.api.model.EstrategiaContagem;
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.model.JanelaTendencia;
 import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.model.MensagemEmAlta;
+import br.com.fiap.api.model.PaginaMensagens;
+import br.com.fiap.api.model.ResultadoBuscaMensagem;
+import br.com.fiap.api.model.SituacaoGostei;
+import br.com.fiap.api.repository.ArquivoMensagens;
 import br.com.fiap.api.repository.MensagemRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
+@Profile("!fragmentado")
 @RequiredArgsConstructor
 public class MensagemServiceImpl implements MensagemService {
 
+    static final int LIMITE_BUSCA_VARIAS = 500;
+
     private final MensagemRepository mensagemRepository;
 
+    private final LimitadorTaxaUsuario limitadorTaxa;
+
+    private final TendenciasGostei tendencias;
+
+    private final GosteiPorUsuario gosteiPorUsuario;
+
+    private final ApplicationEventPublisher eventos;
+
+    private final ContagemMensagens contagemMensagens;
+
+    // mensagens antigas que saíram da tabela; ver ArquivamentoMensagens
+    private final ArquivoMensagens arquivo;
+
+    // ids que ele recusa não estão na tabela: nem chegam ao banco
+    private final FiltroIdsMensagens filtroIds;
+
+    private final ChamadaUnica<UUID, Optional<Mensagem>> buscasEmAndamento = new ChamadaUnica<>();
+
     @Override
     public Mensagem registrarMensagem(Mensagem mensagem) {
+        limitadorTaxa.consumir(mensagem.getUsuario());
         mensagem.setId(UUID.randomUUID());
-        return mensagemRepository.save(mensagem);
+        var mensagemRegistrada = mensagemRepository.save(mensagem);
+        eventos.publishEvent(EventoMensagem.registrada(mensagemRegistrada));
+        return mensagemRegistrada;
     }
 
     @Override
     public Mensagem buscarMensagem(UUID id) {
-        return mensagemRepository.findById(id)
+        return procurarMensagem(id)
                 .orElseThrow(() -> new MensagemNotFoundException("Mensagem não encontrada"));
     }
 
+    @Override
+    public Optional<Mensagem> procurarMensagem(UUID id) {
+        if (!filtroIds.podeConter(id)) {
+            // o arquivo fica em disco local e tem índice próprio
+            return arquivo.buscar(id);
+        }
+        // dentro de uma transação a entidade pertence ao contexto de persistência do chamador
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return mensagemRepository.findById(id).or(() -> arquivo.buscar(id));
+        }
+        return buscasEmAndamento.executar(id, () -> mensagemRepository.findById(id).or(() -> arquivo.buscar(id)));
+    }
+
+    @Override
+    public List<ResultadoBuscaMensagem> buscarMensagens(List<UUID> ids) {
+        if (ids.size() > LIMITE_BUSCA_VARIAS) {
+            throw new IllegalArgumentException("Quantidade de ids excede o limite de " + LIMITE_BUSCA_VARIAS);
+        }
+        var idsDistintos = new LinkedHashSet<UUID>(ids);
+        idsDistintos.remove(null);
+
+        var encontradas = new HashMap<UUID, Mensagem>();
+        var naTabela = idsDistintos.stream().filter(filtroIds::podeConter).toList();
+        if (!naTabela.isEmpty()) {
+            mensagemRepository.buscarPorIds(naTabela).stream()
+                    .filter(Objects::nonNull)
+                    .forEach(mensagem -> encontradas.put(mensagem.getId(), mensagem));
+        }
+        idsDistintos.stream()
+                .filter(id -> !encontradas.containsKey(id))
+                .forEach(id -> arquivo.buscar(id).ifPresent(mensagem -> encontradas.put(id, mensagem)));
+
+        var resultados = new ArrayList<ResultadoBuscaMensagem>(ids.size());
+        for (var id : ids) {
+            var mensagem = id == null ? null : encontradas.get(id);
+            resultados.add(mensagem != null
+                    ? ResultadoBuscaMensagem.encontrada(mensagem)
+                    : ResultadoBuscaMensagem.naoEncontrada(id));
+        }
+        return resultados;
+    }
+
     @Override
     public Mensagem alterarMensagem(UUID id, Mensagem mensagemAtualizada) {
-        var mensagem = buscarMensagem(id);
+        var mensagem = carregarParaEscrita(id);
         if(!mensagem.getId().equals(mensagemAtualizada.getId())){
             throw new MensagemNotFoundException("Mensagem atualizada não apresenta o ID correto");
         }
         mensagem.setConteudo(mensagemAtualizada.getConteudo());
-        return mensagemRepository.save(mensagem);
+        var mensagemAlterada = mensagemRepository.save(mensagem);
+        eventos.publishEvent(EventoMensagem.alterada(mensagemAlterada));
+        return mensagemAlterada;
     }
 
     @Override
+    @Transactional
     public boolean removerMensagem(UUID id) {
-        buscarMensagem(id);
-        mensagemRepository.deleteById(id);
+        // só marca a linha; o DELETE e a manutenção dos índices ficam para o ExpurgoMensagens
+        if (!filtroIds.podeConter(id) || !mensagemRepository.marcarRemovida(id, LocalDateTime.now())) {
+            throw new MensagemNotFoundException("Mensagem não encontrada");
+        }
+        eventos.publishEvent(EventoMensagem.removida(id));
         return true;
     }
 
     @Override
     public Page<Mensagem> listarMensagem(Pageable pageable) {
-        return mensagemRepository.listarMensagens(pageable);
+        return listarMensagem(pageable, contagemMensagens.padrao());
+    }
+
+    @Override
+    public Page<Mensagem> listarMensagem(Pageable pageable, EstrategiaContagem contagem) {
+        if (contagem == EstrategiaContagem.EXATA) {
+            var pagina = mensagemRepository.listarMensagens(pageable);
+            return completarComArquivo(pagina.getContent(), pageable, pagina.getTotalElements(), EstrategiaContagem.EXATA);
+        }
+        var conteudo = mensagemRepository.listarPagina(pageable);
+        // página incompleta e não vazia: o total sai dela, sem contagem
+        if (pageable.isUnpaged() || !conteudo.isEmpty() && conteudo.size() < pageable.getPageSize()) {
+            var total = pageable.isUnpaged() ? conteudo.size() : pageable.getOffset() + conteudo.size();
+            return completarComArquivo(conteudo, pageable, total, EstrategiaContagem.EXATA);
+        }
+        var total = contagemMensagens.contar(contagem);
+        return completarComArquivo(conteudo, pageable, total.total(), total.precisao());
+    }
+
+    // as arquivadas são todas mais antigas que as da tabela: a listagem continua no arquivo onde a tabela acaba
+    private Page<Mensagem> completarComArquivo(List<Mensagem> conteudo, Pageable pageable, long totalTabela,
+                                               EstrategiaContagem precisao) {
+        var arquivadas = arquivo.total();
+        if (arquivadas == 0 || pageable.isPaged() && conteudo.size() == pageable.getPageSize()) {
+            return new PaginaMensagens(conteudo, pageable, totalTabela + arquivadas, precisao);
+        }
+        long inicio = 0;
+        if (conteudo.isEmpty() && pageable.isPaged()) {
+            // sem nenhuma linha da tabela na página, o deslocamento no arquivo depende do total exato da tabela
+            var tabela = precisao == EstrategiaContagem.EXATA ? totalTabela : mensagemRepository.count();
+            inicio = Math.max(0, pageable.getOffset() - tabela);
+        }
+        var quantidade = pageable.isPaged() ? pageable.getPageSize() - conteudo.size() : Integer.MAX_VALUE;
+        var completa = new ArrayList<Mensagem>(conteudo);
+        completa.addAll(arquivo.listar(inicio, quantidade));
+        return new PaginaMensagens(completa, pageable, totalTabela + arquivadas, precisao);
+    }
+
+    @Override
+    public boolean registrarGostei(UUID id, String usuario) {
+        var novo = gosteiPorUsuario.adicionar(id, usuario);
+        if (novo) {
+            tendencias.registrar(id);
+            eventos.publishEvent(EventoMensagem.gostei(id, usuario));
+        }
+        return novo;
+    }
+
+    @Override
+    public SituacaoGostei consultarGostei(UUID id, String usuario) {
+        buscarMensagem(id);
+        return gosteiPorUsuario.consultar(id, usuario);
+    }
+
+    @Override
+    public List<MensagemEmAlta> listarEmAlta(JanelaTendencia janela, int quantidade) {
+        var contagens = tendencias.maisGostadas(janela, quantidade);
+        if (contagens.isEmpty()) {
+            return List.of();
+        }
+        var mensagens = mensagemRepository.buscarPorIds(
+                contagens.stream().map(ContadorJanelaDeslizante.Contagem::id).toList());
+
+        var emAlta = new ArrayList<MensagemEmAlta>(contagens.size());
+        for (int i = 0; i < contagens.size(); i++) {
+            // mensagens removidas depois do gostei ficam de fora
+            var mensagem = mensagens.get(i) != null
+                    ? Optional.of(mensagens.get(i))
+                    : arquivo.buscar(contagens.get(i).id());
+            var gostei = contagens.get(i).quantidade();
+            mensagem.ifPresent(encontrada -> emAlta.add(new MensagemEmAlta(encontrada, gostei)));
+        }
+        return emAlta;
+    }
+
+    private Mensagem carregarParaEscrita(UUID id) {
+        // arquivadas não são alteradas: o filtro basta
+        if (!filtroIds.podeConter(id)) {
+            throw new MensagemNotFoundException("Mensagem não encontrada");
+        }
+        return mensagemRepository.findById(id)
+                .orElseThrow(() -> new MensagemNotFoundException("Mensagem não encontrada"));
     }
 }
@@ -0,0 +1,31 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.repository.LogEventos;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Leva ao {@link LogEventos} os eventos publicados pelos serviços de mensagem.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RegistradorEventos {
+
+    private final LogEventos logEventos;
+
+    // só depois do commit: uma alteração desfeita nunca chega aos consumidores.
+    // Fora de transação o evento é anexado na hora.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void registrar(EventoMensagem evento) {
+        try {
+            logEventos.anexar(evento);
+        } catch (RuntimeException falha) {
+            // a mudança já está confirmada no banco: falhar a requisição só levaria o cliente a repeti-la
+            log.error("Falha ao anexar evento {} da mensagem {} ao log", evento.tipo(), evento.mensagemId(), falha);
+        }
+    }
+}
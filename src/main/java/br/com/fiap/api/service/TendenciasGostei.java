@@ -0,0 +1,43 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.JanelaTendencia;
+import br.com.fiap.api.service.ContadorJanelaDeslizante.Contagem;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Mantém em memória as mensagens mais gostadas de cada {@link JanelaTendencia},
+ * alimentado a cada gostei registrado.
+ */
+public class TendenciasGostei {
+
+    private final Map<JanelaTendencia, ContadorJanelaDeslizante> contadores = new EnumMap<>(JanelaTendencia.class);
+    private final int maxResultados;
+
+    public TendenciasGostei(int largura, int profundidade, int maxResultados, int faixas, LongSupplier relogio) {
+        this.maxResultados = maxResultados;
+        for (var janela : JanelaTendencia.values()) {
+            // folga de candidatos por balde para que o top-K da janela inteira não perca ids
+            contadores.put(janela, new ContadorJanelaDeslizante(janela.getDuracao().toMillis(), janela.getBaldes(),
+                    largura, profundidade, maxResultados * 2, faixas, relogio));
+        }
+    }
+
+    public void registrar(UUID id) {
+        for (var contador : contadores.values()) {
+            contador.registrar(id);
+        }
+    }
+
+    public List<Contagem> maisGostadas(JanelaTendencia janela, int k) {
+        return contadores.get(janela).maisFrequentes(Math.min(k, maxResultados));
+    }
+
+    public int getMaxResultados() {
+        return maxResultados;
+    }
+}
@@ -0,0 +1,74 @@
+package br.com.fiap.api.utils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Caminho materializado das conversas: um segmento de {@value #TAMANHO_SEGMENTO} caracteres hexadecimais
+ * por nível, da raiz até a própria mensagem.
+ * <p>
+ * O segmento começa pelo instante da resposta em microssegundos e termina com a metade baixa do id, então
+ * ordenar por caminho é percorrer a conversa em pré-ordem com os irmãos em ordem cronológica. Toda a
+ * subárvore de uma mensagem fica no intervalo {@code [caminho, caminho + "g")}: {@code 'g'} vem logo depois
+ * do último dígito hexadecimal.
+ */
+public final class CaminhoConversa {
+
+    public static final int TAMANHO_SEGMENTO = 32;
+    public static final int PROFUNDIDADE_MAXIMA = 63;
+    public static final int TAMANHO_MAXIMO = TAMANHO_SEGMENTO * (PROFUNDIDADE_MAXIMA + 1);
+
+    private static final char APOS_HEXADECIMAL = 'g';
+    private static final HexFormat HEXADECIMAL = HexFormat.of();
+
+    private CaminhoConversa() {
+    }
+
+    // determinístico: duas primeiras respostas concorrentes gravam o mesmo caminho na raiz
+    public static String raiz(LocalDateTime dataCriacao, UUID id) {
+        var instante = dataCriacao.toInstant(ZoneOffset.UTC);
+        return segmento(instante.getEpochSecond() * 1_000_000 + instante.getNano() / 1_000, id);
+    }
+
+    public static String filho(String caminhoPai, long instanteMicros, UUID id) {
+        return caminhoPai + segmento(instanteMicros, id);
+    }
+
+    public static int profundidade(String caminho) {
+        return caminho.length() / TAMANHO_SEGMENTO - 1;
+    }
+
+    public static String limiteSuperior(String caminho) {
+        return caminho + APOS_HEXADECIMAL;
+    }
+
+    // maior caminho a até `niveis` abaixo de `caminho`, sem passar da profundidade máxima
+    public static int comprimentoMaximo(String caminho, int niveis) {
+        var abaixo = Math.min(Math.max(niveis, 0), PROFUNDIDADE_MAXIMA);
+        var profundidade = Math.min(profundidade(caminho) + abaixo, PROFUNDIDADE_MAXIMA);
+        return TAMANHO_SEGMENTO * (profundidade + 1);
+    }
+
+    public static String ultimoSegmento(String caminho) {
+        return caminho.substring(caminho.length() - TAMANHO_SEGMENTO);
+    }
+
+    public static boolean segmentoValido(String segmento) {
+        if (segmento == null || segmento.length() != TAMANHO_SEGMENTO) {
+            return false;
+        }
+        for (int i = 0; i < TAMANHO_SEGMENTO; i++) {
+            var caractere = segmento.charAt(i);
+            if ((caractere < '0' || caractere > '9') && (caractere < 'a' || caractere > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String segmento(long instanteMicros, UUID id) {
+        return HEXADECIMAL.toHexDigits(instanteMicros) + HEXADECIMAL.toHexDigits(id.getLeastSignificantBits());
+    }
+}
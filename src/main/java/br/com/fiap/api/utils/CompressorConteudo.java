@@ -0,0 +1,101 @@
+package br.com.fiap.api.utils;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compressão Zstd do conteúdo das mensagens a partir de {@code limiar} bytes em UTF-8.
+ * <p>
+ * Com um dicionário treinado no próprio acervo ({@link #treinarDicionario}), também mensagens de poucas
+ * centenas de bytes comprimem bem. O id do dicionário vai no cabeçalho de cada quadro e a descompressão
+ * escolhe o dicionário por ele: trocar o dicionário não invalida o que já foi gravado, desde que o antigo
+ * continue registrado.
+ * <p>
+ * As entidades nascem no Hibernate e no Jackson, fora do contêiner: a instância em uso fica em
+ * {@link #atual()} e é trocada pela configuração na subida.
+ */
+public final class CompressorConteudo {
+
+    // o texto abaixo do limiar fica na coluna conteudo, que tem este tamanho
+    public static final int LIMIAR_MAXIMO = 1024;
+
+    private static final Map<Long, ZstdDictDecompress> DICIONARIOS = new ConcurrentHashMap<>();
+
+    private static volatile CompressorConteudo atual = new CompressorConteudo(256, 3, null);
+
+    private final int limiar;
+    private final int nivel;
+    private final ZstdDictCompress dicionario;
+
+    public CompressorConteudo(int limiar, int nivel, byte[] dicionario) {
+        if (limiar < 1 || limiar > LIMIAR_MAXIMO) {
+            throw new IllegalArgumentException("Limiar de compressão fora de 1.." + LIMIAR_MAXIMO + ": " + limiar);
+        }
+        this.limiar = limiar;
+        this.nivel = nivel;
+        if (dicionario == null) {
+            this.dicionario = null;
+            return;
+        }
+        registrarDicionario(dicionario);
+        this.dicionario = new ZstdDictCompress(dicionario, nivel);
+    }
+
+    // dicionários só para leitura, dos quadros gravados antes da troca
+    public static void registrarDicionario(byte[] dicionario) {
+        var id = Zstd.getDictIdFromDict(dicionario);
+        if (id == 0) {
+            throw new IllegalArgumentException("Dicionário de compressão sem id");
+        }
+        DICIONARIOS.computeIfAbsent(id, ignorado -> new ZstdDictDecompress(dicionario));
+    }
+
+    public static CompressorConteudo atual() {
+        return atual;
+    }
+
+    public static void usar(CompressorConteudo compressor) {
+        atual = compressor;
+    }
+
+    public boolean deveCompactar(byte[] utf8) {
+        return utf8.length >= limiar;
+    }
+
+    public byte[] compactar(byte[] utf8) {
+        return dicionario == null ? Zstd.compress(utf8, nivel) : Zstd.compress(utf8, dicionario);
+    }
+
+    public static String descompactar(byte[] quadro) {
+        var tamanho = Zstd.getFrameContentSize(quadro);
+        if (tamanho < 0 || tamanho > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Quadro Zstd sem tamanho do conteúdo");
+        }
+        var idDicionario = Zstd.getDictIdFromFrame(quadro);
+        if (idDicionario == 0) {
+            return new String(Zstd.decompress(quadro, (int) tamanho), StandardCharsets.UTF_8);
+        }
+        var dicionario = DICIONARIOS.get(idDicionario);
+        if (dicionario == null) {
+            throw new IllegalStateException("Dicionário de compressão " + idDicionario + " não registrado");
+        }
+        return new String(Zstd.decompress(quadro, dicionario, (int) tamanho), StandardCharsets.UTF_8);
+    }
+
+    // o zstd recomenda amostras que somem ao menos cem vezes o tamanho do dicionário
+    public static byte[] treinarDicionario(Iterable<String> amostras, int tamanhoAmostras, int tamanhoDicionario) {
+        var treinador = new ZstdDictTrainer(tamanhoAmostras, tamanhoDicionario);
+        for (var amostra : amostras) {
+            if (!treinador.addSample(amostra.getBytes(StandardCharsets.UTF_8))) {
+                break;
+            }
+        }
+        return treinador.trainSamples();
+    }
+}
@@ -0,0 +1,54 @@
+package br.com.fiap.api.utils;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Converte a forma canônica de 36 caracteres em {@link UUID} sem alocações intermediárias
+ * e sem lançar exceção: entradas inválidas retornam {@code null}.
+ */
+public final class ConversorUUID {
+
+    private static final int TAMANHO = 36;
+    private static final byte[] HEXADECIMAL = new byte[128];
+
+    static {
+        Arrays.fill(HEXADECIMAL, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            HEXADECIMAL['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEXADECIMAL['a' + i] = (byte) (10 + i);
+            HEXADECIMAL['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private ConversorUUID() {
+    }
+
+    public static UUID converter(CharSequence texto) {
+        if (texto == null || texto.length() != TAMANHO
+                || texto.charAt(8) != '-' || texto.charAt(13) != '-'
+                || texto.charAt(18) != '-' || texto.charAt(23) != '-') {
+            return null;
+        }
+        long maisSignificativos = 0;
+        long menosSignificativos = 0;
+        for (int i = 0; i < TAMANHO; i++) {
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                continue;
+            }
+            char caractere = texto.charAt(i);
+            int valor = caractere < HEXADECIMAL.length ? HEXADECIMAL[caractere] : -1;
+            if (valor < 0) {
+                return null;
+            }
+            if (i < 18) {
+                maisSignificativos = (maisSignificativos << 4) | valor;
+            } else {
+                menosSignificativos = (menosSignificativos << 4) | valor;
+            }
+        }
+        return new UUID(maisSignificativos, menosSignificativos);
+    }
+}
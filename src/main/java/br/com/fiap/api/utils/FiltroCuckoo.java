@@ -0,0 +1,170 @@
+package br.com.fiap.api.utils;
+
+/**
+ * Filtro cuckoo (Fan et al., 2014) sobre hashes de 64 bits: responde "certamente não contém" ou "talvez
+ * contenha" e, ao contrário do filtro de Bloom, aceita remoção.
+ * <p>
+ * Cada item vira uma impressão de 16 bits guardada num de dois baldes de 4 posições. O segundo balde sai do
+ * primeiro e da impressão, então uma impressão pode ser deslocada para o outro balde sem o item original.
+ * Com a ocupação máxima de 95%, o falso positivo fica em torno de 8 / 2^16 (0,012%).
+ * <p>
+ * Só remova o que foi adicionado: remover um item ausente com a mesma impressão e o mesmo balde de outro
+ * apagaria o do outro. Quando os deslocamentos se esgotam, a última impressão deslocada fica guardada à parte
+ * e o filtro passa a {@link #cheio() cheio}: nada do que já entrou se perde, mas as próximas inclusões falham.
+ * <p>
+ * Sem sincronização própria.
+ */
+public final class FiltroCuckoo {
+
+    public static final double OCUPACAO_MAXIMA = 0.95;
+
+    private static final int POR_BALDE = 4;
+    private static final int MAXIMO_DESLOCAMENTOS = 500;
+    private static final int MAXIMO_BALDES = 1 << 28;
+
+    // impressão 0 marca posição vazia
+    private final short[] impressoes;
+    private final int mascara;
+    private int quantidade;
+    private short vitima;
+    private int baldeVitima;
+    private long sorteio = 0x9E3779B97F4A7C15L;
+
+    public FiltroCuckoo(long capacidade) {
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("Capacidade deve ser positiva");
+        }
+        var necessarios = (long) Math.ceil(capacidade / (POR_BALDE * OCUPACAO_MAXIMA));
+        var baldes = necessarios <= 1 ? 1 : (int) Math.min(MAXIMO_BALDES, Long.highestOneBit(necessarios - 1) << 1);
+        this.impressoes = new short[baldes * POR_BALDE];
+        this.mascara = baldes - 1;
+    }
+
+    /**
+     * @return {@code false} se o filtro já estava cheio e o item não entrou
+     */
+    public boolean adicionar(long hash) {
+        if (vitima != 0) {
+            return false;
+        }
+        var impressao = impressao(hash);
+        var primeiro = primeiroBalde(hash);
+        var segundo = alternativo(primeiro, impressao);
+        quantidade++;
+        if (guardar(primeiro, impressao) || guardar(segundo, impressao)) {
+            return true;
+        }
+        var balde = (sortear() & 1) == 0 ? primeiro : segundo;
+        for (int deslocamento = 0; deslocamento < MAXIMO_DESLOCAMENTOS; deslocamento++) {
+            var posicao = balde * POR_BALDE + (int) (sortear() >>> 62);
+            var deslocada = impressoes[posicao];
+            impressoes[posicao] = impressao;
+            impressao = deslocada;
+            balde = alternativo(balde, impressao);
+            if (guardar(balde, impressao)) {
+                return true;
+            }
+        }
+        vitima = impressao;
+        baldeVitima = balde;
+        return true;
+    }
+
+    public boolean podeConter(long hash) {
+        var impressao = impressao(hash);
+        var primeiro = primeiroBalde(hash);
+        var segundo = alternativo(primeiro, impressao);
+        return contem(primeiro, impressao) || contem(segundo, impressao)
+                || vitima == impressao && (baldeVitima == primeiro || baldeVitima == segundo);
+    }
+
+    /**
+     * @return {@code false} se nenhuma impressão correspondente foi encontrada
+     */
+    public boolean remover(long hash) {
+        var impressao = impressao(hash);
+        var primeiro = primeiroBalde(hash);
+        var segundo = alternativo(primeiro, impressao);
+        if (vitima == impressao && (baldeVitima == primeiro || baldeVitima == segundo)) {
+            vitima = 0;
+            quantidade--;
+            return true;
+        }
+        if (!apagar(primeiro, impressao) && !apagar(segundo, impressao)) {
+            return false;
+        }
+        quantidade--;
+        // a posição liberada pode ser justamente a que faltou à vítima
+        if (vitima != 0 && (guardar(baldeVitima, vitima) || guardar(alternativo(baldeVitima, vitima), vitima))) {
+            vitima = 0;
+        }
+        return true;
+    }
+
+    public boolean cheio() {
+        return vitima != 0;
+    }
+
+    public int quantidade() {
+        return quantidade;
+    }
+
+    public long capacidade() {
+        return (long) (impressoes.length * OCUPACAO_MAXIMA);
+    }
+
+    public long bytes() {
+        return impressoes.length * (long) Short.BYTES;
+    }
+
+    private boolean guardar(int balde, short impressao) {
+        for (int posicao = balde * POR_BALDE; posicao < (balde + 1) * POR_BALDE; posicao++) {
+            if (impressoes[posicao] == 0) {
+                impressoes[posicao] = impressao;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean contem(int balde, short impressao) {
+        for (int posicao = balde * POR_BALDE; posicao < (balde + 1) * POR_BALDE; posicao++) {
+            if (impressoes[posicao] == impressao) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean apagar(int balde, short impressao) {
+        for (int posicao = balde * POR_BALDE; posicao < (balde + 1) * POR_BALDE; posicao++) {
+            if (impressoes[posicao] == impressao) {
+                impressoes[posicao] = 0;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int primeiroBalde(long hash) {
+        return (int) hash & mascara;
+    }
+
+    // simétrico: alternativo(alternativo(b, i), i) == b
+    private int alternativo(int balde, short impressao) {
+        return (balde ^ impressao * 0x5BD1E995) & mascara;
+    }
+
+    private static short impressao(long hash) {
+        var impressao = (short) (hash >>> 48);
+        return impressao == 0 ? 1 : impressao;
+    }
+
+    // xorshift: a escolha de quem deslocar não precisa de mais que isso
+    private long sortear() {
+        sorteio ^= sorteio << 13;
+        sorteio ^= sorteio >>> 7;
+        sorteio ^= sorteio << 17;
+        return sorteio;
+    }
+}
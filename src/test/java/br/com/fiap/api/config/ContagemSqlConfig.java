@@ -0,0 +1,32 @@
+package br.com.fiap.api.config;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+
+/**
+ * Envolve o DataSource dos testes de integração num proxy que conta os statements
+ * por tipo e por thread. Lido por {@code ContagemSql}.
+ */
+@Configuration
+@Profile("test")
+public class ContagemSqlConfig {
+
+    @Bean
+    public static BeanPostProcessor contagemSqlPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(dataSource).name(beanName).countQuery().build();
+                }
+                return bean;
+            }
+        };
+    }
+}
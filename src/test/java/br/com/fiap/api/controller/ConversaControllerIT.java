@@ -0,0 +1,158 @@
+package br.com.fiap.api.controller;
+
+import br.com.fiap.api.model.Mensagem;
+import io.qameta.allure.restassured.AllureRestAssured;
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static br.com.fiap.api.utils.MensagemHelper.gerarMensagem;
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase
+class ConversaControllerIT {
+
+    @LocalServerPort
+    private int port;
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.port = port;
+        RestAssured.enableLoggingOfRequestAndResponseIfValidationFails();
+    }
+
+    @Test
+    void deveMontarConversa_InteiraELimitadaEmProfundidade() {
+        //Arrange
+        var raiz = registrarMensagem();
+        var primeira = responder(raiz);
+        var neta = responder(primeira);
+        var segunda = responder(raiz);
+        responder(neta);
+
+        //Act & Assert
+        given().filters(new AllureRestAssured())
+                .when().get("/mensagens/{id}/conversa", raiz)
+                .then().statusCode(HttpStatus.OK.value())
+                .body("mensagens", equalTo(5))
+                .body("truncada", equalTo(false))
+                .body("raiz.mensagem.id", equalTo(raiz))
+                .body("raiz.mensagem.respostaDe", nullValue())
+                .body("raiz.respostas.mensagem.id", contains(primeira, segunda))
+                .body("raiz.respostas[0].respostas[0].mensagem.id", equalTo(neta))
+                .body("raiz.respostas[0].respostas[0].mensagem.respostaDe", equalTo(primeira))
+                .body("raiz.respostas[0].respostas[0].respostas", hasSize(1));
+        given().when().get("/mensagens/{id}/conversa?profundidade=1", raiz)
+                .then().statusCode(HttpStatus.OK.value())
+                .body("mensagens", equalTo(3))
+                .body("raiz.respostas.mensagem.id", contains(primeira, segunda))
+                .body("raiz.respostas[0].respostas", hasSize(0));
+        given().when().get("/mensagens/{id}/conversa", primeira)
+                .then().statusCode(HttpStatus.OK.value())
+                .body("mensagens", equalTo(3))
+                .body("raiz.mensagem.id", equalTo(primeira));
+    }
+
+    @Test
+    void devePaginarRespostasDiretas_PorCursor() {
+        //Arrange
+        var raiz = registrarMensagem();
+        var respostas = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            respostas.add(responder(raiz));
+        }
+        responder(respostas.get(0));
+
+        //Act
+        var lidas = new ArrayList<String>();
+        String cursor = null;
+        var paginas = 0;
+        do {
+            var requisicao = given().queryParam("quantidade", 2);
+            if (cursor != null) {
+                requisicao.queryParam("depois", cursor);
+            }
+            var pagina = requisicao.when().get("/mensagens/{id}/respostas", raiz)
+                    .then().statusCode(HttpStatus.OK.value())
+                    .extract().jsonPath();
+            lidas.addAll(pagina.getList("respostas.id", String.class));
+            cursor = pagina.getString("proxima");
+            paginas++;
+        } while (cursor != null);
+
+        //Assert
+        assertThat(lidas).containsExactlyElementsOf(respostas);
+        assertThat(paginas).isEqualTo(3);
+    }
+
+    @Test
+    void deveResponderMensagemAindaSemConversa_ComUmaUnicaMensagem() {
+        var raiz = registrarMensagem();
+
+        given().when().get("/mensagens/{id}/conversa", raiz)
+                .then().statusCode(HttpStatus.OK.value())
+                .body("mensagens", equalTo(1))
+                .body("raiz.respostas", hasSize(0));
+        given().when().get("/mensagens/{id}/respostas", raiz)
+                .then().statusCode(HttpStatus.OK.value())
+                .body("respostas", hasSize(0))
+                .body("proxima", nullValue());
+    }
+
+    @Test
+    void deveGerarExcecao_QuandoParametrosInvalidos() {
+        var raiz = registrarMensagem();
+
+        given().contentType(MediaType.APPLICATION_JSON_VALUE).body(gerarMensagem())
+                .when().post("/mensagens/{id}/respostas", UUID.randomUUID())
+                .then().statusCode(HttpStatus.BAD_REQUEST.value())
+                .body(equalTo("Mensagem não encontrada"));
+        given().when().get("/mensagens/{id}/conversa", "nao-e-uuid")
+                .then().statusCode(HttpStatus.BAD_REQUEST.value())
+                .body(equalTo("ID Invalido"));
+        given().when().get("/mensagens/{id}/conversa?profundidade=-1", raiz)
+                .then().statusCode(HttpStatus.BAD_REQUEST.value())
+                .body(equalTo("Profundidade Invalida"));
+        given().when().get("/mensagens/{id}/respostas?depois=abc", raiz)
+                .then().statusCode(HttpStatus.BAD_REQUEST.value())
+                .body(equalTo("Cursor Invalido"));
+        given().when().get("/mensagens/{id}/respostas?quantidade=1000", raiz)
+                .then().statusCode(HttpStatus.BAD_REQUEST.value())
+                .body(equalTo("Quantidade Invalida"));
+    }
+
+    private String registrarMensagem() {
+        return given()
+                .contentType(MediaType.APPLICATION_JSON_VALUE).body(gerarMensagem())
+                .when().post("/mensagens")
+                .then().statusCode(HttpStatus.CREATED.value())
+                .extract().path("id");
+    }
+
+    // cada resposta com um usuário próprio, longe do limite de taxa
+    private String responder(String id) {
+        var resposta = Mensagem.builder().usuario("usuario-" + UUID.randomUUID()).conteudo("Resposta").build();
+        return given()
+                .contentType(MediaType.APPLICATION_JSON_VALUE).body(resposta)
+                .when().post("/mensagens/{id}/respostas", id)
+                .then().statusCode(HttpStatus.CREATED.value())
+                .body("respostaDe", equalTo(id))
+                .extract().path("id");
+    }
+}
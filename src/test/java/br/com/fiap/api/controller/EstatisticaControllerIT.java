@@ -0,0 +1,126 @@
+package br.com.fiap.api.controller;
+
+import br.com.fiap.api.model.EstatisticaGosteiHora;
+import br.com.fiap.api.model.EstatisticaUsuarioDia;
+import br.com.fiap.api.repository.EstatisticaRepository;
+import io.qameta.allure.restassured.AllureRestAssured;
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+
+// contexto próprio: a reconstrução conta só as mensagens do data.sql
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "mensagem.estatisticas.reconstrucao.particoes=3")
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+class EstatisticaControllerIT {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private EstatisticaRepository estatisticaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.port = port;
+    }
+
+    @Test
+    void deveServirRollups_DepoisDaReconstrucao() {
+        //Act
+        given().filters(new AllureRestAssured())
+                .when().post("/estatisticas/reconstrucao")
+                .then().statusCode(HttpStatus.OK.value())
+                .body(equalTo("3"));
+
+        //Assert
+        given().filters(new AllureRestAssured())
+                .queryParam("de", "2023-01-01").queryParam("ate", "2023-01-31")
+                .when().get("/estatisticas/usuarios/{usuario}/dias", "Eva")
+                .then().statusCode(HttpStatus.OK.value())
+                .body("dia", equalTo(List.of("2023-01-15")))
+                .body("mensagens", equalTo(List.of(1)));
+        given().filters(new AllureRestAssured())
+                .queryParam("quantidade", 2)
+                .when().get("/estatisticas/usuarios/mais-ativos")
+                .then().statusCode(HttpStatus.OK.value())
+                .body("$", hasSize(2))
+                .body("usuario", equalTo(List.of("Adam", "Eva")))
+                .body("mensagens", everyItem(equalTo(1)));
+    }
+
+    @Test
+    void deveSomarIncrementos_AoTotalDaHora() {
+        //Arrange
+        var hora = LocalDateTime.of(2023, 1, 15, 10, 0);
+
+        //Act
+        estatisticaRepository.somarGosteiPorHora(List.of(new EstatisticaGosteiHora(hora, 3)));
+        estatisticaRepository.somarGosteiPorHora(List.of(
+                new EstatisticaGosteiHora(hora, 2), new EstatisticaGosteiHora(hora.plusHours(1), 1)));
+
+        //Assert
+        given().filters(new AllureRestAssured())
+                .queryParam("de", "2023-01-15T09:30:00").queryParam("ate", "2023-01-15T12:00:00")
+                .when().get("/estatisticas/gostei/horas")
+                .then().statusCode(HttpStatus.OK.value())
+                .body("hora", equalTo(List.of("2023-01-15T10:00:00", "2023-01-15T11:00:00")))
+                .body("gostei", equalTo(List.of(5, 1)));
+    }
+
+    @Test
+    void deveContarRemovidas_PeloAutorEDiaDeCriacao_SoAsRemovidasDesdeOLimite() {
+        //Arrange
+        // removida antes de qualquer reconstrução: a varredura do outro teste também a deixa de fora
+        var id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO mensagem (id, usuario, conteudo, data_criacao, gostei, removida_em) "
+                + "VALUES (?, 'Eva', 'Removida', '2023-01-10 08:00:00', 0, '2023-01-16 00:00:00')", id);
+
+        //Act
+        var desdeAntes = estatisticaRepository.contarRemovidasPorDia(List.of(id, UUID.randomUUID()),
+                LocalDateTime.of(2023, 1, 16, 0, 0));
+        var desdeDepois = estatisticaRepository.contarRemovidasPorDia(List.of(id), LocalDateTime.of(2023, 1, 17, 0, 0));
+
+        //Assert
+        assertThat(desdeAntes).containsExactly(new EstatisticaUsuarioDia("Eva", LocalDate.of(2023, 1, 10), 1));
+        assertThat(desdeDepois).isEmpty();
+    }
+
+    @Test
+    void deveRecusarPeriodosSemLimite() {
+        given().filters(new AllureRestAssured())
+                .queryParam("de", "2022-01-01").queryParam("ate", "2023-12-31")
+                .when().get("/estatisticas/usuarios/{usuario}/dias", "Eva")
+                .then().statusCode(HttpStatus.BAD_REQUEST.value());
+        given().filters(new AllureRestAssured())
+                .queryParam("de", "2023-01-15T10:00:00").queryParam("ate", "2023-01-14T10:00:00")
+                .when().get("/estatisticas/gostei/horas")
+                .then().statusCode(HttpStatus.BAD_REQUEST.value());
+        given().filters(new AllureRestAssured())
+                .queryParam("quantidade", 101)
+                .when().get("/estatisticas/usuarios/mais-ativos")
+                .then().statusCode(HttpStatus.BAD_REQUEST.value());
+    }
+}
@@ -0,0 +1,75 @@
+package br.com.fiap.api.controller;
+
+import br.com.fiap.api.repository.LogEventos;
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Map;
+
+import static br.com.fiap.api.utils.MensagemHelper.gerarMensagem;
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase
+class EventoControllerIT {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private LogEventos logEventos;
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.port = port;
+        RestAssured.enableLoggingOfRequestAndResponseIfValidationFails();
+    }
+
+    @Test
+    void devePermitirAcompanharMudancasDaMensagem() {
+        //Arrange
+        var desde = logEventos.proximoOffset();
+        var id = given()
+                .contentType(MediaType.APPLICATION_JSON_VALUE).body(gerarMensagem())
+                .when().post("/mensagens")
+                .then().statusCode(HttpStatus.CREATED.value())
+                .extract().<String>path("id");
+        given().queryParam("usuario", "Adam")
+                .when().post("/mensagens/{id}/gostei", id)
+                .then().statusCode(HttpStatus.OK.value());
+        given().contentType(MediaType.APPLICATION_JSON_VALUE)
+                .body(Map.of("id", id, "usuario", "José", "conteudo", "Conteudo alterado"))
+                .when().put("/mensagens/{id}", id)
+                .then().statusCode(HttpStatus.ACCEPTED.value());
+        given().when().delete("/mensagens/{id}", id)
+                .then().statusCode(HttpStatus.OK.value());
+
+        //Act & Assert
+        given().queryParam("desde", desde)
+                .when().get("/eventos")
+                .then().statusCode(HttpStatus.OK.value())
+                .body("eventos.evento.tipo", contains("REGISTRADA", "GOSTEI", "ALTERADA", "REMOVIDA"))
+                .body("eventos.evento.mensagemId", everyItem(equalTo(id)))
+                .body("eventos[2].evento.conteudo", equalTo("Conteudo alterado"))
+                .body("proximoOffset", equalTo((int) desde + 4));
+    }
+
+    @Test
+    void deveGerarExcecao_QuandoOffsetAlemDoFim() {
+        given().queryParam("desde", logEventos.proximoOffset() + 10)
+                .when().get("/eventos")
+                .then().statusCode(HttpStatus.BAD_REQUEST.value());
+    }
+}
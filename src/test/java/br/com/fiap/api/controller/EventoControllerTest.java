@@ -0,0 +1,99 @@
+package br.com.fiap.api.controller;
+
+import br.com.fiap.api.exception.OffsetExpiradoException;
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.model.EventoRegistrado;
+import br.com.fiap.api.model.LoteEventos;
+import br.com.fiap.api.model.TipoEventoMensagem;
+import br.com.fiap.api.repository.LogEventos;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class EventoControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private LogEventos logEventos;
+
+    AutoCloseable mock;
+
+    @BeforeEach
+    void setup() {
+        mock = MockitoAnnotations.openMocks(this);
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.findAndRegisterModules();
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mockMvc = MockMvcBuilders.standaloneSetup(new EventoController(logEventos))
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mock.close();
+    }
+
+    @Test
+    void devePermitirListarEventos() throws Exception {
+        //Arrange
+        var id = UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bb");
+        var evento = new EventoMensagem(TipoEventoMensagem.GOSTEI, id, "Adam", null, Instant.ofEpochSecond(0));
+        when(logEventos.ler(41, 2)).thenReturn(new LoteEventos(List.of(new EventoRegistrado(41, evento)), 42));
+
+        //Act
+        mockMvc.perform(get("/eventos").param("desde", "41").param("limite", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.eventos[0].offset").value(41))
+                .andExpect(jsonPath("$.eventos[0].evento.tipo").value("GOSTEI"))
+                .andExpect(jsonPath("$.eventos[0].evento.mensagemId").value(id.toString()))
+                .andExpect(jsonPath("$.eventos[0].evento.momento").value("1970-01-01T00:00:00Z"))
+                .andExpect(jsonPath("$.proximoOffset").value(42));
+
+        //Assert
+        verify(logEventos, times(1)).ler(41, 2);
+    }
+
+    @Test
+    void deveGerarExcecao_QuandoOffsetExpirado() throws Exception {
+        //Arrange
+        when(logEventos.ler(0, 500)).thenThrow(new OffsetExpiradoException("Offset removido pela retenção", 1_000));
+
+        //Act
+        mockMvc.perform(get("/eventos"))
+                .andExpect(status().isGone())
+                .andExpect(jsonPath("$").value("Offset removido pela retenção; primeiro disponível: 1000"));
+
+        //Assert
+        verify(logEventos, times(1)).ler(0, 500);
+    }
+
+    @Test
+    void deveGerarExcecao_QuandoLimiteInvalido() throws Exception {
+        //Act
+        mockMvc.perform(get("/eventos").param("limite", "5000"))
+                .andExpect(status().isBadRequest());
+
+        //Assert
+        verify(logEventos, never()).ler(anyLong(), anyInt());
+    }
+}
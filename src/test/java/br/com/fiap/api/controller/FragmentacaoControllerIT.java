@@ -0,0 +1,116 @@
+package br.com.fiap.api.controller;
+
+import br.com.fiap.api.repository.MensagemFragmentadaRepository;
+import io.qameta.allure.restassured.AllureRestAssured;
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static br.com.fiap.api.utils.MensagemHelper.gerarMensagem;
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "mensagem.fragmentacao.urls=jdbc:h2:mem:fragmento-0-${random.uuid};DB_CLOSE_DELAY=-1,"
+                + "jdbc:h2:mem:fragmento-1-${random.uuid};DB_CLOSE_DELAY=-1",
+        "mensagem.fragmentacao.reservas=jdbc:h2:mem:fragmento-2-${random.uuid};DB_CLOSE_DELAY=-1",
+        "mensagem.fragmentacao.usuario=sa",
+        "mensagem.fragmentacao.senha=",
+        "mensagem.limite-usuario.capacidade=1000"
+})
+@ActiveProfiles({"test", "fragmentado"})
+@AutoConfigureTestDatabase
+public class FragmentacaoControllerIT {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MensagemFragmentadaRepository mensagemRepository;
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.port = port;
+        RestAssured.enableLoggingOfRequestAndResponseIfValidationFails();
+    }
+
+    @Test
+    void devePermitirOperarMensagensFragmentadas() {
+        //Arrange
+        var id = registrarMensagem();
+
+        //Act & Assert
+        given().filters(new AllureRestAssured())
+                .when().get("/mensagens/{id}", id)
+                .then().statusCode(HttpStatus.OK.value())
+                .body("id", equalTo(id));
+        given().filters(new AllureRestAssured())
+                .queryParam("usuario", "Adam")
+                .when().post("/mensagens/{id}/gostei", id)
+                .then().statusCode(HttpStatus.OK.value());
+        given().filters(new AllureRestAssured())
+                .when().get("/mensagens/{id}", id)
+                .then().statusCode(HttpStatus.OK.value())
+                .body("gostei", equalTo(1));
+        given().filters(new AllureRestAssured())
+                .when().delete("/mensagens/{id}", id)
+                .then().statusCode(HttpStatus.OK.value());
+        given().filters(new AllureRestAssured())
+                .when().get("/mensagens/{id}", id)
+                .then().statusCode(HttpStatus.BAD_REQUEST.value());
+    }
+
+    @Test
+    void deveManterMensagensAcessiveis_QuandoExpandirFragmentos() throws InterruptedException {
+        //Arrange
+        var ids = new ArrayList<String>();
+        for (int i = 0; i < 60; i++) {
+            ids.add(registrarMensagem());
+        }
+
+        //Act
+        given().filters(new AllureRestAssured())
+                .queryParam("quantidade", 1)
+                .when().post("/fragmentos/expansao")
+                .then().statusCode(HttpStatus.ACCEPTED.value())
+                .body("fragmentos", equalTo(3));
+        var limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (mensagemRepository.situacao().migrando()) {
+            assertThat(System.nanoTime()).isLessThan(limite);
+            Thread.sleep(20);
+        }
+
+        //Assert
+        for (var id : ids) {
+            given().when().get("/mensagens/{id}", id)
+                    .then().statusCode(HttpStatus.OK.value());
+        }
+        var total = given().queryParam("size", 100)
+                .when().get("/mensagens")
+                .then().statusCode(HttpStatus.OK.value())
+                .extract().jsonPath().getInt("totalElements");
+        assertThat(total).isGreaterThanOrEqualTo(ids.size());
+        given().filters(new AllureRestAssured())
+                .when().post("/fragmentos/expansao")
+                .then().statusCode(HttpStatus.BAD_REQUEST.value());
+    }
+
+    private String registrarMensagem() {
+        return given()
+                .contentType(MediaType.APPLICATION_JSON_VALUE).body(gerarMensagem())
+                .when().post("/mensagens")
+                .then().statusCode(HttpStatus.CREATED.value())
+                .extract().path("id");
+    }
+}
@@ -5,15 +5,28 @@ import io.restassured.RestAssured;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import static br.com.fiap.api.utils.MensagemHelper.gerarMensagem;
 import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.matchesPattern;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -23,6 +36,9 @@ public class MensagemControllerIT {
     @LocalServerPort
     private int port;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @BeforeEach
     void setUp() {
         RestAssured.port = port;
@@ -56,6 +72,132 @@ public class MensagemControllerIT {
         }
     }
 
+    @Nested
+    class ConteudoLongo {
+
+        @Test
+        void deveGravarCompactado_EDevolverTextoOriginal() {
+            //Arrange
+            var mensagem = gerarMensagem();
+            var conteudo = "Conteúdo longo da mensagem, repetido até passar do limiar. ".repeat(40);
+            mensagem.setConteudo(conteudo);
+
+            //Act
+            String id = given()
+                    .filters(new AllureRestAssured())
+                    .contentType(MediaType.APPLICATION_JSON_VALUE).body(mensagem)
+                    .when().post("/mensagens")
+                    .then().statusCode(HttpStatus.CREATED.value())
+                    .body("conteudo", equalTo(conteudo))
+                    .extract().path("id");
+
+            //Assert
+            given().when().get("/mensagens/{id}", id)
+                    .then().statusCode(HttpStatus.OK.value())
+                    .body("conteudo", equalTo(conteudo));
+            var colunas = jdbcTemplate.queryForMap(
+                    "SELECT conteudo, OCTET_LENGTH(conteudo_compactado) AS compactado FROM mensagem WHERE id = ?",
+                    UUID.fromString(id));
+            assertThat(colunas.get("CONTEUDO")).isNull();
+            assertThat(((Number) colunas.get("COMPACTADO")).intValue()).isLessThan(conteudo.length() / 4);
+        }
+    }
+
+    @Nested
+    class RegistrarGostei {
+
+        @Test
+        void devePermitirRegistrarGostei_RefletindoNaBuscaENasTendencias() {
+            //Arrange
+            var id = registrarMensagem();
+            given().when().get("/mensagens/{id}", id)
+                    .then().statusCode(HttpStatus.OK.value())
+                    .body("gostei", equalTo(0));
+
+            //Act
+            given().queryParam("usuario", "Adam")
+                    .when().post("/mensagens/{id}/gostei", id)
+                    .then().statusCode(HttpStatus.OK.value())
+                    .body(equalTo("gostei registrado"));
+            given().queryParam("usuario", "Eva")
+                    .when().post("/mensagens/{id}/gostei", id)
+                    .then().statusCode(HttpStatus.OK.value());
+            given().queryParam("usuario", "Adam")
+                    .when().post("/mensagens/{id}/gostei", id)
+                    .then().statusCode(HttpStatus.OK.value())
+                    .body(equalTo("gostei já registrado"));
+
+            //Assert
+            given().when().get("/mensagens/{id}", id)
+                    .then().statusCode(HttpStatus.OK.value())
+                    .body("gostei", equalTo(2));
+            given().queryParam("usuario", "Adam")
+                    .when().get("/mensagens/{id}/gostei", id)
+                    .then().statusCode(HttpStatus.OK.value())
+                    .body("gostou", equalTo(true))
+                    .body("total", equalTo(2));
+            given().queryParam("usuario", "Jhon")
+                    .when().get("/mensagens/{id}/gostei", id)
+                    .then().statusCode(HttpStatus.OK.value())
+                    .body("gostou", equalTo(false))
+                    .body("total", equalTo(2));
+            given().queryParam("janela", "hora")
+                    .when().get("/mensagens/trending")
+                    .then().statusCode(HttpStatus.OK.value())
+                    .body("find { it.mensagem.id == '%s' }.gosteiNaJanela".formatted(id), equalTo(2));
+        }
+
+        @Test
+        void deveContarUmGosteiPorUsuario_QuandoGosteiConcorrentes() throws Exception {
+            //Arrange
+            var id = registrarMensagem();
+            var executor = Executors.newFixedThreadPool(8);
+
+            //Act
+            try {
+                var respostas = new ArrayList<Future<Integer>>();
+                for (int i = 0; i < 32; i++) {
+                    // 4 usuários, cada um tentando 8 vezes ao mesmo tempo
+                    var usuario = "usuario-" + (i % 4);
+                    respostas.add(executor.submit(() -> given().queryParam("usuario", usuario)
+                            .when().post("/mensagens/{id}/gostei", id)
+                            .then().extract().statusCode()));
+                }
+                for (var resposta : respostas) {
+                    assertThat(resposta.get(30, TimeUnit.SECONDS)).isEqualTo(HttpStatus.OK.value());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            //Assert
+            given().when().get("/mensagens/{id}", id)
+                    .then().statusCode(HttpStatus.OK.value())
+                    .body("gostei", equalTo(4));
+            given().queryParam("usuario", "usuario-0")
+                    .when().get("/mensagens/{id}/gostei", id)
+                    .then().statusCode(HttpStatus.OK.value())
+                    .body("gostou", equalTo(true))
+                    .body("total", equalTo(4));
+        }
+
+        @Test
+        void deveGerarExcecao_QuandoRegistrarGostei_IdNaoExiste() {
+            given().queryParam("usuario", "Adam")
+                    .when().post("/mensagens/{id}/gostei", "6967393c-2255-4d69-b405-e3946d073283")
+                    .then().statusCode(HttpStatus.BAD_REQUEST.value())
+                    .body(equalTo("Mensagem não encontrada"));
+        }
+
+        private String registrarMensagem() {
+            return given()
+                    .contentType(MediaType.APPLICATION_JSON_VALUE).body(gerarMensagem())
+                    .when().post("/mensagens")
+                    .then().statusCode(HttpStatus.CREATED.value())
+                    .extract().path("id");
+        }
+    }
+
     @Nested
     class BuscarMensagem {
         @Test
@@ -174,6 +316,47 @@ public class MensagemControllerIT {
 
             //Assert
         }
+
+        @Test
+        void deveInformarPrecisaoDoTotal_QuandoContagemEstimada() {
+            var exato = given().queryParam("size", 1).queryParam("contagem", "exata")
+                    .when().get("/mensagens")
+                    .then().statusCode(HttpStatus.OK.value())
+                    .body("precisaoTotal", equalTo("EXATA"))
+                    .extract().jsonPath().getLong("totalElements");
+
+            // no H2 a estimativa do catálogo acompanha as escritas confirmadas
+            given().filters(new AllureRestAssured())
+                    .queryParam("size", 1).queryParam("contagem", "estimada")
+                    .when().get("/mensagens")
+                    .then().statusCode(HttpStatus.OK.value())
+                    .body("precisaoTotal", equalTo("ESTIMADA"))
+                    .body("totalElements", equalTo((int) exato));
+        }
     }
 
+    @Nested
+    class ServerTiming {
+
+        @Test
+        void deveInformarTempoPorFase_QuandoListarMensagens() {
+            given().queryParam("page", 0).queryParam("size", 5)
+                    .when().get("/mensagens")
+                    .then().statusCode(HttpStatus.OK.value())
+                    .header("Server-Timing", allOf(
+                            containsString("controller;dur="),
+                            containsString("servico;dur="),
+                            containsString("repositorio;dur="),
+                            containsString("serializacao;dur="),
+                            containsString("total;dur=")));
+        }
+
+        @Test
+        void deveInformarStatementsJdbc_QuandoRegistrarMensagem() {
+            given().contentType(MediaType.APPLICATION_JSON_VALUE).body(gerarMensagem())
+                    .when().post("/mensagens")
+                    .then().statusCode(HttpStatus.CREATED.value())
+                    .header("Server-Timing", matchesPattern(".*consulta;dur=[0-9.]+.*jdbc;desc=\"[1-9][0-9]* statements\".*"));
+        }
+    }
 }
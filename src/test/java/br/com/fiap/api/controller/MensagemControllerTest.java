@@ -1,7 +1,14 @@
 package br.com.fiap.api.controller;
 
+import br.com.fiap.api.exception.LimiteTaxaExcedidoException;
 import br.com.fiap.api.exception.MensagemNotFoundException;
+import br.com.fiap.api.model.EstrategiaContagem;
+import br.com.fiap.api.model.JanelaTendencia;
 import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.model.MensagemEmAlta;
+import br.com.fiap.api.model.PaginaMensagens;
+import br.com.fiap.api.model.ResultadoBuscaMensagem;
+import br.com.fiap.api.model.SituacaoGostei;
 import br.com.fiap.api.service.MensagemService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -15,6 +22,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.MediaType;
@@ -23,6 +31,8 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static br.com.fiap.api.utils.MensagemHelper.gerarMensagem;
@@ -31,6 +41,7 @@ import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -100,6 +111,25 @@ class MensagemControllerTest {
             //Assert
             verify(mensagemService, never()).registrarMensagem(any(Mensagem.class));
         }
+
+        @Test
+        void deveGerarExcecao_QuandoRegistrarMensagem_LimiteDoUsuarioExcedido() throws Exception {
+            //Arrange
+            var mensagem = gerarMensagem();
+            when(mensagemService.registrarMensagem(any(Mensagem.class)))
+                    .thenThrow(new LimiteTaxaExcedidoException("Limite de mensagens por usuário excedido", 2));
+
+            //Act
+            mockMvc.perform(
+                    post("/mensagens")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(asJsonString(mensagem))
+            ).andExpect(status().isTooManyRequests())
+                    .andExpect(header().string("Retry-After", "2"));
+
+            //Assert
+            verify(mensagemService, times(1)).registrarMensagem(any(Mensagem.class));
+        }
     }
 
     @Nested
@@ -110,7 +140,7 @@ class MensagemControllerTest {
             //Arrange
             var id = UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bb");
             var mensagem = gerarMensagem();
-            when(mensagemService.buscarMensagem(any(UUID.class))).thenReturn(mensagem);
+            when(mensagemService.procurarMensagem(any(UUID.class))).thenReturn(Optional.of(mensagem));
 
             //Act
             mockMvc.perform(
@@ -118,7 +148,7 @@ class MensagemControllerTest {
             ).andExpect(status().isOk());
 
             //Assert
-            verify(mensagemService, times(1)).buscarMensagem(any(UUID.class));
+            verify(mensagemService, times(1)).procurarMensagem(any(UUID.class));
         }
 
         @Test
@@ -126,13 +156,208 @@ class MensagemControllerTest {
 
             //Arrange
             var id = UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bc");
-            when(mensagemService.buscarMensagem(id)).thenThrow(MensagemNotFoundException.class);
+            when(mensagemService.procurarMensagem(id)).thenReturn(Optional.empty());
 
             //Assert
             mockMvc.perform(
                     get("/mensagens/{id}", id)
             ).andExpect(status().isBadRequest());
-            verify(mensagemService, times(1)).buscarMensagem(id);
+            verify(mensagemService, times(1)).procurarMensagem(id);
+        }
+
+        @Test
+        void deveGerarExcecao_QuandoBuscarMensagem_IdMalFormado() throws Exception {
+
+            //Assert
+            mockMvc.perform(
+                    get("/mensagens/{id}", "5874303c-c837-4354-bc69")
+            ).andExpect(status().isBadRequest());
+            verify(mensagemService, never()).procurarMensagem(any(UUID.class));
+        }
+    }
+
+    @Nested
+    class BuscarMensagens {
+        @Test
+        void devePermitirBuscarMensagens() throws Exception {
+            //Arrange
+            var idExistente = UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bb");
+            var idInexistente = UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bc");
+            var mensagem = gerarMensagem();
+            mensagem.setId(idExistente);
+            var ids = List.of(idInexistente, idExistente);
+            when(mensagemService.buscarMensagens(ids)).thenReturn(List.of(
+                    ResultadoBuscaMensagem.naoEncontrada(idInexistente),
+                    ResultadoBuscaMensagem.encontrada(mensagem)));
+
+            //Act
+            mockMvc.perform(post("/mensagens/buscar-varios")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(asJsonString(ids)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].id").value(idInexistente.toString()))
+                    .andExpect(jsonPath("$[0].encontrada").value(false))
+                    .andExpect(jsonPath("$[1].id").value(idExistente.toString()))
+                    .andExpect(jsonPath("$[1].encontrada").value(true))
+                    .andExpect(jsonPath("$[1].mensagem.conteudo").value(mensagem.getConteudo()));
+
+            //Assert
+            verify(mensagemService, times(1)).buscarMensagens(ids);
+        }
+
+        @Test
+        void deveGerarExcecao_QuandoBuscarMensagens_LimiteExcedido() throws Exception {
+            //Arrange
+            when(mensagemService.buscarMensagens(anyList()))
+                    .thenThrow(new IllegalArgumentException("Quantidade de ids excede o limite de 500"));
+
+            //Act
+            mockMvc.perform(post("/mensagens/buscar-varios")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(asJsonString(List.of(UUID.randomUUID()))))
+                    .andExpect(status().isBadRequest());
+
+            //Assert
+            verify(mensagemService, times(1)).buscarMensagens(anyList());
+        }
+    }
+
+    @Nested
+    class RegistrarGostei {
+        @Test
+        void devePermitirRegistrarGostei() throws Exception {
+            //Arrange
+            var id = UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bb");
+            when(mensagemService.registrarGostei(id, "Adam")).thenReturn(true);
+
+            //Act
+            mockMvc.perform(post("/mensagens/{id}/gostei", id).param("usuario", "Adam"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$").value("gostei registrado"));
+
+            //Assert
+            verify(mensagemService, times(1)).registrarGostei(id, "Adam");
+        }
+
+        @Test
+        void devePermitirRegistrarGostei_QuandoJaRegistrado() throws Exception {
+            //Arrange
+            var id = UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bb");
+            when(mensagemService.registrarGostei(id, "Adam")).thenReturn(false);
+
+            //Act
+            mockMvc.perform(post("/mensagens/{id}/gostei", id).param("usuario", "Adam"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$").value("gostei já registrado"));
+
+            //Assert
+            verify(mensagemService, times(1)).registrarGostei(id, "Adam");
+        }
+
+        @Test
+        void deveGerarExcecao_QuandoRegistrarGostei_IdNaoExiste() throws Exception {
+            //Arrange
+            var id = UUID.fromString("6967393c-2255-4d69-b405-e3946d073283");
+            when(mensagemService.registrarGostei(id, "Adam"))
+                    .thenThrow(new MensagemNotFoundException("Mensagem não encontrada"));
+
+            //Act
+            mockMvc.perform(post("/mensagens/{id}/gostei", id).param("usuario", "Adam"))
+                    .andExpect(status().isBadRequest());
+
+            //Assert
+            verify(mensagemService, times(1)).registrarGostei(id, "Adam");
+        }
+
+        @Test
+        void deveGerarExcecao_QuandoRegistrarGostei_IdInvalido() throws Exception {
+            //Act
+            mockMvc.perform(post("/mensagens/{id}/gostei", "2").param("usuario", "Adam"))
+                    .andExpect(status().isBadRequest());
+
+            //Assert
+            verify(mensagemService, never()).registrarGostei(any(UUID.class), anyString());
+        }
+
+        @Test
+        void deveGerarExcecao_QuandoRegistrarGostei_UsuarioEmBranco() throws Exception {
+            //Arrange
+            var id = UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bb");
+
+            //Act
+            mockMvc.perform(post("/mensagens/{id}/gostei", id).param("usuario", " "))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$").value("Usuario Invalido"));
+
+            //Assert
+            verify(mensagemService, never()).registrarGostei(any(UUID.class), anyString());
+        }
+    }
+
+    @Nested
+    class ConsultarGostei {
+        @Test
+        void devePermitirConsultarGostei() throws Exception {
+            //Arrange
+            var id = UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bb");
+            when(mensagemService.consultarGostei(id, "Adam")).thenReturn(new SituacaoGostei(true, 2));
+
+            //Act
+            mockMvc.perform(get("/mensagens/{id}/gostei", id).param("usuario", "Adam"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.gostou").value(true))
+                    .andExpect(jsonPath("$.total").value(2));
+
+            //Assert
+            verify(mensagemService, times(1)).consultarGostei(id, "Adam");
+        }
+
+        @Test
+        void deveGerarExcecao_QuandoConsultarGostei_IdNaoExiste() throws Exception {
+            //Arrange
+            var id = UUID.fromString("6967393c-2255-4d69-b405-e3946d073283");
+            when(mensagemService.consultarGostei(id, "Adam"))
+                    .thenThrow(new MensagemNotFoundException("Mensagem não encontrada"));
+
+            //Act
+            mockMvc.perform(get("/mensagens/{id}/gostei", id).param("usuario", "Adam"))
+                    .andExpect(status().isBadRequest());
+
+            //Assert
+            verify(mensagemService, times(1)).consultarGostei(id, "Adam");
+        }
+    }
+
+    @Nested
+    class ListarEmAlta {
+        @Test
+        void devePermitirListarEmAlta() throws Exception {
+            //Arrange
+            var mensagem = gerarMensagem();
+            mensagem.setId(UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bb"));
+            when(mensagemService.listarEmAlta(JanelaTendencia.DIA, 5))
+                    .thenReturn(List.of(new MensagemEmAlta(mensagem, 12)));
+
+            //Act
+            mockMvc.perform(get("/mensagens/trending")
+                            .param("janela", "dia")
+                            .param("quantidade", "5"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].mensagem.id").value(mensagem.getId().toString()))
+                    .andExpect(jsonPath("$[0].gosteiNaJanela").value(12));
+
+            //Assert
+            verify(mensagemService, times(1)).listarEmAlta(JanelaTendencia.DIA, 5);
+        }
+
+        @Test
+        void deveGerarExcecao_QuandoListarEmAlta_JanelaInvalida() throws Exception {
+            //Act
+            mockMvc.perform(get("/mensagens/trending").param("janela", "semana"))
+                    .andExpect(status().isBadRequest());
+
+            //Assert
+            verify(mensagemService, never()).listarEmAlta(any(), anyInt());
         }
     }
 
@@ -233,7 +458,7 @@ class MensagemControllerTest {
             //Act
             mockMvc.perform(delete("/mensagens/{id}", id))
                     .andExpect(status().isOk());
-//                    .andExpect(content().string("mensagem removida"));
+//                    .andExpect(jsonPath("$").value("mensagem removida"));
 
             //Assert
             verify(mensagemService, times(1)).removerMensagem(id);
@@ -249,7 +474,7 @@ class MensagemControllerTest {
             //Act
             mockMvc.perform(delete("/mensagens/{id}", id))
                     .andExpect(status().isBadRequest());
-//                    .andExpect(content().string("mensagem nao encontrada"));
+//                    .andExpect(jsonPath("$").value("mensagem nao encontrada"));
 
             //Assert
             verify(mensagemService, times(1)).removerMensagem(id);
@@ -282,6 +507,33 @@ class MensagemControllerTest {
 
         }
 
+        @Test
+        void deveInformarPrecisaoDoTotal_QuandoInformadaEstrategiaDeContagem() throws Exception {
+
+            //Arrange
+            var pageable = PageRequest.of(0, 10);
+            var page = new PaginaMensagens(Collections.singletonList(gerarMensagem()), pageable, 5_000,
+                    EstrategiaContagem.ESTIMADA);
+
+            when(mensagemService.listarMensagem(pageable, EstrategiaContagem.ESTIMADA)).thenReturn(page);
+
+            //Assert
+            mockMvc.perform(get("/mensagens")
+                            .param("contagem", "estimada"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.totalElements").value(5_000))
+                    .andExpect(jsonPath("$.precisaoTotal").value("ESTIMADA"));
+        }
+
+        @Test
+        void deveGerarExcecao_QuandoEstrategiaDeContagemInvalida() throws Exception {
+            mockMvc.perform(get("/mensagens")
+                            .param("contagem", "chute"))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$").value("Contagem Invalida"));
+            verifyNoInteractions(mensagemService);
+        }
+
         @Test
         void devePermitirListarMensagens_QuandoNaoInformadoPaginacao() throws Exception {
 
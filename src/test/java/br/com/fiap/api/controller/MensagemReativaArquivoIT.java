@@ -0,0 +1,97 @@
+package br.com.fiap.api.controller;
+
+import br.com.fiap.api.repository.ArquivoMensagens;
+import br.com.fiap.api.service.ArquivamentoMensagens;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// contexto e banco próprios: as mensagens do data.sql saem da tabela e os outros testes contam com elas
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:reativo-arquivo;DB_CLOSE_DELAY=-1",
+                "spring.r2dbc.url=r2dbc:h2:mem:///reativo-arquivo;DB_CLOSE_DELAY=-1",
+                "mensagem.arquivo.idade=1d",
+                "mensagem.arquivo.linhas-por-bloco=2"
+        })
+@ActiveProfiles({"test", "reativo"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@AutoConfigureWebTestClient
+@DirtiesContext
+class MensagemReativaArquivoIT {
+
+    private static final String ID_ARQUIVADA = "870c5a73-d080-44e4-8cd8-32a6ddba2efb";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ArquivamentoMensagens arquivamento;
+
+    @Autowired
+    private ArquivoMensagens arquivo;
+
+    @Test
+    void deveBuscarEListarMensagensArquivadas_NoPerfilReativo() {
+        var recente = webTestClient.post().uri("/mensagens")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"usuario\": \"Adam\", \"conteudo\": \"Mensagem recente\"}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .returnResult()
+                .getResponseBody();
+        assertThat(recente).isNotNull();
+
+        arquivamento.arquivar();
+        assertThat(arquivo.total()).isEqualTo(3);
+
+        webTestClient.get().uri("/mensagens/{id}", ID_ARQUIVADA)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.conteudo").isEqualTo("Conteudo da mensagem 2")
+                .jsonPath("$.usuario").isEqualTo("Eva");
+        webTestClient.get().uri("/mensagens?page=0&size=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.totalElements").isEqualTo(4)
+                .jsonPath("$.content.length()").isEqualTo(2)
+                .jsonPath("$.content[0].conteudo").isEqualTo("Mensagem recente");
+        webTestClient.get().uri("/mensagens?page=1&size=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.totalElements").isEqualTo(4)
+                .jsonPath("$.content.length()").isEqualTo(2);
+    }
+
+    @Test
+    void naoDeveAlterarNemRemoverMensagemArquivada_NoPerfilReativo() {
+        arquivamento.arquivar();
+
+        webTestClient.put().uri("/mensagens/{id}", ID_ARQUIVADA)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"id\": \"" + ID_ARQUIVADA + "\", \"usuario\": \"Eva\", \"conteudo\": \"Alterada\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.delete().uri("/mensagens/{id}", ID_ARQUIVADA)
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/mensagens/{id}", ID_ARQUIVADA)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.conteudo").isEqualTo("Conteudo da mensagem 2");
+    }
+}
@@ -0,0 +1,91 @@
+package br.com.fiap.api.controller;
+
+import br.com.fiap.api.model.Mensagem;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static br.com.fiap.api.utils.MensagemHelper.gerarMensagem;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:reativo;DB_CLOSE_DELAY=-1",
+                "spring.r2dbc.url=r2dbc:h2:mem:///reativo;DB_CLOSE_DELAY=-1"
+        })
+@ActiveProfiles({"test", "reativo"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@AutoConfigureWebTestClient
+class MensagemReativaControllerIT {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void devePermitirRegistrarEBuscarMensagem() {
+        var mensagemRegistrada = webTestClient.post().uri("/mensagens")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(gerarMensagem())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Mensagem.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(mensagemRegistrada).isNotNull();
+        webTestClient.get().uri("/mensagens/{id}", mensagemRegistrada.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.conteudo").isEqualTo(mensagemRegistrada.getConteudo());
+    }
+
+    @Test
+    void devePermitirRegistrarEBuscarMensagem_ComConteudoCompactado() {
+        var mensagem = gerarMensagem();
+        var conteudo = "Conteúdo longo da mensagem, repetido até passar do limiar. ".repeat(40);
+        mensagem.setConteudo(conteudo);
+
+        var mensagemRegistrada = webTestClient.post().uri("/mensagens")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(mensagem)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Mensagem.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(mensagemRegistrada).isNotNull();
+        webTestClient.get().uri("/mensagens/{id}", mensagemRegistrada.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.conteudo").isEqualTo(conteudo);
+    }
+
+    @Test
+    void devePermitirListarMensagens() {
+        webTestClient.get().uri("/mensagens?page=0&size=2")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content.length()").isEqualTo(2)
+                .jsonPath("$.totalElements").value(total -> assertThat((Integer) total).isGreaterThanOrEqualTo(3));
+    }
+
+    @Test
+    void devePermitirTransmitirMensagens() {
+        webTestClient.get().uri("/mensagens?size=3")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Mensagem.class).hasSize(3);
+    }
+}
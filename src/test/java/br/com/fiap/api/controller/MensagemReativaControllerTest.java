@@ -0,0 +1,196 @@
+package br.com.fiap.api.controller;
+
+import br.com.fiap.api.exception.MensagemNotFoundException;
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.service.MensagemReativaService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+
+import static br.com.fiap.api.utils.MensagemHelper.gerarMensagem;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MensagemReativaControllerTest {
+
+    private WebTestClient webTestClient;
+
+    @Mock
+    private MensagemReativaService mensagemService;
+
+    AutoCloseable mock;
+
+    @BeforeEach
+    void setup() {
+        mock = MockitoAnnotations.openMocks(this);
+        webTestClient = WebTestClient.bindToController(new MensagemReativaController(mensagemService)).build();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mock.close();
+    }
+
+    @Nested
+    class RegistrarMensagem {
+        @Test
+        void devePermitirRegistrarMensagem() {
+            //Arrange
+            var mensagem = gerarMensagem();
+            when(mensagemService.registrarMensagem(any(Mensagem.class)))
+                    .thenAnswer(i -> Mono.just(i.getArgument(0)));
+
+            //Act
+            webTestClient.post().uri("/mensagens")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(mensagem)
+                    .exchange()
+                    .expectStatus().isCreated();
+
+            //Assert
+            verify(mensagemService, times(1)).registrarMensagem(any(Mensagem.class));
+        }
+    }
+
+    @Nested
+    class RegistrarGostei {
+        @Test
+        void devePermitirRegistrarGostei() {
+            //Arrange
+            var id = UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bb");
+            when(mensagemService.registrarGostei(id, "Adam")).thenReturn(Mono.just(true));
+
+            //Act
+            webTestClient.post().uri("/mensagens/{id}/gostei?usuario={usuario}", id, "Adam")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(String.class).isEqualTo("gostei registrado");
+
+            //Assert
+            verify(mensagemService, times(1)).registrarGostei(id, "Adam");
+        }
+
+        @Test
+        void deveGerarExcecao_QuandoRegistrarGostei_IdNaoExiste() {
+            //Arrange
+            var id = UUID.fromString("6967393c-2255-4d69-b405-e3946d073283");
+            when(mensagemService.registrarGostei(id, "Adam"))
+                    .thenReturn(Mono.error(new MensagemNotFoundException("Mensagem não encontrada")));
+
+            //Act
+            webTestClient.post().uri("/mensagens/{id}/gostei?usuario={usuario}", id, "Adam")
+                    .exchange()
+                    .expectStatus().isBadRequest();
+
+            //Assert
+            verify(mensagemService, times(1)).registrarGostei(id, "Adam");
+        }
+    }
+
+    @Nested
+    class BuscarMensagem {
+        @Test
+        void devePermitirBuscarMensagem() {
+            //Arrange
+            var id = UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bb");
+            var mensagem = gerarMensagem();
+            mensagem.setId(id);
+            when(mensagemService.buscarMensagem(id)).thenReturn(Mono.just(mensagem));
+
+            //Act
+            webTestClient.get().uri("/mensagens/{id}", id)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody().jsonPath("$.id").isEqualTo(id.toString());
+
+            //Assert
+            verify(mensagemService, times(1)).buscarMensagem(id);
+        }
+
+        @Test
+        void deveGerarExcecao_QuandoBuscarMensagem_IdNaoExiste() {
+            //Arrange
+            var id = UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bc");
+            when(mensagemService.buscarMensagem(id))
+                    .thenReturn(Mono.error(new MensagemNotFoundException("Mensagem não encontrada")));
+
+            //Act
+            webTestClient.get().uri("/mensagens/{id}", id)
+                    .exchange()
+                    .expectStatus().isBadRequest();
+
+            //Assert
+            verify(mensagemService, times(1)).buscarMensagem(id);
+        }
+    }
+
+    @Nested
+    class RemoverMensagem {
+        @Test
+        void deveGerarExcecao_QuandoRemoverMensagem_IdNaoExiste() {
+            //Arrange
+            var id = UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bd");
+            when(mensagemService.removerMensagem(id))
+                    .thenReturn(Mono.error(new MensagemNotFoundException("Mensagem não encontrada")));
+
+            //Act
+            webTestClient.delete().uri("/mensagens/{id}", id)
+                    .exchange()
+                    .expectStatus().isBadRequest();
+
+            //Assert
+            verify(mensagemService, times(1)).removerMensagem(id);
+        }
+    }
+
+    @Nested
+    class ListarMensagens {
+        @Test
+        void devePermitirListarMensagens() {
+            //Arrange
+            var page = new PageImpl<>(List.of(gerarMensagem()));
+            when(mensagemService.listarMensagem(any(Pageable.class))).thenReturn(Mono.just(page));
+
+            //Act
+            webTestClient.get().uri("/mensagens?page=0&size=10")
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.totalPages").isEqualTo(1)
+                    .jsonPath("$.totalElements").isEqualTo(1);
+
+            //Assert
+            verify(mensagemService, times(1)).listarMensagem(any(Pageable.class));
+        }
+
+        @Test
+        void devePermitirTransmitirMensagens() {
+            //Arrange
+            when(mensagemService.transmitirMensagens(any(Pageable.class)))
+                    .thenReturn(Flux.just(gerarMensagem(), gerarMensagem()));
+
+            //Act
+            webTestClient.get().uri("/mensagens?size=2")
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(Mensagem.class).hasSize(2);
+
+            //Assert
+            verify(mensagemService, times(1)).transmitirMensagens(any(Pageable.class));
+        }
+    }
+}
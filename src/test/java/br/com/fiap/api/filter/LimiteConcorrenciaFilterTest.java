@@ -0,0 +1,213 @@
+package br.com.fiap.api.filter;
+
+import br.com.fiap.api.filter.LimiteConcorrenciaFilter.Prioridade;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class LimiteConcorrenciaFilterTest {
+
+    private static final long RTT_BASE = 10_000_000L;
+
+    @Nested
+    class Limite {
+
+        @Test
+        void deveAumentarLimiteQuandoLatenciaNaoCresce() {
+            //Arrange
+            var limite = new LimiteAdaptativo(10, 1, 100);
+            limite.registrarAmostra(RTT_BASE, 10);
+
+            //Act
+            limite.registrarAmostra(RTT_BASE, 10);
+
+            //Assert
+            assertThat(limite.getLimite()).isGreaterThan(10);
+        }
+
+        @Test
+        void deveReduzirLimiteQuandoLatenciaIndicaFila() {
+            //Arrange
+            var limite = new LimiteAdaptativo(50, 1, 100);
+            limite.registrarAmostra(RTT_BASE, 50);
+
+            //Act
+            for (int i = 0; i < 10; i++) {
+                limite.registrarAmostra(RTT_BASE * 4, 50);
+            }
+
+            //Assert
+            assertThat(limite.getLimite()).isLessThan(50);
+        }
+
+        @Test
+        void naoDeveAjustarLimiteQuandoPoucasVagasEstaoEmUso() {
+            //Arrange
+            var limite = new LimiteAdaptativo(50, 1, 100);
+            limite.registrarAmostra(RTT_BASE, 50);
+
+            //Act
+            limite.registrarAmostra(RTT_BASE * 4, 5);
+
+            //Assert
+            assertThat(limite.getLimite()).isEqualTo(50);
+        }
+
+        @Test
+        void deveRespeitarLimiteMinimo() {
+            //Arrange
+            var limite = new LimiteAdaptativo(10, 8, 100);
+            limite.registrarAmostra(RTT_BASE, 10);
+
+            //Act
+            for (int i = 0; i < 20; i++) {
+                limite.registrarAmostra(RTT_BASE * 10, 10);
+            }
+
+            //Assert
+            assertThat(limite.getLimite()).isEqualTo(8);
+        }
+
+        @Test
+        void deveRecusarAquisicaoAlemDaFracaoDoLimite() {
+            //Arrange
+            var limite = new LimiteAdaptativo(10, 1, 100);
+            for (int i = 0; i < 5; i++) {
+                assertThat(limite.adquirir(0.5)).isTrue();
+            }
+
+            //Act
+            var listagem = limite.adquirir(0.5);
+            var leitura = limite.adquirir(1.0);
+
+            //Assert
+            assertThat(listagem).isFalse();
+            assertThat(leitura).isTrue();
+            assertThat(limite.getEmAndamento()).isEqualTo(6);
+        }
+
+        @Test
+        void deveGerarExcecao_QuandoLimitesInvalidos() {
+            assertThatThrownBy(() -> new LimiteAdaptativo(10, 20, 5))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Limites de concorrência inválidos");
+        }
+    }
+
+    @Nested
+    class Filtro {
+
+        private LimiteAdaptativo limite;
+        private SimpleMeterRegistry meterRegistry;
+        private LimiteConcorrenciaFilter filtro;
+
+        @BeforeEach
+        void setup() {
+            limite = new LimiteAdaptativo(4, 1, 4);
+            meterRegistry = new SimpleMeterRegistry();
+            filtro = new LimiteConcorrenciaFilter(limite, 0.75, 0.5, Duration.ofSeconds(2), meterRegistry);
+        }
+
+        @Test
+        void devePermitirRequisicaoDentroDoLimite() throws Exception {
+            //Arrange
+            var request = new MockHttpServletRequest("GET", "/mensagens/5874303c-c837-4354-bc69-10805f1eb4bb");
+            var response = new MockHttpServletResponse();
+            var chain = new MockFilterChain();
+
+            //Act
+            filtro.doFilter(request, response, chain);
+
+            //Assert
+            assertThat(chain.getRequest()).isSameAs(request);
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(limite.getEmAndamento()).isZero();
+        }
+
+        @Test
+        void deveRejeitarListagemQuandoFracaoEsgotada() throws Exception {
+            //Arrange
+            limite.adquirir(1.0);
+            limite.adquirir(1.0);
+            var request = new MockHttpServletRequest("GET", "/mensagens");
+            var response = new MockHttpServletResponse();
+            var chain = new MockFilterChain();
+
+            //Act
+            filtro.doFilter(request, response, chain);
+
+            //Assert
+            assertThat(chain.getRequest()).isNull();
+            assertThat(response.getStatus()).isEqualTo(503);
+            assertThat(response.getHeader("Retry-After")).isEqualTo("2");
+            assertThat(meterRegistry.get("mensagens.concorrencia.rejeicoes")
+                    .tag("prioridade", "listagem").counter().count()).isEqualTo(1);
+        }
+
+        @Test
+        void devePriorizarLeituraSobreListagem() throws Exception {
+            //Arrange
+            limite.adquirir(1.0);
+            limite.adquirir(1.0);
+            var request = new MockHttpServletRequest("GET", "/mensagens/5874303c-c837-4354-bc69-10805f1eb4bb");
+            var response = new MockHttpServletResponse();
+
+            //Act
+            filtro.doFilter(request, response, new MockFilterChain());
+
+            //Assert
+            assertThat(response.getStatus()).isEqualTo(200);
+        }
+
+        @Test
+        void deveLiberarVagaQuandoRequisicaoFalha() throws Exception {
+            //Arrange
+            var request = new MockHttpServletRequest("POST", "/mensagens");
+            var chain = mock(FilterChain.class);
+            doThrow(new IllegalStateException("falha")).when(chain).doFilter(any(), any());
+
+            //Act & Assert
+            assertThatThrownBy(() -> filtro.doFilter(request, new MockHttpServletResponse(), chain))
+                    .isInstanceOf(IllegalStateException.class);
+            assertThat(limite.getEmAndamento()).isZero();
+        }
+
+        @Test
+        void deveExporLimiteComoMetrica() {
+            assertThat(meterRegistry.get("mensagens.concorrencia.limite").gauge().value()).isEqualTo(4);
+        }
+
+        @ParameterizedTest
+        @CsvSource({
+                "GET, /mensagens, LISTAGEM",
+                "GET, /mensagens/, LISTAGEM",
+                "GET, /mensagens/5874303c-c837-4354-bc69-10805f1eb4bb, LEITURA",
+                "GET, /mensagens/5874303c-c837-4354-bc69-10805f1eb4bb/conversa, LISTAGEM",
+                "GET, /mensagens/5874303c-c837-4354-bc69-10805f1eb4bb/respostas, LISTAGEM",
+                "POST, /mensagens/buscar-varios, LEITURA",
+                "POST, /mensagens/5874303c-c837-4354-bc69-10805f1eb4bb/respostas, ESCRITA",
+                "POST, /mensagens, ESCRITA",
+                "PUT, /mensagens/5874303c-c837-4354-bc69-10805f1eb4bb, ESCRITA",
+                "DELETE, /mensagens/5874303c-c837-4354-bc69-10805f1eb4bb, ESCRITA"
+        })
+        void deveClassificarRequisicao(String metodo, String caminho, Prioridade esperada) {
+            assertThat(LimiteConcorrenciaFilter.classificar(new MockHttpServletRequest(metodo, caminho)))
+                    .isEqualTo(esperada);
+        }
+    }
+}
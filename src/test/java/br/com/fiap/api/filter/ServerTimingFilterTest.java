@@ -0,0 +1,126 @@
+package br.com.fiap.api.filter;
+
+import br.com.fiap.api.filter.TempoRequisicao.Fase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ServerTimingFilterTest {
+
+    private final ServerTimingFilter filtro = new ServerTimingFilter(Duration.ofSeconds(1), 1.0);
+
+    private final ServerTimingJacksonConverter conversor = new ServerTimingJacksonConverter(new ObjectMapper(), 1024);
+
+    @AfterEach
+    void tearDown() {
+        TempoRequisicao.encerrar();
+    }
+
+    @Test
+    void deveIncluirFasesESerializacao_QuandoRespostaJson() throws Exception {
+        //Arrange
+        var resposta = new MockHttpServletResponse();
+        FilterChain cadeia = (request, response) -> {
+            var tempo = TempoRequisicao.atual();
+            tempo.registrar(Fase.CONTROLLER, TimeUnit.MILLISECONDS.toNanos(12));
+            tempo.registrar(Fase.REPOSITORIO, TimeUnit.MILLISECONDS.toNanos(9));
+            tempo.prepararStatement(true);
+            tempo.iniciarStatement();
+            tempo.encerrarStatement();
+            conversor.write(Map.of("conteudo", "ok"), MediaType.APPLICATION_JSON,
+                    new ServletServerHttpResponse(resposta));
+        };
+
+        //Act
+        filtro.doFilter(new MockHttpServletRequest("GET", "/mensagens"), resposta, cadeia);
+
+        //Assert
+        var serverTiming = resposta.getHeader(ServerTimingFilter.SERVER_TIMING);
+        assertThat(resposta.getHeaders(ServerTimingFilter.SERVER_TIMING)).hasSize(1);
+        assertThat(serverTiming)
+                .startsWith("controller;dur=12.00, repositorio;dur=9.00, contagem;dur=")
+                .contains("serializacao;dur=", "hidratacao;dur=", "jdbc;desc=\"1 statements\"", "total;dur=")
+                .doesNotContain("servico", "consulta;");
+        assertThat(resposta.getContentAsString()).isEqualTo("{\"conteudo\":\"ok\"}");
+        assertThat(resposta.getContentLength()).isEqualTo(resposta.getContentAsByteArray().length);
+    }
+
+    @Test
+    void deveEnviarCorpoSemEsperarSerializacao_QuandoJsonMaiorQueLimite() throws Exception {
+        //Arrange
+        var resposta = new MockHttpServletResponse();
+        var conteudo = "x".repeat(4_000);
+        FilterChain cadeia = (request, response) -> {
+            TempoRequisicao.atual().registrar(Fase.CONTROLLER, TimeUnit.MILLISECONDS.toNanos(3));
+            conversor.write(Map.of("conteudo", conteudo), MediaType.APPLICATION_JSON,
+                    new ServletServerHttpResponse(resposta));
+        };
+
+        //Act
+        filtro.doFilter(new MockHttpServletRequest("GET", "/mensagens"), resposta, cadeia);
+
+        //Assert
+        assertThat(resposta.getHeaders(ServerTimingFilter.SERVER_TIMING)).hasSize(1);
+        assertThat(resposta.getHeader(ServerTimingFilter.SERVER_TIMING))
+                .startsWith("controller;dur=3.00")
+                .contains("total;dur=")
+                .doesNotContain("serializacao");
+        assertThat(resposta.getContentAsString()).isEqualTo("{\"conteudo\":\"" + conteudo + "\"}");
+        assertThat(resposta.getHeader("Content-Length")).isNull();
+    }
+
+    @Test
+    void deveIncluirCabecalho_QuandoRespostaNaoJson() throws Exception {
+        //Arrange
+        var resposta = new MockHttpServletResponse();
+        FilterChain cadeia = (request, response) -> response.getWriter().write("mensagem removida");
+
+        //Act
+        filtro.doFilter(new MockHttpServletRequest("DELETE", "/mensagens/1"), resposta, cadeia);
+
+        //Assert
+        assertThat(resposta.getHeader(ServerTimingFilter.SERVER_TIMING)).startsWith("total;dur=");
+        assertThat(TempoRequisicao.atual()).isNull();
+    }
+
+    @Test
+    void deveContarSomenteChamadaMaisExterna_QuandoFaseAninhada() {
+        //Arrange
+        var tempo = TempoRequisicao.iniciar();
+
+        //Act
+        var externa = tempo.entrar(Fase.REPOSITORIO);
+        var interna = tempo.entrar(Fase.REPOSITORIO);
+        tempo.sair(Fase.REPOSITORIO, interna, 5);
+        tempo.sair(Fase.REPOSITORIO, externa, 8);
+
+        //Assert
+        assertThat(externa).isTrue();
+        assertThat(interna).isFalse();
+        assertThat(tempo.duracao(Fase.REPOSITORIO)).isEqualTo(8);
+    }
+
+    @Test
+    void naoDeveMedirSerializacao_ForaDeRequisicaoMedida() throws Exception {
+        //Arrange
+        var resposta = new MockHttpServletResponse();
+
+        //Act
+        conversor.write(Map.of("conteudo", "ok"), MediaType.APPLICATION_JSON, new ServletServerHttpResponse(resposta));
+
+        //Assert
+        assertThat(resposta.getHeader(ServerTimingFilter.SERVER_TIMING)).isNull();
+        assertThat(resposta.getContentAsString()).isEqualTo("{\"conteudo\":\"ok\"}");
+    }
+}
@@ -0,0 +1,111 @@
+package br.com.fiap.api.performance;
+
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.repository.ArquivoMensagens;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leituras no arquivo frio com 500 mil mensagens em segmentos de 100 mil: busca por id presente e ausente
+ * e uma página de 20 em posição aleatória. O cache de blocos tem 64 entradas, uma fração pequena dos blocos, então
+ * a maior parte das buscas descompacta um bloco. O tamanho em disco sai no log do @Setup.
+ * Execute com
+ * {@code mvn test-compile exec:exec@jmh -P benchmark -Dbenchmark.incluir=ArquivoMensagensBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArquivoMensagensBenchmark {
+
+    private static final int MENSAGENS = 500_000;
+    private static final int POR_SEGMENTO = 100_000;
+
+    @Param({"1024", "256"})
+    private int linhasPorBloco;
+
+    private Path diretorio;
+    private ArquivoMensagens arquivo;
+    private UUID[] ids;
+
+    @Setup
+    public void preparar() throws IOException {
+        diretorio = Files.createTempDirectory("arquivo-benchmark");
+        arquivo = new ArquivoMensagens(diretorio, linhasPorBloco, 9, 64);
+        ids = new UUID[MENSAGENS];
+        var aleatorio = new SplittableRandom(42);
+        var palavras = GeradorMassaMensagens.PALAVRAS;
+        var inicio = LocalDateTime.of(2023, 1, 1, 0, 0);
+        long original = 0;
+        for (int lote = 0; lote < MENSAGENS / POR_SEGMENTO; lote++) {
+            var mensagens = new ArrayList<Mensagem>(POR_SEGMENTO);
+            for (int i = 0; i < POR_SEGMENTO; i++) {
+                var indice = lote * POR_SEGMENTO + i;
+                var conteudo = new StringBuilder();
+                var tamanho = 40 + aleatorio.nextInt(400);
+                while (conteudo.length() < tamanho) {
+                    conteudo.append(palavras[aleatorio.nextInt(palavras.length)]).append(' ');
+                }
+                ids[indice] = UUID.randomUUID();
+                var mensagem = Mensagem.builder()
+                        .id(ids[indice])
+                        .usuario("usuario-" + aleatorio.nextInt(10_000))
+                        .conteudo(conteudo.toString())
+                        .dataCriacao(inicio.plusSeconds(indice * 30L))
+                        .gostei(aleatorio.nextInt(50))
+                        .nova(false)
+                        .build();
+                original += Long.BYTES * 3 + Integer.BYTES
+                        + mensagem.getUsuario().getBytes(StandardCharsets.UTF_8).length
+                        + mensagem.getConteudo().getBytes(StandardCharsets.UTF_8).length;
+                mensagens.add(mensagem);
+            }
+            arquivo.arquivar(mensagens);
+        }
+        System.out.printf("%n[%d linhas por bloco] %d mensagens, %d bytes de dados, %d bytes em %d segmentos (%.1f%%)%n",
+                linhasPorBloco, arquivo.total(), original, arquivo.bytes(), arquivo.quantidadeSegmentos(),
+                100.0 * arquivo.bytes() / original);
+    }
+
+    @TearDown
+    public void encerrar() throws IOException {
+        arquivo.close();
+        try (var arquivos = Files.list(diretorio)) {
+            for (var segmento : arquivos.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(segmento);
+            }
+        }
+        Files.delete(diretorio);
+    }
+
+    @Benchmark
+    public Optional<Mensagem> buscarPorId() {
+        return arquivo.buscar(ids[ThreadLocalRandom.current().nextInt(MENSAGENS)]);
+    }
+
+    // o que toda busca que não acha a mensagem na tabela nem no arquivo paga a mais
+    @Benchmark
+    public Optional<Mensagem> buscarPorIdAusente() {
+        return arquivo.buscar(new UUID(ThreadLocalRandom.current().nextLong(), ThreadLocalRandom.current().nextLong()));
+    }
+
+    @Benchmark
+    public List<Mensagem> listarPagina() {
+        return arquivo.listar(ThreadLocalRandom.current().nextInt(MENSAGENS - 20), 20);
+    }
+}
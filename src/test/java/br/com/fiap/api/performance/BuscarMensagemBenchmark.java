@@ -0,0 +1,93 @@
+package br.com.fiap.api.performance;
+
+import br.com.fiap.api.controller.MensagemController;
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.service.MensagemService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static br.com.fiap.api.utils.MensagemHelper.gerarMensagem;
+
+/**
+ * Compara o caminho de GET /mensagens/{id} anterior (UUID.fromString + exceção com pilha)
+ * com o atual (ConversorUUID + Optional + resposta de erro pré-alocada).
+ * Execute com {@code make benchmark} ou
+ * {@code mvn test-compile exec:exec@jmh -P benchmark -Dbenchmark.incluir=BuscarMensagemBenchmark}
+ * e compare {@code gc.alloc.rate.norm} entre os pares.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuscarMensagemBenchmark {
+
+    private final String idExistente = "5874303c-c837-4354-bc69-10805f1eb4bb";
+    private final String idInexistente = "bd04f514-599c-47fa-9f80-aea2979c580c";
+
+    private MensagemService mensagemService;
+    private MensagemController mensagemController;
+
+    @Setup
+    public void preparar() {
+        var mensagem = gerarMensagem();
+        mensagem.setId(UUID.fromString(idExistente));
+        var resultado = Optional.of(mensagem);
+
+        mensagemService = (MensagemService) Proxy.newProxyInstance(
+                MensagemService.class.getClassLoader(),
+                new Class<?>[]{MensagemService.class},
+                (proxy, metodo, argumentos) -> {
+                    var encontrada = mensagem.getId().equals(argumentos[0]);
+                    return switch (metodo.getName()) {
+                        case "procurarMensagem" -> encontrada ? resultado : Optional.empty();
+                        case "buscarMensagem" -> {
+                            if (!encontrada) {
+                                throw new IllegalStateException("Mensagem não encontrada");
+                            }
+                            yield mensagem;
+                        }
+                        default -> throw new UnsupportedOperationException(metodo.getName());
+                    };
+                });
+        mensagemController = new MensagemController(mensagemService);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> anteriorEncontrada() {
+        return buscarMensagemAnterior(idExistente);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> anteriorNaoEncontrada() {
+        return buscarMensagemAnterior(idInexistente);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> atualEncontrada() {
+        return mensagemController.buscarMensagem(idExistente);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> atualNaoEncontrada() {
+        return mensagemController.buscarMensagem(idInexistente);
+    }
+
+    // reprodução do caminho anterior do MensagemController, com a exceção carregando a pilha
+    private ResponseEntity<?> buscarMensagemAnterior(String id) {
+        var uuid = UUID.fromString(id);
+        try {
+            Mensagem mensagemEncontrada = mensagemService.buscarMensagem(uuid);
+            return new ResponseEntity<>(mensagemEncontrada, HttpStatus.OK);
+        } catch (IllegalStateException mensagemNotFoundException) {
+            return new ResponseEntity<>("ID Invalido", HttpStatus.BAD_REQUEST);
+        }
+    }
+}
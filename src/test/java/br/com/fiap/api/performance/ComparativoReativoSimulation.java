@@ -0,0 +1,65 @@
+package br.com.fiap.api.performance;
+
+import io.gatling.javaapi.core.ActionBuilder;
+import io.gatling.javaapi.core.ScenarioBuilder;
+import io.gatling.javaapi.core.Simulation;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
+
+import java.time.Duration;
+
+import static io.gatling.javaapi.core.CoreDsl.*;
+import static io.gatling.javaapi.http.HttpDsl.http;
+import static io.gatling.javaapi.http.HttpDsl.status;
+
+/**
+ * Mesma carga para as duas pilhas: execute uma vez contra a aplicação padrão (MVC) e outra contra
+ * o perfil "reativo", ambas com o pool de conexões limitado, e compare os relatórios do Gatling.
+ */
+public class ComparativoReativoSimulation extends Simulation {
+
+    private static final String URL_BASE = System.getProperty("urlBase", "http://localhost:8080");
+    private static final int USUARIOS_CONCORRENTES = Integer.getInteger("usuarios", 500);
+    private static final Duration DURACAO = Duration.ofSeconds(Integer.getInteger("duracao", 60));
+
+    private final HttpProtocolBuilder httpProtocol =
+            http.baseUrl(URL_BASE)
+                    .header("Content-Type", "application/json")
+                    .acceptHeader("application/json");
+
+    ActionBuilder registrarMensagemRequest = http("registrar mensagem")
+            .post("/mensagens")
+            .body(StringBody("{\"usuario\": \"user\", \"conteudo\": \"conteudo da mensagem\"}"))
+            .check(status().is(201))
+            .check(jsonPath("$.id").saveAs("mensagemId"));
+
+    ActionBuilder buscarMensagemRequest = http("buscar mensagem")
+            .get("/mensagens/#{mensagemId}")
+            .check(status().is(200));
+
+    ActionBuilder listarMensagensRequest = http("listar mensagens")
+            .get("/mensagens?page=0&size=20")
+            .check(status().is(200));
+
+    ScenarioBuilder cenarioLeituraConcorrente = scenario("Leitura concorrente")
+            .exec(registrarMensagemRequest)
+            .during(DURACAO).on(
+                    exec(buscarMensagemRequest)
+                            .exec(listarMensagensRequest)
+            );
+
+    {
+        setUp(
+                cenarioLeituraConcorrente.injectClosed(
+                        rampConcurrentUsers(1)
+                                .to(USUARIOS_CONCORRENTES)
+                                .during(Duration.ofSeconds(10)),
+                        constantConcurrentUsers(USUARIOS_CONCORRENTES)
+                                .during(DURACAO)
+                )
+        )
+                .protocols(httpProtocol)
+                .assertions(
+                        global().failedRequests().percent().lt(1.0)
+                );
+    }
+}
@@ -0,0 +1,146 @@
+package br.com.fiap.api.performance;
+
+import br.com.fiap.api.model.ConteudoMensagem;
+import br.com.fiap.api.utils.CompressorConteudo;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Espaço e tempo de varredura do conteúdo sem compressão, com Zstd e com Zstd mais dicionário treinado
+ * numa amostra separada da mesma massa. As mensagens têm tamanho log-normal com mediana de ~300 bytes e
+ * cauda até 16 KB, com as palavras do GeradorMassaMensagens; o tamanho gravado sai no log do @Setup.
+ * Execute com
+ * {@code mvn test-compile exec:exec@jmh -P benchmark -Dbenchmark.incluir=CompressaoConteudoBenchmark}.
+ * {@code varredura} lê as colunas de todas as linhas, como uma listagem sem índice; {@code pagina} lê 20
+ * linhas e descompacta, o custo que fica no caminho de GET /mensagens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressaoConteudoBenchmark {
+
+    private static final int MENSAGENS = 50_000;
+    private static final int AMOSTRAS_DICIONARIO = 20_000;
+    private static final int TAMANHO_DICIONARIO = 32 * 1024;
+    private static final int TAMANHO_MAXIMO = 16 * 1024;
+
+    @Param({"texto", "zstd", "zstd-dicionario"})
+    private String formato;
+
+    private Connection conexao;
+
+    @Setup
+    public void preparar() throws SQLException {
+        var compressor = switch (formato) {
+            case "texto" -> null;
+            case "zstd" -> new CompressorConteudo(256, 3, null);
+            default -> new CompressorConteudo(256, 3, CompressorConteudo.treinarDicionario(
+                    gerar(AMOSTRAS_DICIONARIO, 7), 100 * TAMANHO_DICIONARIO, TAMANHO_DICIONARIO));
+        };
+        conexao = DriverManager.getConnection("jdbc:h2:mem:compressao-" + formato + ";DB_CLOSE_DELAY=-1");
+        try (var comando = conexao.createStatement()) {
+            comando.execute("CREATE TABLE mensagem (id INTEGER PRIMARY KEY, conteudo VARCHAR(" + TAMANHO_MAXIMO
+                    + "), conteudo_compactado VARBINARY(" + TAMANHO_MAXIMO + "))");
+        }
+        long original = 0;
+        try (var insercao = conexao.prepareStatement(
+                "INSERT INTO mensagem (id, conteudo, conteudo_compactado) VALUES (?, ?, ?)")) {
+            var id = 0;
+            for (var texto : gerar(MENSAGENS, 42)) {
+                var utf8 = texto.getBytes(StandardCharsets.UTF_8);
+                original += utf8.length;
+                var compactar = compressor != null && compressor.deveCompactar(utf8);
+                insercao.setInt(1, id++);
+                insercao.setString(2, compactar ? null : texto);
+                insercao.setBytes(3, compactar ? compressor.compactar(utf8) : null);
+                insercao.addBatch();
+                if (id % 1_000 == 0) {
+                    insercao.executeBatch();
+                }
+            }
+            insercao.executeBatch();
+        }
+        try (var comando = conexao.createStatement();
+             var resultado = comando.executeQuery("SELECT COALESCE(SUM(OCTET_LENGTH(conteudo)), 0) "
+                     + "+ COALESCE(SUM(OCTET_LENGTH(conteudo_compactado)), 0) FROM mensagem")) {
+            resultado.next();
+            var gravado = resultado.getLong(1);
+            System.out.printf("%n[%s] conteúdo original %d bytes, gravado %d bytes (%.1f%%)%n",
+                    formato, original, gravado, 100.0 * gravado / original);
+        }
+    }
+
+    @TearDown
+    public void encerrar() throws SQLException {
+        try (var comando = conexao.createStatement()) {
+            comando.execute("DROP ALL OBJECTS");
+        }
+        conexao.close();
+    }
+
+    @Benchmark
+    public long varredura() throws SQLException {
+        long bytes = 0;
+        try (var comando = conexao.createStatement();
+             var resultado = comando.executeQuery("SELECT conteudo, conteudo_compactado FROM mensagem")) {
+            while (resultado.next()) {
+                var texto = resultado.getString(1);
+                var compactado = resultado.getBytes(2);
+                bytes += texto != null ? texto.length() : compactado.length;
+            }
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public void pagina(Blackhole blackhole) throws SQLException {
+        try (var consulta = conexao.prepareStatement(
+                "SELECT conteudo, conteudo_compactado FROM mensagem WHERE id >= ? ORDER BY id LIMIT 20")) {
+            consulta.setInt(1, ThreadLocalRandom.current().nextInt(MENSAGENS - 20));
+            try (var resultado = consulta.executeQuery()) {
+                while (resultado.next()) {
+                    blackhole.consume(ConteudoMensagem.armazenado(resultado.getString(1), resultado.getBytes(2))
+                            .texto());
+                }
+            }
+        }
+    }
+
+    private static List<String> gerar(int quantidade, long semente) {
+        var aleatorio = new SplittableRandom(semente);
+        var palavras = GeradorMassaMensagens.PALAVRAS;
+        var textos = new ArrayList<String>(quantidade);
+        var texto = new StringBuilder(TAMANHO_MAXIMO);
+        for (int i = 0; i < quantidade; i++) {
+            var tamanho = (int) Math.round(Math.exp(Math.log(300) + 0.9 * gaussiana(aleatorio)));
+            tamanho = Math.max(1, Math.min(TAMANHO_MAXIMO / 2, tamanho));
+            texto.setLength(0);
+            while (texto.length() < tamanho) {
+                if (!texto.isEmpty()) {
+                    texto.append(aleatorio.nextInt(12) == 0 ? ". " : " ");
+                }
+                texto.append(palavras[aleatorio.nextInt(palavras.length)]);
+            }
+            textos.add(texto.toString());
+        }
+        return textos;
+    }
+
+    private static double gaussiana(SplittableRandom aleatorio) {
+        // Box-Muller: o SplittableRandom não tem nextGaussian com semente reproduzível entre versões
+        return Math.sqrt(-2 * Math.log(1 - aleatorio.nextDouble())) * Math.cos(2 * Math.PI * aleatorio.nextDouble());
+    }
+}
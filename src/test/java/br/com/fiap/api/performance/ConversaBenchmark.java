@@ -0,0 +1,117 @@
+package br.com.fiap.api.performance;
+
+import br.com.fiap.api.RestApiApplication;
+import br.com.fiap.api.model.Conversa;
+import br.com.fiap.api.model.PaginaRespostas;
+import br.com.fiap.api.service.ConversaService;
+import br.com.fiap.api.utils.CaminhoConversa;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura de uma conversa com 100 mil respostas no H2: inteira, limitada a um nível e em páginas de
+ * respostas diretas, do início e do meio. "plana" tem todas as respostas na raiz; "ramificada" tem
+ * 316 respostas na raiz com 316 respostas cada.
+ * Execute com
+ * {@code mvn test-compile exec:exec@jmh -P benchmark -Dbenchmark.incluir=ConversaBenchmark}
+ * e compare a pagina do meio com a primeira: o cursor não percorre as anteriores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversaBenchmark {
+
+    private static final int RESPOSTAS = 100_000;
+    private static final int LOTE_INSERCAO = 1_000;
+
+    @Param({"plana", "ramificada"})
+    private String formato;
+
+    private ConfigurableApplicationContext contexto;
+    private ConversaService conversaService;
+    private UUID raiz;
+    private String cursorDoMeio;
+
+    @Setup
+    public void preparar() {
+        contexto = new SpringApplicationBuilder(RestApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--spring.datasource.url=jdbc:h2:mem:conversa-benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.sql.init.mode=never",
+                        "--mensagem.conversa.limite-mensagens=" + (RESPOSTAS + 1));
+        conversaService = contexto.getBean(ConversaService.class);
+        var jdbcTemplate = contexto.getBean(JdbcTemplate.class);
+
+        var inicio = LocalDateTime.of(2024, 1, 1, 0, 0);
+        raiz = UUID.randomUUID();
+        var caminhoRaiz = CaminhoConversa.raiz(inicio, raiz);
+        var linhas = new ArrayList<Object[]>(RESPOSTAS + 1);
+        linhas.add(linha(raiz, null, caminhoRaiz, inicio));
+
+        var instante = inicio.toEpochSecond(ZoneOffset.UTC) * 1_000_000;
+        var porRamo = formato.equals("plana") ? RESPOSTAS : (int) Math.sqrt(RESPOSTAS);
+        var filhos = new ArrayList<String>();
+        while (linhas.size() <= RESPOSTAS) {
+            var id = UUID.randomUUID();
+            var caminho = CaminhoConversa.filho(caminhoRaiz, ++instante, id);
+            linhas.add(linha(id, raiz, caminho, inicio));
+            filhos.add(caminho);
+            for (int i = 0; i < porRamo - 1 && linhas.size() <= RESPOSTAS && !formato.equals("plana"); i++) {
+                var neta = UUID.randomUUID();
+                linhas.add(linha(neta, id, CaminhoConversa.filho(caminho, ++instante, neta), inicio));
+            }
+        }
+        cursorDoMeio = CaminhoConversa.ultimoSegmento(filhos.get(filhos.size() / 2));
+
+        var insercao = "INSERT INTO mensagem (id, usuario, conteudo, data_criacao, gostei, resposta_de, caminho) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        for (int i = 0; i < linhas.size(); i += LOTE_INSERCAO) {
+            jdbcTemplate.batchUpdate(insercao, linhas.subList(i, Math.min(i + LOTE_INSERCAO, linhas.size())));
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @TearDown
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Conversa conversaInteira() {
+        return conversaService.buscarConversa(raiz, CaminhoConversa.PROFUNDIDADE_MAXIMA);
+    }
+
+    @Benchmark
+    public Conversa primeiroNivel() {
+        return conversaService.buscarConversa(raiz, 1);
+    }
+
+    @Benchmark
+    public PaginaRespostas primeiraPaginaDeRespostas() {
+        return conversaService.listarRespostas(raiz, null, 20);
+    }
+
+    @Benchmark
+    public PaginaRespostas paginaDoMeioDeRespostas() {
+        return conversaService.listarRespostas(raiz, cursorDoMeio, 20);
+    }
+
+    private static Object[] linha(UUID id, UUID respostaDe, String caminho, LocalDateTime dataCriacao) {
+        return new Object[]{id, "usuario-benchmark", "Conteudo da mensagem", Timestamp.valueOf(dataCriacao), 0,
+                respostaDe, caminho};
+    }
+}
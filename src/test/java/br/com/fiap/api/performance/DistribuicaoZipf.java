@@ -0,0 +1,38 @@
+package br.com.fiap.api.performance;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sorteia posições em [0, n) com probabilidade proporcional a 1 / (posição + 1)^expoente:
+ * poucas mensagens concentram a maior parte dos acessos, como em tráfego real.
+ */
+public class DistribuicaoZipf {
+
+    private final double[] acumulada;
+
+    public DistribuicaoZipf(int n, double expoente) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n deve ser positivo");
+        }
+        acumulada = new double[n];
+        double soma = 0;
+        for (int i = 0; i < n; i++) {
+            soma += 1 / Math.pow(i + 1, expoente);
+            acumulada[i] = soma;
+        }
+        for (int i = 0; i < n; i++) {
+            acumulada[i] /= soma;
+        }
+    }
+
+    public int sortear() {
+        return sortear(ThreadLocalRandom.current().nextDouble());
+    }
+
+    // para sorteios reproduzíveis: uniforme em [0, 1) vindo de um gerador com semente
+    public int sortear(double uniforme) {
+        var posicao = Arrays.binarySearch(acumulada, uniforme);
+        return Math.min(posicao >= 0 ? posicao : -posicao - 1, acumulada.length - 1);
+    }
+}
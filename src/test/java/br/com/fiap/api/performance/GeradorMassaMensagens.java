@@ -0,0 +1,422 @@
+package br.com.fiap.api.performance;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Gera massas grandes de mensagens direto no banco, para que benchmarks de índices, paginação e cache
+ * rodem com volume real em vez das três linhas do data.sql.
+ * <p>
+ * Autores seguem uma lei de potência (poucos autores escrevem a maior parte das mensagens), o tamanho
+ * do conteúdo é log-normal e a data de criação se espalha pelos últimos {@code -Ddias}. Vários produtores
+ * em paralelo, cada um com a própria conexão, escrevem por COPY no PostgreSQL e por INSERTs de várias
+ * linhas em lote nos demais bancos. Uma amostra dos ids vai para {@code -DarquivoIds}, que a
+ * PerformanceSimulation usa com {@code -Dids=...}.
+ * <p>
+ * O contador {@code gostei} de cada mensagem vem com o bitmap de quem deu gostei em {@code gostei_mensagem},
+ * sobre os índices dos próprios autores em {@code indice_usuario}: o total e a consulta de gostei por usuário
+ * batem com o contador.
+ * <p>
+ * Execute com {@code make massa-dados} (PostgreSQL do docker-compose, 10M mensagens). A aplicação que
+ * vai ler a massa precisa subir com {@code spring.jpa.hibernate.ddl-auto=update}: o create-drop padrão apaga tudo.
+ */
+public class GeradorMassaMensagens {
+
+    static final String[] PALAVRAS = {
+            "hoje", "amanhã", "reunião", "projeto", "café", "código", "deploy", "banco", "teste", "cliente",
+            "entrega", "sprint", "revisão", "ideia", "time", "produto", "erro", "correção", "versão", "pedido",
+            "obrigado", "alguém", "sabe", "como", "resolver", "isso", "rápido", "depois", "almoço", "semana",
+            "novo", "antigo", "lento", "ótimo", "problema", "servidor", "fila", "mensagem", "cache", "dados"};
+
+    private static final int TAMANHO_MAXIMO_CONTEUDO = 255;
+    // mediana de ~60 caracteres, com cauda até o limite da coluna
+    private static final double MEDIA_LOG_CONTEUDO = Math.log(60);
+    private static final double DESVIO_LOG_CONTEUDO = 0.8;
+    private static final double EXPOENTE_GOSTEI = 1.2;
+    private static final int MAXIMO_GOSTEI = 1_000_000;
+
+    private static final String COLUNAS = "mensagem (id, usuario, conteudo, data_criacao, gostei)";
+    private static final String COLUNAS_GOSTEI = "gostei_mensagem (mensagem_id, usuarios, versao)";
+    private static final int USUARIOS_POR_TRANSACAO = 10_000;
+    private static final int LINHAS_POR_INSERT = 100;
+    private static final int INSERTS_POR_TRANSACAO = 50;
+    private static final int TAMANHO_BUFFER_COPY = 1 << 20;
+    private static final String INSERT_GOSTEI = "INSERT INTO " + COLUNAS_GOSTEI + " VALUES (?, ?, 0)";
+    private static final HexFormat HEXADECIMAL = HexFormat.of();
+
+    public record Configuracao(String url, String usuarioBanco, String senha, long mensagens, int autores,
+                               double expoenteAutores, int produtores, int dias, long semente,
+                               Path arquivoIds, int amostraIds) {
+
+        public static Configuracao doSistema() {
+            return new Configuracao(
+                    System.getProperty("url", "jdbc:postgresql://localhost:5432/backend"),
+                    System.getProperty("usuarioBanco", "root"),
+                    System.getProperty("senha", "toor"),
+                    Long.getLong("mensagens", 10_000_000L),
+                    Integer.getInteger("autores", 1_000_000),
+                    Double.parseDouble(System.getProperty("expoenteAutores", "1.1")),
+                    Integer.getInteger("produtores", Runtime.getRuntime().availableProcessors()),
+                    Integer.getInteger("dias", 365),
+                    Long.getLong("semente", 42L),
+                    Path.of(System.getProperty("arquivoIds", "target/massa-ids.txt")),
+                    Integer.getInteger("amostraIds", 10_000));
+        }
+    }
+
+    private final Configuracao configuracao;
+
+    private final DistribuicaoZipf autores;
+
+    private final LocalDateTime fim = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+    public GeradorMassaMensagens(Configuracao configuracao) {
+        this.configuracao = configuracao;
+        this.autores = new DistribuicaoZipf(configuracao.autores(), configuracao.expoenteAutores());
+    }
+
+    public static void main(String[] args) throws Exception {
+        var configuracao = Configuracao.doSistema();
+        var inicio = System.nanoTime();
+        new GeradorMassaMensagens(configuracao).gerar();
+        var segundos = (System.nanoTime() - inicio) / 1e9;
+        System.out.printf("%d mensagens em %.1f s (%.0f linhas/s); amostra de ids em %s%n",
+                configuracao.mensagens(), segundos, configuracao.mensagens() / segundos, configuracao.arquivoIds());
+    }
+
+    public void gerar() throws SQLException, IOException, InterruptedException {
+        List<String> tabelasCriadas;
+        int[] indicesAutores;
+        try (var conexao = conectar()) {
+            tabelasCriadas = criarTabelasAusentes(conexao);
+            indicesAutores = indexarAutores(conexao);
+        }
+
+        var produtores = configuracao.produtores();
+        var executor = Executors.newFixedThreadPool(produtores);
+        var amostras = new ArrayList<Future<List<UUID>>>(produtores);
+        try {
+            for (int indice = 0; indice < produtores; indice++) {
+                var produtor = new Produtor(indice, indicesAutores);
+                amostras.add(executor.submit(produtor::produzir));
+            }
+            var ids = new ArrayList<String>(configuracao.amostraIds());
+            for (var amostra : amostras) {
+                amostra.get().forEach(id -> ids.add(id.toString()));
+            }
+            Files.createDirectories(configuracao.arquivoIds().toAbsolutePath().getParent());
+            Files.write(configuracao.arquivoIds(), ids, StandardCharsets.UTF_8);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("falha ao gerar a massa de mensagens", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try (var conexao = conectar(); var comando = conexao.createStatement()) {
+            if (tabelasCriadas.contains("mensagem")) {
+                comando.execute("ALTER TABLE mensagem ADD PRIMARY KEY (id)");
+            }
+            if (tabelasCriadas.contains("gostei_mensagem")) {
+                comando.execute("ALTER TABLE gostei_mensagem ADD PRIMARY KEY (mensagem_id)");
+            }
+        }
+    }
+
+    private Connection conectar() throws SQLException {
+        return DriverManager.getConnection(configuracao.url(), configuracao.usuarioBanco(), configuracao.senha());
+    }
+
+    // mesma estrutura que o Hibernate cria; as chaves primárias das tabelas carregadas só entram depois da carga
+    private List<String> criarTabelasAusentes(Connection conexao) throws SQLException {
+        var criadas = new ArrayList<String>();
+        criarSeAusente(conexao, criadas, "mensagem", "CREATE TABLE mensagem (id UUID NOT NULL, "
+                + "usuario VARCHAR(255) NOT NULL, conteudo VARCHAR(1024), conteudo_compactado BYTEA, "
+                + "data_criacao TIMESTAMP(6), gostei INTEGER NOT NULL, resposta_de UUID, caminho VARCHAR(2048), "
+                + "removida_em TIMESTAMP(6))");
+        criarSeAusente(conexao, criadas, "gostei_mensagem", "CREATE TABLE gostei_mensagem "
+                + "(mensagem_id UUID NOT NULL, usuarios BYTEA NOT NULL, versao BIGINT)");
+        criarSeAusente(conexao, criadas, "indice_usuario", "CREATE TABLE indice_usuario "
+                + "(indice INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, usuario VARCHAR(255) NOT NULL UNIQUE)");
+        return criadas;
+    }
+
+    private void criarSeAusente(Connection conexao, List<String> criadas, String tabela, String ddl)
+            throws SQLException {
+        var metadados = conexao.getMetaData();
+        for (var nome : List.of(tabela, tabela.toUpperCase())) {
+            try (var tabelas = metadados.getTables(null, null, nome, new String[]{"TABLE"})) {
+                if (tabelas.next()) {
+                    return;
+                }
+            }
+        }
+        try (var comando = conexao.createStatement()) {
+            comando.execute(ddl);
+        }
+        criadas.add(tabela);
+    }
+
+    /**
+     * Garante um índice de usuário para cada autor ({@code usuario-0} em diante), que é quem dá os gostei.
+     * Os índices saem da identidade da tabela, como na aplicação, para não colidir com usuários criados depois.
+     *
+     * @return o índice de cada autor, pela posição do autor
+     */
+    private int[] indexarAutores(Connection conexao) throws SQLException {
+        var indices = lerIndicesAutores(conexao);
+        conexao.setAutoCommit(false);
+        try (var insercao = conexao.prepareStatement("INSERT INTO indice_usuario (usuario) VALUES (?)")) {
+            int emLote = 0;
+            for (int autor = 0; autor < indices.length; autor++) {
+                if (indices[autor] > 0) {
+                    continue;
+                }
+                insercao.setString(1, "usuario-" + autor);
+                insercao.addBatch();
+                if (++emLote == USUARIOS_POR_TRANSACAO) {
+                    insercao.executeBatch();
+                    conexao.commit();
+                    emLote = 0;
+                }
+            }
+            if (emLote > 0) {
+                insercao.executeBatch();
+            }
+        }
+        conexao.commit();
+        conexao.setAutoCommit(true);
+        return lerIndicesAutores(conexao);
+    }
+
+    private int[] lerIndicesAutores(Connection conexao) throws SQLException {
+        var indices = new int[configuracao.autores()];
+        try (var consulta = conexao.createStatement();
+             var linhas = consulta.executeQuery("SELECT indice, usuario FROM indice_usuario WHERE usuario LIKE 'usuario-%'")) {
+            while (linhas.next()) {
+                try {
+                    var autor = Integer.parseInt(linhas.getString(2).substring("usuario-".length()));
+                    if (autor >= 0 && autor < indices.length) {
+                        indices[autor] = linhas.getInt(1);
+                    }
+                } catch (NumberFormatException outroUsuario) {
+                    // usuario-... que não é autor da massa
+                }
+            }
+        }
+        return indices;
+    }
+
+    private final class Produtor {
+
+        private final SplittableRandom aleatorio;
+        private final long quantidade;
+        private final int tamanhoAmostra;
+        private final List<UUID> amostra;
+        private final long janelaMicros;
+        private final StringBuilder conteudo = new StringBuilder(TAMANHO_MAXIMO_CONTEUDO + 16);
+        private final int[] indicesAutores;
+
+        private UUID id;
+        private String autor;
+        private LocalDateTime dataCriacao;
+        private int gostei;
+        // bitmap serializado de quem deu gostei; null sem gostei
+        private byte[] usuariosGostei;
+
+        Produtor(int indice, int[] indicesAutores) {
+            this.indicesAutores = indicesAutores;
+            var produtores = configuracao.produtores();
+            this.aleatorio = new SplittableRandom(configuracao.semente() * 31 + indice);
+            this.quantidade = configuracao.mensagens() / produtores
+                    + (indice < configuracao.mensagens() % produtores ? 1 : 0);
+            this.tamanhoAmostra = configuracao.amostraIds() / produtores
+                    + (indice < configuracao.amostraIds() % produtores ? 1 : 0);
+            this.amostra = new ArrayList<>(tamanhoAmostra);
+            this.janelaMicros = ChronoUnit.MICROS.between(fim.minusDays(configuracao.dias()), fim);
+        }
+
+        List<UUID> produzir() throws SQLException {
+            try (var conexao = conectar()) {
+                if (conexao.isWrapperFor(PGConnection.class)) {
+                    // um COPY por conexão: os bitmaps seguem por outra
+                    try (var conexaoGostei = conectar()) {
+                        copiar(conexao, conexaoGostei);
+                    }
+                } else {
+                    inserir(conexao);
+                }
+            }
+            return amostra;
+        }
+
+        private void copiar(Connection conexao, Connection conexaoGostei) throws SQLException {
+            CopyIn copia = conexao.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY " + COLUNAS + " FROM STDIN");
+            CopyIn copiaGostei = conexaoGostei.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY " + COLUNAS_GOSTEI + " FROM STDIN");
+            try {
+                // o conteúdo só tem palavras e espaços: nada a escapar no formato texto do COPY
+                var buffer = new StringBuilder(TAMANHO_BUFFER_COPY + 1024);
+                var bufferGostei = new StringBuilder(TAMANHO_BUFFER_COPY + 1024);
+                for (long i = 0; i < quantidade; i++) {
+                    proxima();
+                    buffer.append(id).append('\t').append(autor).append('\t').append(conteudo).append('\t')
+                            .append(dataCriacao).append('\t').append(gostei).append('\n');
+                    if (buffer.length() >= TAMANHO_BUFFER_COPY) {
+                        escrever(copia, buffer);
+                    }
+                    if (usuariosGostei != null) {
+                        // bytea em hexadecimal; a barra se escapa no formato texto do COPY
+                        bufferGostei.append(id).append("\t\\\\x").append(HEXADECIMAL.formatHex(usuariosGostei))
+                                .append("\t0\n");
+                        if (bufferGostei.length() >= TAMANHO_BUFFER_COPY) {
+                            escrever(copiaGostei, bufferGostei);
+                        }
+                    }
+                }
+                escrever(copia, buffer);
+                escrever(copiaGostei, bufferGostei);
+                copia.endCopy();
+                copiaGostei.endCopy();
+            } finally {
+                if (copia.isActive()) {
+                    copia.cancelCopy();
+                }
+                if (copiaGostei.isActive()) {
+                    copiaGostei.cancelCopy();
+                }
+            }
+        }
+
+        private void escrever(CopyIn copia, StringBuilder buffer) throws SQLException {
+            var bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copia.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+
+        private void inserir(Connection conexao) throws SQLException {
+            conexao.setAutoCommit(false);
+            long inseridas = 0;
+            try (var insercao = conexao.prepareStatement(insertComLinhas(LINHAS_POR_INSERT));
+                 var insercaoGostei = conexao.prepareStatement(INSERT_GOSTEI)) {
+                int emLote = 0;
+                while (quantidade - inseridas >= LINHAS_POR_INSERT) {
+                    preencher(insercao, LINHAS_POR_INSERT, insercaoGostei);
+                    insercao.addBatch();
+                    inseridas += LINHAS_POR_INSERT;
+                    if (++emLote == INSERTS_POR_TRANSACAO) {
+                        insercao.executeBatch();
+                        insercaoGostei.executeBatch();
+                        conexao.commit();
+                        emLote = 0;
+                    }
+                }
+                if (emLote > 0) {
+                    insercao.executeBatch();
+                    insercaoGostei.executeBatch();
+                }
+                var restantes = (int) (quantidade - inseridas);
+                if (restantes > 0) {
+                    try (var insercaoRestantes = conexao.prepareStatement(insertComLinhas(restantes))) {
+                        preencher(insercaoRestantes, restantes, insercaoGostei);
+                        insercaoRestantes.executeUpdate();
+                        insercaoGostei.executeBatch();
+                    }
+                }
+            }
+            conexao.commit();
+        }
+
+        private void preencher(PreparedStatement insercao, int linhas, PreparedStatement insercaoGostei)
+                throws SQLException {
+            for (int linha = 0, parametro = 1; linha < linhas; linha++) {
+                proxima();
+                insercao.setObject(parametro++, id);
+                insercao.setString(parametro++, autor);
+                insercao.setString(parametro++, conteudo.toString());
+                insercao.setObject(parametro++, dataCriacao);
+                insercao.setInt(parametro++, gostei);
+                if (usuariosGostei != null) {
+                    insercaoGostei.setObject(1, id);
+                    insercaoGostei.setBytes(2, usuariosGostei);
+                    insercaoGostei.addBatch();
+                }
+            }
+        }
+
+        private void proxima() {
+            id = new UUID(
+                    aleatorio.nextLong() & 0xFFFF_FFFF_FFFF_0FFFL | 0x0000_0000_0000_4000L,
+                    aleatorio.nextLong() & 0x3FFF_FFFF_FFFF_FFFFL | 0x8000_0000_0000_0000L);
+            if (amostra.size() < tamanhoAmostra) {
+                amostra.add(id);
+            }
+            autor = "usuario-" + autores.sortear(aleatorio.nextDouble());
+            gerarConteudo();
+            dataCriacao = fim.minus(aleatorio.nextLong(janelaMicros), ChronoUnit.MICROS);
+            // Pareto: a maioria sem gostei, poucas com milhares; no máximo um gostei por autor
+            gostei = (int) Math.min(Math.min(MAXIMO_GOSTEI, indicesAutores.length),
+                    Math.pow(1 - aleatorio.nextDouble(), -1 / EXPOENTE_GOSTEI) - 1);
+            gerarUsuariosGostei();
+        }
+
+        // autores consecutivos a partir de um sorteado: distintos, e quantos o contador diz
+        private void gerarUsuariosGostei() {
+            if (gostei == 0) {
+                usuariosGostei = null;
+                return;
+            }
+            var usuarios = new RoaringBitmap();
+            var primeiro = aleatorio.nextInt(indicesAutores.length);
+            for (int i = 0; i < gostei; i++) {
+                usuarios.add(indicesAutores[(primeiro + i) % indicesAutores.length]);
+            }
+            usuarios.runOptimize();
+            var serializado = ByteBuffer.allocate(usuarios.serializedSizeInBytes());
+            usuarios.serialize(serializado);
+            usuariosGostei = serializado.array();
+        }
+
+        private void gerarConteudo() {
+            var tamanho = (int) Math.round(Math.exp(MEDIA_LOG_CONTEUDO + DESVIO_LOG_CONTEUDO * aleatorio.nextGaussian()));
+            tamanho = Math.max(1, Math.min(TAMANHO_MAXIMO_CONTEUDO, tamanho));
+            conteudo.setLength(0);
+            while (conteudo.length() < tamanho) {
+                if (!conteudo.isEmpty()) {
+                    conteudo.append(' ');
+                }
+                conteudo.append(PALAVRAS[aleatorio.nextInt(PALAVRAS.length)]);
+            }
+            conteudo.setLength(tamanho);
+        }
+    }
+
+    private static String insertComLinhas(int linhas) {
+        var sql = new StringBuilder("INSERT INTO ").append(COLUNAS).append(" VALUES ");
+        for (int linha = 0; linha < linhas; linha++) {
+            sql.append(linha == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+        }
+        return sql.toString();
+    }
+}
@@ -0,0 +1,126 @@
+package br.com.fiap.api.performance;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GeradorMassaMensagensTest {
+
+    @TempDir
+    Path diretorio;
+
+    private final String url = "jdbc:h2:mem:massa-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+
+    @Test
+    void deveGerarQuantidadePedidaComProdutoresEmParalelo() throws Exception {
+        //Arrange
+        var arquivoIds = diretorio.resolve("ids.txt");
+        var gerador = new GeradorMassaMensagens(configuracao(5_003, 3, arquivoIds));
+
+        //Act
+        gerador.gerar();
+
+        //Assert
+        assertThat(consultarLong("SELECT COUNT(*) FROM mensagem")).isEqualTo(5_003);
+        assertThat(consultarLong("SELECT COUNT(DISTINCT id) FROM mensagem")).isEqualTo(5_003);
+        assertThat(consultarLong("SELECT MAX(LENGTH(conteudo)) FROM mensagem")).isLessThanOrEqualTo(255);
+        assertThat(consultarTimestamp("SELECT MIN(data_criacao) FROM mensagem").toLocalDateTime())
+                .isAfter(LocalDateTime.now().minusDays(31));
+        var ids = Files.readAllLines(arquivoIds);
+        assertThat(ids).hasSize(50).doesNotHaveDuplicates();
+        assertThat(consultarLong("SELECT COUNT(*) FROM mensagem WHERE id = '" + ids.get(0) + "'")).isEqualTo(1);
+    }
+
+    @Test
+    void deveConcentrarMensagensEmPoucosAutores() throws Exception {
+        //Arrange
+        var gerador = new GeradorMassaMensagens(configuracao(5_000, 2, diretorio.resolve("ids.txt")));
+
+        //Act
+        gerador.gerar();
+
+        //Assert
+        var autorMaisAtivo = consultarLong(
+                "SELECT MAX(total) FROM (SELECT COUNT(*) AS total FROM mensagem GROUP BY usuario) t");
+        // distribuição uniforme daria ~5 mensagens por autor
+        assertThat(autorMaisAtivo).isGreaterThan(200);
+        assertThat(consultarLong("SELECT COUNT(DISTINCT usuario) FROM mensagem")).isLessThan(1_000);
+    }
+
+    @Test
+    void deveGerarBitmapDeGosteiCoerenteComOContador() throws Exception {
+        //Arrange
+        var gerador = new GeradorMassaMensagens(configuracao(2_000, 2, diretorio.resolve("ids.txt")));
+
+        //Act
+        gerador.gerar();
+
+        //Assert
+        assertThat(consultarLong("SELECT COUNT(*) FROM gostei_mensagem"))
+                .isEqualTo(consultarLong("SELECT COUNT(*) FROM mensagem WHERE gostei > 0"))
+                .isPositive();
+        var maiorIndice = consultarLong("SELECT MAX(indice) FROM indice_usuario");
+        try (var conexao = DriverManager.getConnection(url, "sa", "");
+             var linhas = conexao.createStatement().executeQuery(
+                     "SELECT m.gostei, g.usuarios FROM mensagem m JOIN gostei_mensagem g ON g.mensagem_id = m.id")) {
+            while (linhas.next()) {
+                var usuarios = new RoaringBitmap();
+                usuarios.deserialize(ByteBuffer.wrap(linhas.getBytes(2)));
+                assertThat(usuarios.getLongCardinality()).isEqualTo(linhas.getInt(1));
+                assertThat((long) usuarios.last()).isLessThanOrEqualTo(maiorIndice);
+            }
+        }
+    }
+
+    @Test
+    void deveCriarChavePrimariaAoFimDaCarga() throws Exception {
+        //Arrange
+        var gerador = new GeradorMassaMensagens(configuracao(10, 1, diretorio.resolve("ids.txt")));
+        gerador.gerar();
+        var id = Files.readAllLines(diretorio.resolve("ids.txt")).get(0);
+
+        //Act & Assert
+        assertThatThrownBy(() -> executar("INSERT INTO mensagem (id, usuario, conteudo, gostei) "
+                + "VALUES ('" + id + "', 'Adam', 'repetida', 0)"))
+                .isInstanceOf(SQLException.class);
+    }
+
+    private GeradorMassaMensagens.Configuracao configuracao(long mensagens, int produtores, Path arquivoIds) {
+        return new GeradorMassaMensagens.Configuracao(
+                url, "sa", "", mensagens, 1_000, 1.1, produtores, 30, 7L, arquivoIds, 50);
+    }
+
+    private long consultarLong(String sql) throws SQLException {
+        try (var conexao = DriverManager.getConnection(url, "sa", "");
+             var resultado = conexao.createStatement().executeQuery(sql)) {
+            resultado.next();
+            return resultado.getLong(1);
+        }
+    }
+
+    private Timestamp consultarTimestamp(String sql) throws SQLException {
+        try (var conexao = DriverManager.getConnection(url, "sa", "");
+             var resultado = conexao.createStatement().executeQuery(sql)) {
+            resultado.next();
+            return resultado.getTimestamp(1);
+        }
+    }
+
+    private void executar(String sql) throws SQLException {
+        try (var conexao = DriverManager.getConnection(url, "sa", "")) {
+            conexao.createStatement().execute(sql);
+        }
+    }
+}
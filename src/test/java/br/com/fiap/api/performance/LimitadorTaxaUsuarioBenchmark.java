@@ -0,0 +1,49 @@
+package br.com.fiap.api.performance;
+
+import br.com.fiap.api.service.LimitadorTaxaUsuario;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo da verificação de taxa por usuário no caminho de POST /mensagens.
+ * Execute com
+ * {@code mvn test-compile exec:exec@jmh -P benchmark -Dbenchmark.incluir=LimitadorTaxaUsuarioBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LimitadorTaxaUsuarioBenchmark {
+
+    @Param({"100", "100000"})
+    private int usuarios;
+
+    private LimitadorTaxaUsuario limitador;
+    private String[] nomes;
+
+    @Setup
+    public void preparar() {
+        limitador = new LimitadorTaxaUsuario(20, 5, 100_000, TimeUnit.MINUTES.toNanos(10), 64, System::nanoTime);
+        nomes = new String[usuarios];
+        for (int i = 0; i < usuarios; i++) {
+            nomes[i] = "usuario-" + i;
+            nomes[i].hashCode();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long umaThread() {
+        return limitador.tentarConsumir(nomes[ThreadLocalRandom.current().nextInt(usuarios)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long oitoThreads() {
+        return limitador.tentarConsumir(nomes[ThreadLocalRandom.current().nextInt(usuarios)]);
+    }
+}
@@ -0,0 +1,94 @@
+package br.com.fiap.api.performance;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.OptionalInt;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * p95 e p99 de referência (em ms), global e por requisição, que a PerformanceSimulation usa para
+ * detectar regressões. Depois de uma execução aceita na máquina de referência, regrave o arquivo com
+ * {@code make performance-linha-de-base}, que lê o stats.json do relatório mais recente do Gatling.
+ */
+public class LinhaDeBase {
+
+    static final String RECURSO = "performance/linha-de-base.properties";
+    static final String ARQUIVO = "src/test/resources/" + RECURSO;
+    static final String GLOBAL = "global";
+
+    private final Properties valores;
+
+    private LinhaDeBase(Properties valores) {
+        this.valores = valores;
+    }
+
+    public static LinhaDeBase carregar() {
+        var valores = new Properties();
+        try (InputStream entrada = LinhaDeBase.class.getClassLoader().getResourceAsStream(RECURSO)) {
+            if (entrada != null) {
+                valores.load(entrada);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new LinhaDeBase(valores);
+    }
+
+    public OptionalInt p95(String requisicao) {
+        return valor(requisicao, "p95");
+    }
+
+    public OptionalInt p99(String requisicao) {
+        return valor(requisicao, "p99");
+    }
+
+    private OptionalInt valor(String requisicao, String percentil) {
+        var valor = valores.getProperty(chave(requisicao, percentil));
+        return valor == null ? OptionalInt.empty() : OptionalInt.of(Integer.parseInt(valor.trim()));
+    }
+
+    private static String chave(String requisicao, String percentil) {
+        return requisicao.replace(' ', '-') + "." + percentil;
+    }
+
+    public static void main(String[] args) throws IOException {
+        var resultados = Path.of(args.length > 0 ? args[0] : "target/gatling");
+        Path stats;
+        try (Stream<Path> execucoes = Files.list(resultados)) {
+            stats = execucoes
+                    .map(execucao -> execucao.resolve("js/stats.json"))
+                    .filter(Files::exists)
+                    .max(Comparator.comparing(arquivo -> arquivo.toFile().lastModified()))
+                    .orElseThrow(() -> new IllegalStateException("nenhum relatório do Gatling em " + resultados));
+        }
+
+        var raiz = new ObjectMapper().readTree(stats.toFile());
+        var linhas = new ArrayList<String>();
+        linhas.add("# p95/p99 em ms; gerado por LinhaDeBase a partir de "
+                + stats.getParent().getParent().getFileName() + " em " + LocalDate.now());
+        adicionar(linhas, GLOBAL, raiz.get("stats"));
+        raiz.get("contents").forEach(requisicao -> {
+            if ("REQUEST".equals(requisicao.get("type").asText())) {
+                adicionar(linhas, requisicao.get("name").asText(), requisicao.get("stats"));
+            }
+        });
+        Files.write(Path.of(ARQUIVO), linhas);
+        System.out.println("linha de base gravada em " + ARQUIVO + " a partir de " + stats);
+    }
+
+    // percentis configurados no gatling.conf (padrão 50, 75, 95, 99): percentiles3 = p95, percentiles4 = p99
+    private static void adicionar(ArrayList<String> linhas, String requisicao, JsonNode estatisticas) {
+        linhas.add(chave(requisicao, "p95") + "=" + estatisticas.get("percentiles3").get("total").asInt());
+        linhas.add(chave(requisicao, "p99") + "=" + estatisticas.get("percentiles4").get("total").asInt());
+    }
+}
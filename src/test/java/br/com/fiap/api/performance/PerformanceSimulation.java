@@ -1,65 +1,206 @@
 package br.com.fiap.api.performance;
 
-import io.gatling.javaapi.core.ActionBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.gatling.javaapi.core.Assertion;
+import io.gatling.javaapi.core.ChainBuilder;
+import io.gatling.javaapi.core.Choice;
+import io.gatling.javaapi.core.PopulationBuilder;
 import io.gatling.javaapi.core.ScenarioBuilder;
 import io.gatling.javaapi.core.Simulation;
 import io.gatling.javaapi.http.HttpProtocolBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
 
 import static io.gatling.javaapi.core.CoreDsl.*;
 import static io.gatling.javaapi.http.HttpDsl.http;
 import static io.gatling.javaapi.http.HttpDsl.status;
 
+/**
+ * Carga mista e predominantemente de leitura sobre mensagens pré-cadastradas, com ids sorteados
+ * por uma distribuição de Zipf (poucas mensagens quentes, cauda longa fria).
+ * <p>
+ * Modelo aberto ({@code -Dmodelo=aberto}, padrão): chegadas a {@code -Dtaxa} req/s, independentes da
+ * latência do servidor. Modelo fechado ({@code -Dmodelo=fechado}): {@code -Dusuarios} clientes em laço.
+ * <p>
+ * Reprova a execução se a taxa de erros passar de {@code -DerroMax} %, se p95/p99 globais passarem de
+ * {@code -Dp95Max}/{@code -Dp99Max} ms ou se algum p95/p99 regredir mais que {@code -Dtolerancia}
+ * em relação à {@link LinhaDeBase}. Execute com {@code make performance-test}.
+ */
 public class PerformanceSimulation extends Simulation {
 
-    private final HttpProtocolBuilder httpProtocol =
-            http.baseUrl("http://localhost:8080")
-                    .header("Content-Type", "application/json");
+    private static final String URL_BASE = System.getProperty("urlBase", "http://localhost:8080");
+    private static final String MODELO = System.getProperty("modelo", "aberto");
+    private static final int TAXA = Integer.getInteger("taxa", 2000);
+    private static final int USUARIOS_CONCORRENTES = Integer.getInteger("usuarios", 200);
+    private static final Duration AQUECIMENTO = Duration.ofSeconds(Integer.getInteger("aquecimento", 15));
+    private static final Duration DURACAO = Duration.ofSeconds(Integer.getInteger("duracao", 60));
+    private static final int MENSAGENS = Integer.getInteger("mensagens", 2000);
+    // amostra de ids de uma massa já carregada (GeradorMassaMensagens); sem ela, cadastra MENSAGENS antes
+    private static final String ARQUIVO_IDS = System.getProperty("ids");
+    private static final double EXPOENTE_ZIPF = Double.parseDouble(System.getProperty("zipf", "1.1"));
+    private static final int USUARIOS_GOSTEI = Integer.getInteger("usuariosGostei", 100_000);
+
+    private static final int P95_MAXIMO = Integer.getInteger("p95Max", 100);
+    private static final int P99_MAXIMO = Integer.getInteger("p99Max", 250);
+    private static final double ERRO_MAXIMO = Double.parseDouble(System.getProperty("erroMax", "1.0"));
+    private static final double TOLERANCIA = Double.parseDouble(System.getProperty("tolerancia", "0.25"));
+    // abaixo disso a variação entre execuções é ruído de medição, não regressão
+    private static final int FOLGA_MS = Integer.getInteger("folgaMs", 5);
+
+    private static final String BUSCAR = "buscar mensagem";
+    private static final String LISTAR = "listar mensagens";
+    private static final String GOSTEI = "registrar gostei";
+    private static final String ALTERAR = "alterar mensagem";
+    private static final String REGISTRAR = "registrar mensagem";
+    private static final String REMOVER = "remover mensagem";
+
+    private final List<String> ids = new ArrayList<>();
+
+    private DistribuicaoZipf distribuicao;
 
-    ActionBuilder adicionarMensagemRequest = http("request adicionar mensagem")
-            .post("/mensagem")
-            .body(StringBody("{\"usuario\": \"user\", \"conteudo\": \"conteudo da mensagem\"}"))
-            .check(status().is(201))
-            .check(jsonPath("$.id").saveAs("mensagemId"));
+    // os ids só existem depois do before(); o alimentador é lido quando a carga começa
+    private final Iterator<Map<String, Object>> alimentador = Stream.<Map<String, Object>>generate(() -> Map.of(
+            "id", ids.get(distribuicao.sortear()),
+            "usuario", "leitor-" + ThreadLocalRandom.current().nextInt(USUARIOS_GOSTEI),
+            "pagina", ThreadLocalRandom.current().nextInt(5))).iterator();
 
-    ActionBuilder buscarMensagemRequest = http("request buscar mensagem")
-            .get("/mensagens/#{mensagemId}")
-            .check(status().is(200));
+    private final HttpProtocolBuilder httpProtocol =
+            http.baseUrl(URL_BASE)
+                    .header("Content-Type", "application/json")
+                    .acceptHeader("application/json")
+                    .shareConnections();
+
+    private final ChainBuilder operacao = feed(alimentador)
+            .randomSwitch().on(
+                    Choice.withWeight(60.0, exec(http(BUSCAR)
+                            .get("/mensagens/#{id}")
+                            .check(status().is(200)))),
+                    Choice.withWeight(15.0, exec(http(LISTAR)
+                            .get("/mensagens?page=#{pagina}&size=20")
+                            .check(status().is(200)))),
+                    Choice.withWeight(15.0, exec(http(GOSTEI)
+                            .post("/mensagens/#{id}/gostei?usuario=#{usuario}")
+                            .check(status().is(200)))),
+                    Choice.withWeight(7.0, exec(http(ALTERAR)
+                            .put("/mensagens/#{id}")
+                            .body(StringBody("{\"id\": \"#{id}\", \"usuario\": \"carga\", \"conteudo\": \"conteudo alterado\"}"))
+                            .check(status().is(202)))),
+                    // remove só o que a própria sessão criou, para não esvaziar o conjunto sorteado
+                    Choice.withWeight(3.0, exec(http(REGISTRAR)
+                            .post("/mensagens")
+                            .body(StringBody("{\"usuario\": \"#{usuario}\", \"conteudo\": \"mensagem temporaria\"}"))
+                            .check(status().is(201))
+                            .check(jsonPath("$.id").saveAs("idTemporario")))
+                            .doIf(sessao -> sessao.contains("idTemporario")).then(exec(http(REMOVER)
+                                    .delete("/mensagens/#{idTemporario}")
+                                    .check(status().is(200)))))
+            );
 
-    ScenarioBuilder cenarioAdicionarMensagem = scenario("Adidionar Mensagem")
-            .exec(adicionarMensagemRequest);
+    private final ScenarioBuilder cenarioAberto = scenario("Carga mista (modelo aberto)")
+            .exec(operacao);
 
-    ScenarioBuilder cenarioBuscarMensagem = scenario("Buscar Mensagem")
-            .exec(adicionarMensagemRequest)
-            .exec(buscarMensagemRequest);
+    private final ScenarioBuilder cenarioFechado = scenario("Carga mista (modelo fechado)")
+            .during(AQUECIMENTO.plus(DURACAO)).on(operacao);
 
     {
-        setUp(
-                cenarioAdicionarMensagem.injectOpen(
-                        rampUsersPerSec(1)
-                                .to(2)
-                                .during(Duration.ofSeconds(10)),
-                        constantUsersPerSec(2)
-                                .during(Duration.ofSeconds(20)),
-                        rampUsersPerSec(2)
-                                .to(1)
-                                .during(Duration.ofSeconds(10))
-                ),
-                cenarioBuscarMensagem.injectOpen(
-                        rampUsersPerSec(1)
-                                .to(10)
-                                .during(Duration.ofSeconds(10)),
-                        constantUsersPerSec(10)
-                                .during(Duration.ofSeconds(20)),
-                        rampUsersPerSec(10)
-                                .to(1)
-                                .during(Duration.ofSeconds(10))
-                )
-        )
+        setUp(populacao())
                 .protocols(httpProtocol)
-                .assertions(
-                        global().responseTime().max().lt(50)
-                );
+                .assertions(assercoes());
+    }
+
+    @Override
+    public void before() {
+        if (ARQUIVO_IDS == null) {
+            cadastrarMensagens();
+        } else {
+            carregarIds();
+        }
+        distribuicao = new DistribuicaoZipf(ids.size(), EXPOENTE_ZIPF);
+    }
+
+    private PopulationBuilder populacao() {
+        return switch (MODELO) {
+            case "aberto" -> cenarioAberto.injectOpen(
+                    rampUsersPerSec(1).to(TAXA).during(AQUECIMENTO),
+                    constantUsersPerSec(TAXA).during(DURACAO));
+            case "fechado" -> cenarioFechado.injectClosed(
+                    rampConcurrentUsers(1).to(USUARIOS_CONCORRENTES).during(AQUECIMENTO),
+                    constantConcurrentUsers(USUARIOS_CONCORRENTES).during(DURACAO));
+            default -> throw new IllegalArgumentException("modelo deve ser aberto ou fechado: " + MODELO);
+        };
+    }
+
+    private List<Assertion> assercoes() {
+        var linhaDeBase = LinhaDeBase.carregar();
+        var assercoes = new ArrayList<Assertion>();
+        assercoes.add(global().failedRequests().percent().lte(ERRO_MAXIMO));
+        assercoes.add(global().responseTime().percentile(95.0).lte(P95_MAXIMO));
+        assercoes.add(global().responseTime().percentile(99.0).lte(P99_MAXIMO));
+
+        linhaDeBase.p95(LinhaDeBase.GLOBAL).ifPresent(p95 ->
+                assercoes.add(global().responseTime().percentile(95.0).lte(limite(p95))));
+        linhaDeBase.p99(LinhaDeBase.GLOBAL).ifPresent(p99 ->
+                assercoes.add(global().responseTime().percentile(99.0).lte(limite(p99))));
+        for (var requisicao : List.of(BUSCAR, LISTAR, GOSTEI, ALTERAR, REGISTRAR, REMOVER)) {
+            linhaDeBase.p95(requisicao).ifPresent(p95 ->
+                    assercoes.add(details(requisicao).responseTime().percentile(95.0).lte(limite(p95))));
+            linhaDeBase.p99(requisicao).ifPresent(p99 ->
+                    assercoes.add(details(requisicao).responseTime().percentile(99.0).lte(limite(p99))));
+        }
+        return assercoes;
+    }
+
+    private static int limite(int referencia) {
+        return (int) Math.ceil(referencia * (1 + TOLERANCIA)) + FOLGA_MS;
+    }
+
+    private void carregarIds() {
+        try {
+            Files.readAllLines(Path.of(ARQUIVO_IDS)).stream()
+                    .filter(linha -> !linha.isBlank())
+                    .forEach(ids::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // cada mensagem com um usuário distinto, para não esbarrar no limite de taxa por usuário
+    private void cadastrarMensagens() {
+        var cliente = HttpClient.newHttpClient();
+        var mapper = new ObjectMapper();
+        try {
+            for (int i = 0; i < MENSAGENS; i++) {
+                var requisicao = HttpRequest.newBuilder(URI.create(URL_BASE + "/mensagens"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "{\"usuario\": \"autor-" + i + "\", \"conteudo\": \"mensagem " + i + "\"}"))
+                        .build();
+                var resposta = cliente.send(requisicao, HttpResponse.BodyHandlers.ofString());
+                if (resposta.statusCode() != 201) {
+                    throw new IllegalStateException("falha ao cadastrar mensagem: "
+                            + resposta.statusCode() + " " + resposta.body());
+                }
+                ids.add(mapper.readTree(resposta.body()).get("id").asText());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("aplicação indisponível em " + URL_BASE, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
     }
 }
@@ -0,0 +1,59 @@
+package br.com.fiap.api.performance;
+
+import br.com.fiap.api.model.ConteudoMensagem;
+import br.com.fiap.api.utils.CompressorConteudo;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+
+/**
+ * Treina o dicionário Zstd de {@code mensagem.compressao.dicionario} numa amostra do conteúdo já gravado.
+ * A amostra são as primeiras {@code -Damostras} mensagens na ordem do id, que é aleatório; o conteúdo
+ * compactado com dicionários anteriores precisa deles em {@code -DdicionariosAnteriores}, separados por vírgula.
+ * <p>
+ * Execute com {@code make dicionario-compressao} e aponte a configuração para o arquivo gerado
+ * (por padrão {@code target/dicionario-conteudo.zstd}), mantendo o dicionário anterior em
+ * {@code mensagem.compressao.dicionarios-anteriores}.
+ */
+public class TreinadorDicionarioConteudo {
+
+    public static void main(String[] args) throws Exception {
+        var url = System.getProperty("url", "jdbc:postgresql://localhost:5432/backend");
+        var amostras = Integer.getInteger("amostras", 100_000);
+        var tamanhoDicionario = Integer.getInteger("tamanhoDicionario", 32 * 1024);
+        var destino = Path.of(System.getProperty("destino", "target/dicionario-conteudo.zstd"));
+        for (var anterior : System.getProperty("dicionariosAnteriores", "").split(",")) {
+            if (!anterior.isBlank()) {
+                CompressorConteudo.registrarDicionario(Files.readAllBytes(Path.of(anterior.trim())));
+            }
+        }
+
+        var textos = new ArrayList<String>(amostras);
+        long bytes = 0;
+        try (var conexao = DriverManager.getConnection(url,
+                System.getProperty("usuarioBanco", "root"), System.getProperty("senha", "toor"));
+             var consulta = conexao.prepareStatement(
+                     "SELECT conteudo, conteudo_compactado FROM mensagem ORDER BY id LIMIT ?")) {
+            consulta.setFetchSize(1_000);
+            consulta.setInt(1, amostras);
+            try (var resultado = consulta.executeQuery()) {
+                while (resultado.next()) {
+                    var texto = ConteudoMensagem.armazenado(resultado.getString(1), resultado.getBytes(2)).texto();
+                    bytes += texto.length();
+                    textos.add(texto);
+                }
+            }
+        }
+
+        var inicio = System.nanoTime();
+        // o buffer do treinador é em bytes e o texto em UTF-8 ocupa até 3 bytes por char
+        var dicionario = CompressorConteudo.treinarDicionario(textos, (int) Math.min(Integer.MAX_VALUE, bytes * 3),
+                tamanhoDicionario);
+        Files.createDirectories(destino.toAbsolutePath().getParent());
+        Files.write(destino, dicionario);
+        System.out.printf("Dicionário de %d bytes treinado em %d mensagens (%d ms): %s%n", dicionario.length,
+                textos.size(), (System.nanoTime() - inicio) / 1_000_000, destino.toAbsolutePath());
+    }
+}
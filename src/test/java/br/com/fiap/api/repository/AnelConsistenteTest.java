@@ -0,0 +1,63 @@
+package br.com.fiap.api.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AnelConsistenteTest {
+
+    private static final int CHAVES = 100_000;
+
+    @Test
+    void deveDistribuirChavesDeFormaEquilibrada() {
+        //Arrange
+        var anel = new AnelConsistente(4, 128);
+        var contagem = new int[4];
+
+        //Act
+        for (int i = 0; i < CHAVES; i++) {
+            contagem[anel.fragmento(UUID.randomUUID())]++;
+        }
+
+        //Assert
+        IntStream.of(contagem).forEach(quantidade ->
+                assertThat(quantidade).isBetween((int) (CHAVES / 4 * 0.85), (int) (CHAVES / 4 * 1.15)));
+    }
+
+    @Test
+    void deveMoverApenasChavesParaOFragmentoNovo_QuandoExpandir() {
+        //Arrange
+        var anel = new AnelConsistente(3, 128);
+        var expandido = anel.comFragmentos(4);
+        var movidas = 0;
+
+        //Act & Assert
+        for (int i = 0; i < CHAVES; i++) {
+            var id = UUID.randomUUID();
+            var antes = anel.fragmento(id);
+            var depois = expandido.fragmento(id);
+            if (antes != depois) {
+                assertThat(depois).isEqualTo(3);
+                movidas++;
+            }
+        }
+        assertThat(movidas).isBetween((int) (CHAVES / 4 * 0.8), (int) (CHAVES / 4 * 1.2));
+    }
+
+    @Test
+    void deveSerDeterministico() {
+        var id = UUID.randomUUID();
+
+        assertThat(new AnelConsistente(5, 64).fragmento(id)).isEqualTo(new AnelConsistente(5, 64).fragmento(id));
+    }
+
+    @Test
+    void deveRejeitarAnelSemFragmentos() {
+        assertThatThrownBy(() -> new AnelConsistente(0, 128))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
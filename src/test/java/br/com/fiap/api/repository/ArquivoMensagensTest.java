@@ -0,0 +1,161 @@
+package br.com.fiap.api.repository;
+
+import br.com.fiap.api.model.Mensagem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArquivoMensagensTest {
+
+    private static final int LINHAS_POR_BLOCO = 16;
+    private static final LocalDateTime INICIO = LocalDateTime.of(2023, 1, 1, 0, 0, 0, 123_456_000);
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void deveBuscarPorId_AtravessandoBlocosEIndiceEsparso() {
+        //Arrange
+        var arquivo = new ArquivoMensagens(diretorio, LINHAS_POR_BLOCO, 3, 4);
+        var mensagens = gerar(0, 300);
+        mensagens.get(7).setRespostaDe(mensagens.get(3).getId());
+        mensagens.get(7).setCaminho("0123456789abcdef0123456789abcdef");
+        mensagens.get(9).setConteudo("Conteúdo longo, que no banco iria compactado. ".repeat(50));
+
+        //Act
+        arquivo.arquivar(mensagens);
+
+        //Assert
+        for (var mensagem : mensagens) {
+            var encontrada = arquivo.buscar(mensagem.getId());
+            assertThat(encontrada).isPresent();
+            assertThat(encontrada.get()).usingRecursiveComparison().ignoringFields("conteudo")
+                    .isEqualTo(mensagem);
+            assertThat(encontrada.get().getConteudo()).isEqualTo(mensagem.getConteudo());
+            assertThat(encontrada.get().isNew()).isFalse();
+        }
+        assertThat(arquivo.buscar(UUID.randomUUID())).isEmpty();
+        assertThat(arquivo.contem(mensagens.get(150).getId())).isTrue();
+        assertThat(arquivo.total()).isEqualTo(300);
+    }
+
+    @Test
+    void deveListarDaMaisNovaParaAMaisAntiga_AtravessandoSegmentos() {
+        //Arrange
+        var arquivo = new ArquivoMensagens(diretorio, LINHAS_POR_BLOCO, 3, 4);
+        var antigas = gerar(0, 40);
+        var novas = gerar(1_000, 25);
+        arquivo.arquivar(antigas);
+        arquivo.arquivar(novas);
+        var esperadas = maisNovasPrimeiro(novas, antigas);
+
+        //Act
+        var pagina = arquivo.listar(20, 10);
+        var tudo = arquivo.listar(0, 1_000);
+
+        //Assert
+        assertThat(ids(pagina)).containsExactlyElementsOf(ids(esperadas.subList(20, 30)));
+        assertThat(ids(tudo)).containsExactlyElementsOf(ids(esperadas));
+        assertThat(arquivo.listar(65, 10)).isEmpty();
+    }
+
+    @Test
+    void deveCompactarSegmentosPequenos_MantendoAOrdemEAsBuscas() throws IOException {
+        //Arrange
+        var arquivo = new ArquivoMensagens(diretorio, LINHAS_POR_BLOCO, 3, 4);
+        var lotes = new ArrayList<List<Mensagem>>();
+        for (int i = 0; i < 4; i++) {
+            lotes.add(gerar(i * 1_000, 30));
+            arquivo.arquivar(lotes.get(i));
+        }
+        arquivo.arquivar(gerar(10_000, 200));
+        var antes = ids(arquivo.listar(0, 1_000));
+
+        //Act
+        var removidos = arquivo.compactar(100, 90);
+
+        //Assert
+        assertThat(removidos).isEqualTo(2);
+        assertThat(arquivo.quantidadeSegmentos()).isEqualTo(3);
+        assertThat(ids(arquivo.listar(0, 1_000))).containsExactlyElementsOf(antes);
+        assertThat(arquivo.buscar(lotes.get(0).get(5).getId())).isPresent();
+        try (var arquivos = Files.list(diretorio)) {
+            assertThat(arquivos.map(arquivoSegmento -> arquivoSegmento.getFileName().toString()))
+                    .containsExactlyInAnyOrder(
+                            "00000000000000000001-00000000000000000001.seg",
+                            "00000000000000000002-00000000000000000004.seg",
+                            "00000000000000000005-00000000000000000005.seg");
+        }
+    }
+
+    @Test
+    void deveIgnorarSegmentosCobertos_QuandoCompactacaoInterrompida() throws IOException {
+        //Arrange
+        var arquivo = new ArquivoMensagens(diretorio, LINHAS_POR_BLOCO, 3, 4);
+        arquivo.arquivar(gerar(0, 10));
+        arquivo.arquivar(gerar(1_000, 10));
+        var esperadas = ids(arquivo.listar(0, 100));
+        var sobra = diretorio.resolve("sobra");
+        Files.createDirectories(sobra);
+        try (var arquivos = Files.list(diretorio)) {
+            for (var segmento : arquivos.filter(caminho -> caminho.toString().endsWith(".seg")).toList()) {
+                Files.copy(segmento, sobra.resolve(segmento.getFileName()));
+            }
+        }
+        arquivo.compactar(100, 1_000);
+        try (var arquivos = Files.list(sobra)) {
+            for (var segmento : arquivos.toList()) {
+                Files.move(segmento, diretorio.resolve(segmento.getFileName()));
+            }
+        }
+
+        //Act
+        var reaberto = new ArquivoMensagens(diretorio, LINHAS_POR_BLOCO, 3, 4);
+
+        //Assert
+        assertThat(reaberto.quantidadeSegmentos()).isEqualTo(1);
+        assertThat(ids(reaberto.listar(0, 100))).containsExactlyElementsOf(esperadas);
+        assertThat(diretorio.resolve("00000000000000000001-00000000000000000001.seg")).doesNotExist();
+    }
+
+    private static List<Mensagem> gerar(int minutoInicial, int quantidade) {
+        var mensagens = new ArrayList<Mensagem>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            var mensagem = Mensagem.builder()
+                    .id(UUID.randomUUID())
+                    .usuario("usuario-" + (i % 7))
+                    .conteudo("Conteudo da mensagem " + i)
+                    .dataCriacao(INICIO.plusMinutes(minutoInicial + i))
+                    .gostei(i % 5)
+                    .nova(false)
+                    .build();
+            mensagens.add(mensagem);
+        }
+        return mensagens;
+    }
+
+    @SafeVarargs
+    private static List<Mensagem> maisNovasPrimeiro(List<Mensagem>... lotes) {
+        var todas = new ArrayList<Mensagem>();
+        for (var lote : lotes) {
+            var ordenado = new ArrayList<>(lote);
+            ordenado.sort(Comparator.comparing(Mensagem::getDataCriacao).reversed());
+            todas.addAll(ordenado);
+        }
+        return todas;
+    }
+
+    private static List<UUID> ids(List<Mensagem> mensagens) {
+        return mensagens.stream().map(Mensagem::getId).toList();
+    }
+}
@@ -0,0 +1,78 @@
+package br.com.fiap.api.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ExpurgoFragmentadoTest {
+
+    private static final LocalDateTime LIMITE = LocalDateTime.of(2023, 1, 14, 3, 0);
+
+    @Mock
+    private MensagemFragmentadaRepository fragmentos;
+
+    @Mock
+    private MensagemRepository principal;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ExpurgoFragmentado expurgo;
+
+    AutoCloseable mock;
+
+    @BeforeEach
+    void setUp() {
+        mock = MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenAnswer(i -> new SimpleTransactionStatus());
+        expurgo = new ExpurgoFragmentado(fragmentos, principal, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mock.close();
+    }
+
+    @Test
+    void deveApagarOsGosteiNoBancoPrincipal_AntesDasMensagensNosFragmentos() {
+        //Arrange
+        var ids = List.of(UUID.randomUUID(), UUID.randomUUID());
+        when(fragmentos.removidasAntes(LIMITE, 100)).thenReturn(ids);
+
+        //Act
+        var expurgadas = expurgo.expurgarRemovidas(LIMITE, 100);
+
+        //Assert
+        assertThat(expurgadas).isEqualTo(ids);
+        var ordem = inOrder(principal, transactionManager, fragmentos);
+        ordem.verify(principal).apagarGostei(ids);
+        ordem.verify(transactionManager).commit(any());
+        ordem.verify(fragmentos).apagarRemovidas(ids);
+    }
+
+    @Test
+    void naoDeveAbrirTransacao_SemRemovidas() {
+        //Arrange
+        when(fragmentos.removidasAntes(LIMITE, 100)).thenReturn(List.of());
+
+        //Act
+        var expurgadas = expurgo.expurgarRemovidas(LIMITE, 100);
+
+        //Assert
+        assertThat(expurgadas).isEmpty();
+        verifyNoInteractions(principal, transactionManager);
+        verify(fragmentos, never()).apagarRemovidas(any());
+    }
+}
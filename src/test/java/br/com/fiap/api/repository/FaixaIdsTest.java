@@ -0,0 +1,46 @@
+package br.com.fiap.api.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FaixaIdsTest {
+
+    @Test
+    void deveDividirEmFaixasContiguas_AbertasNasPontas() {
+        //Act
+        var faixas = FaixaIds.dividir(5);
+
+        //Assert
+        assertThat(faixas).hasSize(5);
+        assertThat(faixas.get(0).de()).isNull();
+        assertThat(faixas.get(4).ate()).isNull();
+        for (int i = 1; i < faixas.size(); i++) {
+            assertThat(faixas.get(i).de()).isEqualTo(faixas.get(i - 1).ate());
+        }
+        // crescentes na ordem sem sinal, passando da metade com o bit de sinal ligado
+        for (int i = 2; i < faixas.size(); i++) {
+            assertThat(Long.compareUnsigned(faixas.get(i - 1).de().getMostSignificantBits(),
+                    faixas.get(i).de().getMostSignificantBits())).isNegative();
+        }
+        assertThat(FaixaIds.dividir(1)).containsExactly(new FaixaIds(null, null));
+    }
+
+    @Test
+    void deveDevolverNaOrdemDasFaixas_ERelancarAFalha() {
+        //Act
+        var inicios = FaixaIds.varrer(4, 2, faixa -> faixa.de());
+
+        //Assert
+        assertThat(inicios).containsExactlyElementsOf(FaixaIds.dividir(4).stream().map(FaixaIds::de).toList());
+        assertThatThrownBy(() -> FaixaIds.varrer(4, 2, faixa -> {
+            if (faixa.ate() == null) {
+                throw new IllegalStateException("faixa final");
+            }
+            return UUID.randomUUID();
+        })).isInstanceOf(IllegalStateException.class).hasMessage("faixa final");
+    }
+}
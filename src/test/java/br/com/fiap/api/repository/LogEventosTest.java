@@ -0,0 +1,200 @@
+package br.com.fiap.api.repository;
+
+import br.com.fiap.api.exception.OffsetExpiradoException;
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.model.EventoRegistrado;
+import br.com.fiap.api.model.TipoEventoMensagem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LogEventosTest {
+
+    private static final int TAMANHO_SEGMENTO = 4096;
+
+    @TempDir
+    Path diretorio;
+
+    private final AtomicLong relogio = new AtomicLong(TimeUnit.DAYS.toMillis(1_000));
+
+    @Test
+    void deveLerEventosNaOrdemEmQueForamAnexados() {
+        //Arrange
+        var log = abrirLog(16, Duration.ofDays(7));
+        var id = UUID.randomUUID();
+        var registrada = new EventoMensagem(TipoEventoMensagem.REGISTRADA, id, "Adam", "Conteúdo ç", Instant.ofEpochMilli(1_000));
+        var removida = new EventoMensagem(TipoEventoMensagem.REMOVIDA, id, null, null, Instant.ofEpochMilli(2_000));
+
+        //Act
+        var primeiroOffset = log.anexar(registrada);
+        var segundoOffset = log.anexar(removida);
+        var lote = log.ler(0, 10);
+
+        //Assert
+        assertThat(primeiroOffset).isZero();
+        assertThat(segundoOffset).isEqualTo(1);
+        assertThat(lote.eventos()).containsExactly(new EventoRegistrado(0, registrada), new EventoRegistrado(1, removida));
+        assertThat(lote.proximoOffset()).isEqualTo(2);
+    }
+
+    @Test
+    void deveLerEmLotesAtravessandoSegmentos() {
+        //Arrange
+        var log = abrirLog(100, Duration.ofDays(7));
+        anexar(log, 500);
+
+        //Act
+        var primeiroLote = log.ler(0, 300);
+        var segundoLote = log.ler(primeiroLote.proximoOffset(), 300);
+        var doMeio = log.ler(257, 1);
+
+        //Assert
+        assertThat(log.quantidadeSegmentos()).isGreaterThan(1);
+        assertThat(primeiroLote.eventos()).extracting(EventoRegistrado::offset)
+                .containsExactlyElementsOf(intervalo(0, 300));
+        assertThat(segundoLote.eventos()).extracting(EventoRegistrado::offset)
+                .containsExactlyElementsOf(intervalo(300, 500));
+        assertThat(segundoLote.proximoOffset()).isEqualTo(500);
+        assertThat(doMeio.eventos()).extracting(EventoRegistrado::offset).containsExactly(257L);
+    }
+
+    @Test
+    void deveRetornarLoteVazio_QuandoConsumidorEstaNoFim() {
+        //Arrange
+        var log = abrirLog(16, Duration.ofDays(7));
+        anexar(log, 3);
+
+        //Act
+        var lote = log.ler(3, 10);
+
+        //Assert
+        assertThat(lote.eventos()).isEmpty();
+        assertThat(lote.proximoOffset()).isEqualTo(3);
+    }
+
+    @Test
+    void deveGerarExcecao_QuandoOffsetAlemDoFimOuNegativo() {
+        //Arrange
+        var log = abrirLog(16, Duration.ofDays(7));
+        anexar(log, 3);
+
+        //Act & Assert
+        assertThatThrownBy(() -> log.ler(4, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> log.ler(-1, 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void deveApagarSegmentosAntigos_QuandoExcedeQuantidadeMaxima() {
+        //Arrange
+        var log = abrirLog(2, Duration.ofDays(7));
+
+        //Act
+        anexar(log, 500);
+
+        //Assert
+        assertThat(log.quantidadeSegmentos()).isEqualTo(2);
+        assertThat(log.primeiroOffset()).isPositive();
+        assertThatThrownBy(() -> log.ler(0, 10))
+                .isInstanceOfSatisfying(OffsetExpiradoException.class,
+                        expirado -> assertThat(expirado.getPrimeiroDisponivel()).isEqualTo(log.primeiroOffset()));
+        assertThat(log.ler(log.primeiroOffset(), 1_000).eventos()).last()
+                .extracting(EventoRegistrado::offset).isEqualTo(499L);
+    }
+
+    @Test
+    void deveApagarSegmentosAntigos_QuandoExcedeRetencao() {
+        //Arrange
+        var log = abrirLog(100, Duration.ofHours(1));
+        anexar(log, 100);
+        var segmentosAntes = log.quantidadeSegmentos();
+
+        //Act
+        relogio.addAndGet(TimeUnit.HOURS.toMillis(2));
+        anexar(log, 100);
+
+        //Assert
+        // só sai o que foi selado antes do salto; o segmento ativo naquele momento fica
+        assertThat(segmentosAntes).isGreaterThan(1);
+        assertThat(log.primeiroOffset()).isPositive().isLessThan(100);
+        assertThat(log.ler(log.primeiroOffset(), 1_000).proximoOffset()).isEqualTo(200);
+    }
+
+    @Test
+    void deveContinuarDoUltimoOffset_QuandoReaberto() {
+        //Arrange
+        var log = abrirLog(100, Duration.ofDays(7));
+        anexar(log, 250);
+        log.close();
+
+        //Act
+        var reaberto = abrirLog(100, Duration.ofDays(7));
+        var offset = reaberto.anexar(evento());
+
+        //Assert
+        assertThat(offset).isEqualTo(250);
+        assertThat(reaberto.ler(0, 1_000).eventos()).extracting(EventoRegistrado::offset)
+                .containsExactlyElementsOf(intervalo(0, 251));
+    }
+
+    @Test
+    void deveDescartarRegistroCorrompido_QuandoReaberto() throws IOException {
+        //Arrange
+        var log = abrirLog(16, Duration.ofDays(7));
+        anexar(log, 3);
+        log.close();
+        // simula a queda no meio da escrita do último registro
+        corromperUltimoByteEscrito(diretorio.resolve("%020d.log".formatted(0)));
+
+        //Act
+        var reaberto = abrirLog(16, Duration.ofDays(7));
+
+        //Assert
+        assertThat(reaberto.proximoOffset()).isEqualTo(2);
+        assertThat(reaberto.anexar(evento())).isEqualTo(2);
+        assertThat(reaberto.ler(0, 10).eventos()).hasSize(3);
+    }
+
+    private LogEventos abrirLog(int maxSegmentos, Duration retencao) {
+        return new LogEventos(diretorio, TAMANHO_SEGMENTO, maxSegmentos, retencao, relogio::get);
+    }
+
+    private static void anexar(LogEventos log, int quantidade) {
+        for (int i = 0; i < quantidade; i++) {
+            log.anexar(evento());
+        }
+    }
+
+    private static EventoMensagem evento() {
+        return new EventoMensagem(TipoEventoMensagem.GOSTEI, UUID.randomUUID(), "usuario", null, Instant.now());
+    }
+
+    private static Iterable<Long> intervalo(long inicio, long fim) {
+        return LongStream.range(inicio, fim).boxed().toList();
+    }
+
+    private static void corromperUltimoByteEscrito(Path arquivo) throws IOException {
+        var conteudo = Files.readAllBytes(arquivo);
+        var ultimo = conteudo.length - 1;
+        while (conteudo[ultimo] == 0) {
+            ultimo--;
+        }
+        try (var canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(new byte[]{(byte) (conteudo[ultimo] ^ 0x7F)}), ultimo);
+        }
+    }
+}
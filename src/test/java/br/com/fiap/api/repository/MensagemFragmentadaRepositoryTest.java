@@ -0,0 +1,282 @@
+package br.com.fiap.api.repository;
+
+import br.com.fiap.api.model.Mensagem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MensagemFragmentadaRepositoryTest {
+
+    private final LocalDateTime inicio = LocalDateTime.of(2023, 1, 15, 0, 0);
+
+    private MensagemFragmentadaRepository repository;
+
+    @AfterEach
+    void fechar() throws Exception {
+        if (repository != null) {
+            repository.close();
+        }
+    }
+
+    @Test
+    void deveGravarCadaMensagemApenasNoFragmentoDono() {
+        //Arrange
+        var fragmentos = bancos(3);
+        repository = new MensagemFragmentadaRepository(fragmentos, List.of(), 128);
+        var anel = new AnelConsistente(3, 128);
+        var mensagens = gerarMensagens(30);
+
+        //Act
+        mensagens.forEach(repository::inserir);
+
+        //Assert
+        for (var mensagem : mensagens) {
+            var dono = anel.fragmento(mensagem.getId());
+            for (int i = 0; i < fragmentos.size(); i++) {
+                assertThat(contar(fragmentos.get(i), mensagem.getId())).isEqualTo(i == dono ? 1 : 0);
+            }
+            assertThat(repository.buscarPorId(mensagem.getId())).contains(mensagem);
+        }
+    }
+
+    @Test
+    void deveListarIntercalandoFragmentosPorDataDeCriacao() {
+        //Arrange
+        repository = new MensagemFragmentadaRepository(bancos(3), List.of(), 128);
+        var mensagens = gerarMensagens(50);
+        mensagens.forEach(repository::inserir);
+        var esperadas = mensagens.stream()
+                .sorted(Comparator.comparing(Mensagem::getDataCriacao).reversed())
+                .toList();
+
+        //Act
+        var pagina = repository.listar(PageRequest.of(2, 7));
+        var todas = repository.listar(Pageable.unpaged());
+
+        //Assert
+        assertThat(pagina.getContent()).containsExactlyElementsOf(esperadas.subList(14, 21));
+        assertThat(pagina.getTotalElements()).isEqualTo(50);
+        assertThat(todas.getContent()).containsExactlyElementsOf(esperadas);
+    }
+
+    @Test
+    void deveBuscarVariosIdsNaOrdemInformada() {
+        //Arrange
+        repository = new MensagemFragmentadaRepository(bancos(3), List.of(), 128);
+        var mensagens = gerarMensagens(10);
+        mensagens.forEach(repository::inserir);
+        var inexistente = UUID.randomUUID();
+
+        //Act
+        var encontradas = repository.buscarPorIds(Arrays.asList(
+                mensagens.get(7).getId(), inexistente, null, mensagens.get(2).getId()));
+
+        //Assert
+        assertThat(encontradas).containsExactly(mensagens.get(7), null, null, mensagens.get(2));
+    }
+
+    @Test
+    void deveAlterarERemoverNoFragmentoDono() {
+        //Arrange
+        repository = new MensagemFragmentadaRepository(bancos(2), List.of(), 128);
+        var mensagem = gerarMensagens(1).get(0);
+        repository.inserir(mensagem);
+
+        //Act
+        var alterada = repository.alterarConteudo(mensagem.getId(), "novo conteudo");
+        var conteudo = repository.buscarPorId(mensagem.getId()).orElseThrow().getConteudo();
+        var removida = repository.remover(mensagem.getId());
+
+        //Assert
+        assertThat(alterada).isTrue();
+        assertThat(conteudo).isEqualTo("novo conteudo");
+        assertThat(removida).isTrue();
+        assertThat(repository.buscarPorId(mensagem.getId())).isEmpty();
+        assertThat(repository.remover(mensagem.getId())).isFalse();
+    }
+
+    @Test
+    void deveManterARemovidaNoFragmento_ForaDasConsultas_AteOExpurgo() {
+        //Arrange
+        var fragmentos = bancos(2);
+        repository = new MensagemFragmentadaRepository(fragmentos, List.of(), 128);
+        var mensagens = gerarMensagens(3);
+        mensagens.forEach(repository::inserir);
+        var removida = mensagens.get(1);
+        var dono = fragmentos.get(new AnelConsistente(2, 128).fragmento(removida.getId()));
+
+        //Act
+        repository.remover(removida.getId());
+        var pagina = repository.listar(PageRequest.of(0, 10));
+        var expurgaveis = repository.removidasAntes(LocalDateTime.now().plusMinutes(1), 10);
+        var antesDoLimite = repository.removidasAntes(LocalDateTime.now().minusMinutes(1), 10);
+        var linhaAntesDoExpurgo = contar(dono, removida.getId());
+        var apagadas = repository.apagarRemovidas(List.of(removida.getId(), mensagens.get(0).getId()));
+
+        //Assert
+        assertThat(pagina.getContent()).extracting(Mensagem::getId)
+                .containsExactly(mensagens.get(2).getId(), mensagens.get(0).getId());
+        assertThat(pagina.getTotalElements()).isEqualTo(2);
+        assertThat(repository.buscarPorIds(List.of(removida.getId()))).containsExactly((Mensagem) null);
+        assertThat(repository.alterarConteudo(removida.getId(), "novo conteudo")).isFalse();
+        assertThat(repository.incrementarGostei(removida.getId())).isFalse();
+        assertThat(linhaAntesDoExpurgo).isOne();
+        assertThat(expurgaveis).containsExactly(removida.getId());
+        assertThat(antesDoLimite).isEmpty();
+        // só a removida sai, mesmo com outro id no lote
+        assertThat(apagadas).isOne();
+        assertThat(contar(dono, removida.getId())).isZero();
+        assertThat(repository.buscarPorId(mensagens.get(0).getId())).isPresent();
+    }
+
+    @Test
+    void deveMoverRemovidasComAMarca_QuandoExpandir() throws InterruptedException {
+        //Arrange
+        var reserva = bancos(1).get(0);
+        repository = new MensagemFragmentadaRepository(bancos(2), List.of(reserva), 64);
+        var mensagens = gerarMensagens(300);
+        mensagens.forEach(repository::inserir);
+        var anel = new AnelConsistente(3, 64);
+        var removidas = mensagens.stream()
+                .filter(mensagem -> anel.fragmento(mensagem.getId()) == 2)
+                .limit(5)
+                .map(Mensagem::getId)
+                .toList();
+        removidas.forEach(repository::remover);
+
+        //Act
+        repository.expandir(1);
+        aguardarMigracao();
+
+        //Assert
+        assertThat(new JdbcTemplate(reserva).queryForObject(
+                "SELECT COUNT(*) FROM mensagem WHERE removida_em IS NOT NULL", Long.class)).isEqualTo(5);
+        assertThat(repository.listar(Pageable.unpaged()).getTotalElements()).isEqualTo(295);
+        removidas.forEach(id -> assertThat(repository.buscarPorId(id)).isEmpty());
+        assertThat(repository.removidasAntes(LocalDateTime.now().plusMinutes(1), 10))
+                .containsExactlyInAnyOrderElementsOf(removidas);
+    }
+
+    @Test
+    void deveMoverMensagensParaFragmentoNovo_QuandoExpandir() throws InterruptedException {
+        //Arrange
+        var fragmentos = bancos(2);
+        var reserva = bancos(1).get(0);
+        repository = new MensagemFragmentadaRepository(fragmentos, List.of(reserva), 64);
+        var mensagens = gerarMensagens(1_200);
+        mensagens.forEach(repository::inserir);
+
+        //Act
+        var situacao = repository.expandir(1);
+        // escritas concorrentes com a migração
+        var alteradas = new ArrayList<Mensagem>();
+        for (int i = 0; i < 200; i++) {
+            var mensagem = mensagens.get(ThreadLocalRandom.current().nextInt(mensagens.size()));
+            mensagem.setConteudo("alterada " + i);
+            repository.alterarConteudo(mensagem.getId(), mensagem.getConteudo());
+            alteradas.add(mensagem);
+        }
+        aguardarMigracao();
+
+        //Assert
+        assertThat(situacao.fragmentos()).isEqualTo(3);
+        assertThat(situacao.reservas()).isZero();
+        var anel = new AnelConsistente(3, 64);
+        var noNovo = mensagens.stream().filter(mensagem -> anel.fragmento(mensagem.getId()) == 2).count();
+        assertThat(repository.situacao().mensagensMovidas()).isEqualTo(noNovo);
+        assertThat(contarTodas(reserva)).isEqualTo(noNovo);
+        assertThat(contarTodas(fragmentos.get(0)) + contarTodas(fragmentos.get(1)) + contarTodas(reserva))
+                .isEqualTo(mensagens.size());
+        for (var mensagem : alteradas) {
+            assertThat(repository.buscarPorId(mensagem.getId()).orElseThrow().getConteudo())
+                    .isEqualTo(mensagem.getConteudo());
+        }
+        assertThat(repository.listar(Pageable.unpaged()).getContent()).hasSize(mensagens.size());
+    }
+
+    @Test
+    void deveRejeitarExpansao_QuandoNaoHaReservas() {
+        repository = new MensagemFragmentadaRepository(bancos(2), List.of(), 128);
+
+        assertThatThrownBy(() -> repository.expandir(1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("fragmentos de reserva");
+    }
+
+    @Test
+    void deveAdiarIncrementoDeGosteiAteOCommit() {
+        //Arrange
+        repository = new MensagemFragmentadaRepository(bancos(2), List.of(), 128);
+        var mensagem = gerarMensagens(1).get(0);
+        repository.inserir(mensagem);
+        var transacao = new TransactionTemplate(new DataSourceTransactionManager(bancos(1).get(0)));
+
+        //Act
+        var durante = transacao.execute(status -> {
+            repository.incrementarGostei(mensagem.getId());
+            return repository.buscarPorId(mensagem.getId()).orElseThrow().getGostei();
+        });
+        transacao.executeWithoutResult(status -> {
+            repository.incrementarGostei(mensagem.getId());
+            status.setRollbackOnly();
+        });
+
+        //Assert
+        assertThat(durante).isZero();
+        assertThat(repository.buscarPorId(mensagem.getId()).orElseThrow().getGostei()).isEqualTo(1);
+        assertThat(repository.incrementarGostei(UUID.randomUUID())).isFalse();
+    }
+
+    private void aguardarMigracao() throws InterruptedException {
+        var limite = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (repository.situacao().migrando()) {
+            assertThat(System.nanoTime()).isLessThan(limite);
+            Thread.sleep(20);
+        }
+    }
+
+    private List<Mensagem> gerarMensagens(int quantidade) {
+        return IntStream.range(0, quantidade)
+                .mapToObj(i -> Mensagem.builder()
+                        .id(UUID.randomUUID())
+                        .usuario("usuario-" + i % 7)
+                        .conteudo("mensagem " + i)
+                        .dataCriacao(inicio.plusSeconds(i))
+                        .build())
+                .toList();
+    }
+
+    private static List<DataSource> bancos(int quantidade) {
+        return IntStream.range(0, quantidade)
+                .<DataSource>mapToObj(i -> new DriverManagerDataSource(
+                        "jdbc:h2:mem:fragmento-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""))
+                .toList();
+    }
+
+    private static long contar(DataSource fragmento, UUID id) {
+        return new JdbcTemplate(fragmento).queryForObject("SELECT COUNT(*) FROM mensagem WHERE id = ?", Long.class, id);
+    }
+
+    private static long contarTodas(DataSource fragmento) {
+        return new JdbcTemplate(fragmento).queryForObject("SELECT COUNT(*) FROM mensagem", Long.class);
+    }
+}
@@ -1,11 +1,18 @@
 package br.com.fiap.api.repository;
 
 import br.com.fiap.api.model.Mensagem;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 
 import static br.com.fiap.api.utils.MensagemHelper.gerarMensagem;
@@ -87,4 +94,74 @@ public class MensagemRepositoryIT {
     private Mensagem registrarMensagem (Mensagem mensagem){
        return mensagemRepository.save(mensagem);
     }
+
+    @Nested
+    class CacheSegundoNivel {
+
+        @PersistenceContext
+        private EntityManager entityManager;
+
+        private Statistics estatisticas;
+
+        @BeforeEach
+        void setup() {
+            estatisticas = entityManager.getEntityManagerFactory()
+                    .unwrap(SessionFactory.class)
+                    .getStatistics();
+        }
+
+        @Test
+        void deveBuscarMensagemNoCacheAposLimparContextoDePersistencia() {
+            //Arrange
+            var id = UUID.fromString("cacd563e-34ab-41da-b34a-0d9a191b91f5");
+            mensagemRepository.findById(id);
+            entityManager.clear();
+            var regiao = estatisticas.getDomainDataRegionStatistics(Mensagem.REGIAO_CACHE);
+            var acertosAntes = regiao.getHitCount();
+            var consultasAntes = estatisticas.getPrepareStatementCount();
+
+            //Act
+            var mensagemBuscada = mensagemRepository.findById(id);
+
+            //Assert
+            assertThat(mensagemBuscada).isPresent();
+            assertThat(regiao.getHitCount()).isEqualTo(acertosAntes + 1);
+            assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(consultasAntes);
+        }
+
+        @Test
+        void deveReutilizarConsultaCacheadaAoListarMensagens() {
+            //Arrange
+            var pagina = PageRequest.of(0, 10);
+            mensagemRepository.listarMensagens(pagina);
+            entityManager.clear();
+            var acertosAntes = estatisticas.getQueryCacheHitCount();
+
+            //Act
+            var mensagens = mensagemRepository.listarMensagens(pagina);
+
+            //Assert
+            assertThat(mensagens.getContent()).hasSize(3);
+            assertThat(estatisticas.getQueryCacheHitCount()).isGreaterThan(acertosAntes);
+        }
+
+        @Test
+        void deveInvalidarConsultaCacheadaAoRegistrarMensagem() {
+            //Arrange
+            var pagina = PageRequest.of(0, 10);
+            mensagemRepository.listarMensagens(pagina);
+            var mensagem = gerarMensagem();
+            mensagem.setId(UUID.randomUUID());
+            mensagemRepository.saveAndFlush(mensagem);
+            var acertosAntes = estatisticas.getQueryCacheHitCount();
+
+            //Act
+            var mensagens = mensagemRepository.listarMensagens(pagina);
+
+            //Assert
+            assertThat(mensagens.getContent()).hasSize(4);
+            assertThat(mensagens.getTotalElements()).isEqualTo(4);
+            assertThat(estatisticas.getQueryCacheHitCount()).isEqualTo(acertosAntes);
+        }
+    }
 }
@@ -0,0 +1,65 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.repository.LogEventos;
+import io.qameta.allure.restassured.AllureRestAssured;
+import io.restassured.RestAssured;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "mensagem.aquecimento.habilitado=true",
+        "mensagem.aquecimento.paralelismo=2",
+        "mensagem.aquecimento.iteracoes-por-rodada=20",
+        "mensagem.aquecimento.duracao-maxima=20s"
+})
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+class AquecimentoAplicacaoIT {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LogEventos logEventos;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.port = port;
+    }
+
+    @Test
+    void deveFicarPronta_SemDeixarRastroDoAquecimento() {
+        //Act & Assert
+        given().filters(new AllureRestAssured())
+                .when().get("/actuator/health/readiness")
+                .then().statusCode(HttpStatus.OK.value())
+                .body("status", equalTo("UP"));
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM mensagem WHERE usuario LIKE 'aquecimento-%'", Long.class)).isZero();
+        // a transação do cenário é desfeita: nenhum evento chega ao log
+        assertThat(logEventos.proximoOffset()).isZero();
+        var estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        assertThat(estatisticas.getDomainDataRegionStatistics(Mensagem.REGIAO_CACHE).getPutCount())
+                .isPositive();
+    }
+}
@@ -0,0 +1,165 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.Mensagem;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AquecimentoAplicacaoTest {
+
+    private static final int ITERACOES = 10;
+
+    @Mock
+    private MensagemService mensagemService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventos;
+
+    private final AtomicLong relogio = new AtomicLong();
+
+    // latência de cada iteração, consumida uma por cenário executado
+    private final Queue<Long> latencias = new ArrayDeque<>();
+
+    AutoCloseable mock;
+
+    @BeforeEach
+    void setUp() {
+        mock = MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenAnswer(i -> new SimpleTransactionStatus());
+        when(mensagemService.listarMensagem(any(Pageable.class))).thenReturn(
+                new PageImpl<>(List.of(), PageRequest.of(0, 20), 0));
+        when(mensagemService.registrarMensagem(any(Mensagem.class))).thenAnswer(i -> {
+            Mensagem mensagem = i.getArgument(0);
+            mensagem.setId(UUID.randomUUID());
+            return mensagem;
+        });
+        when(mensagemService.alterarMensagem(any(UUID.class), any(Mensagem.class))).thenAnswer(i -> i.getArgument(1));
+        when(mensagemService.buscarMensagens(any())).thenAnswer(i -> {
+            relogio.addAndGet(latencias.isEmpty() ? 100 : latencias.poll());
+            return List.of();
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mock.close();
+    }
+
+    @Test
+    void deveParar_QuandoLatenciaEstabilizar() {
+        //Arrange
+        rodada(1_000);
+        rodada(500);
+        rodada(300);
+        var aquecimento = aquecimento(Duration.ofHours(1));
+
+        //Act
+        var resultado = aquecimento.aquecer();
+
+        //Assert
+        // 1000, 500, 300, 100 e mais duas rodadas dentro da tolerância
+        assertThat(resultado.estabilizado()).isTrue();
+        assertThat(resultado.rodadas()).isEqualTo(6);
+        assertThat(resultado.p99()).isEqualTo(Duration.ofNanos(100));
+    }
+
+    @Test
+    void deveParar_QuandoAtingirDuracaoMaxima() {
+        //Arrange
+        for (int i = 0; i < 100; i++) {
+            rodada(i % 2 == 0 ? 100 : 1_000);
+        }
+        var aquecimento = aquecimento(Duration.ofNanos(20_000));
+
+        //Act
+        var resultado = aquecimento.aquecer();
+
+        //Assert
+        assertThat(resultado.estabilizado()).isFalse();
+        assertThat(resultado.duracao()).isGreaterThanOrEqualTo(Duration.ofNanos(20_000));
+    }
+
+    @Test
+    void deveDesfazerEscritasDoCenario() {
+        //Arrange
+        var aquecimento = aquecimento(Duration.ofHours(1));
+
+        //Act
+        aquecimento.executarCenario("aquecimento-0");
+
+        //Assert
+        // o TransactionTemplate entrega ao gerenciador, no commit, a transação marcada para rollback
+        var transacao = ArgumentCaptor.forClass(TransactionStatus.class);
+        verify(transactionManager).commit(transacao.capture());
+        assertThat(transacao.getValue().isRollbackOnly()).isTrue();
+        verify(mensagemService).removerMensagem(any(UUID.class));
+    }
+
+    @Test
+    void deveAceitarTrafego_SomenteAposAquecimento_MesmoQuandoFalhar() {
+        //Arrange
+        when(mensagemService.registrarMensagem(any(Mensagem.class))).thenThrow(new IllegalStateException("banco fora"));
+        var aquecimento = aquecimento(Duration.ofHours(1));
+
+        //Act
+        aquecimento.aoIniciar();
+
+        //Assert
+        var publicados = ArgumentCaptor.forClass(AvailabilityChangeEvent.class);
+        verify(eventos, times(2)).publishEvent(publicados.capture());
+        assertThat(publicados.getAllValues())
+                .extracting(AvailabilityChangeEvent::getState)
+                .containsExactly(ReadinessState.REFUSING_TRAFFIC, ReadinessState.ACCEPTING_TRAFFIC);
+    }
+
+    @Test
+    void naoDeveAquecerNemMexerNaProntidao_QuandoDesabilitado() {
+        //Arrange
+        var aquecimento = new AquecimentoAplicacao(mensagemService, new ObjectMapper().findAndRegisterModules(),
+                transactionManager, eventos, 1, ITERACOES, 0.2, 2, Duration.ofHours(1), false, relogio::get);
+
+        //Act
+        aquecimento.aoIniciar();
+
+        //Assert
+        verifyNoInteractions(mensagemService, transactionManager, eventos);
+    }
+
+    private void rodada(long latencia) {
+        for (int i = 0; i < ITERACOES; i++) {
+            latencias.add(latencia);
+        }
+    }
+
+    private AquecimentoAplicacao aquecimento(Duration duracaoMaxima) {
+        return new AquecimentoAplicacao(mensagemService, new ObjectMapper().findAndRegisterModules(),
+                transactionManager, eventos, 1, ITERACOES, 0.2, 2, duracaoMaxima, true, relogio::get);
+    }
+}
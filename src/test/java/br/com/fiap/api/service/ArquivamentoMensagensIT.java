@@ -0,0 +1,152 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.repository.ArquivoMensagens;
+import io.qameta.allure.restassured.AllureRestAssured;
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+// contexto próprio: as mensagens do data.sql saem da tabela e os outros testes contam com elas
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "mensagem.arquivo.idade=1d",
+        "mensagem.arquivo.linhas-por-bloco=2"
+})
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ArquivamentoMensagensIT {
+
+    private static final List<String> IDS_DATA_SQL = List.of(
+            "5874303c-c837-4354-bc69-10805f1eb4bb",
+            "870c5a73-d080-44e4-8cd8-32a6ddba2efb",
+            "cacd563e-34ab-41da-b34a-0d9a191b91f5");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ArquivamentoMensagens arquivamento;
+
+    @Autowired
+    private ArquivoMensagens arquivo;
+
+    @Autowired
+    private GosteiPorUsuario gosteiPorUsuario;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.port = port;
+    }
+
+    @Test
+    void deveBuscarEListarMensagensArquivadas_DepoisQueSaemDaTabela() {
+        //Arrange
+        var recente = given()
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"usuario\": \"Adam\", \"conteudo\": \"Mensagem recente\"}")
+                .when().post("/mensagens")
+                .then().statusCode(HttpStatus.CREATED.value())
+                .extract().<String>path("id");
+
+        //Act
+        var arquivadas = arquivamento.arquivar();
+
+        //Assert
+        assertThat(arquivadas).isEqualTo(3);
+        assertThat(arquivo.total()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mensagem", Long.class)).isOne();
+        given().filters(new AllureRestAssured())
+                .when().get("/mensagens/{id}", IDS_DATA_SQL.get(1))
+                .then().statusCode(HttpStatus.OK.value())
+                .body("conteudo", equalTo("Conteudo da mensagem 2"))
+                .body("usuario", equalTo("Eva"));
+        given().filters(new AllureRestAssured())
+                .when().get("/mensagens?page=0&size=3")
+                .then().statusCode(HttpStatus.OK.value())
+                .body("totalElements", equalTo(4))
+                .body("content.id", equalTo(List.of(recente, IDS_DATA_SQL.get(2), IDS_DATA_SQL.get(1))));
+        given().filters(new AllureRestAssured())
+                .when().get("/mensagens?page=1&size=3")
+                .then().statusCode(HttpStatus.OK.value())
+                .body("content.id", equalTo(List.of(IDS_DATA_SQL.get(0))));
+    }
+
+    @Test
+    void deveLevarOsGosteiPorUsuario_JuntoComAMensagemArquivada() {
+        //Arrange
+        var id = IDS_DATA_SQL.get(0);
+        registrarGostei(id, "Adam");
+        gosteiPorUsuario.consolidar();
+        registrarGostei(id, "Eva");
+
+        //Act
+        arquivamento.arquivar();
+
+        //Assert
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM gostei_mensagem", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM gostei_pendente", Long.class)).isZero();
+        given().filters(new AllureRestAssured())
+                .when().get("/mensagens/{id}", id)
+                .then().statusCode(HttpStatus.OK.value())
+                .body("gostei", equalTo(2));
+    }
+
+    @Test
+    void naoDeveContarDuasVezes_AsArquivadasQueAContagemEmCacheJaTinha() {
+        //Arrange
+        given().when().get("/mensagens?page=0&size=1&contagem=cache")
+                .then().statusCode(HttpStatus.OK.value())
+                .body("totalElements", equalTo(3));
+
+        //Act
+        arquivamento.arquivar();
+
+        //Assert
+        given().filters(new AllureRestAssured())
+                .when().get("/mensagens?page=0&size=1&contagem=cache")
+                .then().statusCode(HttpStatus.OK.value())
+                .body("totalElements", equalTo(3));
+    }
+
+    @Test
+    void naoDeveArquivarDeNovo_NemManterSegmentosPequenos() {
+        //Arrange
+        arquivamento.arquivar();
+        jdbcTemplate.update("INSERT INTO mensagem (id, usuario, conteudo, data_criacao, gostei) "
+                + "VALUES ('0f8e2d4c-1b3a-4c5d-8e7f-9a0b1c2d3e4f', 'Eva', 'Antiga', '2023-01-14 00:00:00', 0)");
+
+        //Act
+        var arquivadas = arquivamento.arquivar();
+        var removidos = arquivamento.compactar();
+
+        //Assert
+        assertThat(arquivadas).isOne();
+        assertThat(removidos).isEqualTo(1);
+        assertThat(arquivo.quantidadeSegmentos()).isOne();
+        assertThat(arquivo.total()).isEqualTo(4);
+    }
+
+    private static void registrarGostei(String id, String usuario) {
+        given().queryParam("usuario", usuario)
+                .when().post("/mensagens/{id}/gostei", id)
+                .then().statusCode(HttpStatus.OK.value());
+    }
+}
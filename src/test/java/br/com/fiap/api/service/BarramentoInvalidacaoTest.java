@@ -0,0 +1,263 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.repository.TransporteInvalidacao;
+import br.com.fiap.api.repository.TransporteLocalInvalidacao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BarramentoInvalidacaoTest {
+
+    private final AtomicLong relogio = new AtomicLong(1_000_000);
+    private final String canal = "invalidacao-" + UUID.randomUUID();
+    private final InvalidadorRegistrado invalidadorOrigem = new InvalidadorRegistrado();
+    private final InvalidadorRegistrado invalidadorDestino = new InvalidadorRegistrado();
+    private final SimpleMeterRegistry registroDestino = new SimpleMeterRegistry();
+
+    private BarramentoInvalidacao origem;
+    private BarramentoInvalidacao destino;
+
+    @BeforeEach
+    void setUp() {
+        // intervalo longo: os envios são disparados pelo teste e a repetição não chega a acontecer
+        origem = new BarramentoInvalidacao(new TransporteLocalInvalidacao(canal), invalidadorOrigem,
+                Duration.ofHours(1), Duration.ofHours(1), Duration.ofSeconds(5), new SimpleMeterRegistry(), relogio::get);
+        destino = new BarramentoInvalidacao(new TransporteLocalInvalidacao(canal), invalidadorDestino,
+                Duration.ofHours(1), Duration.ofHours(1), Duration.ofSeconds(5), registroDestino, relogio::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        origem.close();
+        destino.close();
+    }
+
+    @Test
+    void deveAgruparAlteracoesDaMesmaMensagemNumUnicoEnvio() {
+        //Arrange
+        var primeira = UUID.randomUUID();
+        var segunda = UUID.randomUUID();
+
+        //Act
+        origem.publicar(primeira);
+        origem.publicar(segunda);
+        origem.publicar(primeira);
+        relogio.addAndGet(TimeUnit.MILLISECONDS.toMicros(15));
+        origem.enviarPendentes();
+        origem.enviarPendentes();
+
+        //Assert
+        assertThat(invalidadorDestino.lotes).containsExactly(List.of(primeira, segunda));
+        assertThat(invalidadorOrigem.lotes).isEmpty();
+        var atraso = registroDestino.get("mensagem.invalidacao.atraso").timer();
+        assertThat(atraso.count()).isEqualTo(1);
+        assertThat(atraso.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(15);
+    }
+
+    @Test
+    void deveInvalidarSoListagens_QuandoMensagemForRegistrada() {
+        //Arrange
+        var mensagem = Mensagem.builder().id(UUID.randomUUID()).usuario("Adam").conteudo("nova").build();
+
+        //Act
+        origem.aoAlterarMensagem(EventoMensagem.registrada(mensagem));
+        origem.enviarPendentes();
+
+        //Assert
+        assertThat(invalidadorDestino.lotes).containsExactly(List.of());
+    }
+
+    @Test
+    void deveAnunciarMensagemRegistrada_SemEsperarOLote() {
+        //Arrange
+        var mensagem = Mensagem.builder().id(UUID.randomUUID()).usuario("Adam").conteudo("nova").build();
+        var alterada = UUID.randomUUID();
+        origem.publicar(alterada);
+
+        //Act
+        origem.aoAlterarMensagem(EventoMensagem.registrada(mensagem));
+
+        //Assert
+        assertThat(invalidadorDestino.criadas).containsExactly(List.of(mensagem.getId()));
+        assertThat(invalidadorDestino.lotes).containsExactly(List.of());
+        origem.enviarPendentes();
+        assertThat(invalidadorDestino.lotes).containsExactly(List.of(), List.of(alterada));
+        assertThat(invalidadorDestino.criadas).hasSize(1);
+    }
+
+    @Test
+    void deveDividirLotesQueNaoCabemNumaMensagem() {
+        //Arrange
+        var ids = Stream.generate(UUID::randomUUID).limit(1_000).toList();
+        var criadas = Stream.generate(UUID::randomUUID).limit(500).toList();
+
+        //Act
+        var mensagens = BarramentoInvalidacao.codificar(UUID.randomUUID().toString(), 42, ids, criadas);
+
+        //Assert
+        assertThat(mensagens).hasSizeGreaterThan(1)
+                .allSatisfy(mensagem -> assertThat(mensagem.length()).isLessThanOrEqualTo(TransporteInvalidacao.TAMANHO_MAXIMO));
+        var lotes = mensagens.stream()
+                .map(BarramentoInvalidacao::decodificar)
+                .peek(lote -> assertThat(lote.alteradoEmMicros()).isEqualTo(42))
+                .toList();
+        assertThat(lotes.stream().flatMap(lote -> lote.ids().stream())).containsExactlyElementsOf(ids);
+        assertThat(lotes.stream().flatMap(lote -> lote.criadas().stream())).containsExactlyElementsOf(criadas);
+    }
+
+    @Test
+    void deveInvalidarTudo_QuandoMensagensForemPerdidas() {
+        //Act
+        destino.perdeuMensagens();
+
+        //Assert
+        assertThat(invalidadorDestino.tudo).isEqualTo(1);
+        assertThat(invalidadorDestino.lotes).isEmpty();
+    }
+
+    @Test
+    void deveEnviarPendentes_QuandoFechar() {
+        //Arrange
+        var id = UUID.randomUUID();
+        origem.publicar(id);
+
+        //Act
+        origem.close();
+
+        //Assert
+        assertThat(invalidadorDestino.lotes).containsExactly(List.of(id));
+    }
+
+    @Test
+    void deveReenviarNoProximoLote_OQueFalhouNoEnvio() {
+        //Arrange
+        origem.close();
+        var transporte = new TransporteInstavel(new TransporteLocalInvalidacao(canal));
+        origem = new BarramentoInvalidacao(transporte, invalidadorOrigem, Duration.ofHours(1), Duration.ofHours(1),
+                Duration.ofSeconds(5), new SimpleMeterRegistry(), relogio::get);
+        var mensagem = Mensagem.builder().id(UUID.randomUUID()).usuario("Adam").conteudo("nova").build();
+        var alterada = UUID.randomUUID();
+        transporte.falhas = 2;
+
+        //Act
+        origem.aoAlterarMensagem(EventoMensagem.registrada(mensagem));
+        origem.publicar(alterada);
+        origem.enviarPendentes();
+        var recebidasNaFalha = invalidadorDestino.lotes.size() + invalidadorDestino.criadas.size();
+        origem.enviarPendentes();
+
+        //Assert
+        assertThat(recebidasNaFalha).isZero();
+        assertThat(invalidadorDestino.criadas).containsExactly(List.of(mensagem.getId()));
+        assertThat(invalidadorDestino.lotes).containsExactly(List.of(alterada));
+    }
+
+    @Test
+    void deveResponderACriacao_SoDepoisDeOAnuncioVoltarDoCanal() {
+        //Arrange
+        origem.close();
+        var transporte = new TransporteInstavel(new TransporteLocalInvalidacao(canal));
+        transporte.entrega = CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS);
+        var registro = new SimpleMeterRegistry();
+        origem = new BarramentoInvalidacao(transporte, invalidadorOrigem, Duration.ofHours(1), Duration.ofHours(1),
+                Duration.ofSeconds(5), registro, relogio::get);
+        var mensagem = Mensagem.builder().id(UUID.randomUUID()).usuario("Adam").conteudo("nova").build();
+
+        //Act
+        var inicio = System.nanoTime();
+        origem.aoAlterarMensagem(EventoMensagem.registrada(mensagem));
+        var espera = Duration.ofNanos(System.nanoTime() - inicio);
+
+        //Assert
+        assertThat(espera).isBetween(Duration.ofMillis(100), Duration.ofSeconds(5));
+        assertThat(registro.get("mensagem.invalidacao.eco").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void deveSeguirSemEco_DepoisDaEspera() {
+        //Arrange
+        origem.close();
+        var transporte = new TransporteInstavel(new TransporteLocalInvalidacao(canal));
+        // o canal aceita e não devolve nada
+        transporte.entrega = tarefa -> { };
+        origem = new BarramentoInvalidacao(transporte, invalidadorOrigem, Duration.ofHours(1), Duration.ofHours(1),
+                Duration.ofMillis(50), new SimpleMeterRegistry(), relogio::get);
+        var mensagem = Mensagem.builder().id(UUID.randomUUID()).usuario("Adam").conteudo("nova").build();
+
+        //Act
+        var inicio = System.nanoTime();
+        origem.aoAlterarMensagem(EventoMensagem.registrada(mensagem));
+        var espera = Duration.ofNanos(System.nanoTime() - inicio);
+
+        //Assert
+        assertThat(espera).isBetween(Duration.ofMillis(50), Duration.ofSeconds(5));
+    }
+
+    private static class TransporteInstavel implements TransporteInvalidacao {
+
+        private final TransporteInvalidacao transporte;
+        private int falhas;
+        private Executor entrega = Runnable::run;
+
+        TransporteInstavel(TransporteInvalidacao transporte) {
+            this.transporte = transporte;
+        }
+
+        @Override
+        public void enviar(String mensagem) {
+            if (falhas > 0) {
+                falhas--;
+                throw new IllegalStateException("canal fora do ar");
+            }
+            entrega.execute(() -> transporte.enviar(mensagem));
+        }
+
+        @Override
+        public void assinar(Receptor receptor) {
+            transporte.assinar(receptor);
+        }
+
+        @Override
+        public void close() {
+            transporte.close();
+        }
+    }
+
+    private static class InvalidadorRegistrado implements BarramentoInvalidacao.Invalidador {
+
+        private final List<List<UUID>> lotes = new ArrayList<>();
+        private final List<List<UUID>> criadas = new ArrayList<>();
+        private int tudo;
+
+        @Override
+        public void invalidar(Collection<UUID> ids) {
+            lotes.add(List.copyOf(ids));
+        }
+
+        @Override
+        public void invalidarTudo() {
+            tudo++;
+        }
+
+        @Override
+        public void registrar(Collection<UUID> ids) {
+            criadas.add(List.copyOf(ids));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.service.ContadorJanelaDeslizante.Contagem;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContadorJanelaDeslizanteTest {
+
+    private static final long UMA_HORA = TimeUnit.HOURS.toMillis(1);
+
+    private final AtomicLong relogio = new AtomicLong(UMA_HORA * 1_000);
+
+    private final ContadorJanelaDeslizante contador =
+            new ContadorJanelaDeslizante(UMA_HORA, 60, 1024, 4, 20, 4, relogio::get);
+
+    @Test
+    void deveRetornarMaisFrequentesEmOrdemDecrescente() {
+        //Arrange
+        var primeira = UUID.randomUUID();
+        var segunda = UUID.randomUUID();
+        var terceira = UUID.randomUUID();
+        registrar(primeira, 50);
+        registrar(segunda, 30);
+        registrar(terceira, 10);
+
+        //Act
+        var maisFrequentes = contador.maisFrequentes(2);
+
+        //Assert
+        assertThat(maisFrequentes).extracting(Contagem::id).containsExactly(primeira, segunda);
+        assertThat(maisFrequentes).extracting(Contagem::quantidade).containsExactly(50L, 30L);
+    }
+
+    @Test
+    void deveEncontrarMaisFrequentesEntreMuitosIdsRaros() {
+        //Arrange
+        var populares = new UUID[5];
+        for (int i = 0; i < populares.length; i++) {
+            populares[i] = UUID.randomUUID();
+        }
+        for (int rodada = 0; rodada < 100; rodada++) {
+            for (var popular : populares) {
+                contador.registrar(popular);
+            }
+            for (int i = 0; i < 50; i++) {
+                contador.registrar(UUID.randomUUID());
+            }
+        }
+
+        //Act
+        var maisFrequentes = contador.maisFrequentes(5);
+
+        //Assert
+        assertThat(maisFrequentes).extracting(Contagem::id).containsExactlyInAnyOrder(populares);
+        assertThat(maisFrequentes).allSatisfy(contagem -> assertThat(contagem.quantidade()).isGreaterThanOrEqualTo(100));
+    }
+
+    @Test
+    void deveSomarBaldesDaJanela() {
+        //Arrange
+        var id = UUID.randomUUID();
+        registrar(id, 3);
+        relogio.addAndGet(TimeUnit.MINUTES.toMillis(30));
+        registrar(id, 4);
+
+        //Act
+        var maisFrequentes = contador.maisFrequentes(1);
+
+        //Assert
+        assertThat(maisFrequentes).containsExactly(new Contagem(id, 7));
+    }
+
+    @Test
+    void deveDescartarContagensForaDaJanela() {
+        //Arrange
+        var antiga = UUID.randomUUID();
+        var recente = UUID.randomUUID();
+        registrar(antiga, 10);
+        relogio.addAndGet(TimeUnit.MINUTES.toMillis(45));
+        registrar(recente, 2);
+
+        //Act
+        relogio.addAndGet(TimeUnit.MINUTES.toMillis(20));
+        var maisFrequentes = contador.maisFrequentes(10);
+
+        //Assert
+        assertThat(maisFrequentes).containsExactly(new Contagem(recente, 2));
+    }
+
+    @Test
+    void deveContarTodos_QuandoRegistrosConcorrentes() throws Exception {
+        //Arrange
+        var ids = new UUID[8];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID();
+        }
+        var executor = Executors.newFixedThreadPool(ids.length);
+
+        //Act
+        try {
+            var tarefas = new ArrayList<Future<?>>();
+            for (var id : ids) {
+                tarefas.add(executor.submit(() -> registrar(id, 1_000)));
+            }
+            for (var tarefa : tarefas) {
+                tarefa.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //Assert
+        assertThat(contador.maisFrequentes(ids.length))
+                .extracting(Contagem::id).containsExactlyInAnyOrder(ids);
+        assertThat(contador.maisFrequentes(ids.length))
+                .allSatisfy(contagem -> assertThat(contagem.quantidade()).isGreaterThanOrEqualTo(1_000));
+    }
+
+    @Test
+    void deveTrocarSempreOMenorCandidato_QuandoCandidatosCheios() {
+        //Arrange
+        var candidatos = new ContadorJanelaDeslizante.Candidatos(3);
+        var ids = new UUID[5];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID();
+        }
+        candidatos.atualizar(ids[0], 5);
+        candidatos.atualizar(ids[1], 2);
+        candidatos.atualizar(ids[2], 7);
+
+        //Act
+        candidatos.atualizar(ids[1], 6);
+        candidatos.atualizar(ids[3], 1);
+        candidatos.atualizar(ids[4], 8);
+
+        //Assert
+        var presentes = new ArrayList<UUID>();
+        candidatos.copiarIds(presentes);
+        assertThat(presentes).containsExactlyInAnyOrder(ids[1], ids[2], ids[4]);
+    }
+
+    @Test
+    void deveGerarExcecao_QuandoLarguraNaoForPotenciaDeDois() {
+        assertThatThrownBy(() -> new ContadorJanelaDeslizante(UMA_HORA, 60, 1000, 4, 20, 4, relogio::get))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Configuração da janela de contagem inválida");
+    }
+
+    private void registrar(UUID id, int vezes) {
+        for (int i = 0; i < vezes; i++) {
+            contador.registrar(id);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.EstrategiaContagem;
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.repository.MensagemRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static br.com.fiap.api.utils.MensagemHelper.gerarMensagem;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ContagemMensagensTest {
+
+    @Mock
+    private MensagemRepository mensagemRepository;
+
+    private final AtomicLong relogio = new AtomicLong();
+
+    private ContagemMensagens contagemMensagens;
+
+    AutoCloseable mock;
+
+    @BeforeEach
+    void setUp() {
+        mock = MockitoAnnotations.openMocks(this);
+        contagemMensagens = new ContagemMensagens(mensagemRepository, EstrategiaContagem.EXATA,
+                Duration.ofSeconds(30), Duration.ofMinutes(5), relogio::get);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mock.close();
+    }
+
+    @Test
+    void deveReaproveitarContagem_AteVencerTtl() {
+        //Arrange
+        when(mensagemRepository.count()).thenReturn(10L, 15L);
+
+        //Act
+        var primeira = contagemMensagens.contar(EstrategiaContagem.CACHE);
+        relogio.addAndGet(Duration.ofSeconds(29).toNanos());
+        var dentroDoTtl = contagemMensagens.contar(EstrategiaContagem.CACHE);
+        relogio.addAndGet(Duration.ofSeconds(1).toNanos());
+        var vencida = contagemMensagens.contar(EstrategiaContagem.CACHE);
+
+        //Assert
+        assertThat(primeira).isEqualTo(new ContagemMensagens.Contagem(10, EstrategiaContagem.CACHE));
+        assertThat(dentroDoTtl.total()).isEqualTo(10);
+        assertThat(vencida.total()).isEqualTo(15);
+        verify(mensagemRepository, times(2)).count();
+    }
+
+    @Test
+    void deveAjustarContagemIncremental_QuandoMensagensForemRegistradasERemovidas() {
+        //Arrange
+        when(mensagemRepository.count()).thenReturn(100L, 7L);
+        // antes da primeira contagem não há o que ajustar
+        contagemMensagens.aoAlterarMensagem(EventoMensagem.registrada(mensagem()));
+        contagemMensagens.contar(EstrategiaContagem.INCREMENTAL);
+
+        //Act
+        contagemMensagens.aoAlterarMensagem(EventoMensagem.registrada(mensagem()));
+        contagemMensagens.aoAlterarMensagem(EventoMensagem.registrada(mensagem()));
+        contagemMensagens.aoAlterarMensagem(EventoMensagem.removida(UUID.randomUUID()));
+        contagemMensagens.aoAlterarMensagem(EventoMensagem.gostei(UUID.randomUUID(), "Adam"));
+        var ajustada = contagemMensagens.contar(EstrategiaContagem.INCREMENTAL);
+        relogio.addAndGet(Duration.ofMinutes(5).toNanos());
+        var reconciliada = contagemMensagens.contar(EstrategiaContagem.INCREMENTAL);
+
+        //Assert
+        assertThat(ajustada).isEqualTo(new ContagemMensagens.Contagem(101, EstrategiaContagem.INCREMENTAL));
+        assertThat(reconciliada.total()).isEqualTo(7);
+        verify(mensagemRepository, times(2)).count();
+    }
+
+    @Test
+    void deveRecontar_DepoisDeInvalidada() {
+        //Arrange
+        when(mensagemRepository.count()).thenReturn(10L, 10L, 4L, 4L);
+        contagemMensagens.contar(EstrategiaContagem.CACHE);
+        contagemMensagens.contar(EstrategiaContagem.INCREMENTAL);
+
+        //Act
+        contagemMensagens.invalidar();
+        var emCache = contagemMensagens.contar(EstrategiaContagem.CACHE);
+        var incremental = contagemMensagens.contar(EstrategiaContagem.INCREMENTAL);
+
+        //Assert
+        assertThat(emCache.total()).isEqualTo(4);
+        assertThat(incremental.total()).isEqualTo(4);
+        verify(mensagemRepository, times(4)).count();
+    }
+
+    @Test
+    void deveContarExato_QuandoBancoNaoTemEstimativa() {
+        //Arrange
+        when(mensagemRepository.estimarTotal()).thenReturn(OptionalLong.empty());
+        when(mensagemRepository.count()).thenReturn(42L);
+
+        //Act
+        var contagem = contagemMensagens.contar(EstrategiaContagem.ESTIMADA);
+
+        //Assert
+        assertThat(contagem).isEqualTo(new ContagemMensagens.Contagem(42, EstrategiaContagem.EXATA));
+    }
+
+    private static Mensagem mensagem() {
+        var mensagem = gerarMensagem();
+        mensagem.setId(UUID.randomUUID());
+        return mensagem;
+    }
+}
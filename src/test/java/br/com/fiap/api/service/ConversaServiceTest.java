@@ -0,0 +1,186 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.model.NoConversa;
+import br.com.fiap.api.model.TipoEventoMensagem;
+import br.com.fiap.api.repository.MensagemRepository;
+import br.com.fiap.api.utils.CaminhoConversa;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static br.com.fiap.api.utils.MensagemHelper.gerarMensagem;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ConversaServiceTest {
+
+    @Mock
+    private MensagemRepository mensagemRepository;
+
+    @Mock
+    private LimitadorTaxaUsuario limitadorTaxa;
+
+    @Mock
+    private ApplicationEventPublisher eventos;
+
+    private final AtomicLong relogio = new AtomicLong(1_700_000_000_000_000L);
+
+    private ConversaService conversaService;
+
+    AutoCloseable mock;
+
+    @BeforeEach
+    void setUp() {
+        mock = MockitoAnnotations.openMocks(this);
+        conversaService = new ConversaService(mensagemRepository, limitadorTaxa, eventos, 3, 2, relogio::incrementAndGet);
+        when(mensagemRepository.save(any(Mensagem.class))).thenAnswer(i -> i.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mock.close();
+    }
+
+    @Test
+    void deveAbrirConversaNaRaiz_NaPrimeiraResposta() {
+        //Arrange
+        var raiz = mensagem(null, null);
+        raiz.setDataCriacao(LocalDateTime.of(2024, 1, 1, 12, 0));
+        when(mensagemRepository.findById(raiz.getId())).thenReturn(Optional.of(raiz));
+
+        //Act
+        var resposta = conversaService.responder(raiz.getId(), gerarMensagem());
+
+        //Assert
+        assertThat(raiz.getCaminho()).isEqualTo(CaminhoConversa.raiz(raiz.getDataCriacao(), raiz.getId()));
+        assertThat(resposta.getRespostaDe()).isEqualTo(raiz.getId());
+        assertThat(resposta.getCaminho()).startsWith(raiz.getCaminho()).hasSize(2 * CaminhoConversa.TAMANHO_SEGMENTO);
+        var publicados = ArgumentCaptor.forClass(EventoMensagem.class);
+        verify(eventos, times(2)).publishEvent(publicados.capture());
+        assertThat(publicados.getAllValues()).extracting(EventoMensagem::tipo)
+                .containsExactly(TipoEventoMensagem.ALTERADA, TipoEventoMensagem.REGISTRADA);
+        verify(limitadorTaxa).consumir("José");
+    }
+
+    @Test
+    void deveRecusarResposta_AlemDaProfundidadeMaxima() {
+        //Arrange
+        var pai = mensagem(null, "0".repeat(CaminhoConversa.TAMANHO_MAXIMO));
+        when(mensagemRepository.findById(pai.getId())).thenReturn(Optional.of(pai));
+
+        //Act & Assert
+        assertThatThrownBy(() -> conversaService.responder(pai.getId(), gerarMensagem()))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(mensagemRepository, never()).save(any());
+    }
+
+    @Test
+    void deveMontarArvore_DescartandoRespostasDeMensagemRemovida() {
+        //Arrange
+        var raiz = mensagem(null, "a");
+        var primeira = mensagem(raiz, "a1");
+        var neta = mensagem(primeira, "a1x");
+        var segunda = mensagem(raiz, "a2");
+        // a resposta de uma mensagem que não está mais na conversa
+        var orfa = mensagem(mensagem(raiz, "a3"), "a3x");
+        when(mensagemRepository.findById(raiz.getId())).thenReturn(Optional.of(raiz));
+        when(mensagemRepository.buscarSubarvore(eq("a"), eq("ag"), anyInt(), any(Pageable.class)))
+                .thenReturn(List.of(raiz, primeira, neta, segunda, orfa));
+        var conversaService = new ConversaService(mensagemRepository, limitadorTaxa, eventos, 10, 2, relogio::get);
+
+        //Act
+        var conversa = conversaService.buscarConversa(raiz.getId(), 2);
+
+        //Assert
+        assertThat(conversa.truncada()).isFalse();
+        assertThat(conversa.mensagens()).isEqualTo(4);
+        assertThat(conversa.raiz().mensagem()).isEqualTo(raiz);
+        assertThat(conversa.raiz().respostas()).extracting(NoConversa::mensagem).containsExactly(primeira, segunda);
+        assertThat(conversa.raiz().respostas().get(0).respostas()).extracting(NoConversa::mensagem)
+                .containsExactly(neta);
+    }
+
+    @Test
+    void deveTruncarConversa_NoLimiteDeMensagens() {
+        //Arrange
+        var caminho = "0".repeat(CaminhoConversa.TAMANHO_SEGMENTO);
+        var raiz = mensagem(null, caminho);
+        var respostas = List.of(raiz, mensagem(raiz, caminho + "1"), mensagem(raiz, caminho + "2"),
+                mensagem(raiz, caminho + "3"));
+        when(mensagemRepository.findById(raiz.getId())).thenReturn(Optional.of(raiz));
+        when(mensagemRepository.buscarSubarvore(anyString(), anyString(), anyInt(), any(Pageable.class)))
+                .thenReturn(respostas);
+
+        //Act
+        var conversa = conversaService.buscarConversa(raiz.getId(), 1);
+
+        //Assert
+        assertThat(conversa.truncada()).isTrue();
+        assertThat(conversa.mensagens()).isEqualTo(3);
+        // profundidade 1 abaixo da raiz: caminhos de até dois segmentos
+        verify(mensagemRepository).buscarSubarvore(caminho, caminho + "g", 2 * CaminhoConversa.TAMANHO_SEGMENTO,
+                PageRequest.of(0, 4));
+    }
+
+    @Test
+    void deveDevolverCursor_QuandoHouverMaisRespostas() {
+        //Arrange
+        var pai = mensagem(null, "0".repeat(CaminhoConversa.TAMANHO_SEGMENTO));
+        var segmentoA = "1".repeat(CaminhoConversa.TAMANHO_SEGMENTO);
+        var segmentoB = "2".repeat(CaminhoConversa.TAMANHO_SEGMENTO);
+        var segmentoC = "3".repeat(CaminhoConversa.TAMANHO_SEGMENTO);
+        var respostas = List.of(mensagem(pai, pai.getCaminho() + segmentoA),
+                mensagem(pai, pai.getCaminho() + segmentoB), mensagem(pai, pai.getCaminho() + segmentoC));
+        when(mensagemRepository.findById(pai.getId())).thenReturn(Optional.of(pai));
+        when(mensagemRepository.listarRespostas(pai.getId(), pai.getCaminho(), PageRequest.of(0, 3)))
+                .thenReturn(respostas);
+        when(mensagemRepository.listarRespostas(pai.getId(), pai.getCaminho() + segmentoB, PageRequest.of(0, 3)))
+                .thenReturn(respostas.subList(2, 3));
+
+        //Act
+        var primeiraPagina = conversaService.listarRespostas(pai.getId(), null, 2);
+        var segundaPagina = conversaService.listarRespostas(pai.getId(), primeiraPagina.proxima(), 2);
+
+        //Assert
+        assertThat(primeiraPagina.respostas()).containsExactlyElementsOf(respostas.subList(0, 2));
+        assertThat(primeiraPagina.proxima()).isEqualTo(segmentoB);
+        assertThat(segundaPagina.respostas()).containsExactly(respostas.get(2));
+        assertThat(segundaPagina.proxima()).isNull();
+    }
+
+    @Test
+    void deveRecusarCursorInvalido() {
+        //Act & Assert
+        assertThatThrownBy(() -> conversaService.listarRespostas(UUID.randomUUID(), "nao-hexadecimal", 2))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cursor Invalido");
+        verifyNoInteractions(mensagemRepository);
+    }
+
+    private static Mensagem mensagem(Mensagem pai, String caminho) {
+        var mensagem = gerarMensagem();
+        mensagem.setId(UUID.randomUUID());
+        mensagem.setRespostaDe(pai == null ? null : pai.getId());
+        mensagem.setCaminho(caminho);
+        return mensagem;
+    }
+}
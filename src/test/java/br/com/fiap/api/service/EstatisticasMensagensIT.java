@@ -0,0 +1,99 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.EstatisticaUsuario;
+import br.com.fiap.api.model.EstatisticaUsuarioDia;
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.repository.ArquivoMensagens;
+import br.com.fiap.api.repository.EstatisticaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// contexto próprio: a reconstrução troca os rollups que os outros testes leem
+@SpringBootTest(properties = "mensagem.estatisticas.intervalo=1h")
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+@DirtiesContext
+class EstatisticasMensagensIT {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 3, 1, 10, 0, 10);
+    private static final LocalDate DIA = INICIO.toLocalDate();
+
+    @Autowired
+    private EstatisticaRepository repositorio;
+
+    @Autowired
+    private ArquivoMensagens arquivo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void naoDeveContarDuasVezes_OsBaldesDeOutraInstanciaAnterioresAReconstrucao() {
+        //Arrange
+        var relogioA = new AtomicReference<>(INICIO);
+        var relogioB = new AtomicReference<>(INICIO);
+        try (var instanciaA = instancia(relogioA); var instanciaB = instancia(relogioB)) {
+            var antiga = inserir("Zoe", DIA.minusDays(1).atTime(9, 0));
+            // antes do corte: a varredura já conta a registrada e deixa a removida de fora
+            var registrada = inserir("Zoe", INICIO);
+            instanciaB.aoAlterarMensagem(EventoMensagem.registrada(registrada));
+            remover(antiga.getId(), INICIO.plusSeconds(5));
+            instanciaB.aoAlterarMensagem(EventoMensagem.removida(antiga.getId()));
+
+            relogioA.set(INICIO.plusMinutes(2));
+            instanciaA.reconstruir();
+
+            // depois do corte: continuam incrementais na instância que recebeu
+            relogioB.set(INICIO.plusMinutes(2));
+            var depois = inserir("Zoe", INICIO.plusMinutes(2));
+            instanciaB.aoAlterarMensagem(EventoMensagem.registrada(depois));
+            remover(registrada.getId(), INICIO.plusMinutes(2).plusSeconds(10));
+            instanciaB.aoAlterarMensagem(EventoMensagem.removida(registrada.getId()));
+            relogioB.set(INICIO.plusMinutes(4));
+
+            //Act
+            instanciaB.descarregar();
+
+            //Assert
+            assertThat(repositorio.mensagensPorDia("Zoe", DIA.minusDays(2), DIA))
+                    .containsExactly(new EstatisticaUsuarioDia("Zoe", DIA, 1));
+            assertThat(repositorio.maisAtivos(10)).contains(new EstatisticaUsuario("Zoe", 1));
+        }
+    }
+
+    private EstatisticasMensagens instancia(AtomicReference<LocalDateTime> relogio) {
+        return new EstatisticasMensagens(repositorio, arquivo, transactionManager, 2, 2, Duration.ofHours(1),
+                new SimpleMeterRegistry(), relogio::get);
+    }
+
+    private Mensagem inserir(String usuario, LocalDateTime dataCriacao) {
+        var mensagem = Mensagem.builder().id(UUID.randomUUID()).usuario(usuario).conteudo("Conteudo")
+                .dataCriacao(dataCriacao).build();
+        jdbcTemplate.update("INSERT INTO mensagem (id, usuario, conteudo, data_criacao, gostei) "
+                + "VALUES (?, ?, 'Conteudo', ?, 0)", mensagem.getId(), usuario, dataCriacao);
+        return mensagem;
+    }
+
+    private void remover(UUID id, LocalDateTime removidaEm) {
+        jdbcTemplate.update("UPDATE mensagem SET removida_em = ? WHERE id = ?", removidaEm, id);
+    }
+}
@@ -0,0 +1,230 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.EstatisticaGosteiHora;
+import br.com.fiap.api.model.EstatisticaUsuario;
+import br.com.fiap.api.model.EstatisticaUsuarioDia;
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.repository.ArquivoMensagens;
+import br.com.fiap.api.repository.EstatisticaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EstatisticasMensagensTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2023, 1, 15, 10, 0, 10);
+    private static final LocalDate DIA = INICIO.toLocalDate();
+
+    @Mock
+    private EstatisticaRepository repositorio;
+
+    @Mock
+    private ArquivoMensagens arquivo;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicReference<LocalDateTime> relogio = new AtomicReference<>(INICIO);
+
+    // a linha do corte no banco, compartilhada pelas instâncias
+    private final AtomicReference<LocalDateTime> corte = new AtomicReference<>();
+
+    private EstatisticasMensagens estatisticas;
+
+    AutoCloseable mock;
+
+    @BeforeEach
+    void setUp() {
+        mock = MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenAnswer(i -> new SimpleTransactionStatus());
+        when(repositorio.travarCorte()).thenAnswer(i -> corte.get());
+        doAnswer(i -> {
+            corte.set(i.getArgument(0));
+            return null;
+        }).when(repositorio).gravarCorte(any());
+        estatisticas = new EstatisticasMensagens(repositorio, arquivo, transactionManager, 4, 2,
+                Duration.ofHours(1), new SimpleMeterRegistry(), relogio::get);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        estatisticas.close();
+        mock.close();
+    }
+
+    @Test
+    void deveGravarSoOsMinutosEncerrados_SomadosPorDiaHoraEUsuario() {
+        //Arrange
+        registrar("Eva", "Eva", "Adam");
+        gostar(3);
+        relogio.set(INICIO.plusMinutes(1));
+        registrar("Eva");
+        gostar(1);
+        relogio.set(INICIO.plusMinutes(2));
+
+        //Act
+        var linhas = estatisticas.descarregar();
+
+        //Assert
+        assertThat(linhas).isEqualTo(5);
+        verify(repositorio).somarMensagensPorDia(List.of(
+                new EstatisticaUsuarioDia("Adam", DIA, 1), new EstatisticaUsuarioDia("Eva", DIA, 2)));
+        verify(repositorio).somarMensagensPorUsuario(List.of(
+                new EstatisticaUsuario("Adam", 1), new EstatisticaUsuario("Eva", 2)));
+        verify(repositorio).somarGosteiPorHora(List.of(new EstatisticaGosteiHora(DIA.atTime(10, 0), 3)));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void deveManterOsTotais_QuandoAGravacaoFalha() {
+        //Arrange
+        registrar("Eva");
+        relogio.set(INICIO.plusMinutes(2));
+        doThrow(new QueryTimeoutException("banco indisponível")).doNothing()
+                .when(repositorio).somarMensagensPorDia(any());
+        assertThatThrownBy(() -> estatisticas.descarregar()).isInstanceOf(QueryTimeoutException.class);
+        relogio.set(INICIO.plusMinutes(3));
+        registrar("Eva");
+        relogio.set(INICIO.plusMinutes(5));
+
+        //Act
+        estatisticas.descarregar();
+
+        //Assert
+        verify(repositorio).somarMensagensPorDia(List.of(new EstatisticaUsuarioDia("Eva", DIA, 1)));
+        verify(repositorio).somarMensagensPorDia(List.of(new EstatisticaUsuarioDia("Eva", DIA, 2)));
+        verify(repositorio).somarMensagensPorUsuario(List.of(new EstatisticaUsuario("Eva", 2)));
+        assertThat(estatisticas.descarregar()).isZero();
+    }
+
+    @Test
+    void deveReconstruir_EmFaixasDeIdContiguas_ComOArquivo() {
+        //Arrange
+        var faixas = new ArrayList<UUID[]>();
+        when(repositorio.contarMensagensPorDia(any(), any(), any())).thenAnswer(invocacao -> {
+            synchronized (faixas) {
+                faixas.add(new UUID[]{invocacao.getArgument(0), invocacao.getArgument(1)});
+            }
+            return List.of(new EstatisticaUsuarioDia("Eva", DIA, 2));
+        });
+        var arquivada = Mensagem.builder().id(UUID.randomUUID()).usuario("Adam").conteudo("Antiga")
+                .dataCriacao(DIA.minusYears(1).atStartOfDay()).build();
+        when(arquivo.listar(0, 10_000)).thenReturn(List.of(arquivada));
+        registrar("Eva");
+        gostar(2);
+        relogio.set(INICIO.plusMinutes(1));
+        registrar("Jhon");
+
+        //Act
+        var total = estatisticas.reconstruir();
+        relogio.set(INICIO.plusMinutes(3));
+        estatisticas.descarregar();
+
+        //Assert
+        assertThat(total).isEqualTo(9);
+        verify(repositorio, times(4)).contarMensagensPorDia(any(), any(), eq(INICIO.plusMinutes(1).withSecond(0)));
+        faixas.sort((a, b) -> a[0] == null ? -1 : b[0] == null ? 1 : Long.compareUnsigned(
+                a[0].getMostSignificantBits(), b[0].getMostSignificantBits()));
+        assertThat(faixas.get(0)[0]).isNull();
+        assertThat(faixas.get(3)[1]).isNull();
+        for (int i = 1; i < 4; i++) {
+            assertThat(faixas.get(i)[0]).isEqualTo(faixas.get(i - 1)[1]);
+        }
+        verify(repositorio).substituirMensagens(
+                List.of(new EstatisticaUsuarioDia("Adam", DIA.minusYears(1), 1), new EstatisticaUsuarioDia("Eva", DIA, 8)),
+                List.of(new EstatisticaUsuario("Adam", 1), new EstatisticaUsuario("Eva", 8)));
+        // o minuto anterior ao corte já está na varredura; o do corte continua incremental
+        verify(repositorio).somarMensagensPorUsuario(List.of(new EstatisticaUsuario("Jhon", 1)));
+        // os gostei não são reconstruídos: os do minuto anterior ao corte não se perdem
+        verify(repositorio).somarGosteiPorHora(List.of(new EstatisticaGosteiHora(DIA.atTime(10, 0), 2)));
+    }
+
+    @Test
+    void deveDescontarRemovidas_DoAutorEDoDiaDeCriacao_SoAsRemovidasDepoisDaReconstrucao() {
+        //Arrange
+        var antesDaReconstrucao = UUID.randomUUID();
+        var depoisDaReconstrucao = UUID.randomUUID();
+        when(repositorio.contarMensagensPorDia(any(), any(), any())).thenReturn(List.of());
+        when(repositorio.contarRemovidasPorDia(any(), any())).thenReturn(List.of(
+                new EstatisticaUsuarioDia("Eva", DIA.minusDays(3), 1)));
+        remover(antesDaReconstrucao);
+        relogio.set(INICIO.plusMinutes(1));
+        estatisticas.reconstruir();
+        registrar("Eva");
+        remover(depoisDaReconstrucao);
+        relogio.set(INICIO.plusMinutes(3));
+
+        //Act
+        estatisticas.descarregar();
+
+        //Assert
+        // a varredura já deixou de fora a removida antes do corte
+        verify(repositorio).contarRemovidasPorDia(List.of(depoisDaReconstrucao), INICIO.plusMinutes(1).withSecond(0));
+        verify(repositorio).somarMensagensPorDia(List.of(
+                new EstatisticaUsuarioDia("Eva", DIA.minusDays(3), -1), new EstatisticaUsuarioDia("Eva", DIA, 1)));
+        verify(repositorio).somarMensagensPorUsuario(List.of(new EstatisticaUsuario("Eva", 0)));
+    }
+
+    @Test
+    void deveDescartarPendentesAnterioresAoCorte_GravadoPorOutraInstancia() {
+        //Arrange
+        var removida = UUID.randomUUID();
+        registrar("Eva");
+        remover(removida);
+        gostar(1);
+        relogio.set(INICIO.plusMinutes(2));
+        doThrow(new QueryTimeoutException("banco indisponível")).doNothing()
+                .when(repositorio).somarMensagensPorDia(any());
+        assertThatThrownBy(() -> estatisticas.descarregar()).isInstanceOf(QueryTimeoutException.class);
+        registrar("Adam");
+        corte.set(INICIO.plusMinutes(1).withSecond(0));
+        relogio.set(INICIO.plusMinutes(4));
+
+        //Act
+        estatisticas.descarregar();
+
+        //Assert
+        verify(repositorio).somarMensagensPorDia(List.of(new EstatisticaUsuarioDia("Adam", DIA, 1)));
+        verify(repositorio).somarMensagensPorUsuario(List.of(new EstatisticaUsuario("Adam", 1)));
+        // só a tentativa que falhou, antes do corte, procurou a removida
+        verify(repositorio).contarRemovidasPorDia(List.of(removida), INICIO);
+        verify(repositorio).somarGosteiPorHora(List.of(new EstatisticaGosteiHora(DIA.atTime(10, 0), 1)));
+    }
+
+    private void registrar(String... usuarios) {
+        for (var usuario : usuarios) {
+            var mensagem = Mensagem.builder().id(UUID.randomUUID()).usuario(usuario).conteudo("Conteudo").build();
+            estatisticas.aoAlterarMensagem(EventoMensagem.registrada(mensagem));
+        }
+    }
+
+    private void remover(UUID id) {
+        estatisticas.aoAlterarMensagem(EventoMensagem.removida(id));
+    }
+
+    private void gostar(int vezes) {
+        for (int i = 0; i < vezes; i++) {
+            estatisticas.aoAlterarMensagem(EventoMensagem.gostei(UUID.randomUUID(), "Adam"));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package br.com.fiap.api.service;
+
+import io.qameta.allure.restassured.AllureRestAssured;
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "mensagem.expurgo.carencia=0s")
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+class ExpurgoMensagensIT {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ExpurgoMensagens expurgo;
+
+    @Autowired
+    private GosteiPorUsuario gosteiPorUsuario;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.port = port;
+    }
+
+    @Test
+    void deveEsconderMensagemRemovida_QueContinuaNaTabelaAteOExpurgo() {
+        //Arrange
+        var id = registrarMensagem();
+
+        //Act
+        given().filters(new AllureRestAssured())
+                .when().delete("/mensagens/{id}", id)
+                .then().statusCode(HttpStatus.OK.value());
+
+        //Assert
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT removida_em FROM mensagem WHERE id = CAST(? AS UUID)", Timestamp.class, id)).isNotNull();
+        given().filters(new AllureRestAssured())
+                .when().get("/mensagens/{id}", id)
+                .then().statusCode(HttpStatus.BAD_REQUEST.value())
+                .body(equalTo("ID Invalido"));
+        given().filters(new AllureRestAssured())
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .body("[\"" + id + "\"]")
+                .when().post("/mensagens/buscar-varios")
+                .then().statusCode(HttpStatus.OK.value())
+                .body("[0].encontrada", equalTo(false));
+        given().filters(new AllureRestAssured())
+                .when().get("/mensagens?page=0&size=50")
+                .then().statusCode(HttpStatus.OK.value())
+                .body("content.id", not(hasItem(id)));
+        given().filters(new AllureRestAssured())
+                .when().delete("/mensagens/{id}", id)
+                .then().statusCode(HttpStatus.BAD_REQUEST.value())
+                .body(equalTo("Mensagem não encontrada"));
+    }
+
+    @Test
+    void deveApagarSoAsRemovidas_NoExpurgo() {
+        //Arrange
+        var removida = registrarMensagem();
+        var mantida = registrarMensagem();
+        // um gostei consolidado no bitmap e outro ainda pendente
+        registrarGostei(removida, "Adam");
+        gosteiPorUsuario.consolidar();
+        registrarGostei(removida, "Eva");
+        registrarGostei(mantida, "Adam");
+        given().when().delete("/mensagens/{id}", removida).then().statusCode(HttpStatus.OK.value());
+
+        //Act
+        var expurgadas = expurgo.expurgar();
+
+        //Assert
+        // a removida pelo outro teste também sai, se ele rodou antes
+        assertThat(expurgadas).isPositive();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM mensagem WHERE id = CAST(? AS UUID)", Long.class, removida)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mensagem WHERE removida_em IS NOT NULL",
+                Long.class)).isZero();
+        assertThat(contarGostei("gostei_mensagem", removida)).isZero();
+        assertThat(contarGostei("gostei_pendente", removida)).isZero();
+        assertThat(contarGostei("gostei_pendente", mantida)).isOne();
+        given().filters(new AllureRestAssured())
+                .when().get("/mensagens/{id}", mantida)
+                .then().statusCode(HttpStatus.OK.value());
+    }
+
+    private long contarGostei(String tabela, String mensagemId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + tabela + " WHERE mensagem_id = CAST(? AS UUID)",
+                Long.class, mensagemId);
+    }
+
+    private static void registrarGostei(String id, String usuario) {
+        given().queryParam("usuario", usuario)
+                .when().post("/mensagens/{id}/gostei", id)
+                .then().statusCode(HttpStatus.OK.value());
+    }
+
+    private static String registrarMensagem() {
+        return given()
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"usuario\": \"Eva\", \"conteudo\": \"Mensagem que pode ser removida\"}")
+                .when().post("/mensagens")
+                .then().statusCode(HttpStatus.CREATED.value())
+                .extract().path("id");
+    }
+}
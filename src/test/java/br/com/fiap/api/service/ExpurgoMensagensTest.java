@@ -0,0 +1,110 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.repository.MensagemRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ExpurgoMensagensTest {
+
+    private static final LocalDateTime AGORA = LocalDateTime.of(2023, 1, 15, 3, 0);
+
+    @Mock
+    private MensagemRepository mensagemRepository;
+
+    @Mock
+    private GosteiPorUsuario gosteiPorUsuario;
+
+    private final SimpleMeterRegistry registro = new SimpleMeterRegistry();
+
+    private final AtomicReference<LocalDateTime> relogio = new AtomicReference<>(AGORA);
+
+    private ExpurgoMensagens expurgo;
+
+    AutoCloseable mock;
+
+    @BeforeEach
+    void setUp() {
+        mock = MockitoAnnotations.openMocks(this);
+        expurgo = new ExpurgoMensagens(mensagemRepository, gosteiPorUsuario, Duration.ofDays(1), 100, 3, Duration.ZERO,
+                LocalTime.of(23, 0), LocalTime.of(6, 0), true, Duration.ofHours(1), registro, relogio::get);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        expurgo.close();
+        mock.close();
+    }
+
+    @Test
+    void deveExpurgarEmLotes_AteOLoteVirIncompleto() {
+        //Arrange
+        var limite = AGORA.minusDays(1);
+        var ultimoLote = ids(40);
+        when(mensagemRepository.expurgarRemovidas(limite, 100)).thenReturn(ids(100), ultimoLote);
+
+        //Act
+        var expurgadas = expurgo.expurgar();
+
+        //Assert
+        assertThat(expurgadas).isEqualTo(140);
+        verify(mensagemRepository, times(2)).expurgarRemovidas(limite, 100);
+        assertThat(registro.counter("mensagem.expurgo.expurgadas").count()).isEqualTo(140);
+        assertThat(registro.timer("mensagem.expurgo.lote").count()).isEqualTo(2);
+        verify(gosteiPorUsuario, times(140)).descartar(any());
+        ultimoLote.forEach(id -> verify(gosteiPorUsuario).descartar(id));
+    }
+
+    @Test
+    void deveParar_NoLimiteDeLotesOuQuandoAJanelaFecha() {
+        //Arrange
+        when(mensagemRepository.expurgarRemovidas(any(), anyInt())).thenAnswer(invocacao -> {
+            relogio.set(relogio.get().plusHours(1));
+            return ids(100);
+        });
+
+        //Act
+        var rodadaInteira = expurgo.expurgar();
+        var janelaFechando = expurgo.expurgar();
+
+        //Assert
+        // cada lote avança uma hora: a rodada das 03h para no limite de 3 lotes, a das 06h com a janela fechada
+        assertThat(rodadaInteira).isEqualTo(300);
+        assertThat(janelaFechando).isEqualTo(100);
+        verify(mensagemRepository, times(4)).expurgarRemovidas(any(), anyInt());
+    }
+
+    @Test
+    void deveRespeitarJanela_QueAtravessaAMeiaNoite() {
+        //Arrange
+        relogio.set(AGORA.withHour(12));
+
+        //Act
+        expurgo.executar();
+
+        //Assert
+        assertThat(expurgo.dentroDaJanela(LocalTime.of(23, 0))).isTrue();
+        assertThat(expurgo.dentroDaJanela(LocalTime.of(0, 30))).isTrue();
+        assertThat(expurgo.dentroDaJanela(LocalTime.of(6, 0))).isFalse();
+        assertThat(expurgo.dentroDaJanela(LocalTime.of(22, 59))).isFalse();
+        verifyNoInteractions(mensagemRepository);
+    }
+
+    private static List<UUID> ids(int quantidade) {
+        return Stream.generate(UUID::randomUUID).limit(quantidade).toList();
+    }
+}
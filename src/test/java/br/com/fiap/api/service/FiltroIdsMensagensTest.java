@@ -0,0 +1,196 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.repository.MensagemRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class FiltroIdsMensagensTest {
+
+    @Mock
+    private MensagemRepository repositorio;
+
+    private final List<UUID> tabela = new CopyOnWriteArrayList<>();
+    private final List<UUID[]> faixas = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry registro = new SimpleMeterRegistry();
+    private volatile Runnable aoVarrer = () -> { };
+
+    private FiltroIdsMensagens filtro;
+
+    AutoCloseable mock;
+
+    @BeforeEach
+    void setUp() {
+        mock = MockitoAnnotations.openMocks(this);
+        when(repositorio.estimarTotal()).thenReturn(OptionalLong.empty());
+        // cada faixa entrega os ids da tabela com os 64 bits altos dentro dela, na ordem sem sinal
+        when(repositorio.percorrerIds(any(), any(), any())).thenAnswer(invocacao -> {
+            UUID de = invocacao.getArgument(0);
+            UUID ate = invocacao.getArgument(1);
+            Consumer<UUID> consumidor = invocacao.getArgument(2);
+            faixas.add(new UUID[]{de, ate});
+            aoVarrer.run();
+            var lidos = tabela.stream()
+                    .filter(id -> de == null || Long.compareUnsigned(id.getMostSignificantBits(), de.getMostSignificantBits()) >= 0)
+                    .filter(id -> ate == null || Long.compareUnsigned(id.getMostSignificantBits(), ate.getMostSignificantBits()) < 0)
+                    .peek(consumidor)
+                    .count();
+            return lidos;
+        });
+        filtro = new FiltroIdsMensagens(repositorio, 1_000, 4, 2, true, registro);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        filtro.close();
+        mock.close();
+    }
+
+    @Test
+    void deveRecusarSoOsIdsAusentes_DepoisDeMontado() {
+        //Arrange
+        tabela.addAll(Stream.generate(UUID::randomUUID).limit(500).toList());
+        var desconhecidos = Stream.generate(UUID::randomUUID).limit(1_000).toList();
+        assertThat(desconhecidos).allMatch(filtro::podeConter);
+
+        //Act
+        var lidos = filtro.montar();
+
+        //Assert
+        assertThat(lidos).isEqualTo(500);
+        assertThat(faixas).hasSize(4);
+        assertThat(tabela).allMatch(filtro::podeConter);
+        var recusados = desconhecidos.stream().filter(id -> !filtro.podeConter(id)).count();
+        assertThat(recusados).isGreaterThan(990);
+        assertThat(registro.get("mensagem.filtro-ids.recusados").counter().count()).isEqualTo(recusados);
+        assertThat(registro.get("mensagem.filtro-ids.ids").gauge().value()).isEqualTo(500);
+    }
+
+    @Test
+    void deveAceitarCriadaNaTransacao_EIncluirSoDepoisDoCommit() throws Exception {
+        //Arrange
+        filtro.montar();
+        var confirmada = gerarMensagem();
+        var desfeita = gerarMensagem();
+
+        //Act
+        var visivelNaTransacao = executarNaTransacao(confirmada, TransactionSynchronization.STATUS_COMMITTED);
+        executarNaTransacao(desfeita, TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        //Assert
+        assertThat(visivelNaTransacao).isTrue();
+        assertThat(filtro.podeConter(confirmada.getId())).isTrue();
+        assertThat(filtro.podeConter(desfeita.getId())).isFalse();
+    }
+
+    @Test
+    void deveTirarRemovidas() {
+        //Arrange
+        var mensagem = gerarMensagem();
+        filtro.montar();
+        filtro.aoRegistrarMensagem(EventoMensagem.registrada(mensagem));
+
+        //Act
+        filtro.aoRemoverMensagem(EventoMensagem.removida(mensagem.getId()));
+
+        //Assert
+        assertThat(filtro.podeConter(mensagem.getId())).isFalse();
+    }
+
+    @Test
+    void deveRemontarComMaisCapacidade_QuandoEncher() {
+        //Arrange
+        // sem a montagem automática em segundo plano: o teste decide quando remontar
+        filtro.close();
+        var registroProprio = new SimpleMeterRegistry();
+        filtro = new FiltroIdsMensagens(repositorio, 1_000, 4, 2, false, registroProprio);
+        filtro.montar();
+        var novas = new ArrayList<UUID>();
+
+        //Act
+        for (int i = 0; i < 5_000; i++) {
+            var id = UUID.randomUUID();
+            tabela.add(id);
+            novas.add(id);
+            filtro.adicionar(id);
+        }
+        var transbordou = !filtro.pronto();
+        var lidos = filtro.montar();
+
+        //Assert
+        assertThat(transbordou).isTrue();
+        assertThat(lidos).isEqualTo(5_000);
+        assertThat(filtro.pronto()).isTrue();
+        assertThat(novas).allMatch(filtro::podeConter);
+        assertThat(registroProprio.get("mensagem.filtro-ids.bytes").gauge().value()).isGreaterThanOrEqualTo(5_000 * 2);
+    }
+
+    @Test
+    void deveDescartarNaHora_ERecomecarAVarreduraEmAndamento_AoRemontar() {
+        //Arrange
+        // sem a montagem automática em segundo plano: o teste decide quando montar
+        filtro.close();
+        filtro = new FiltroIdsMensagens(repositorio, 1_000, 4, 2, false, new SimpleMeterRegistry());
+        filtro.montar();
+        var desconhecido = UUID.randomUUID();
+        assertThat(filtro.podeConter(desconhecido)).isFalse();
+
+        //Act
+        filtro.remontar();
+        var descartado = !filtro.pronto() && filtro.podeConter(desconhecido);
+        faixas.clear();
+        aoVarrer = () -> {
+            aoVarrer = () -> { };
+            filtro.remontar();
+        };
+        filtro.montar();
+
+        //Assert
+        assertThat(descartado).isTrue();
+        assertThat(faixas).hasSize(8);
+        assertThat(filtro.pronto()).isTrue();
+    }
+
+    private boolean executarNaTransacao(Mensagem mensagem, int desfecho) throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            filtro.aoRegistrarMensagem(EventoMensagem.registrada(mensagem));
+            var aqui = filtro.podeConter(mensagem.getId());
+            // outra thread ainda não enxerga a mensagem sem commit
+            assertThat(CompletableFuture.supplyAsync(() -> filtro.podeConter(mensagem.getId())).get()).isFalse();
+            var sincronizacoes = TransactionSynchronizationManager.getSynchronizations();
+            if (desfecho == TransactionSynchronization.STATUS_COMMITTED) {
+                TransactionSynchronizationUtils.invokeAfterCommit(sincronizacoes);
+            }
+            TransactionSynchronizationUtils.invokeAfterCompletion(sincronizacoes, desfecho);
+            return aqui;
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static Mensagem gerarMensagem() {
+        return Mensagem.builder().id(UUID.randomUUID()).usuario("Adam").conteudo("Conteudo").build();
+    }
+}
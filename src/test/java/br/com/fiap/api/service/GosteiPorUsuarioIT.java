@@ -0,0 +1,175 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.exception.MensagemNotFoundException;
+import br.com.fiap.api.model.GosteiPendente;
+import br.com.fiap.api.model.SituacaoGostei;
+import br.com.fiap.api.repository.GosteiMensagemRepository;
+import br.com.fiap.api.repository.GosteiPendenteRepository;
+import br.com.fiap.api.repository.MensagemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static br.com.fiap.api.utils.MensagemHelper.gerarMensagem;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+class GosteiPorUsuarioIT {
+
+    @Autowired
+    private GosteiPorUsuario gosteiPorUsuario;
+
+    @Autowired
+    private MensagemRepository mensagemRepository;
+
+    @Autowired
+    private GosteiMensagemRepository gosteiMensagemRepository;
+
+    @Autowired
+    private GosteiPendenteRepository gosteiPendenteRepository;
+
+    @Autowired
+    private IndiceUsuarios indiceUsuarios;
+
+    private UUID mensagemId;
+
+    @BeforeEach
+    void setUp() {
+        var mensagem = gerarMensagem();
+        mensagem.setId(UUID.randomUUID());
+        mensagemId = mensagemRepository.save(mensagem).getId();
+    }
+
+    @Test
+    void deveRegistrarGosteiUmaVezPorUsuario() {
+        //Act
+        var primeiro = gosteiPorUsuario.adicionar(mensagemId, "Adam");
+        var repetido = gosteiPorUsuario.adicionar(mensagemId, "Adam");
+        var outroUsuario = gosteiPorUsuario.adicionar(mensagemId, "Eva");
+
+        //Assert
+        assertThat(primeiro).isTrue();
+        assertThat(repetido).isFalse();
+        assertThat(outroUsuario).isTrue();
+        assertThat(gosteiPorUsuario.consultar(mensagemId, "Adam")).isEqualTo(new SituacaoGostei(true, 2));
+        assertThat(gosteiPorUsuario.consultar(mensagemId, "Jhon")).isEqualTo(new SituacaoGostei(false, 2));
+        assertThat(mensagemRepository.findById(mensagemId).orElseThrow().getGostei()).isEqualTo(2);
+    }
+
+    @Test
+    void devePersistirBitmapCompactado() throws Exception {
+        //Arrange
+        for (int i = 0; i < 1_000; i++) {
+            gosteiPorUsuario.adicionar(mensagemId, "usuario-bitmap-" + i);
+        }
+
+        //Act
+        gosteiPorUsuario.consolidar();
+        var registro = gosteiMensagemRepository.findById(mensagemId).orElseThrow();
+        var usuarios = new RoaringBitmap();
+        usuarios.deserialize(ByteBuffer.wrap(registro.getUsuarios()));
+
+        //Assert
+        // índices consecutivos viram um único run: bem menos que 4 bytes por usuário
+        assertThat(usuarios.getCardinality()).isEqualTo(1_000);
+        assertThat(registro.getUsuarios()).hasSizeLessThan(100);
+        assertThat(gosteiPorUsuario.consultar(mensagemId, "usuario-bitmap-999").total()).isEqualTo(1_000);
+        assertThat(gosteiPendenteRepository.usuariosPendentes(mensagemId)).isEmpty();
+    }
+
+    @Test
+    void deveGravarSoOPendente_EContinuarIdempotente_DepoisDeConsolidar() {
+        //Arrange
+        gosteiPorUsuario.adicionar(mensagemId, "Adam");
+        gosteiPorUsuario.adicionar(mensagemId, "Eva");
+        var pendentesAntes = gosteiPendenteRepository.usuariosPendentes(mensagemId);
+
+        //Act
+        gosteiPorUsuario.consolidar();
+        gosteiPorUsuario.descartar(mensagemId);
+        var repetido = gosteiPorUsuario.adicionar(mensagemId, "Adam");
+        var novo = gosteiPorUsuario.adicionar(mensagemId, "Jhon");
+
+        //Assert
+        assertThat(pendentesAntes).hasSize(2);
+        assertThat(repetido).isFalse();
+        assertThat(novo).isTrue();
+        assertThat(gosteiPendenteRepository.usuariosPendentes(mensagemId)).hasSize(1);
+        assertThat(gosteiPorUsuario.consultar(mensagemId, "Adam")).isEqualTo(new SituacaoGostei(true, 3));
+        assertThat(gosteiPorUsuario.consultar(mensagemId, "Jhon")).isEqualTo(new SituacaoGostei(true, 3));
+        assertThat(mensagemRepository.findById(mensagemId).orElseThrow().getGostei()).isEqualTo(3);
+    }
+
+    @Test
+    void deveConsultarOConjuntoCompleto_DepoisDeGosteiQueSoLeramOProprioUsuario() {
+        //Arrange
+        gosteiPorUsuario.adicionar(mensagemId, "Adam");
+        gosteiPorUsuario.consolidar();
+        gosteiPorUsuario.descartar(mensagemId);
+        gosteiPorUsuario.adicionar(mensagemId, "Eva");
+        // gravado direto, como por outra instância: este cache não o viu
+        gosteiPendenteRepository.saveAndFlush(new GosteiPendente(mensagemId,
+                indiceUsuarios.obterOuCriar("Jhon")));
+
+        //Act
+        var repetido = gosteiPorUsuario.adicionar(mensagemId, "Eva");
+        var situacao = gosteiPorUsuario.consultar(mensagemId, "Jhon");
+
+        //Assert
+        assertThat(repetido).isFalse();
+        assertThat(situacao).isEqualTo(new SituacaoGostei(true, 3));
+    }
+
+    @Test
+    void deveContarUmGosteiPorUsuario_QuandoGosteiConcorrentes() throws Exception {
+        //Arrange
+        var executor = Executors.newFixedThreadPool(8);
+        var tarefas = new ArrayList<Callable<Boolean>>();
+        for (int i = 0; i < 64; i++) {
+            var usuario = "usuario-concorrente-" + (i % 8);
+            tarefas.add(() -> gosteiPorUsuario.adicionar(mensagemId, usuario));
+        }
+
+        //Act
+        var novos = 0;
+        try {
+            for (var resultado : executor.invokeAll(tarefas, 30, TimeUnit.SECONDS)) {
+                novos += resultado.get() ? 1 : 0;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //Assert
+        assertThat(novos).isEqualTo(8);
+        assertThat(gosteiPorUsuario.consultar(mensagemId, "usuario-concorrente-0").total()).isEqualTo(8);
+        assertThat(mensagemRepository.findById(mensagemId).orElseThrow().getGostei()).isEqualTo(8);
+    }
+
+    @Test
+    void deveGerarExcecao_QuandoMensagemNaoExiste() {
+        //Arrange
+        var id = UUID.randomUUID();
+
+        //Act & Assert
+        assertThatThrownBy(() -> gosteiPorUsuario.adicionar(id, "Adam"))
+                .isInstanceOf(MensagemNotFoundException.class)
+                .hasMessage("Mensagem não encontrada");
+        assertThat(gosteiMensagemRepository.findById(id)).isEmpty();
+        assertThat(gosteiPorUsuario.consultar(id, "Adam")).isEqualTo(new SituacaoGostei(false, 0));
+    }
+}
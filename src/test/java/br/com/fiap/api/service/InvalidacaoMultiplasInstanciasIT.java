@@ -0,0 +1,149 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.RestApiApplication;
+import br.com.fiap.api.model.Mensagem;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static br.com.fiap.api.utils.MensagemHelper.gerarMensagem;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Duas instâncias sobre o mesmo banco: este contexto escreve, o segundo lê pelo cache de segundo nível.
+ * Sem {@code @AutoConfigureTestDatabase}, que daria a cada contexto um banco embutido diferente.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + InvalidacaoMultiplasInstanciasIT.URL,
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "mensagem.invalidacao.canal=" + InvalidacaoMultiplasInstanciasIT.CANAL,
+        "mensagem.limite-usuario.capacidade=1000"
+})
+@ActiveProfiles("test")
+class InvalidacaoMultiplasInstanciasIT {
+
+    static final String URL = "jdbc:h2:mem:invalidacao-multiplas-instancias;DB_CLOSE_DELAY=-1";
+    static final String CANAL = "mensagem_invalidacao_multiplas_instancias";
+
+    private static final int MENSAGENS = 100;
+    private static final int ESCRITAS = 400;
+
+    private static ConfigurableApplicationContext leitora;
+
+    @Autowired
+    private MensagemService mensagemService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void subirSegundaInstancia() {
+        // argumentos de linha de comando: as propriedades padrão do builder perderiam para o application-test.yaml
+        leitora = new SpringApplicationBuilder(RestApiApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + URL,
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        // o esquema e a carga inicial são da primeira instância
+                        "--spring.jpa.hibernate.ddl-auto=none",
+                        "--spring.sql.init.mode=never",
+                        "--mensagem.invalidacao.canal=" + CANAL);
+    }
+
+    @AfterAll
+    static void derrubarSegundaInstancia() {
+        leitora.close();
+    }
+
+    @Test
+    void deveManterCacheDaOutraInstanciaCoerente_QuandoHouverEscritasConcorrentes() throws Exception {
+        //Arrange
+        var servicoLeitora = leitora.getBean(MensagemService.class);
+        var ids = new ArrayList<UUID>();
+        for (int i = 0; i < MENSAGENS; i++) {
+            ids.add(mensagemService.registrarMensagem(gerarMensagem()).getId());
+        }
+        ids.forEach(servicoLeitora::buscarMensagem);
+        var estatisticas = leitora.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        var acertosAntes = acertos(estatisticas);
+        var faltasAntes = faltas(estatisticas);
+
+        //Act
+        var executor = Executors.newFixedThreadPool(4);
+        var escritorasAtivas = new CountDownLatch(2);
+        var tarefas = new ArrayList<Callable<Void>>();
+        for (int escritora = 0; escritora < 2; escritora++) {
+            tarefas.add(() -> {
+                for (int i = 0; i < ESCRITAS / 2; i++) {
+                    var id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+                    var nova = Mensagem.builder().id(id).usuario("José").conteudo("versão " + UUID.randomUUID()).build();
+                    mensagemService.alterarMensagem(id, nova);
+                }
+                escritorasAtivas.countDown();
+                return null;
+            });
+            tarefas.add(() -> {
+                while (escritorasAtivas.getCount() > 0) {
+                    servicoLeitora.buscarMensagem(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+                }
+                return null;
+            });
+        }
+        for (var resultado : executor.invokeAll(tarefas, 60, TimeUnit.SECONDS)) {
+            resultado.get();
+        }
+        executor.shutdown();
+        // o envio em lote e o segundo descarte ainda podem estar a caminho
+        Thread.sleep(500);
+
+        //Assert
+        for (var id : ids) {
+            var gravado = jdbcTemplate.queryForObject("SELECT conteudo FROM mensagem WHERE id = ?", String.class, id);
+            assertThat(servicoLeitora.buscarMensagem(id).getConteudo()).isEqualTo(gravado);
+        }
+        var atraso = leitora.getBean(MeterRegistry.class).get("mensagem.invalidacao.atraso").timer();
+        assertThat(atraso.count()).isPositive();
+        assertThat(percentil99(atraso.takeSnapshot().percentileValues())).isLessThan(1_000);
+        var acertosDurante = acertos(estatisticas) - acertosAntes;
+        var faltasDurante = faltas(estatisticas) - faltasAntes;
+        assertThat((double) acertosDurante / (acertosDurante + faltasDurante)).isGreaterThan(0.5);
+    }
+
+    private static long acertos(Statistics estatisticas) {
+        return estatisticas.getDomainDataRegionStatistics(Mensagem.REGIAO_CACHE).getHitCount();
+    }
+
+    private static long faltas(Statistics estatisticas) {
+        return estatisticas.getDomainDataRegionStatistics(Mensagem.REGIAO_CACHE).getMissCount();
+    }
+
+    private static double percentil99(ValueAtPercentile[] percentis) {
+        return Arrays.stream(percentis)
+                .filter(percentil -> percentil.percentile() == 0.99)
+                .findFirst()
+                .orElseThrow()
+                .value(TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,106 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.exception.LimiteTaxaExcedidoException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LimitadorTaxaUsuarioTest {
+
+    private final AtomicLong relogio = new AtomicLong(1_000);
+
+    private LimitadorTaxaUsuario limitador;
+
+    @BeforeEach
+    void setUp() {
+        limitador = new LimitadorTaxaUsuario(3, 1, 1_000, TimeUnit.MINUTES.toNanos(1), 4, relogio::get);
+    }
+
+    @Test
+    void devePermitirRajadaAteCapacidade() {
+        //Act & Assert
+        for (int i = 0; i < 3; i++) {
+            assertThat(limitador.tentarConsumir("Adam")).isZero();
+        }
+        assertThat(limitador.tentarConsumir("Adam")).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void deveReporFichasComPassarDoTempo() {
+        //Arrange
+        for (int i = 0; i < 3; i++) {
+            limitador.tentarConsumir("Adam");
+        }
+
+        //Act
+        relogio.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        //Assert
+        assertThat(limitador.tentarConsumir("Adam")).isZero();
+        assertThat(limitador.tentarConsumir("Adam")).isPositive();
+    }
+
+    @Test
+    void deveIsolarBaldesPorUsuario() {
+        //Arrange
+        for (int i = 0; i < 3; i++) {
+            limitador.tentarConsumir("Adam");
+        }
+
+        //Act
+        var espera = limitador.tentarConsumir("Eva");
+
+        //Assert
+        assertThat(espera).isZero();
+    }
+
+    @Test
+    void deveGerarExcecao_QuandoLimiteExcedido() {
+        //Arrange
+        for (int i = 0; i < 3; i++) {
+            limitador.consumir("Adam");
+        }
+
+        //Act & Assert
+        assertThatThrownBy(() -> limitador.consumir("Adam"))
+                .isInstanceOf(LimiteTaxaExcedidoException.class)
+                .hasMessage("Limite de mensagens por usuário excedido")
+                .extracting("esperaSegundos").isEqualTo(1L);
+    }
+
+    @Test
+    void deveRemoverBaldesOciosos() {
+        //Arrange
+        for (int i = 0; i < 100; i++) {
+            limitador.tentarConsumir("usuario-" + i);
+        }
+        relogio.addAndGet(TimeUnit.MINUTES.toNanos(2));
+
+        //Act
+        for (int i = 0; i < 200; i++) {
+            limitador.tentarConsumir("Adam");
+        }
+
+        //Assert
+        assertThat(limitador.usuariosMonitorados()).isLessThan(100);
+    }
+
+    @Test
+    void deveLimitarQuantidadeDeUsuariosMonitorados() {
+        //Arrange
+        var pequeno = new LimitadorTaxaUsuario(3, 1, 8, TimeUnit.MINUTES.toNanos(1), 4, relogio::get);
+
+        //Act
+        for (int i = 0; i < 1_000; i++) {
+            pequeno.tentarConsumir("usuario-" + i);
+        }
+
+        //Assert
+        assertThat(pequeno.usuariosMonitorados()).isLessThanOrEqualTo(8);
+    }
+}
@@ -13,6 +13,7 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.List;
 import java.util.UUID;
 
 import static br.com.fiap.api.utils.MensagemHelper.gerarMensagem;
@@ -85,6 +86,27 @@ class MensagemServiceIT {
         }
     }
 
+    @Nested
+    class BuscarMensagens {
+        @Test
+        void devePermitirBuscarMensagens() {
+            //Arrange
+            var id1 = UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bb");
+            var id2 = UUID.fromString("870c5a73-d080-44e4-8cd8-32a6ddba2efb");
+            var idInexistente = UUID.fromString("bd04f514-599c-47fa-9f80-aea2979c580c");
+
+            //Act
+            var resultados = mensagemService.buscarMensagens(List.of(id2, idInexistente, id1));
+
+            //Assert
+            assertThat(resultados).hasSize(3);
+            assertThat(resultados.get(0).mensagem().getUsuario()).isEqualTo("Eva");
+            assertThat(resultados.get(1).id()).isEqualTo(idInexistente);
+            assertThat(resultados.get(1).encontrada()).isFalse();
+            assertThat(resultados.get(2).mensagem().getUsuario()).isEqualTo("Adam");
+        }
+    }
+
     @Nested
     class AlterarMensagem {
         @Test
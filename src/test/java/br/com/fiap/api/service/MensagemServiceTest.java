@@ -1,20 +1,45 @@
 package br.com.fiap.api.service;
 
+import br.com.fiap.api.exception.LimiteTaxaExcedidoException;
 import br.com.fiap.api.exception.MensagemNotFoundException;
+import br.com.fiap.api.model.EstrategiaContagem;
+import br.com.fiap.api.model.EventoMensagem;
+import br.com.fiap.api.model.JanelaTendencia;
 import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.model.MensagemEmAlta;
+import br.com.fiap.api.model.PaginaMensagens;
+import br.com.fiap.api.model.SituacaoGostei;
+import br.com.fiap.api.model.TipoEventoMensagem;
+import br.com.fiap.api.repository.ArquivoMensagens;
 import br.com.fiap.api.repository.MensagemRepository;
+import br.com.fiap.api.service.ContadorJanelaDeslizante.Contagem;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static br.com.fiap.api.utils.MensagemHelper.gerarMensagem;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -29,12 +54,33 @@ class MensagemServiceTest {
     @Mock
     private MensagemRepository mensagemRepository;
 
+    @Mock
+    private TendenciasGostei tendencias;
+
+    @Mock
+    private GosteiPorUsuario gosteiPorUsuario;
+
+    @Mock
+    private ApplicationEventPublisher eventos;
+
+    @Mock
+    private ArquivoMensagens arquivo;
+
+    @Mock
+    private FiltroIdsMensagens filtroIds;
+
+    private LimitadorTaxaUsuario limitadorTaxa;
+
     AutoCloseable mock;
 
     @BeforeEach
     void setUp() {
         mock = MockitoAnnotations.openMocks(this);
-        mensagemService = new MensagemServiceImpl(mensagemRepository);
+        when(filtroIds.podeConter(any())).thenReturn(true);
+        limitadorTaxa = new LimitadorTaxaUsuario(1, 1, 1_000, TimeUnit.MINUTES.toNanos(1), 4, System::nanoTime);
+        mensagemService = new MensagemServiceImpl(mensagemRepository, limitadorTaxa, tendencias, gosteiPorUsuario, eventos,
+                new ContagemMensagens(mensagemRepository, EstrategiaContagem.EXATA, Duration.ofSeconds(30),
+                        Duration.ofMinutes(5), System::nanoTime), arquivo, filtroIds);
     }
 
     @AfterEach
@@ -58,6 +104,23 @@ class MensagemServiceTest {
         assertThat(mensagemRegistrada.getUsuario()).isEqualTo(mensagem.getUsuario());
         assertThat(mensagemRegistrada.getId()).isNotNull();
         verify(mensagemRepository, times(1)).save(mensagem);
+        verify(eventos, times(1)).publishEvent(argThat((EventoMensagem evento) ->
+                evento.tipo() == TipoEventoMensagem.REGISTRADA && evento.mensagemId().equals(mensagem.getId())));
+    }
+
+    @Test
+    void deveGerarExcecao_QuandoRegistrarMensagem_LimiteDoUsuarioExcedido() {
+        //Arrange
+        var primeira = gerarMensagem();
+        var segunda = gerarMensagem();
+        when(mensagemRepository.save(any(Mensagem.class))).thenAnswer(i -> i.getArgument(0));
+        mensagemService.registrarMensagem(primeira);
+
+        //Act & Assert
+        assertThatThrownBy(() -> mensagemService.registrarMensagem(segunda))
+                .isInstanceOf(LimiteTaxaExcedidoException.class)
+                .hasMessage("Limite de mensagens por usuário excedido");
+        verify(mensagemRepository, times(1)).save(any(Mensagem.class));
     }
 
     @Test
@@ -78,6 +141,39 @@ class MensagemServiceTest {
         verify(mensagemRepository, times(1)).findById(id);
     }
 
+    @Test
+    void devePermitirProcurarMensagem_QuandoIdNaoExiste() {
+
+        //Arrange
+        var id = UUID.fromString("bd04f514-599c-47fa-9f80-aea2979c580d");
+
+        when(mensagemRepository.findById(id)).thenReturn(Optional.empty());
+
+        //Act
+        var mensagemOptional = mensagemService.procurarMensagem(id);
+
+        //Assert
+        assertThat(mensagemOptional).isEmpty();
+        verify(mensagemRepository, times(1)).findById(id);
+    }
+
+    @Test
+    void devePermitirBuscarMensagem_QuandoArquivada() {
+        //Arrange
+        var id = UUID.fromString("0b0e8f52-6f7a-4c1e-9d2b-3a4c5d6e7f80");
+        var arquivada = gerarMensagem();
+        arquivada.setId(id);
+        when(mensagemRepository.findById(id)).thenReturn(Optional.empty());
+        when(arquivo.buscar(id)).thenReturn(Optional.of(arquivada));
+
+        //Act
+        var mensagemObtida = mensagemService.buscarMensagem(id);
+
+        //Assert
+        assertThat(mensagemObtida).isSameAs(arquivada);
+        verify(mensagemRepository, times(1)).findById(id);
+    }
+
     @Test
     void deveGerarExcecao_QuandoBuscarMensagem_IdNaoExiste() {
 
@@ -95,6 +191,102 @@ class MensagemServiceTest {
         verify(mensagemRepository, times(1)).findById(id);
     }
 
+    @Test
+    void deveGerarExcecaoSemConsultarTabela_QuandoFiltroRecusaId() {
+        //Arrange
+        var id = UUID.fromString("bd04f514-599c-47fa-9f80-aea2979c580d");
+        when(filtroIds.podeConter(id)).thenReturn(false);
+        when(arquivo.buscar(id)).thenReturn(Optional.empty());
+
+        //Act
+
+        //Assert
+        assertThatThrownBy(() -> mensagemService.buscarMensagem(id))
+                .isInstanceOf(MensagemNotFoundException.class)
+                .hasMessage("Mensagem não encontrada");
+        assertThatThrownBy(() -> mensagemService.alterarMensagem(id, gerarMensagem()))
+                .isInstanceOf(MensagemNotFoundException.class);
+        assertThatThrownBy(() -> mensagemService.removerMensagem(id))
+                .isInstanceOf(MensagemNotFoundException.class);
+        verifyNoInteractions(mensagemRepository);
+        verify(eventos, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void devePermitirBuscarMensagemArquivada_QuandoFiltroRecusaId() {
+        //Arrange
+        var id = UUID.fromString("bd04f514-599c-47fa-9f80-aea2979c580e");
+        var arquivada = gerarMensagem();
+        arquivada.setId(id);
+        when(filtroIds.podeConter(id)).thenReturn(false);
+        when(arquivo.buscar(id)).thenReturn(Optional.of(arquivada));
+
+        //Act
+        var mensagem = mensagemService.buscarMensagem(id);
+        var resultados = mensagemService.buscarMensagens(List.of(id));
+
+        //Assert
+        assertThat(mensagem).isEqualTo(arquivada);
+        assertThat(resultados.get(0).mensagem()).isEqualTo(arquivada);
+        verifyNoInteractions(mensagemRepository);
+    }
+
+    @Test
+    void deveBuscarNaTabelaSoOsIdsQueOFiltroAceita() {
+        //Arrange
+        var idConhecido = UUID.fromString("1f0c6a52-3c4e-4b7a-9d6f-2a8e5b7c9d03");
+        var idRecusado = UUID.fromString("1f0c6a52-3c4e-4b7a-9d6f-2a8e5b7c9d04");
+        var mensagem = gerarMensagem();
+        mensagem.setId(idConhecido);
+        when(filtroIds.podeConter(idRecusado)).thenReturn(false);
+        when(arquivo.buscar(idRecusado)).thenReturn(Optional.empty());
+        when(mensagemRepository.buscarPorIds(List.of(idConhecido))).thenReturn(List.of(mensagem));
+
+        //Act
+        var resultados = mensagemService.buscarMensagens(List.of(idRecusado, idConhecido));
+
+        //Assert
+        assertThat(resultados.get(0).encontrada()).isFalse();
+        assertThat(resultados.get(1).mensagem()).isEqualTo(mensagem);
+        verify(mensagemRepository, times(1)).buscarPorIds(List.of(idConhecido));
+    }
+
+    @Test
+    void devePermitirBuscarMensagens_NaOrdemSolicitada() {
+        //Arrange
+        var idExistente = UUID.fromString("1f0c6a52-3c4e-4b7a-9d6f-2a8e5b7c9d01");
+        var idInexistente = UUID.fromString("1f0c6a52-3c4e-4b7a-9d6f-2a8e5b7c9d02");
+        var mensagem = gerarMensagem();
+        mensagem.setId(idExistente);
+
+        when(mensagemRepository.buscarPorIds(List.of(idInexistente, idExistente)))
+                .thenReturn(Arrays.asList(null, mensagem));
+
+        //Act
+        var resultados = mensagemService.buscarMensagens(List.of(idInexistente, idExistente, idInexistente));
+
+        //Assert
+        assertThat(resultados).hasSize(3);
+        assertThat(resultados.get(0).id()).isEqualTo(idInexistente);
+        assertThat(resultados.get(0).encontrada()).isFalse();
+        assertThat(resultados.get(1).encontrada()).isTrue();
+        assertThat(resultados.get(1).mensagem()).isEqualTo(mensagem);
+        assertThat(resultados.get(2).encontrada()).isFalse();
+        verify(mensagemRepository, times(1)).buscarPorIds(List.of(idInexistente, idExistente));
+    }
+
+    @Test
+    void deveGerarExcecao_QuandoBuscarMensagens_LimiteExcedido() {
+        //Arrange
+        var ids = Collections.nCopies(501, UUID.randomUUID());
+
+        //Assert
+        assertThatThrownBy(() -> mensagemService.buscarMensagens(ids))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Quantidade de ids excede o limite de 500");
+        verify(mensagemRepository, never()).buscarPorIds(anyList());
+    }
+
     @Test
     void devePermitirAlterarMensagem() {
         //Arrange
@@ -175,19 +367,19 @@ class MensagemServiceTest {
     void devePermitirRemoverMensagem() {
         //Arrange
         var id = UUID.fromString("3b6fb9c7-c629-4c1a-a059-13a79c5b6809");
-        var mensagem = gerarMensagem();
-        mensagem.setId(id);
 
-        when(mensagemRepository.findById(id)).thenReturn(Optional.of(mensagem));
-        doNothing().when(mensagemRepository).deleteById(id);
+        when(mensagemRepository.marcarRemovida(eq(id), any(LocalDateTime.class))).thenReturn(true);
 
         //Act
         var mensagemFoirRemovida = mensagemService.removerMensagem(id);
 
         //Assert
         assertThat(mensagemFoirRemovida).isTrue();
-        verify(mensagemRepository, times(1)).findById(id);
-        verify(mensagemRepository, times(1)).deleteById(id);
+        verify(mensagemRepository, times(1)).marcarRemovida(eq(id), any(LocalDateTime.class));
+        verify(mensagemRepository, never()).findById(any());
+        verify(mensagemRepository, never()).delete(any(Mensagem.class));
+        verify(eventos, times(1)).publishEvent(argThat((EventoMensagem evento) ->
+                evento.tipo() == TipoEventoMensagem.REMOVIDA && evento.mensagemId().equals(id)));
     }
 
     @Test
@@ -195,7 +387,7 @@ class MensagemServiceTest {
         //Arrange
         var id = UUID.fromString("6967393c-2255-4d69-b405-e3946d073283");
 
-        when(mensagemRepository.findById(id)).thenReturn(Optional.empty());
+        when(mensagemRepository.marcarRemovida(eq(id), any(LocalDateTime.class))).thenReturn(false);
 
         //Act
 
@@ -203,8 +395,8 @@ class MensagemServiceTest {
         assertThatThrownBy(() -> mensagemService.removerMensagem(id))
                 .isInstanceOf(MensagemNotFoundException.class)
                 .hasMessage("Mensagem não encontrada");
-        verify(mensagemRepository, times(1)).findById(id);
-        verify(mensagemRepository, never()).deleteById(id);
+        verify(mensagemRepository, times(1)).marcarRemovida(eq(id), any(LocalDateTime.class));
+        verify(eventos, never()).publishEvent(any(Object.class));
     }
 
     @Test
@@ -232,4 +424,228 @@ class MensagemServiceTest {
                 });
         verify(mensagemRepository, times(1)).listarMensagens(any(Pageable.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void deveListarSemContar_QuandoPaginaRevelaTotal() {
+        //Arrange
+        var pagina = PageRequest.of(2, 10);
+        when(mensagemRepository.listarPagina(pagina)).thenReturn(List.of(gerarMensagem(), gerarMensagem(), gerarMensagem()));
+
+        //Act
+        var resultadoObtido = (PaginaMensagens) mensagemService.listarMensagem(pagina, EstrategiaContagem.CACHE);
+
+        //Assert
+        assertThat(resultadoObtido.getTotalElements()).isEqualTo(23);
+        assertThat(resultadoObtido.getPrecisaoTotal()).isEqualTo(EstrategiaContagem.EXATA);
+        verify(mensagemRepository, never()).count();
+        verify(mensagemRepository, never()).listarMensagens(any(Pageable.class));
+    }
+
+    @Test
+    void deveCompletarPaginaComArquivo_QuandoTabelaAcaba() {
+        //Arrange
+        var pagina = PageRequest.of(1, 10);
+        var daTabela = List.of(gerarMensagem(), gerarMensagem(), gerarMensagem());
+        var arquivadas = List.of(gerarMensagem(), gerarMensagem(), gerarMensagem(), gerarMensagem(),
+                gerarMensagem(), gerarMensagem(), gerarMensagem());
+        when(mensagemRepository.listarPagina(pagina)).thenReturn(daTabela);
+        when(arquivo.total()).thenReturn(50L);
+        when(arquivo.listar(0, 7)).thenReturn(arquivadas);
+
+        //Act
+        var resultadoObtido = (PaginaMensagens) mensagemService.listarMensagem(pagina, EstrategiaContagem.CACHE);
+
+        //Assert
+        assertThat(resultadoObtido.getContent()).containsExactlyElementsOf(
+                Stream.concat(daTabela.stream(), arquivadas.stream()).toList());
+        assertThat(resultadoObtido.getTotalElements()).isEqualTo(63);
+        assertThat(resultadoObtido.getPrecisaoTotal()).isEqualTo(EstrategiaContagem.EXATA);
+    }
+
+    @Test
+    void deveListarSoArquivo_QuandoPaginaAlemDaTabela() {
+        //Arrange
+        var pagina = PageRequest.of(3, 10);
+        when(mensagemRepository.listarMensagens(pagina)).thenReturn(new PageImpl<>(List.of(), pagina, 13));
+        when(arquivo.total()).thenReturn(50L);
+        when(arquivo.listar(17, 10)).thenReturn(List.of(gerarMensagem(), gerarMensagem()));
+
+        //Act
+        var resultadoObtido = mensagemService.listarMensagem(pagina, EstrategiaContagem.EXATA);
+
+        //Assert
+        assertThat(resultadoObtido.getContent()).hasSize(2);
+        assertThat(resultadoObtido.getTotalElements()).isEqualTo(63);
+        verify(mensagemRepository, never()).count();
+    }
+
+    @Test
+    void deveInformarTotalEstimado_QuandoEstrategiaEstimada() {
+        //Arrange
+        var pagina = PageRequest.of(0, 2);
+        when(mensagemRepository.listarPagina(pagina)).thenReturn(List.of(gerarMensagem(), gerarMensagem()));
+        when(mensagemRepository.estimarTotal()).thenReturn(OptionalLong.of(1_000));
+
+        //Act
+        var resultadoObtido = (PaginaMensagens) mensagemService.listarMensagem(pagina, EstrategiaContagem.ESTIMADA);
+
+        //Assert
+        assertThat(resultadoObtido.getTotalElements()).isEqualTo(1_000);
+        assertThat(resultadoObtido.getPrecisaoTotal()).isEqualTo(EstrategiaContagem.ESTIMADA);
+        verify(mensagemRepository, never()).count();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 100, 500})
+    void deveCompartilharConsulta_QuandoBuscasConcorrentesDoMesmoId(int leitores) throws Exception {
+        //Arrange
+        var id = UUID.fromString("0f8a3c1e-6d2b-4c57-9e0a-7b4d2f1c8a93");
+        var mensagem = gerarMensagem();
+        mensagem.setId(id);
+        var threads = new CopyOnWriteArrayList<Thread>();
+
+        // a consulta só termina quando todos os outros leitores já estão aguardando o resultado dela
+        when(mensagemRepository.findById(id)).thenAnswer(i -> {
+            var limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (threads.size() < leitores || !threads.stream()
+                    .filter(thread -> thread != Thread.currentThread())
+                    .allMatch(MensagemServiceTest::aguardandoBuscaEmAndamento)) {
+                assertThat(System.nanoTime()).isLessThan(limite);
+                Thread.onSpinWait();
+            }
+            return Optional.of(mensagem);
+        });
+
+        var executor = Executors.newFixedThreadPool(leitores, tarefa -> {
+            var thread = new Thread(tarefa);
+            threads.add(thread);
+            return thread;
+        });
+        try {
+            //Act
+            var resultados = new ArrayList<Future<Mensagem>>();
+            for (int i = 0; i < leitores; i++) {
+                resultados.add(executor.submit(() -> mensagemService.buscarMensagem(id)));
+            }
+
+            //Assert
+            for (var resultado : resultados) {
+                assertThat(resultado.get(10, TimeUnit.SECONDS)).isEqualTo(mensagem);
+            }
+            verify(mensagemRepository, times(1)).findById(id);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void devePermitirRegistrarGostei() {
+        //Arrange
+        var id = UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bb");
+        when(gosteiPorUsuario.adicionar(id, "Adam")).thenReturn(true);
+
+        //Act
+        var novo = mensagemService.registrarGostei(id, "Adam");
+
+        //Assert
+        assertThat(novo).isTrue();
+        verify(gosteiPorUsuario, times(1)).adicionar(id, "Adam");
+        verify(tendencias, times(1)).registrar(id);
+        verify(eventos, times(1)).publishEvent(argThat((EventoMensagem evento) ->
+                evento.tipo() == TipoEventoMensagem.GOSTEI && "Adam".equals(evento.usuario())));
+    }
+
+    @Test
+    void naoDeveContarNasTendencias_QuandoGosteiJaRegistrado() {
+        //Arrange
+        var id = UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bb");
+        when(gosteiPorUsuario.adicionar(id, "Adam")).thenReturn(false);
+
+        //Act
+        var novo = mensagemService.registrarGostei(id, "Adam");
+
+        //Assert
+        assertThat(novo).isFalse();
+        verify(tendencias, never()).registrar(any(UUID.class));
+        verifyNoInteractions(eventos);
+    }
+
+    @Test
+    void deveGerarExcecao_QuandoRegistrarGostei_IdNaoExiste() {
+        //Arrange
+        var id = UUID.fromString("6967393c-2255-4d69-b405-e3946d073283");
+        when(gosteiPorUsuario.adicionar(id, "Adam"))
+                .thenThrow(new MensagemNotFoundException("Mensagem não encontrada"));
+
+        //Act & Assert
+        assertThatThrownBy(() -> mensagemService.registrarGostei(id, "Adam"))
+                .isInstanceOf(MensagemNotFoundException.class)
+                .hasMessage("Mensagem não encontrada");
+        verify(tendencias, never()).registrar(any(UUID.class));
+    }
+
+    @Test
+    void devePermitirConsultarGostei() {
+        //Arrange
+        var mensagem = gerarMensagem();
+        var id = UUID.fromString("5874303c-c837-4354-bc69-10805f1eb4bb");
+        mensagem.setId(id);
+        when(mensagemRepository.findById(id)).thenReturn(Optional.of(mensagem));
+        when(gosteiPorUsuario.consultar(id, "Adam")).thenReturn(new SituacaoGostei(true, 3));
+
+        //Act
+        var situacao = mensagemService.consultarGostei(id, "Adam");
+
+        //Assert
+        assertThat(situacao).isEqualTo(new SituacaoGostei(true, 3));
+    }
+
+    @Test
+    void deveGerarExcecao_QuandoConsultarGostei_IdNaoExiste() {
+        //Arrange
+        var id = UUID.fromString("6967393c-2255-4d69-b405-e3946d073283");
+        when(mensagemRepository.findById(id)).thenReturn(Optional.empty());
+
+        //Act & Assert
+        assertThatThrownBy(() -> mensagemService.consultarGostei(id, "Adam"))
+                .isInstanceOf(MensagemNotFoundException.class)
+                .hasMessage("Mensagem não encontrada");
+        verify(gosteiPorUsuario, never()).consultar(any(UUID.class), any());
+    }
+
+    @Test
+    void devePermitirListarEmAlta_IgnorandoMensagensRemovidas() {
+        //Arrange
+        var mensagem = gerarMensagem();
+        mensagem.setId(UUID.randomUUID());
+        var removida = UUID.randomUUID();
+        when(tendencias.maisGostadas(JanelaTendencia.HORA, 10))
+                .thenReturn(List.of(new Contagem(mensagem.getId(), 7), new Contagem(removida, 3)));
+        when(mensagemRepository.buscarPorIds(List.of(mensagem.getId(), removida)))
+                .thenReturn(Arrays.asList(mensagem, null));
+
+        //Act
+        var emAlta = mensagemService.listarEmAlta(JanelaTendencia.HORA, 10);
+
+        //Assert
+        assertThat(emAlta).containsExactly(new MensagemEmAlta(mensagem, 7));
+    }
+
+    @Test
+    void devePermitirListarEmAlta_SemGostei() {
+        //Arrange
+        when(tendencias.maisGostadas(JanelaTendencia.DIA, 10)).thenReturn(List.of());
+
+        //Act
+        var emAlta = mensagemService.listarEmAlta(JanelaTendencia.DIA, 10);
+
+        //Assert
+        assertThat(emAlta).isEmpty();
+        verify(mensagemRepository, never()).buscarPorIds(any());
+    }
+
+    private static boolean aguardandoBuscaEmAndamento(Thread thread) {
+        return Arrays.stream(thread.getStackTrace()).anyMatch(quadro ->
+                quadro.getClassName().equals(ChamadaUnica.class.getName()) && quadro.getMethodName().equals("aguardar"));
+    }
+}
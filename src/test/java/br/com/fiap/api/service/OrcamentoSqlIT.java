@@ -0,0 +1,253 @@
+package br.com.fiap.api.service;
+
+import br.com.fiap.api.exception.MensagemNotFoundException;
+import br.com.fiap.api.model.EstrategiaContagem;
+import br.com.fiap.api.model.Mensagem;
+import br.com.fiap.api.repository.MensagemRepository;
+import br.com.fiap.api.utils.ContagemSql;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+
+import static br.com.fiap.api.utils.MensagemHelper.gerarMensagem;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Quantos statements cada operação do serviço pode executar. Uma mudança que acrescente
+ * consultas a um caminho quente quebra o build aqui, e não em produção.
+ * <p>
+ * "Frio" é sem o cache de segundo nível, o pior caso; "quente" é com a entidade em cache.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+class OrcamentoSqlIT {
+
+    @Autowired
+    private MensagemService mensagemService;
+
+    @Autowired
+    private ConversaService conversaService;
+
+    @Autowired
+    private MensagemRepository mensagemRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private FiltroIdsMensagens filtroIds;
+
+    @Autowired
+    private GosteiPorUsuario gosteiPorUsuario;
+
+    private Mensagem mensagem;
+
+    @BeforeEach
+    void setUp() {
+        var nova = gerarMensagem();
+        nova.setId(UUID.randomUUID());
+        mensagem = mensagemRepository.save(nova);
+        // gravada direto no repositório, sem o evento que a poria no filtro de ids
+        filtroIds.adicionar(mensagem.getId());
+        esvaziarCache();
+    }
+
+    @Nested
+    class Escrita {
+
+        @Test
+        void registrarMensagem_UmInsert() {
+            var contagem = ContagemSql.medir(() -> mensagemService.registrarMensagem(gerarMensagem()));
+
+            assertThat(contagem.inserts()).isEqualTo(1);
+            assertThat(contagem.total()).isEqualTo(1);
+        }
+
+        @Test
+        void alterarMensagem_UmSelectEUmUpdate() {
+            var alterada = Mensagem.builder().id(mensagem.getId()).conteudo("Conteudo alterado").build();
+
+            var contagem = ContagemSql.medir(() -> mensagemService.alterarMensagem(mensagem.getId(), alterada));
+
+            assertThat(contagem.selects()).isEqualTo(1);
+            assertThat(contagem.updates()).isEqualTo(1);
+            assertThat(contagem.total()).isEqualTo(2);
+        }
+
+        @Test
+        void removerMensagem_UmUpdate() {
+            var contagem = ContagemSql.medir(() -> mensagemService.removerMensagem(mensagem.getId()));
+
+            // o DELETE fica para o ExpurgoMensagens
+            assertThat(contagem.updates()).isEqualTo(1);
+            assertThat(contagem.total()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    class Leitura {
+
+        @Test
+        void buscarMensagem_UmSelectFrio_NenhumQuente() {
+            var frio = ContagemSql.medir(() -> mensagemService.buscarMensagem(mensagem.getId()));
+            var quente = ContagemSql.medir(() -> mensagemService.buscarMensagem(mensagem.getId()));
+
+            assertThat(frio.selects()).isEqualTo(1);
+            assertThat(frio.total()).isEqualTo(1);
+            assertThat(quente.total()).isZero();
+        }
+
+        @Test
+        void idDesconhecido_NenhumStatement() {
+            filtroIds.montar();
+            var id = UUID.randomUUID();
+
+            var busca = ContagemSql.medir(() -> mensagemService.procurarMensagem(id));
+            var alteracao = ContagemSql.medir(() -> assertThatThrownBy(() -> mensagemService.alterarMensagem(id, gerarMensagem()))
+                    .isInstanceOf(MensagemNotFoundException.class));
+            var remocao = ContagemSql.medir(() -> assertThatThrownBy(() -> mensagemService.removerMensagem(id))
+                    .isInstanceOf(MensagemNotFoundException.class));
+
+            assertThat(busca.total()).isZero();
+            assertThat(alteracao.total()).isZero();
+            assertThat(remocao.total()).isZero();
+        }
+
+        @Test
+        void buscarMensagens_UmSelectParaOLote() {
+            var ids = List.of(mensagem.getId(), UUID.randomUUID(), mensagem.getId());
+
+            var contagem = ContagemSql.medir(() -> mensagemService.buscarMensagens(ids));
+
+            assertThat(contagem.selects()).isEqualTo(1);
+            assertThat(contagem.total()).isEqualTo(1);
+        }
+
+        @Test
+        void listarMensagem_UmaConsultaEAteUmCountFrio_NenhumQuente() {
+            var pagina = PageRequest.of(0, 5);
+
+            var frio = ContagemSql.medir(() -> mensagemService.listarMensagem(pagina));
+            var quente = ContagemSql.medir(() -> mensagemService.listarMensagem(pagina));
+
+            assertThat(frio.selects()).isBetween(1L, 2L);
+            assertThat(frio.total()).isEqualTo(frio.selects());
+            assertThat(quente.total()).isZero();
+        }
+
+        @Test
+        void listarMensagem_ContagemEmCache_SemCountAposEscrita() {
+            var pagina = PageRequest.of(0, 1);
+            mensagemService.listarMensagem(pagina, EstrategiaContagem.CACHE);
+            // a escrita invalida o cache de consultas, mas não a contagem com TTL
+            mensagemService.registrarMensagem(gerarMensagem());
+
+            var contagem = ContagemSql.medir(() -> mensagemService.listarMensagem(pagina, EstrategiaContagem.CACHE));
+
+            assertThat(contagem.selects()).isEqualTo(1);
+            assertThat(contagem.total()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    class Conversas {
+
+        @BeforeEach
+        void abrirConversa() {
+            var resposta = conversaService.responder(mensagem.getId(), gerarMensagem());
+            conversaService.responder(resposta.getId(), gerarMensagem());
+        }
+
+        @Test
+        void responder_UmInsertComRaizEmCache() {
+            var contagem = ContagemSql.medir(() -> conversaService.responder(mensagem.getId(), gerarMensagem()));
+
+            assertThat(contagem.inserts()).isEqualTo(1);
+            assertThat(contagem.total()).isEqualTo(1);
+        }
+
+        @Test
+        void buscarConversa_UmaConsultaDeIntervalo() {
+            var contagem = ContagemSql.medir(() -> conversaService.buscarConversa(mensagem.getId(), 63));
+
+            assertThat(contagem.selects()).isEqualTo(1);
+            assertThat(contagem.total()).isEqualTo(1);
+        }
+
+        @Test
+        void listarRespostas_UmaConsulta() {
+            var contagem = ContagemSql.medir(() -> conversaService.listarRespostas(mensagem.getId(), null, 20));
+
+            assertThat(contagem.selects()).isEqualTo(1);
+            assertThat(contagem.total()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    class Gostei {
+
+        @Test
+        void registrarGostei_PrimeiroDaMensagem() {
+            // o índice do usuário é criado fora da medição
+            mensagemService.registrarGostei(mensagemAuxiliar(), "Adam");
+
+            var contagem = ContagemSql.medir(() -> mensagemService.registrarGostei(mensagem.getId(), "Adam"));
+
+            // UPDATE do contador, SELECT do pendente do usuário, SELECT da versão do bitmap, INSERT do pendente;
+            // o bitmap em si só é gravado pela consolidação
+            assertThat(contagem.updates()).isEqualTo(1);
+            assertThat(contagem.selects()).isEqualTo(2);
+            assertThat(contagem.inserts()).isEqualTo(1);
+            assertThat(contagem.total()).isEqualTo(4);
+        }
+
+        @Test
+        void registrarGostei_Repetido_NenhumStatement() {
+            mensagemService.registrarGostei(mensagem.getId(), "Adam");
+
+            var contagem = ContagemSql.medir(() -> mensagemService.registrarGostei(mensagem.getId(), "Adam"));
+
+            assertThat(contagem.total()).isZero();
+        }
+
+        @Test
+        void registrarGostei_DepoisDeConsolidar_LeOBitmapUmaVezSo() {
+            mensagemService.registrarGostei(mensagem.getId(), "Adam");
+            gosteiPorUsuario.consolidar();
+            gosteiPorUsuario.descartar(mensagem.getId());
+            mensagemService.registrarGostei(mensagemAuxiliar(), "Eva");
+            mensagemService.registrarGostei(mensagemAuxiliar(), "Jhon");
+
+            var primeiro = ContagemSql.medir(() -> mensagemService.registrarGostei(mensagem.getId(), "Eva"));
+            var segundo = ContagemSql.medir(() -> mensagemService.registrarGostei(mensagem.getId(), "Jhon"));
+
+            // o primeiro lê o bitmap da versão nova, que fica em cache para o segundo
+            assertThat(primeiro.selects()).isEqualTo(3);
+            assertThat(segundo.selects()).isEqualTo(2);
+            assertThat(segundo.total()).isEqualTo(4);
+        }
+
+        private UUID mensagemAuxiliar() {
+            var auxiliar = gerarMensagem();
+            auxiliar.setId(UUID.randomUUID());
+            return mensagemRepository.save(auxiliar).getId();
+        }
+    }
+
+    private void esvaziarCache() {
+        var cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cache.evictAllRegions();
+    }
+}
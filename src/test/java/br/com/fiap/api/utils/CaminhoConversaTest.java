@@ -0,0 +1,51 @@
+package br.com.fiap.api.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CaminhoConversaTest {
+
+    @Test
+    void deveOrdenarEmPreOrdem_ComIrmaosEmOrdemCronologica() {
+        var raiz = CaminhoConversa.raiz(LocalDateTime.of(2024, 1, 1, 12, 0), UUID.randomUUID());
+        var primeira = CaminhoConversa.filho(raiz, 2_000, UUID.randomUUID());
+        var netaDaPrimeira = CaminhoConversa.filho(primeira, 9_000, UUID.randomUUID());
+        var segunda = CaminhoConversa.filho(raiz, 3_000, UUID.randomUUID());
+
+        assertThat(raiz).isLessThan(primeira);
+        assertThat(primeira).isLessThan(netaDaPrimeira);
+        assertThat(netaDaPrimeira).isLessThan(segunda);
+        assertThat(segunda).isLessThan(CaminhoConversa.limiteSuperior(raiz));
+        assertThat(segunda).isGreaterThan(CaminhoConversa.limiteSuperior(primeira));
+        assertThat(CaminhoConversa.profundidade(netaDaPrimeira)).isEqualTo(2);
+        assertThat(CaminhoConversa.ultimoSegmento(segunda)).isEqualTo(segunda.substring(raiz.length()));
+    }
+
+    @Test
+    void deveLimitarComprimento_PelaProfundidadeMaxima() {
+        var raiz = "0".repeat(CaminhoConversa.TAMANHO_SEGMENTO);
+
+        assertThat(CaminhoConversa.comprimentoMaximo(raiz, 0)).isEqualTo(CaminhoConversa.TAMANHO_SEGMENTO);
+        assertThat(CaminhoConversa.comprimentoMaximo(raiz, 2)).isEqualTo(3 * CaminhoConversa.TAMANHO_SEGMENTO);
+        assertThat(CaminhoConversa.comprimentoMaximo(raiz, Integer.MAX_VALUE)).isEqualTo(CaminhoConversa.TAMANHO_MAXIMO);
+    }
+
+    @ParameterizedTest
+    @NullSource
+    @ValueSource(strings = {
+            "",
+            "0123456789abcdef0123456789abcde",
+            "0123456789abcdef0123456789abcdeg",
+            "0123456789ABCDEF0123456789ABCDEF"
+    })
+    void deveRecusarSegmentoInvalido(String segmento) {
+        assertThat(CaminhoConversa.segmentoValido(segmento)).isFalse();
+    }
+}
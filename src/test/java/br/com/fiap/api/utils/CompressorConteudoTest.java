@@ -0,0 +1,106 @@
+package br.com.fiap.api.utils;
+
+import br.com.fiap.api.model.ConteudoMensagem;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompressorConteudoTest {
+
+    private static final String[] PALAVRAS = {"mensagem", "resposta", "usuario", "conteudo", "gostei",
+            "entrega", "pedido", "produto", "cliente", "suporte", "obrigado", "problema", "hoje", "ontem"};
+
+    private final CompressorConteudo padrao = CompressorConteudo.atual();
+
+    @AfterEach
+    void restaurarCompressor() {
+        CompressorConteudo.usar(padrao);
+    }
+
+    @Test
+    void deveManterTextoPuro_AbaixoDoLimiar() {
+        CompressorConteudo.usar(new CompressorConteudo(64, 3, null));
+
+        var conteudo = ConteudoMensagem.de("Mensagem curta");
+
+        assertThat(conteudo.textoArmazenado()).isEqualTo("Mensagem curta");
+        assertThat(conteudo.compactado()).isNull();
+        assertThat(conteudo.texto()).isEqualTo("Mensagem curta");
+    }
+
+    @Test
+    void deveCompactarEDescompactar_APartirDoLimiar() {
+        CompressorConteudo.usar(new CompressorConteudo(64, 3, null));
+        var texto = gerar(1, 2_000, new Random(1)).get(0) + " ção";
+
+        var conteudo = ConteudoMensagem.de(texto);
+
+        assertThat(conteudo.textoArmazenado()).isNull();
+        assertThat(conteudo.compactado()).hasSizeLessThan(texto.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(conteudo.texto()).isEqualTo(texto);
+    }
+
+    @Test
+    void deveCompactarMelhor_ComDicionarioTreinado() {
+        var dicionario = CompressorConteudo.treinarDicionario(gerar(2_000, 300, new Random(7)), 600_000, 4_096);
+        var semDicionario = new CompressorConteudo(64, 3, null);
+        var comDicionario = new CompressorConteudo(64, 3, dicionario);
+
+        var semDicionarioBytes = 0;
+        var comDicionarioBytes = 0;
+        for (var texto : gerar(100, 300, new Random(42))) {
+            var utf8 = texto.getBytes(StandardCharsets.UTF_8);
+            semDicionarioBytes += semDicionario.compactar(utf8).length;
+            var quadro = comDicionario.compactar(utf8);
+            comDicionarioBytes += quadro.length;
+            assertThat(CompressorConteudo.descompactar(quadro)).isEqualTo(texto);
+        }
+
+        assertThat(comDicionarioBytes).isLessThan(semDicionarioBytes * 3 / 4);
+    }
+
+    @Test
+    void deveRecusarQuadro_ComDicionarioNaoRegistrado() {
+        var dicionario = CompressorConteudo.treinarDicionario(gerar(2_000, 300, new Random(9)), 600_000, 4_096);
+        var texto = "Mensagem com dicionario desconhecido".repeat(10).getBytes(StandardCharsets.UTF_8);
+        var quadro = Zstd.compress(texto, new ZstdDictCompress(alterarId(dicionario), 3));
+
+        assertThatThrownBy(() -> CompressorConteudo.descompactar(quadro))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("não registrado");
+    }
+
+    @Test
+    void deveRecusarLimiar_MaiorQueAColunaDeTexto() {
+        assertThatThrownBy(() -> new CompressorConteudo(CompressorConteudo.LIMIAR_MAXIMO + 1, 3, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<String> gerar(int quantidade, int tamanho, Random aleatorio) {
+        var textos = new ArrayList<String>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            var texto = new StringBuilder();
+            while (texto.length() < tamanho) {
+                texto.append(PALAVRAS[aleatorio.nextInt(PALAVRAS.length)]).append(' ');
+            }
+            textos.add(texto.toString().trim());
+        }
+        return textos;
+    }
+
+    // o id do dicionário fica nos bytes 4..7, depois do número mágico
+    private static byte[] alterarId(byte[] dicionario) {
+        var copia = dicionario.clone();
+        copia[4] ^= 0x5a;
+        return copia;
+    }
+}
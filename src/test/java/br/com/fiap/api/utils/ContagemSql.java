@@ -0,0 +1,22 @@
+package br.com.fiap.api.utils;
+
+import net.ttddyy.dsproxy.QueryCountHolder;
+
+/**
+ * Statements executados pela thread atual durante uma operação.
+ */
+public record ContagemSql(long selects, long inserts, long updates, long deletes, long outros) {
+
+    public static ContagemSql medir(Runnable operacao) {
+        QueryCountHolder.clear();
+        operacao.run();
+        var contagem = QueryCountHolder.getGrandTotal();
+        QueryCountHolder.clear();
+        return new ContagemSql(contagem.getSelect(), contagem.getInsert(), contagem.getUpdate(),
+                contagem.getDelete(), contagem.getOther());
+    }
+
+    public long total() {
+        return selects + inserts + updates + deletes + outros;
+    }
+}
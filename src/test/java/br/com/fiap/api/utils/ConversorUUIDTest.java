@@ -0,0 +1,36 @@
+package br.com.fiap.api.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversorUUIDTest {
+
+    @Test
+    void deveConverterUUID_ComoUUIDFromString() {
+        for (int i = 0; i < 1_000; i++) {
+            var esperado = UUID.randomUUID();
+            assertThat(ConversorUUID.converter(esperado.toString())).isEqualTo(esperado);
+            assertThat(ConversorUUID.converter(esperado.toString().toUpperCase())).isEqualTo(esperado);
+        }
+    }
+
+    @ParameterizedTest
+    @NullSource
+    @ValueSource(strings = {
+            "",
+            "5874303c-c837-4354-bc69",
+            "5874303c-c837-4354-bc69-10805f1eb4bbb",
+            "5874303cxc837-4354-bc69-10805f1eb4bb",
+            "5874303c-c837-4354-bc69-10805f1eb4bg",
+            "5874303c-c837-4354-bc69-10805f1eb4bé"
+    })
+    void deveRetornarNulo_QuandoTextoInvalido(String texto) {
+        assertThat(ConversorUUID.converter(texto)).isNull();
+    }
+}
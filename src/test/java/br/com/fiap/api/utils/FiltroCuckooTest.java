@@ -0,0 +1,88 @@
+package br.com.fiap.api.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FiltroCuckooTest {
+
+    private static final int ITENS = 100_000;
+
+    @Test
+    void deveConterTudoQueFoiAdicionado_ComPoucosFalsosPositivos() {
+        //Arrange
+        var filtro = new FiltroCuckoo(ITENS);
+        var sorteio = new SplittableRandom(1);
+        var hashes = sorteio.longs(ITENS).toArray();
+
+        //Act
+        for (var hash : hashes) {
+            assertThat(filtro.adicionar(hash)).isTrue();
+        }
+
+        //Assert
+        assertThat(filtro.cheio()).isFalse();
+        assertThat(filtro.quantidade()).isEqualTo(ITENS);
+        for (var hash : hashes) {
+            assertThat(filtro.podeConter(hash)).isTrue();
+        }
+        var falsosPositivos = sorteio.longs(ITENS).filter(filtro::podeConter).count();
+        assertThat(falsosPositivos).isLessThan(ITENS / 1_000);
+    }
+
+    @Test
+    void deveEsquecerOsRemovidos_SemPerderOsDemais() {
+        //Arrange
+        var filtro = new FiltroCuckoo(ITENS);
+        var hashes = new SplittableRandom(2).longs(ITENS).toArray();
+        for (var hash : hashes) {
+            filtro.adicionar(hash);
+        }
+
+        //Act
+        for (int i = 0; i < ITENS; i += 2) {
+            assertThat(filtro.remover(hashes[i])).isTrue();
+        }
+
+        //Assert
+        assertThat(filtro.quantidade()).isEqualTo(ITENS / 2);
+        for (int i = 1; i < ITENS; i += 2) {
+            assertThat(filtro.podeConter(hashes[i])).isTrue();
+        }
+        long aindaPresentes = 0;
+        for (int i = 0; i < ITENS; i += 2) {
+            aindaPresentes += filtro.podeConter(hashes[i]) ? 1 : 0;
+        }
+        assertThat(aindaPresentes).isLessThan(ITENS / 1_000);
+    }
+
+    @Test
+    void deveRecusarInclusoes_QuandoCheio_SemPerderAsAnteriores() {
+        //Arrange
+        var filtro = new FiltroCuckoo(1_000);
+        var hashes = new SplittableRandom(3).longs(10_000).toArray();
+
+        //Act
+        int incluidos = 0;
+        while (filtro.adicionar(hashes[incluidos])) {
+            incluidos++;
+        }
+
+        //Assert
+        assertThat(filtro.cheio()).isTrue();
+        assertThat(incluidos).isGreaterThanOrEqualTo(1_000);
+        for (int i = 0; i < incluidos; i++) {
+            assertThat(filtro.podeConter(hashes[i])).isTrue();
+        }
+        // a impressão guardada à parte continua removível e não atrapalha a remoção das outras
+        for (int i = 0; i < incluidos; i += 2) {
+            assertThat(filtro.remover(hashes[i])).isTrue();
+        }
+        assertThat(filtro.cheio()).isFalse();
+        for (int i = 1; i < incluidos; i += 2) {
+            assertThat(filtro.podeConter(hashes[i])).isTrue();
+        }
+    }
+}